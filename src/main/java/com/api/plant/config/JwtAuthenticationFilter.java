@@ -0,0 +1,81 @@
+package com.api.plant.config;
+
+import com.api.plant.dto.AuthenticatedUser;
+import com.api.plant.service.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Optional;
+
+/**
+ * Autentica los requests con "Authorization: Bearer {accessToken}" validando solo la firma del token.
+ * El principal es un AuthenticatedUser con el userId de Mongo (sin BCrypt ni findByUsername).
+ * Un token inválido o expirado no corta el request: sigue sin autenticar, así las rutas públicas
+ * (/api/auth/refresh, /api/auth/login...) funcionan y las protegidas responden 401 por la cadena de seguridad.
+ * El contexto se guarda también como atributo del request: los dispatch ASYNC (SSE) y ERROR no pasan
+ * por este filtro, y SecurityContextHolderFilter lo recupera de ahí para que conserven el principal.
+ * No es un @Component: lo registra SecurityConfig dentro de la cadena de seguridad.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenService tokenService;
+    private final SecurityContextRepository securityContextRepository = new RequestAttributeSecurityContextRepository();
+
+    public JwtAuthenticationFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Optional<TokenService.TokenClaims> claims =
+                tokenService.verify(header.substring(BEARER_PREFIX.length()).trim(), TokenService.TYPE_ACCESS);
+        if (claims.isEmpty()) {
+            log.debug("AUTH: Bearer inválido o expirado en {}; se continúa sin autenticar.", request.getRequestURI());
+            SecurityContextHolder.clearContext();
+            chain.doFilter(request, response);
+            return;
+        }
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication(claims.get()));
+        SecurityContextHolder.setContext(context);
+        securityContextRepository.saveContext(context, request, response);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Authentication a partir de un access token ya verificado (también lo usa el CONNECT de STOMP).
+     */
+    public static UsernamePasswordAuthenticationToken authentication(TokenService.TokenClaims claims) {
+        return UsernamePasswordAuthenticationToken.authenticated(
+                new AuthenticatedUser(claims.userId(), claims.username()), null, Collections.emptyList());
+    }
+}
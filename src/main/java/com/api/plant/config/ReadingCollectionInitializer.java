@@ -0,0 +1,80 @@
+package com.api.plant.config;
+
+import com.api.plant.entity.Reading;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+/**
+ * Crea la colección time-series de lecturas y los índices que usan los patrones de acceso.
+ *
+ * Debe correr ANTES de la primera inserción: si Mongo crea la colección implícitamente
+ * (con un save) queda como colección normal. Por eso se hace en @PostConstruct, antes de
+ * que arranquen las tareas programadas que conectan a los brokers.
+ */
+@Component
+public class ReadingCollectionInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingCollectionInitializer.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public ReadingCollectionInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!mongoTemplate.collectionExists(Reading.class)) {
+            // Toma timeField/metaField/granularity de la anotación @TimeSeries de Reading
+            mongoTemplate.createCollection(Reading.class);
+            log.info("📈 Colección time-series '{}' creada.", Reading.COLLECTION);
+        } else if (!isTimeSeries()) {
+            log.warn("⚠️ La colección '{}' existe pero NO es time-series. Elimínela y reinicie para recrearla.", Reading.COLLECTION);
+        }
+
+        IndexOperations indexOps = mongoTemplate.indexOps(Reading.class);
+
+        // QC por mensaje: última lectura VALID de la planta (findTopByPlantIdAndQcStatusOrderByTimestampDesc)
+        indexOps.createIndex(new Index()
+                .on("plantId", Sort.Direction.ASC)
+                .on("qcStatus", Sort.Direction.ASC)
+                .on("timestamp", Sort.Direction.DESC)
+                .named("plant_qc_ts_idx"));
+
+        // Historial por planta: rango de tiempo y paginación por keyset (timestamp, _id) en cualquier sentido,
+        // sin sort en memoria. Reemplaza a plant_ts_idx (plantId, timestamp), que no cubría el desempate por _id.
+        indexOps.createIndex(new Index()
+                .on("plantId", Sort.Direction.ASC)
+                .on("timestamp", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named("plant_ts_id_idx"));
+        if (indexOps.getIndexInfo().stream().anyMatch(index -> "plant_ts_idx".equals(index.getName()))) {
+            indexOps.dropIndex("plant_ts_idx");
+            log.info("📈 Índice 'plant_ts_idx' reemplazado por 'plant_ts_id_idx'.");
+        }
+
+        // Historial por usuario (reanudación de streams, vistas multi-planta)
+        indexOps.createIndex(new Index()
+                .on("userId", Sort.Direction.ASC)
+                .on("timestamp", Sort.Direction.DESC)
+                .named("user_ts_idx"));
+    }
+
+    private boolean isTimeSeries() {
+        Document result = mongoTemplate.executeCommand(new Document("listCollections", 1)
+                .append("filter", new Document("name", Reading.COLLECTION)));
+        Document cursor = result.get("cursor", Document.class);
+        if (cursor == null) {
+            return false;
+        }
+        return cursor.getList("firstBatch", Document.class).stream()
+                .anyMatch(collection -> "timeseries".equals(collection.getString("type")));
+    }
+}
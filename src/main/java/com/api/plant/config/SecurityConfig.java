@@ -1,5 +1,6 @@
 package com.api.plant.config;
 
+import com.api.plant.service.TokenService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -8,6 +9,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 
 @Configuration
@@ -23,7 +25,7 @@ public class SecurityConfig {
     // En SecurityConfig.java
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, TokenService tokenService) throws Exception {
 
         http
                 .csrf(csrf -> csrf.disable())
@@ -45,7 +47,9 @@ public class SecurityConfig {
                         .anyRequest().authenticated()
 
                 )// --- ¡LA CORRECCIÓN ESTÁ AQUÍ! ---
-                // 5. Habilita HTTP Basic Authentication
+                // 5. Access tokens (Bearer): se validan solo por firma, sin BCrypt ni consultas a Mongo
+                .addFilterBefore(new JwtAuthenticationFilter(tokenService), BasicAuthenticationFilter.class)
+                // 6. HTTP Basic se mantiene por compatibilidad (cuesta un BCrypt por request: usar /api/auth/login)
                 .httpBasic(Customizer.withDefaults()); // <-- AÑADIR ESTA LÍNEA
 
         // ...
@@ -0,0 +1,118 @@
+package com.api.plant.config;
+
+import com.api.plant.service.PlantReadingStreamPublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Descarta frames de lecturas en vivo (/topic/plants/{plantId}/readings) para las sesiones lentas.
+ *
+ * - Un decorador por debajo del buffer de Spring registra cuándo empezó el envío en curso de cada sesión.
+ *   Si lleva más de 'shed-after-ms' (el socket no acepta datos), las lecturas nuevas para esa sesión
+ *   se descartan en el canal de salida: la siguiente lectura conflacionada trae el estado actual.
+ * - Los demás frames (alertas, salud del sensor, respuestas) nunca se descartan: van al buffer de Spring,
+ *   y si el cliente supera send-time-limit / buffer-size-limit la sesión se cierra (TERMINATE).
+ * - Con SockJS sobre HTTP (streaming/polling) el envío no bloquea y este filtro no actúa.
+ */
+@Component
+public class SlowClientReadingShedder implements ChannelInterceptor {
+
+    // sessionId -> estado del envío en curso de esa sesión
+    private final Map<String, SendState> sessions = new ConcurrentHashMap<>();
+    private final long shedAfterNanos;
+    private final Counter shedCounter;
+
+    public SlowClientReadingShedder(MeterRegistry meterRegistry,
+                                    @Value("${websocket.outbound.readings.shed-after-ms:500}") long shedAfterMs) {
+        this.shedAfterNanos = TimeUnit.MILLISECONDS.toNanos(shedAfterMs);
+        this.shedCounter = meterRegistry.counter("websocket.readings.shed");
+    }
+
+    /**
+     * Decorador de WebSocketHandler para WebSocketTransportRegistration.addDecoratorFactory.
+     */
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SendState state = new SendState();
+                sessions.put(session.getId(), state);
+                super.afterConnectionEstablished(new TrackingSession(session, state));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.MESSAGE || accessor.getSessionId() == null) {
+            return message;
+        }
+        if (PlantReadingStreamPublisher.extractPlantId(accessor.getDestination()) == null) {
+            return message;
+        }
+        SendState state = sessions.get(accessor.getSessionId());
+        if (state != null && state.isStalled(System.nanoTime(), shedAfterNanos)) {
+            shedCounter.increment();
+            return null;
+        }
+        return message;
+    }
+
+    private static final class SendState {
+        // nanoTime en que empezó el envío en curso, 0 si no hay envío en curso
+        private volatile long sendStartedNanos;
+
+        boolean isStalled(long now, long thresholdNanos) {
+            long started = sendStartedNanos;
+            return started != 0 && now - started > thresholdNanos;
+        }
+    }
+
+    /**
+     * Sesión real (debajo del ConcurrentWebSocketSessionDecorator de Spring, que serializa los envíos).
+     */
+    private static final class TrackingSession extends WebSocketSessionDecorator {
+        private final SendState state;
+
+        TrackingSession(WebSocketSession session, SendState state) {
+            super(session);
+            this.state = state;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            state.sendStartedNanos = System.nanoTime();
+            try {
+                super.sendMessage(message);
+            } finally {
+                state.sendStartedNanos = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.api.plant.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Contador de frames MESSAGE entregados a clientes conectados a ESTE nodo.
+ * Con el broker relay activo, permite verificar por nodo que el fan-out funciona
+ * (ej. una alerta generada en el nodo A contabilizada como entregada en el nodo B).
+ */
+@Component
+public class StompDeliveryMetricsInterceptor implements ChannelInterceptor {
+
+    private final Counter alertsDelivered;
+    private final Counter readingsDelivered;
+    private final Counter deviceHealthDelivered;
+    private final Counter otherDelivered;
+
+    public StompDeliveryMetricsInterceptor(MeterRegistry meterRegistry,
+                                           @Value("${app.node-id:node-local}") String nodeId) {
+        this.alertsDelivered = meterRegistry.counter("websocket.frames.delivered", "node", nodeId, "stream", "alerts");
+        this.readingsDelivered = meterRegistry.counter("websocket.frames.delivered", "node", nodeId, "stream", "readings");
+        this.deviceHealthDelivered = meterRegistry.counter("websocket.frames.delivered", "node", nodeId, "stream", "device-health");
+        this.otherDelivered = meterRegistry.counter("websocket.frames.delivered", "node", nodeId, "stream", "other");
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (!sent || ex != null) {
+            return;
+        }
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.MESSAGE) {
+            return;
+        }
+
+        String destination = accessor.getDestination();
+        if (destination == null) {
+            otherDelivered.increment();
+        } else if (destination.contains("/alerts")) {
+            alertsDelivered.increment();
+        } else if (destination.endsWith("/readings")) {
+            readingsDelivered.increment();
+        } else if (destination.contains("/device-health")) {
+            deviceHealthDelivered.increment();
+        } else {
+            otherDelivered.increment();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.api.plant.config;
+
+import com.api.plant.repository.PlantDeviceRepository;
+import com.api.plant.service.CurrentUserService;
+import com.api.plant.service.PlantReadingStreamPublisher;
+import com.api.plant.service.TokenService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+
+/**
+ * Interceptor de mensajes entrantes STOMP.
+ * - CONNECT con el header nativo "Authorization: Bearer {accessToken}": la sesión queda autenticada con el
+ *   userId del token (los destinos /user/... se resuelven por userId). Un token inválido rechaza la conexión.
+ * - Autoriza las suscripciones a /topic/plants/{plantId}/readings: solo el dueño de la planta
+ *   puede suscribirse. Cualquier otro destino bajo /topic/ se rechaza, igual que los destinos con
+ *   comodines ('*', '**', '?', '{...}' del AntPathMatcher del broker simple; '#' de RabbitMQ): un patrón
+ *   como /topic/** recibiría las lecturas de todos los usuarios.
+ * - En modo stomp-relay los destinos de sistema (/topic/simp-user-registry, /topic/unresolved-user-destination)
+ *   llevan el registro de sesiones y los mensajes privados de todos los nodos: quedan fuera por la regla
+ *   anterior. Tampoco se acepta suscribirse directo a /queue/... (solo a través de /user/queue/...).
+ * - SEND solo a /app/...: un cliente no publica directo en el broker (ej. alertas falsas en
+ *   /user/{otroUsuario}/queue/alerts o un registro de usuarios falso en modo relay).
+ */
+@Component
+public class StompSubscriptionInterceptor implements ChannelInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(StompSubscriptionInterceptor.class);
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String TOPIC_PREFIX = "/topic/";
+    private static final String QUEUE_PREFIX = "/queue/";
+    private static final String APP_PREFIX = "/app/";
+
+    private final CurrentUserService currentUserService;
+    private final TokenService tokenService;
+    private final PlantDeviceRepository plantDeviceRepository;
+
+    public StompSubscriptionInterceptor(CurrentUserService currentUserService,
+                                        TokenService tokenService,
+                                        PlantDeviceRepository plantDeviceRepository) {
+        this.currentUserService = currentUserService;
+        this.tokenService = tokenService;
+        this.plantDeviceRepository = plantDeviceRepository;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        if (accessor.getCommand() == StompCommand.CONNECT) {
+            authenticate(message, accessor);
+            return message;
+        }
+        if (accessor.getCommand() == StompCommand.SEND) {
+            String destination = accessor.getDestination();
+            if (destination == null || !destination.startsWith(APP_PREFIX)) {
+                log.warn("STOMP: SEND a {} rechazado (solo se aceptan destinos {}).", destination, APP_PREFIX);
+                throw new MessageDeliveryException(message, "Destino no válido: " + destination);
+            }
+            return message;
+        }
+        if (accessor.getCommand() != StompCommand.SUBSCRIBE) {
+            return message;
+        }
+
+        String destination = accessor.getDestination();
+        if (destination == null || hasWildcard(destination) || destination.startsWith(QUEUE_PREFIX)) {
+            log.warn("STOMP: Suscripción a destino no válido {} rechazada.", destination);
+            throw new MessageDeliveryException(message, "Destino no válido: " + destination);
+        }
+        if (!destination.startsWith(TOPIC_PREFIX)) {
+            return message;
+        }
+
+        // Bajo /topic/ solo existe el stream de lecturas por planta (los destinos de sistema del relay no se exponen)
+        String plantId = PlantReadingStreamPublisher.extractPlantId(destination);
+        if (plantId == null) {
+            log.warn("STOMP: Suscripción a destino no válido {} rechazada.", destination);
+            throw new MessageDeliveryException(message, "Destino no válido: " + destination);
+        }
+
+        Principal user = accessor.getUser();
+        if (user == null || !isOwner(user, plantId)) {
+            log.warn("STOMP: Suscripción a {} rechazada para el usuario {}.", destination, user != null ? user.getName() : "anónimo");
+            throw new MessageDeliveryException(message, "No autorizado para suscribirse a la planta " + plantId);
+        }
+        return message;
+    }
+
+    /**
+     * Comodines de los brokers (AntPathMatcher del broker simple, RabbitMQ/ActiveMQ en modo relay).
+     */
+    static boolean hasWildcard(String destination) {
+        for (int i = 0; i < destination.length(); i++) {
+            switch (destination.charAt(i)) {
+                case '*', '?', '{', '}', '#', '>' -> {
+                    return true;
+                }
+                default -> {
+                }
+            }
+        }
+        return false;
+    }
+
+    private void authenticate(Message<?> message, StompHeaderAccessor accessor) {
+        String header = accessor.getFirstNativeHeader("Authorization");
+        if (header == null || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            return; // Sin token: se mantiene el usuario del handshake HTTP (si lo hay)
+        }
+        TokenService.TokenClaims claims = tokenService
+                .verify(header.substring(BEARER_PREFIX.length()).trim(), TokenService.TYPE_ACCESS)
+                .orElseThrow(() -> new MessageDeliveryException(message, "Token inválido o expirado."));
+        accessor.setUser(JwtAuthenticationFilter.authentication(claims));
+    }
+
+    private boolean isOwner(Principal user, String plantId) {
+        String userId = currentUserService.findUserId(user).orElse(null);
+        if (userId == null) {
+            return false;
+        }
+        return plantDeviceRepository.findByPlantId(plantId)
+                .map(device -> userId.equals(device.getOwnerId()))
+                .orElse(false);
+    }
+}
@@ -0,0 +1,137 @@
+package com.api.plant.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Diagnóstico de hilos virtuales "pinned" (bloqueados sin soltar su carrier) en modo de hilos virtuales.
+ *
+ * Escucha en el propio proceso el evento JFR 'jdk.VirtualThreadPinned' (bloqueos más largos que
+ * 'threads.virtual.pinning.threshold-ms'), lo registra en el timer 'jvm.threads.virtual.pinned' y
+ * escribe un warning con la pila, como máximo una vez por minuto para cada punto del código de la aplicación.
+ * Desde Java 24 'synchronized' ya no fija el hilo; lo que queda son sobre todo frames nativos
+ * e inicializadores de clases.
+ */
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+    private static final long LOG_INTERVAL_MS = 60_000;
+    // Cota de puntos recordados (p. ej. lambdas o clases generadas con nombres distintos)
+    private static final int MAX_SITES = 1024;
+
+    private final WorkerThreads workerThreads;
+    private final boolean enabled;
+    private final Duration threshold;
+    private final Timer pinnedTimer;
+
+    // Último warning por punto del código (primer frame fuera del JDK)
+    private final Map<String, Long> lastLoggedBySite = new ConcurrentHashMap<>();
+
+    private volatile RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(WorkerThreads workerThreads,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${threads.virtual.pinning.enabled:true}") boolean enabled,
+                                       @Value("${threads.virtual.pinning.threshold-ms:20}") long thresholdMs) {
+        this.workerThreads = workerThreads;
+        this.enabled = enabled;
+        this.threshold = Duration.ofMillis(thresholdMs);
+        this.pinnedTimer = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Tiempo que un hilo virtual bloqueó su carrier")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || !workerThreads.isVirtual()) {
+            return;
+        }
+        try {
+            RecordingStream recording = new RecordingStream();
+            recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.startAsync();
+            stream = recording;
+            log.info("🧵 Monitor de hilos virtuales pinned activo (umbral {} ms).", threshold.toMillis());
+        } catch (Exception e) {
+            // JFR puede no estar disponible (ej. imagen nativa o JVM sin JFR): no impide arrancar
+            log.warn("⚠️ No se pudo iniciar el monitor de hilos pinned (JFR): {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        RecordingStream recording = stream;
+        if (recording != null) {
+            recording.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        Duration duration = event.getDuration();
+        pinnedTimer.record(duration);
+
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+        String site = site(frames);
+
+        long now = System.currentTimeMillis();
+        Long last = lastLoggedBySite.get(site);
+        if (last != null && now - last < LOG_INTERVAL_MS) {
+            return;
+        }
+        if (last == null && lastLoggedBySite.size() >= MAX_SITES) {
+            // Los que ya pasaron el intervalo no frenan ningún warning: se pueden olvidar
+            lastLoggedBySite.values().removeIf(logged -> now - logged >= LOG_INTERVAL_MS);
+            if (lastLoggedBySite.size() >= MAX_SITES) {
+                lastLoggedBySite.clear();
+            }
+        }
+        lastLoggedBySite.put(site, now);
+
+        String stack = frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(VirtualThreadPinningMonitor::describe)
+                .collect(Collectors.joining("\n    at "));
+        log.warn("🧵 Hilo virtual pinned {} ms en {}:\n    at {}", duration.toMillis(), site, stack);
+    }
+
+    /**
+     * Primer frame fuera del JDK (los de arriba siempre son VirtualThread.park*, Thread.sleep, etc.).
+     */
+    private static String site(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return describe(frame);
+            }
+        }
+        return frames.isEmpty() ? "?" : describe(frames.get(0));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : "");
+    }
+}
@@ -1,10 +1,13 @@
 package com.api.plant.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 /**
  * Configura el servidor de WebSocket.
@@ -13,6 +16,45 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker // Habilita el procesamiento de mensajes de WebSocket respaldado por un broker de mensajes.
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompSubscriptionInterceptor stompSubscriptionInterceptor;
+    private final StompDeliveryMetricsInterceptor deliveryMetricsInterceptor;
+    private final SlowClientReadingShedder slowClientReadingShedder;
+
+    // Modo del broker: "simple" (en memoria, un solo nodo) o "stomp-relay" (broker externo, multi-nodo)
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    // Límites del buffer de salida por sesión (clientes lentos)
+    @Value("${websocket.outbound.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.outbound.buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    public WebSocketConfig(StompSubscriptionInterceptor stompSubscriptionInterceptor,
+                           StompDeliveryMetricsInterceptor deliveryMetricsInterceptor,
+                           SlowClientReadingShedder slowClientReadingShedder) {
+        this.stompSubscriptionInterceptor = stompSubscriptionInterceptor;
+        this.deliveryMetricsInterceptor = deliveryMetricsInterceptor;
+        this.slowClientReadingShedder = slowClientReadingShedder;
+    }
+
+    public static boolean isRelayMode(String brokerMode) {
+        return "stomp-relay".equalsIgnoreCase(brokerMode);
+    }
+
     /**
      * Define el endpoint HTTP que los clientes usarán para conectarse al servidor de WebSocket.
      */
@@ -31,11 +73,57 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // El prefijo /app es para los mensajes dirigidos a los Controllers de Spring (del cliente al servidor).
         registry.setApplicationDestinationPrefixes("/app");
 
-        // El prefijo /topic y /user es para el broker (del servidor al cliente/usuario).
-        // Usaremos /user para enviar notificaciones directas a usuarios específicos.
-        registry.enableSimpleBroker("/topic", "/user");
+        if (isRelayMode(brokerMode)) {
+            // MODO MULTI-NODO: las suscripciones viven en un broker STOMP externo (RabbitMQ, ActiveMQ...).
+            // Una alerta o lectura publicada en el nodo A llega a los clientes conectados al nodo B.
+            registry.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode)
+                    // Destinos /user/... de usuarios conectados a otro nodo
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    // Registro de usuarios compartido (SimpUserRegistry ve las sesiones de todos los nodos)
+                    .setUserRegistryBroadcast("/topic/simp-user-registry");
+        } else {
+            // MODO POR DEFECTO: broker simple en memoria (un solo nodo).
+            // El prefijo /topic y /user es para el broker (del servidor al cliente/usuario).
+            // /queue es donde se resuelven los destinos privados (/user/queue/alerts -> /queue/alerts-user{sesión}).
+            registry.enableSimpleBroker("/topic", "/queue", "/user");
+        }
 
         // El prefijo /user/ es crucial para enviar mensajes privados.
         registry.setUserDestinationPrefix("/user");
     }
+
+    /**
+     * Autoriza las suscripciones entrantes (ej. /topic/plants/{plantId}/readings solo para el dueño).
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompSubscriptionInterceptor);
+    }
+
+    /**
+     * Descarta lecturas en vivo para sesiones lentas y contabiliza los frames entregados
+     * a los clientes de este nodo (métricas por nodo).
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(slowClientReadingShedder, deliveryMetricsInterceptor);
+    }
+
+    /**
+     * Clientes lentos: las lecturas en vivo se descartan mientras el socket está bloqueado
+     * (SlowClientReadingShedder). Las alertas nunca se descartan: si el buffer de la sesión supera
+     * estos límites, Spring cierra la sesión y el cliente recupera lo pendiente al reconectar (bandeja).
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .addDecoratorFactory(slowClientReadingShedder::decorate);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package com.api.plant.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Crea los hilos de trabajo propios (outbox de correo, despachador de notificaciones, reenvío del spool,
+ * carga del nivel en memoria, conexiones a brokers...) según el modo de hilos de la aplicación.
+ *
+ * Con 'spring.threads.virtual.enabled=true' (Java 21+) son hilos virtuales, igual que los de Tomcat,
+ * los @Scheduled y el executor de tareas que configura Spring Boot; si no, hilos de plataforma daemon.
+ */
+@Component
+public class WorkerThreads {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkerThreads.class);
+
+    private final boolean virtual;
+
+    public WorkerThreads(Environment environment) {
+        this.virtual = Threading.VIRTUAL.isActive(environment);
+        log.info("🧵 Modo de hilos: {}.", virtual ? "virtuales" : "plataforma");
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Arranca un hilo de fondo con ese nombre (daemon: no impide que el proceso termine).
+     */
+    public Thread start(String name, Runnable task) {
+        if (virtual) {
+            return Thread.ofVirtual().name(name).start(task);
+        }
+        return Thread.ofPlatform().name(name).daemon(true).start(task);
+    }
+
+    /**
+     * Executor de un hilo por tarea (para trabajos cortos y bloqueantes en paralelo, ej. conexiones).
+     * Se cierra con close(), que espera a que terminen las tareas.
+     */
+    public ExecutorService newPerTaskExecutor(String namePrefix) {
+        ThreadFactory factory = virtual
+                ? Thread.ofVirtual().name(namePrefix, 0).factory()
+                : Thread.ofPlatform().name(namePrefix, 0).daemon(true).factory();
+        return Executors.newThreadPerTaskExecutor(factory);
+    }
+
+    /**
+     * Executor de un solo hilo: las tareas corren en el orden en que se enviaron (ej. eventos de una planta).
+     */
+    public ExecutorService newSerialExecutor(String name) {
+        ThreadFactory factory = virtual
+                ? Thread.ofVirtual().name(name).factory()
+                : Thread.ofPlatform().name(name).daemon(true).factory();
+        return Executors.newSingleThreadExecutor(factory);
+    }
+}
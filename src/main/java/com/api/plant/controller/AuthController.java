@@ -1,13 +1,18 @@
 package com.api.plant.controller;
 
 import com.api.plant.dto.AuthRequest;
+import com.api.plant.dto.RefreshRequest;
+import com.api.plant.dto.TokenResponse;
 import com.api.plant.entity.AppUser;
-import com.api.plant.entity.PlantDevice;
-import com.api.plant.repository.PlantDeviceRepository;
 import com.api.plant.service.AuthService;
+import com.api.plant.service.CurrentUserService;
+import com.api.plant.service.DeviceAuthService;
+import com.api.plant.service.MqttRateLimiter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.*;
@@ -24,7 +29,12 @@ public class AuthController {
     @Autowired
     private UserDetailsService userDetailsService; // Usado para validar el login implícito (opcional)
     @Autowired
-    private PlantDeviceRepository plantDeviceRepository; // Usado para validar el login implícito (opcional)
+    private DeviceAuthService deviceAuthService; // Valida las credenciales MQTT de los dispositivos
+    @Autowired
+    private MqttRateLimiter rateLimiter; // Mismo límite que /api/mqtt/auth (es permitAll)
+
+    @Autowired
+    private CurrentUserService currentUserService;
 
     /**
      * Endpoint para el Registro de nuevos usuarios.
@@ -43,7 +53,7 @@ public class AuthController {
 
         try {
             // 2. Registrar (la contraseña se cifra en el servicio)
-            AppUser newUser = authService.registerNewUser(request.username(), request.password());
+            AppUser newUser = authService.registerNewUser(request.username(), request.password(), request.email());
 
             // Retornar solo la información segura (nunca el passwordHash)
             return ResponseEntity.status(HttpStatus.CREATED).body(
@@ -56,16 +66,48 @@ public class AuthController {
     }
 
     /**
-     * Endpoint para el Login Implícito (Verificación de credenciales).
+     * Endpoint de Login: verifica las credenciales UNA vez (BCrypt) y emite los tokens.
      * Ruta: POST /api/auth/login
-     * Spring Security maneja la autenticación real (HTTP Basic) en la capa de filtro.
-     * Este endpoint solo devuelve éxito si el filtro pasó.
+     * Body: {"username": "...", "password": "..."}. Por compatibilidad también acepta HTTP Basic sin body.
+     * Los requests siguientes usan "Authorization: Bearer {accessToken}" (solo se valida la firma).
      */
     @PostMapping("/login")
-    public ResponseEntity<String> loginUser() {
-        // Si la solicitud llega a este punto, significa que el filtro de HTTP Basic
-        // ya autenticó al usuario exitosamente. Spring Security ya hizo su trabajo.
-        return ResponseEntity.ok("Login exitoso. Las credenciales son válidas.");
+    public ResponseEntity<?> loginUser(@RequestBody(required = false) AuthRequest request, Authentication authentication) {
+        Optional<TokenResponse> tokens;
+        if (request != null && request.username() != null) {
+            tokens = authService.login(request.username(), request.password());
+        } else if (authentication != null && authentication.isAuthenticated()) {
+            // El filtro de HTTP Basic ya validó las credenciales
+            tokens = currentUserService.findUserId(authentication).flatMap(authService::issueFor);
+        } else {
+            return ResponseEntity.badRequest().body("Faltan las credenciales.");
+        }
+
+        return tokens.<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Credenciales inválidas."));
+    }
+
+    /**
+     * Renueva la sesión con el refresh token (devuelve un par nuevo).
+     * Ruta: POST /api/auth/refresh
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest request) {
+        return authService.refresh(request.refreshToken())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Refresh token inválido o expirado."));
+    }
+
+    /**
+     * Cierra todas las sesiones del usuario (invalida sus refresh tokens).
+     * Ruta: POST /api/auth/logout
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestBody RefreshRequest request) {
+        if (!authService.logout(request.refreshToken())) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Refresh token inválido o expirado.");
+        }
+        return ResponseEntity.noContent().build();
     }
 
 
@@ -76,20 +118,22 @@ public class AuthController {
             @RequestParam("username") String plantId,
             @RequestParam("password") String rawPassword) {
 
-        // Busca el PlantDevice por plantId
-        Optional<PlantDevice> deviceOpt = plantDeviceRepository.findByPlantId(plantId);
-
-        if (deviceOpt.isPresent()) {
-            PlantDevice device = deviceOpt.get();
+        // Fuerza bruta: se corta antes de verificar credenciales (no hay client id: solo el bloqueo del username)
+        long retryAfterMs = rateLimiter.tryAcquire(MqttRateLimiter.Endpoint.AUTH, plantId, null);
+        if (retryAfterMs > 0) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMs + 999) / 1000))
+                    .build();
+        }
 
-            // Compara el password en texto plano (ALMACENADO EN MONGO) con el password recibido.
-            if (device.getMqttPassword().equals(rawPassword)) {
-                // Éxito: Mosquitto permite la conexión
-                return ResponseEntity.ok().build();
-            }
+        // Hash + salt con comparación de tiempo constante (y la caché de decisiones de DeviceAuthService)
+        if (deviceAuthService.authenticatePlantDevice(plantId, rawPassword)) {
+            // Éxito: Mosquitto permite la conexión
+            return ResponseEntity.ok().build();
         }
 
         // Fallo: Mosquitto rechaza la conexión
+        rateLimiter.recordAuthFailure(plantId);
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.api.plant.controller;
+
+import com.api.plant.service.CurrentUserService;
+import com.api.plant.service.DashboardReadModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@RequestMapping("/api/dashboard")
+public class DashboardController {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardController.class);
+
+    @Autowired
+    private DashboardReadModel dashboardReadModel;
+
+    @Autowired
+    private CurrentUserService currentUserService;
+
+    /**
+     * Estado actual de todas las plantas del usuario en una sola llamada (servido desde memoria).
+     * Soporta If-None-Match: si nada cambió desde el último ETag responde 304 sin cuerpo.
+     * Ruta: GET /api/dashboard
+     */
+    @GetMapping
+    public ResponseEntity<?> getDashboard(Authentication authentication, WebRequest webRequest) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+            DashboardReadModel.Dashboard dashboard = dashboardReadModel.getDashboard(userId);
+
+            if (webRequest.checkNotModified(dashboard.etag())) {
+                // Spring ya dejó el 304 y el ETag en la respuesta
+                return null;
+            }
+            return ResponseEntity.ok()
+                    .eTag(dashboard.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .body(dashboard.view());
+
+        } catch (Exception e) {
+            log.error("Error al armar el dashboard: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.api.plant.controller;
+
+import com.api.plant.service.CurrentUserService;
+import com.api.plant.service.UserEventStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Stream SSE de alertas y lecturas del usuario autenticado.
+ * Alternativa a STOMP (/ws/notificaciones) para clientes móviles con red inestable:
+ * al reconectar, el navegador/cliente envía Last-Event-ID y el stream se reanuda desde ahí.
+ */
+@RestController
+@RequestMapping("/api/stream")
+public class EventStreamController {
+
+    @Autowired
+    private UserEventStreamService eventStreamService;
+
+    @Autowired
+    private CurrentUserService currentUserService;
+
+    /**
+     * Ruta: GET /api/stream (text/event-stream)
+     * Eventos: "alert" (NotificationMessage) y "reading" (PlantReadingUpdate).
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            Authentication authentication) {
+
+        String userId = currentUserService.findUserId(authentication)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Usuario no encontrado."));
+
+        return eventStreamService.connect(userId, parseLastEventId(lastEventId));
+    }
+
+    private Long parseLastEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            // Id desconocido (ej. de otra versión): se trata como conexión nueva
+            return null;
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package com.api.plant.controller;
 
 import com.api.plant.service.DeviceAuthService; // Un nuevo servicio de autenticación
+import com.api.plant.service.MqttRateLimiter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 // Este DTO mapea la solicitud del plugin go-auth
 record AuthRequest(String username, String password, String clientid) {}
 
@@ -17,15 +24,23 @@ record AclRequest(
         @JsonProperty("acc") int access // <-- 2. AÑADIR ANOTACIÓN AQUÍ
 ) {}
 
+// Resultado por consulta del endpoint por lotes (mismo orden que la solicitud)
+record AclResult(String username, String topic, @JsonProperty("acc") int access, boolean allowed) {}
+
 @RestController
 @RequestMapping("/api/mqtt") // Endpoint para el plugin
 public class MqttAuthController {
 
     private static final Logger log = LoggerFactory.getLogger(MqttAuthController.class);
     private final DeviceAuthService deviceAuthService;
+    private final MqttRateLimiter rateLimiter;
 
-    public MqttAuthController(DeviceAuthService deviceAuthService) {
+    @Value("${mqtt.acl.batch.max-size:500}")
+    private int maxBatchSize;
+
+    public MqttAuthController(DeviceAuthService deviceAuthService, MqttRateLimiter rateLimiter) {
         this.deviceAuthService = deviceAuthService;
+        this.rateLimiter = rateLimiter;
     }
 
     /**
@@ -34,12 +49,19 @@ public class MqttAuthController {
      */
     @PostMapping("/auth")
     public ResponseEntity<String> authenticate(@RequestBody AuthRequest request) {
+        // Tormenta de reconexiones o fuerza bruta: se corta antes de verificar credenciales
+        long retryAfterMs = rateLimiter.tryAcquire(MqttRateLimiter.Endpoint.AUTH, request.username(), request.clientid());
+        if (retryAfterMs > 0) {
+            return tooManyRequests(retryAfterMs);
+        }
 
         boolean isAuthenticated = deviceAuthService.authenticateDevice(request.username(), request.password());
 
         if (isAuthenticated) {
             return ResponseEntity.ok().body("OK"); // HTTP 200
         } else {
+            // Solo las credenciales fallidas gastan el bucket del username
+            rateLimiter.recordAuthFailure(request.username());
             return ResponseEntity.status(401).body("Unauthorized"); // HTTP 401
         }
     }
@@ -50,9 +72,14 @@ public class MqttAuthController {
      */
     @PostMapping("/acl")
     public ResponseEntity<String> authorize(@RequestBody AclRequest request) {
-        log.info("ACCESS: "+String.valueOf(request.access()));
+        log.debug("ACL: access={} topic={}", request.access(), request.topic());
+        long retryAfterMs = rateLimiter.tryAcquire(MqttRateLimiter.Endpoint.ACL, request.username(), request.clientid());
+        if (retryAfterMs > 0) {
+            return tooManyRequests(retryAfterMs);
+        }
         // access: 1 = subscribe, 2 = publish
-        boolean isAuthorized = deviceAuthService.authorizeTopic(request.username(), request.topic(), request.access());
+        boolean isAuthorized = deviceAuthService.authorizeTopic(request.username(), request.clientid(),
+                request.topic(), request.access());
 
         if (isAuthorized) {
             return ResponseEntity.ok().body("OK");
@@ -60,4 +87,30 @@ public class MqttAuthController {
             return ResponseEntity.status(401).body("Unauthorized");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint de ACL por lotes, para plugins que agrupan varias consultas en una sola llamada.
+     * Siempre responde 200 con una decisión por consulta (en el mismo orden); las consultas que superan
+     * el límite de peticiones se devuelven como no permitidas.
+     */
+    @PostMapping("/acl/batch")
+    public ResponseEntity<?> authorizeBatch(@RequestBody List<AclRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().body("El lote supera el máximo de " + maxBatchSize + " consultas.");
+        }
+        List<AclResult> results = new ArrayList<>(requests.size());
+        for (AclRequest request : requests) {
+            boolean allowed = rateLimiter.tryAcquire(MqttRateLimiter.Endpoint.ACL, request.username(), request.clientid()) == 0
+                    && deviceAuthService.authorizeTopic(request.username(), request.clientid(), request.topic(), request.access());
+            results.add(new AclResult(request.username(), request.topic(), request.access(), allowed));
+        }
+        return ResponseEntity.ok(results);
+    }
+
+    private static ResponseEntity<String> tooManyRequests(long retryAfterMs) {
+        // Retry-After va en segundos (redondeado hacia arriba)
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMs + 999) / 1000))
+                .body("Too Many Requests");
+    }
+}
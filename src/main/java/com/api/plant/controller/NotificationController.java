@@ -2,11 +2,18 @@ package com.api.plant.controller;
 
 
 import com.api.plant.dto.EmailRequest;
+import com.api.plant.dto.InboxPage;
+import com.api.plant.service.CurrentUserService;
 import com.api.plant.service.EmailService;
+import com.api.plant.service.NotificationInboxService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/notificaciones") // Ruta base para este controlador
 public class NotificationController {
@@ -14,13 +21,94 @@ public class NotificationController {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private NotificationInboxService inboxService;
+
+    @Autowired
+    private CurrentUserService currentUserService;
+
     @PostMapping("/enviar-correo")
     public ResponseEntity<String> enviarCorreo(@RequestBody EmailRequest emailRequest) {
-        emailService.enviarCorreo(
+        boolean aceptado = emailService.enviarCorreo(
                 emailRequest.destinatario(),
                 emailRequest.asunto(),
                 emailRequest.mensaje()
         );
+        if (!aceptado) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("La cola de correos está llena. Intente más tarde.");
+        }
         return ResponseEntity.ok("Solicitud de envío de correo recibida correctamente.");
     }
+
+    // --- BANDEJA DE NOTIFICACIONES ---
+
+    /**
+     * Lista la bandeja del usuario (más recientes primero), paginada por cursor.
+     * Ruta: GET /api/notificaciones/inbox?cursor=...&limit=20&unreadOnly=false
+     */
+    @GetMapping("/inbox")
+    public ResponseEntity<?> listInbox(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "false") boolean unreadOnly,
+            Authentication authentication) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+            InboxPage page = inboxService.list(userId, cursor, limit, unreadOnly);
+            return ResponseEntity.ok(page);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Cantidad de notificaciones no leídas (contador incremental, sin count()).
+     * Ruta: GET /api/notificaciones/inbox/unread-count
+     */
+    @GetMapping("/inbox/unread-count")
+    public ResponseEntity<?> unreadCount(Authentication authentication) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+            return ResponseEntity.ok(Map.of("unread", inboxService.unreadCount(userId)));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Marca una notificación como leída.
+     * Ruta: POST /api/notificaciones/inbox/{id}/read
+     */
+    @PostMapping("/inbox/{id}/read")
+    public ResponseEntity<?> markRead(@PathVariable String id, Authentication authentication) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+            if (!inboxService.markRead(userId, id)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Notificación no encontrada o ya leída.");
+            }
+            return ResponseEntity.noContent().build();
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Marca todas las notificaciones del usuario como leídas.
+     * Ruta: POST /api/notificaciones/inbox/read-all
+     */
+    @PostMapping("/inbox/read-all")
+    public ResponseEntity<?> markAllRead(Authentication authentication) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+            return ResponseEntity.ok(Map.of("updated", inboxService.markAllRead(userId)));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 }
\ No newline at end of file
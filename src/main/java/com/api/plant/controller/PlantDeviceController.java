@@ -1,15 +1,18 @@
 package com.api.plant.controller;
 
 import com.api.plant.dto.DiscoveredDeviceDTO;
+import com.api.plant.dto.device.CalibrationUpdateDto;
 import com.api.plant.dto.device.DeviceRegistrationRequest;
 import com.api.plant.dto.device.DeviceRegistrationResponse;
 import com.api.plant.dto.device.DeviceSyncRequest;
 import com.api.plant.dto.device.PlantDeviceUpdateDto;
 import com.api.plant.dto.command.GenericCommandPayload;
-import com.api.plant.entity.AppUser;
 import com.api.plant.entity.PlantDevice;
-import com.api.plant.repository.AppUserRepository;
+import com.api.plant.entity.ReadingRollup;
 import com.api.plant.service.ActuatorService;
+import com.api.plant.service.CalibrationService;
+import com.api.plant.service.CurrentUserService;
+import com.api.plant.service.ReadingRollupService;
 import com.api.plant.service.DeviceService;
 import com.api.plant.service.UserDetailsServiceImpl;
 import org.slf4j.Logger;
@@ -20,6 +23,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -36,13 +41,18 @@ public class PlantDeviceController {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
-    // NECESITAS INYECTAR EL REPOSITORIO DE USUARIOS
     @Autowired
-    private AppUserRepository userRepository;
+    private CurrentUserService currentUserService;
 
     @Autowired
     private ActuatorService actuatorService; //
 
+    @Autowired
+    private CalibrationService calibrationService;
+
+    @Autowired
+    private ReadingRollupService readingRollupService;
+
 
     /**
      * Endpoint para vincular un dispositivo descubierto (por MAC) a un usuario.
@@ -57,7 +67,7 @@ public class PlantDeviceController {
 
         try {
             // Obtiene el ID del usuario autenticado (simulado por Postman con un JWT)
-            String userId = getUserId(authentication.getName());
+            String userId = currentUserService.getUserId(authentication);
 
             log.info("Iniciando sincronización para MAC {} por usuario {}", macAddress, userId);
 
@@ -80,19 +90,6 @@ public class PlantDeviceController {
     }
 
 
-
-
-    // Helper corregido para obtener el ID de usuario de MongoDB
-    private String getUserId(String username) throws Exception {
-        // En lugar de usar UserDetailsService (que devuelve un objeto de seguridad genérico),
-        // buscamos la entidad AppUser directamente en MongoDB para obtener el ID.
-        AppUser appUser = userRepository.findByUsername(username)
-                .orElseThrow(() -> new Exception("Usuario no encontrado en la base de datos."));
-
-        return appUser.getId(); // DEVOLVEMOS EL ID DE MONGODB (STRING)
-    }
-
-
     /**
      * GET /api/devices/available
      * Obtiene todos los dispositivos que han sido descubiertos (por el MqttIngestionService)
@@ -130,7 +127,7 @@ public class PlantDeviceController {
     @GetMapping
     public ResponseEntity<List<PlantDevice>> listUserDevices(Authentication authentication) {
         try {
-            String userId = getUserId(authentication.getName());
+            String userId = currentUserService.getUserId(authentication);
 
             List<PlantDevice> devices = deviceService.getDevicesByOwner(userId);
             return ResponseEntity.ok(devices);
@@ -154,7 +151,7 @@ public class PlantDeviceController {
             Authentication authentication
     ) {
         try {
-            String userId = getUserId(authentication.getName());
+            String userId = currentUserService.getUserId(authentication);
 
             // Lógica de validación de propiedad (asegurar que el usuario es el dueño)
             Optional<PlantDevice> deviceOpt = deviceService.getDeviceByPlantId(plantId);
@@ -173,6 +170,97 @@ public class PlantDeviceController {
         }
     }
 
+    // --- 3.B PUT/DELETE: Calibración del sensor ---
+
+    /**
+     * Endpoint para enviar la calibración (2-3 puntos u offset/ganancia) de una métrica.
+     * Ruta: PUT /api/devices/{plantId}/calibration
+     */
+    @PutMapping("/{plantId}/calibration")
+    public ResponseEntity<?> updateDeviceCalibration(
+            @PathVariable String plantId,
+            @RequestBody CalibrationUpdateDto calibrationDto,
+            Authentication authentication
+    ) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+
+            if (!deviceService.isUserOwnerOfPlant(userId, plantId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Dispositivo no encontrado o no autorizado.");
+            }
+
+            PlantDevice updatedDevice = calibrationService.updateCalibration(plantId, calibrationDto);
+            return ResponseEntity.ok(updatedDevice);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Calibración inválida: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error al actualizar calibración: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint para eliminar la calibración de una métrica (vuelve al valor crudo).
+     * Ruta: DELETE /api/devices/{plantId}/calibration/{metric}
+     */
+    @DeleteMapping("/{plantId}/calibration/{metric}")
+    public ResponseEntity<?> resetDeviceCalibration(
+            @PathVariable String plantId,
+            @PathVariable String metric,
+            Authentication authentication
+    ) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+
+            if (!deviceService.isUserOwnerOfPlant(userId, plantId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Dispositivo no encontrado o no autorizado.");
+            }
+
+            return ResponseEntity.ok(calibrationService.resetCalibration(plantId, metric));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Calibración inválida: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error al eliminar calibración: " + e.getMessage());
+        }
+    }
+
+    // --- 3.C GET: Rollups (min/max/avg/count/last por intervalo) ---
+
+    /**
+     * Endpoint para graficar rangos largos sin leer las lecturas crudas.
+     * Ruta: GET /api/devices/{plantId}/rollups?from=...&to=...&maxPoints=500[&resolution=HOUR]
+     * Sin 'resolution', se usa la más fina cuya cantidad de puntos cabe en maxPoints.
+     */
+    @GetMapping("/{plantId}/rollups")
+    public ResponseEntity<?> getRollups(
+            @PathVariable String plantId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "500") int maxPoints,
+            @RequestParam(required = false) ReadingRollup.Resolution resolution,
+            Authentication authentication
+    ) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+
+            if (!deviceService.isUserOwnerOfPlant(userId, plantId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Dispositivo no encontrado o no autorizado.");
+            }
+
+            Instant end = to != null ? to : Instant.now();
+            Instant start = from != null ? from : end.minus(Duration.ofDays(1));
+            if (!start.isBefore(end) || maxPoints <= 0) {
+                return ResponseEntity.badRequest().body("Rango o cantidad de puntos inválidos.");
+            }
+
+            return ResponseEntity.ok(readingRollupService.query(plantId, start, end, maxPoints, resolution));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Error al consultar rollups: " + e.getMessage());
+        }
+    }
+
     // --- 4. GET: Obtener detalle de un dispositivo ---
 
     /**
@@ -185,7 +273,7 @@ public class PlantDeviceController {
             Authentication authentication
     ) {
         try {
-            String userId = getUserId(authentication.getName());
+            String userId = currentUserService.getUserId(authentication);
 
             Optional<PlantDevice> deviceOpt = deviceService.getDeviceByPlantId(plantId);
 
@@ -213,7 +301,7 @@ public class PlantDeviceController {
             Authentication authentication
     ) {
         try {
-            String userId = getUserId(authentication.getName());
+            String userId = currentUserService.getUserId(authentication);
 
             // 1. Verificar Propiedad (Autorización)
             if (!deviceService.isUserOwnerOfPlant(userId, plantId)) {
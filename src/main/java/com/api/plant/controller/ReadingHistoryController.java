@@ -0,0 +1,108 @@
+package com.api.plant.controller;
+
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.entity.Reading;
+import com.api.plant.service.CurrentUserService;
+import com.api.plant.service.DeviceService;
+import com.api.plant.service.ReadingHistoryService;
+import com.api.plant.storage.ColumnarReadingFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Historial de lecturas de una planta.
+ * Ruta: GET /api/devices/{plantId}/readings
+ */
+@RestController
+@RequestMapping("/api/devices")
+public class ReadingHistoryController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingHistoryController.class);
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    @Autowired
+    private ReadingHistoryService readingHistoryService;
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private CurrentUserService currentUserService;
+
+    /**
+     * Parámetros:
+     * - from/to (ISO-8601), por defecto las últimas 24 h.
+     * - fields=tempC,soilHumidity (proyección; id y timestamp siempre van).
+     * - qcStatus=VALID,RATE_ERROR / advisorResult=CRITICA (filtros, repetibles o separados por coma).
+     * - cursor (devuelto como nextCursor), limit (tamaño de página), order=asc|desc.
+     * - format=ndjson (o Accept: application/x-ndjson): streaming de TODO el rango, una lectura por línea.
+     * - format=columnar (o Accept: application/vnd.plant.readings.columnar): exportación de TODO el rango
+     *   en formato columnar comprimido (leer con ColumnarReadingReader).
+     */
+    @GetMapping("/{plantId}/readings")
+    public ResponseEntity<?> getReadings(
+            @PathVariable String plantId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) List<Reading.QcStatus> qcStatus,
+            @RequestParam(required = false) List<Reading.AdvisorResult> advisorResult,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            Authentication authentication
+    ) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+
+            // Misma verificación de propiedad que PlantDeviceController
+            if (!deviceService.isUserOwnerOfPlant(userId, plantId)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Dispositivo no encontrado o no autorizado.");
+            }
+
+            ReadingHistoryQuery query = readingHistoryService.buildQuery(
+                    plantId, from, to, fields, qcStatus, advisorResult, cursor, order, limit);
+
+            boolean columnar = "columnar".equalsIgnoreCase(format)
+                    || (accept != null && accept.contains(ColumnarReadingFormat.MEDIA_TYPE));
+            if (columnar) {
+                StreamingResponseBody body = out -> readingHistoryService.export(query, out);
+                return ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType(ColumnarReadingFormat.MEDIA_TYPE))
+                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                "attachment; filename=\"" + plantId + ColumnarReadingFormat.EXTENSION + "\"")
+                        .body(body);
+            }
+
+            boolean streaming = "ndjson".equalsIgnoreCase(format) || (accept != null && accept.contains(NDJSON));
+            if (!streaming) {
+                return ResponseEntity.ok(readingHistoryService.page(query));
+            }
+
+            StreamingResponseBody body = out -> readingHistoryService.stream(query, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(NDJSON))
+                    .body(body);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Consulta inválida: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Error al consultar el historial de {}: {}", plantId, e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error al consultar el historial: " + e.getMessage());
+        }
+    }
+}
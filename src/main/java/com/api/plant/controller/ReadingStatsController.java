@@ -0,0 +1,107 @@
+package com.api.plant.controller;
+
+import com.api.plant.entity.PlantDevice;
+import com.api.plant.service.CurrentUserService;
+import com.api.plant.service.DeviceService;
+import com.api.plant.service.ReadingStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Estadísticas agregadas en el servidor para gráficas (min/max/avg/percentiles por intervalo).
+ */
+@RestController
+@RequestMapping("/api/devices")
+public class ReadingStatsController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingStatsController.class);
+
+    @Autowired
+    private ReadingStatsService readingStatsService;
+
+    @Autowired
+    private DeviceService deviceService;
+
+    @Autowired
+    private CurrentUserService currentUserService;
+
+    /**
+     * Estadísticas de una planta.
+     * Ruta: GET /api/devices/{plantId}/stats?from=...&to=...&interval=1h&metrics=tempC&percentiles=50,95
+     */
+    @GetMapping("/{plantId}/stats")
+    public ResponseEntity<?> getPlantStats(
+            @PathVariable String plantId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "1h") String interval,
+            @RequestParam(required = false) List<String> metrics,
+            @RequestParam(required = false) List<Integer> percentiles,
+            Authentication authentication
+    ) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+
+            Optional<PlantDevice> deviceOpt = deviceService.getDeviceByPlantId(plantId);
+            if (deviceOpt.isEmpty() || !userId.equals(deviceOpt.get().getOwnerId())) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Dispositivo no encontrado o no autorizado.");
+            }
+
+            Instant end = to != null ? to : Instant.now();
+            Instant start = from != null ? from : end.minus(Duration.ofDays(1));
+            return ResponseEntity.ok(readingStatsService.compute(
+                    List.of(deviceOpt.get()), start, end, interval, metrics, percentiles, true));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Consulta inválida: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Error al calcular estadísticas de {}: {}", plantId, e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error al calcular estadísticas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Estadísticas de TODAS las plantas del usuario.
+     * Ruta: GET /api/devices/stats?interval=1d&groupBy=plant|all
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<?> getUserStats(
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "1h") String interval,
+            @RequestParam(required = false) List<String> metrics,
+            @RequestParam(required = false) List<Integer> percentiles,
+            @RequestParam(defaultValue = "plant") String groupBy,
+            Authentication authentication
+    ) {
+        try {
+            String userId = currentUserService.getUserId(authentication);
+
+            if (!groupBy.equals("plant") && !groupBy.equals("all")) {
+                return ResponseEntity.badRequest().body("'groupBy' debe ser plant o all.");
+            }
+
+            Instant end = to != null ? to : Instant.now();
+            Instant start = from != null ? from : end.minus(Duration.ofDays(1));
+            List<PlantDevice> devices = deviceService.getDevicesByOwner(userId);
+            return ResponseEntity.ok(readingStatsService.compute(
+                    devices, start, end, interval, metrics, percentiles, groupBy.equals("plant")));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Consulta inválida: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Error al calcular estadísticas del usuario: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Error al calcular estadísticas: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.api.plant.dto;
+
+import java.security.Principal;
+
+/**
+ * Usuario autenticado con un access token: el userId de Mongo viaja en el token ("sub"),
+ * así los controladores no necesitan buscar al usuario por nombre en cada request.
+ * getName() devuelve el userId (igual que convertAndSendToUser en los destinos /user/...).
+ */
+public record AuthenticatedUser(
+        String userId,
+        String username
+) implements Principal {
+
+    @Override
+    public String getName() {
+        return userId;
+    }
+}
@@ -0,0 +1,22 @@
+package com.api.plant.dto;
+
+/**
+ * Evento emitido por DeviceService cuando un dispositivo se vincula a un usuario o cambian sus datos.
+ * Lo consumen los modelos de lectura en memoria (ej. el dashboard) y la caché de decisiones MQTT
+ * para no quedar desactualizados.
+ */
+public record DeviceChangedEvent(
+        String plantId,
+        String ownerId,
+        String name,
+        String description,
+        boolean active,
+        Change change,
+        String previousPlantId  // plantId anterior si el dispositivo se re-sincronizó (null si no cambió)
+) {
+
+    public enum Change {
+        REGISTERED,     // Dispositivo nuevo o vinculado al usuario
+        UPDATED         // Cambio de umbrales u otros datos del dispositivo
+    }
+}
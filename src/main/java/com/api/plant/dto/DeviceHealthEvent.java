@@ -0,0 +1,27 @@
+package com.api.plant.dto;
+
+import java.time.Instant;
+
+/**
+ * Evento de salud del dispositivo emitido por el QC cuando un sensor entra en falla
+ * (o se recupera). Se publica como evento de Spring y se reenvía al usuario vía WebSocket.
+ */
+public record DeviceHealthEvent(
+        String plantId,     // Planta cuyo sensor cambió de estado
+        String userId,      // Dueño de la planta
+        Fault fault,        // Tipo de falla detectada (o la que se recuperó)
+        String metric,      // Métrica afectada (ej. "soilHumidity")
+        String detail,      // Descripción legible de la causa
+        boolean recovered,  // true si el sensor volvió a reportar datos sanos
+        Instant timestamp   // Momento de la lectura que disparó el cambio
+) {
+
+    /**
+     * Tipos de falla de sensor detectados por SensorHealthDetector.
+     */
+    public enum Fault {
+        FLATLINE,               // Valor idéntico durante N lecturas o T minutos (sensor muerto).
+        SATURATION,             // Valor clavado en 0 o 100 (saturación de cuantización).
+        IMPOSSIBLE_COMBINATION  // Combinación de métricas físicamente imposible.
+    }
+}
@@ -0,0 +1,14 @@
+package com.api.plant.dto;
+
+import com.api.plant.entity.UserNotification;
+
+import java.util.List;
+
+/**
+ * Página de la bandeja de notificaciones.
+ * nextCursor es null cuando no hay más resultados.
+ */
+public record InboxPage(
+        List<UserNotification> items,
+        String nextCursor
+) {}
@@ -0,0 +1,20 @@
+package com.api.plant.dto;
+
+import java.util.List;
+
+/**
+ * Record inmutable para el frame agrupado de alertas.
+ * Se envía por /user/queue/alerts cuando varias alertas del mismo usuario
+ * caen dentro de la misma ventana de agrupación (ej. ola de calor con muchas plantas).
+ */
+public record NotificationBatch(
+        String type,                        // Siempre "BATCH" (para distinguirlo de NotificationMessage)
+        int count,                          // Número de alertas agrupadas
+        List<NotificationMessage> alerts    // Alertas en orden de llegada
+) {
+    public static final String TYPE = "BATCH";
+
+    public NotificationBatch(List<NotificationMessage> alerts) {
+        this(TYPE, alerts.size(), alerts);
+    }
+}
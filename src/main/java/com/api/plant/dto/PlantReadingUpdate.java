@@ -0,0 +1,34 @@
+package com.api.plant.dto;
+
+import com.api.plant.entity.Reading;
+
+import java.time.Instant;
+
+/**
+ * Record inmutable con el último estado de una planta que se publica en
+ * /topic/plants/{plantId}/readings (stream en vivo para los dashboards).
+ */
+public record PlantReadingUpdate(
+        String plantId,
+        Instant timestamp,
+        Double tempC,
+        Integer ambientHumidity,
+        Integer soilHumidity,
+        Integer lightLux,
+        Reading.QcStatus qcStatus,
+        Reading.AdvisorResult advisorResult
+) {
+
+    public static PlantReadingUpdate from(Reading reading) {
+        return new PlantReadingUpdate(
+                reading.getPlantId(),
+                reading.getTimestamp(),
+                reading.getTempC(),
+                reading.getAmbientHumidity(),
+                reading.getSoilHumidity(),
+                reading.getLightLux(),
+                reading.getQcStatus(),
+                reading.getAdvisorResult()
+        );
+    }
+}
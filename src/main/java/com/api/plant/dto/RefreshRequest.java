@@ -0,0 +1,8 @@
+package com.api.plant.dto;
+
+/**
+ * DTO para renovar (o revocar) la sesión con el refresh token.
+ */
+public record RefreshRequest(
+        String refreshToken
+) {}
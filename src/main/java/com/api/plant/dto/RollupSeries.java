@@ -0,0 +1,14 @@
+package com.api.plant.dto;
+
+import com.api.plant.entity.ReadingRollup;
+
+import java.util.List;
+
+/**
+ * Serie de rollups de una planta en la resolución elegida para el rango pedido.
+ */
+public record RollupSeries(
+        String plantId,
+        ReadingRollup.Resolution resolution,
+        List<ReadingRollup> points
+) {}
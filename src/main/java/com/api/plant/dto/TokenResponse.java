@@ -0,0 +1,13 @@
+package com.api.plant.dto;
+
+/**
+ * Respuesta de /api/auth/login y /api/auth/refresh.
+ *
+ * @param expiresIn Segundos de validez del access token.
+ */
+public record TokenResponse(
+        String accessToken,
+        String refreshToken,
+        String tokenType,
+        long expiresIn
+) {}
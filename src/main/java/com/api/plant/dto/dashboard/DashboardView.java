@@ -0,0 +1,12 @@
+package com.api.plant.dto.dashboard;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Respuesta de GET /api/dashboard: el estado actual de todas las plantas del usuario.
+ */
+public record DashboardView(
+        Instant generatedAt,
+        List<PlantDashboardState> plants
+) {}
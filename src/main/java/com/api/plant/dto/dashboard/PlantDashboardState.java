@@ -0,0 +1,34 @@
+package com.api.plant.dto.dashboard;
+
+import com.api.plant.dto.PlantReadingUpdate;
+import com.api.plant.entity.Reading;
+
+import java.time.Instant;
+
+/**
+ * Estado actual de una planta en el dashboard.
+ *
+ * @param liveness      ONLINE / STALE / OFFLINE según el tiempo desde el último dato (UNKNOWN si nunca reportó).
+ * @param lastSeen      Último mensaje de datos recibido (aunque el QC lo haya rechazado).
+ * @param latestReading Última lectura VALID.
+ * @param sensorFault   Falla de sensor activa (ej. "FLATLINE:soilHumidity"), o null.
+ */
+public record PlantDashboardState(
+        String plantId,
+        String name,
+        String description,
+        boolean active,
+        Liveness liveness,
+        Instant lastSeen,
+        PlantReadingUpdate latestReading,
+        Reading.AdvisorResult lastAdvisorResult,
+        String sensorFault
+) {
+
+    public enum Liveness {
+        ONLINE,
+        STALE,
+        OFFLINE,
+        UNKNOWN
+    }
+}
@@ -0,0 +1,20 @@
+package com.api.plant.dto.device;
+
+import java.util.List;
+
+/**
+ * DTO para enviar la calibración de UNA métrica de un dispositivo.
+ * Se usa 'points' (2 o 3 puntos) para una curva por tramos, o 'offset'/'gain' para una recta.
+ */
+public record CalibrationUpdateDto(
+        String metric,          // tempC, ambientHumidity, soilHumidity o lightLux
+        Double offset,          // Opcional (por defecto 0)
+        Double gain,            // Opcional (por defecto 1)
+        List<Point> points      // Opcional: tiene prioridad sobre offset/gain
+) {
+
+    /**
+     * Punto de calibración: valor crudo del sensor y valor del instrumento de referencia.
+     */
+    public record Point(double raw, double reference) {}
+}
@@ -0,0 +1,11 @@
+package com.api.plant.dto.reading;
+
+import java.util.List;
+
+/**
+ * Página del historial de lecturas. nextCursor es null cuando no hay más resultados.
+ */
+public record ReadingHistoryPage(
+        List<ReadingView> items,
+        String nextCursor
+) {}
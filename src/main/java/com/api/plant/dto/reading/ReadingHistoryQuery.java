@@ -0,0 +1,30 @@
+package com.api.plant.dto.reading;
+
+import com.api.plant.entity.Reading;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Consulta de historial ya validada (la arma ReadingHistoryService a partir de los parámetros HTTP).
+ *
+ * @param fields       Métricas/campos a devolver (id y timestamp siempre se incluyen).
+ * @param qcStatuses   Filtro por estado de QC (vacío = todos).
+ * @param advisorResults Filtro por resultado del Advisor (vacío = todos).
+ * @param afterTimestamp Posición del cursor (null en la primera página).
+ * @param afterId      _id de la última lectura devuelta (desempate del cursor).
+ * @param descending   true = más recientes primero.
+ * @param limit        Tamaño de página (se ignora en modo streaming).
+ */
+public record ReadingHistoryQuery(
+        String plantId,
+        Instant from,
+        Instant to,
+        Set<String> fields,
+        Set<Reading.QcStatus> qcStatuses,
+        Set<Reading.AdvisorResult> advisorResults,
+        Instant afterTimestamp,
+        String afterId,
+        boolean descending,
+        int limit
+) {}
@@ -0,0 +1,43 @@
+package com.api.plant.dto.reading;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de una agregación de lecturas por intervalo.
+ *
+ * @param source "raw" (lecturas crudas) o "rollup" (colecciones de rollups).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReadingStats(
+        String interval,
+        String groupBy,
+        String source,
+        List<Bucket> buckets
+) {
+
+    /**
+     * Un intervalo. plantId es null cuando se agrupan todas las plantas del usuario.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Bucket(
+            Instant start,
+            String plantId,
+            long count,
+            Map<String, MetricSummary> metrics
+    ) {}
+
+    /**
+     * Resumen de una métrica. percentiles: "p50" -> valor (solo si se pidieron).
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record MetricSummary(
+            Double min,
+            Double max,
+            Double avg,
+            Map<String, Double> percentiles
+    ) {}
+}
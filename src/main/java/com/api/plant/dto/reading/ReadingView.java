@@ -0,0 +1,22 @@
+package com.api.plant.dto.reading;
+
+import com.api.plant.entity.Reading;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Lectura tal como la devuelve la API de historial.
+ * Solo se serializan los campos pedidos en 'fields' (los demás quedan en null y se omiten).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReadingView(
+        String id,
+        Instant timestamp,
+        Double tempC,
+        Integer ambientHumidity,
+        Integer soilHumidity,
+        Integer lightLux,
+        Reading.QcStatus qcStatus,
+        Reading.AdvisorResult advisorResult
+) {}
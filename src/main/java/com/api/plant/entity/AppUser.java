@@ -22,6 +22,9 @@ public class AppUser {
     // IDs de las plantas que este usuario gestiona (Relación 1:N con PlantDevice)
     private List<String> plantsIds;
 
+    // Se incrementa al cerrar sesión: invalida todos los refresh tokens emitidos antes
+    private int tokenVersion;
+
     public AppUser() {
     }
 
@@ -64,4 +67,12 @@ public class AppUser {
     public void setPlantsIds(List<String> plantsIds) {
         this.plantsIds = plantsIds;
     }
-}
\ No newline at end of file
+
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+}
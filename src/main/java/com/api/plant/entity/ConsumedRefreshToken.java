@@ -0,0 +1,56 @@
+package com.api.plant.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Refresh token ya usado (_id = jti). Un refresh token sirve para una sola renovación.
+ * El documento vence (índice TTL) cuando vence el token: después la firma ya lo rechaza por expirado.
+ */
+@Document(collection = "consumed_refresh_tokens")
+public class ConsumedRefreshToken {
+
+    @Id
+    private String tokenId;
+
+    private String userId;
+
+    @Indexed(name = "expires_ttl_idx", expireAfter = "0s")
+    private Instant expiresAt;
+
+    public ConsumedRefreshToken() {
+    }
+
+    public ConsumedRefreshToken(String tokenId, String userId, Instant expiresAt) {
+        this.tokenId = tokenId;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public void setTokenId(String tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,36 @@
+package com.api.plant.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Contador de notificaciones no leídas por usuario (_id = userId).
+ * Se mantiene con $inc en cada escritura/lectura: nunca se hace un count() sobre la bandeja.
+ */
+@Document(collection = "notification_counters")
+public class NotificationCounter {
+
+    @Id
+    private String userId;
+
+    private long unread;
+
+    public NotificationCounter() {
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public long getUnread() {
+        return unread;
+    }
+
+    public void setUnread(long unread) {
+        this.unread = unread;
+    }
+}
@@ -1,5 +1,6 @@
 package com.api.plant.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
@@ -18,7 +19,15 @@ public class PlantDevice {
     private String plantId;
     private String name;
     private String description;
+
+    // Password MQTT: se guarda solo HMAC-SHA256(pepper, salt + password) (ver DeviceCredentialService).
+    // 'mqttPassword' queda para registros anteriores en texto plano; se migra en el primer login correcto.
+    @JsonIgnore
     private String mqttPassword;
+    @JsonIgnore
+    private String mqttPasswordHash;
+    @JsonIgnore
+    private String mqttPasswordSalt;
 
     // --- Campo Crucial para Provisioning ---
     @Indexed(unique = true, sparse = true)
@@ -46,6 +55,14 @@ public class PlantDevice {
     private Integer minLightLux;  // Mínimo de luz para sugerir RECOMENDACIÓN [cite: 147]
     private Integer maxLightLux;  // Máximo de luz para sugerir ALERTA (Riesgo de quemadura)
 
+    // Se incrementa en cada cambio de umbrales (invalida estadísticas cacheadas)
+    private long thresholdsVersion;
+
+    // =====================================
+    // Calibración del sensor (por unidad física)
+    // =====================================
+    private SensorCalibration calibration;
+
     // Campos de Operación
     private String topic;
     private Boolean isActive;
@@ -123,6 +140,22 @@ public class PlantDevice {
         this.mqttPassword = mqttPassword;
     }
 
+    public String getMqttPasswordHash() {
+        return mqttPasswordHash;
+    }
+
+    public void setMqttPasswordHash(String mqttPasswordHash) {
+        this.mqttPasswordHash = mqttPasswordHash;
+    }
+
+    public String getMqttPasswordSalt() {
+        return mqttPasswordSalt;
+    }
+
+    public void setMqttPasswordSalt(String mqttPasswordSalt) {
+        this.mqttPasswordSalt = mqttPasswordSalt;
+    }
+
     // --- Humedad AMBIENTAL ---
     public Integer getMinHumidity() {
         return minHumidity;
@@ -194,6 +227,26 @@ public class PlantDevice {
         this.maxSoilHumidity = maxSoilHumidity;
     }
 
+    // =====================================
+    // Getters y Setters (Calibración)
+    // =====================================
+
+    public long getThresholdsVersion() {
+        return thresholdsVersion;
+    }
+
+    public void setThresholdsVersion(long thresholdsVersion) {
+        this.thresholdsVersion = thresholdsVersion;
+    }
+
+    public SensorCalibration getCalibration() {
+        return calibration;
+    }
+
+    public void setCalibration(SensorCalibration calibration) {
+        this.calibration = calibration;
+    }
+
     // =====================================
     // Getters y Setters (Operación)
     // =====================================
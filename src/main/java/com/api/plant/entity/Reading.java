@@ -1,36 +1,103 @@
 package com.api.plant.entity;
 
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TimeSeries;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
 import java.time.Instant;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 
 /**
  * Entidad que representa una lectura de sensor persistida en Mongo Atlas.
  * Incluye los resultados del QC y del Advisor.
+ * Se guarda en una colección time-series nativa (agrupada por planta, ~1 lectura por minuto);
+ * la colección y sus índices los crea ReadingCollectionInitializer al arrancar.
  */
-@Document(collection = "readings")
+@TimeSeries(collection = Reading.COLLECTION, timeField = "timestamp", metaField = "plantId", granularity = Granularity.MINUTES)
 public class Reading {
 
+    public static final String COLLECTION = "readings_ts";
+    // Colección original (documentos planos), origen de la migración
+    public static final String LEGACY_COLLECTION = "readings";
+
     // --- 1. ENUMS (Resultados de Lógica) ---
 
     /**
      * Enum que define el estado de la lectura después de la validación de Calidad (QC).
+     * El código numérico es el que se guarda en los formatos compactos (buckets, archivo): es estable,
+     * un valor nuevo toma el siguiente código libre y ninguno se reutiliza ni se reordena.
      */
     public enum QcStatus {
-        VALID,              // Dato validado y apto para el Advisor.
-        OUT_OF_RANGE,       // Descartado por límites físicos (ej. Temp > 50C).
-        RATE_ERROR,         // Descartado por salto brusco (Outlier Lógico).
-        QC_ERROR            // Error de formato o deserialización.
+        VALID(0),               // Dato validado y apto para el Advisor.
+        OUT_OF_RANGE(1),        // Descartado por límites físicos (ej. Temp > 50C).
+        RATE_ERROR(2),          // Descartado por salto brusco (Outlier Lógico).
+        STATISTICAL_OUTLIER(3), // Descartado por salirse de la banda EWMA y mediana/MAD (Outlier Estadístico).
+        SENSOR_FAULT(4),        // Descartado por sensor atascado (flatline, saturación o combinación imposible).
+        QC_ERROR(5);            // Error de formato o deserialización.
+
+        private static final QcStatus[] BY_CODE = byCode(values(), QcStatus::code, QcStatus[]::new);
+
+        private final int code;
+
+        QcStatus(int code) {
+            this.code = code;
+        }
+
+        public int code() {
+            return code;
+        }
+
+        /**
+         * @return El estado con ese código, o null si el código no existe (dato de una versión más nueva o corrupto).
+         */
+        public static QcStatus fromCode(int code) {
+            return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        }
     }
 
     /**
      * Enum que define el resultado de la Lógica Central (Advisor).
+     * Mismo esquema de códigos estables que QcStatus.
      */
     public enum AdvisorResult {
-        CRITICA,            // Humedad baja de SUELO -> Requiere RIEGO y Alerta.
-        ALERTA,             // Temp/Humedad AMBIENTAL alta/baja -> Requiere Notificación.
-        RECOMENDACION,      // Luz baja/Problema leve -> Sugerencia para el feed.
-        INFO                // Todo normal.
+        CRITICA(0),             // Humedad baja de SUELO -> Requiere RIEGO y Alerta.
+        ALERTA(1),              // Temp/Humedad AMBIENTAL alta/baja -> Requiere Notificación.
+        RECOMENDACION(2),       // Luz baja/Problema leve -> Sugerencia para el feed.
+        INFO(3);                // Todo normal.
+
+        private static final AdvisorResult[] BY_CODE = byCode(values(), AdvisorResult::code, AdvisorResult[]::new);
+
+        private final int code;
+
+        AdvisorResult(int code) {
+            this.code = code;
+        }
+
+        public int code() {
+            return code;
+        }
+
+        /**
+         * @return El resultado con ese código, o null si el código no existe.
+         */
+        public static AdvisorResult fromCode(int code) {
+            return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        }
+    }
+
+    private static <E> E[] byCode(E[] values, ToIntFunction<E> code, IntFunction<E[]> array) {
+        int max = -1;
+        for (E value : values) {
+            max = Math.max(max, code.applyAsInt(value));
+        }
+        E[] table = array.apply(max + 1);
+        for (E value : values) {
+            if (table[code.applyAsInt(value)] != null) {
+                throw new IllegalStateException("Código repetido: " + value);
+            }
+            table[code.applyAsInt(value)] = value;
+        }
+        return table;
     }
 
     // --- 2. CAMPOS DE DATOS ---
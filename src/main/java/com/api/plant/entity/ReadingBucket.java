@@ -0,0 +1,193 @@
+package com.api.plant.entity;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Layout alternativo de lecturas (readings.layout=bucket): UN documento por planta y por hora (UTC),
+ * con los puntos en arreglos paralelos. plantId/userId y los nombres de campo se guardan una vez por hora
+ * en lugar de una vez por lectura, y los enums van con su código estable (Reading.QcStatus.code()).
+ *
+ * Las lecturas se agregan con upsert + $push (un arreglo por columna, en la misma actualización),
+ * así que el orden dentro de los arreglos es el de llegada, no necesariamente el cronológico.
+ * Los valores ausentes se guardan como null para mantener los arreglos alineados.
+ */
+@Document(collection = ReadingBucket.COLLECTION)
+@CompoundIndexes({
+        @CompoundIndex(name = "plant_hour_idx", def = "{'plantId': 1, 'hourStart': -1}"),
+        @CompoundIndex(name = "user_hour_idx", def = "{'userId': 1, 'hourStart': -1}")
+})
+public class ReadingBucket {
+
+    public static final String COLLECTION = "readings_buckets";
+    public static final long HOUR_MS = 3_600_000L;
+
+    // Nombres cortos de los arreglos (se repiten en cada documento)
+    public static final String OFFSETS = "t";
+    public static final String IDS = "i";
+    public static final String TEMP = "tc";
+    public static final String AMBIENT = "ah";
+    public static final String SOIL = "sh";
+    public static final String LIGHT = "lx";
+    public static final String QC = "qc";
+    public static final String ADVISOR = "ar";
+
+    @Id
+    private String id;
+
+    private String plantId;
+    private String userId;
+    private Instant hourStart;
+
+    // Cantidad de puntos en el bucket
+    private int n;
+
+    // Milisegundos desde hourStart
+    @Field(OFFSETS)
+    private List<Integer> offsets;
+
+    @Field(IDS)
+    private List<ObjectId> ids;
+
+    @Field(TEMP)
+    private List<Double> tempC;
+
+    @Field(AMBIENT)
+    private List<Integer> ambientHumidity;
+
+    @Field(SOIL)
+    private List<Integer> soilHumidity;
+
+    @Field(LIGHT)
+    private List<Integer> lightLux;
+
+    // Código estable de Reading.QcStatus
+    @Field(QC)
+    private List<Integer> qcStatus;
+
+    // Código estable de Reading.AdvisorResult (null si no hay)
+    @Field(ADVISOR)
+    private List<Integer> advisorResult;
+
+    public ReadingBucket() {
+    }
+
+    public static long hourStart(long epochMillis) {
+        return Math.floorDiv(epochMillis, HOUR_MS) * HOUR_MS;
+    }
+
+    public static String idFor(String plantId, long hourStartMillis) {
+        return plantId + "_" + hourStartMillis;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getPlantId() {
+        return plantId;
+    }
+
+    public void setPlantId(String plantId) {
+        this.plantId = plantId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Instant getHourStart() {
+        return hourStart;
+    }
+
+    public void setHourStart(Instant hourStart) {
+        this.hourStart = hourStart;
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    public void setN(int n) {
+        this.n = n;
+    }
+
+    public List<Integer> getOffsets() {
+        return offsets;
+    }
+
+    public void setOffsets(List<Integer> offsets) {
+        this.offsets = offsets;
+    }
+
+    public List<ObjectId> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<ObjectId> ids) {
+        this.ids = ids;
+    }
+
+    public List<Double> getTempC() {
+        return tempC;
+    }
+
+    public void setTempC(List<Double> tempC) {
+        this.tempC = tempC;
+    }
+
+    public List<Integer> getAmbientHumidity() {
+        return ambientHumidity;
+    }
+
+    public void setAmbientHumidity(List<Integer> ambientHumidity) {
+        this.ambientHumidity = ambientHumidity;
+    }
+
+    public List<Integer> getSoilHumidity() {
+        return soilHumidity;
+    }
+
+    public void setSoilHumidity(List<Integer> soilHumidity) {
+        this.soilHumidity = soilHumidity;
+    }
+
+    public List<Integer> getLightLux() {
+        return lightLux;
+    }
+
+    public void setLightLux(List<Integer> lightLux) {
+        this.lightLux = lightLux;
+    }
+
+    public List<Integer> getQcStatus() {
+        return qcStatus;
+    }
+
+    public void setQcStatus(List<Integer> qcStatus) {
+        this.qcStatus = qcStatus;
+    }
+
+    public List<Integer> getAdvisorResult() {
+        return advisorResult;
+    }
+
+    public void setAdvisorResult(List<Integer> advisorResult) {
+        this.advisorResult = advisorResult;
+    }
+}
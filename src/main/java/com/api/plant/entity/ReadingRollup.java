@@ -0,0 +1,232 @@
+package com.api.plant.entity;
+
+import org.springframework.data.annotation.Id;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Resumen (rollup) de las lecturas VALID de una planta en un intervalo (minuto, hora o día).
+ * Hay una colección por resolución; el _id es "{plantId}_{bucketStartMillis}".
+ * Los campos se mantienen con $min/$max/$inc, así que varios flush parciales de un mismo
+ * intervalo se combinan correctamente.
+ */
+public class ReadingRollup {
+
+    /**
+     * Cobertura por planta: {_id: plantId, since: Date}. Los rollups solo tienen todas las lecturas
+     * de los intervalos que empiezan en o después de 'since' (las anteriores al despliegue no se acumularon).
+     */
+    public static final String COVERAGE_COLLECTION = "readings_rollup_coverage";
+
+    /**
+     * Resoluciones disponibles (intervalos alineados a UTC).
+     */
+    public enum Resolution {
+        MINUTE(Duration.ofMinutes(1), "readings_rollup_minute"),
+        HOUR(Duration.ofHours(1), "readings_rollup_hour"),
+        DAY(Duration.ofDays(1), "readings_rollup_day");
+
+        private final Duration bucket;
+        private final String collection;
+
+        Resolution(Duration bucket, String collection) {
+            this.bucket = bucket;
+            this.collection = collection;
+        }
+
+        public Duration getBucket() {
+            return bucket;
+        }
+
+        public String getCollection() {
+            return collection;
+        }
+
+        public long bucketStart(long epochMillis) {
+            long size = bucket.toMillis();
+            return Math.floorDiv(epochMillis, size) * size;
+        }
+    }
+
+    @Id
+    private String id;
+
+    private String plantId;
+    private String userId;
+    private Instant bucketStart;
+
+    // Lecturas VALID en el intervalo
+    private long count;
+
+    private MetricStats tempC;
+    private MetricStats ambientHumidity;
+    private MetricStats soilHumidity;
+    private MetricStats lightLux;
+
+    public ReadingRollup() {
+    }
+
+    public static String idFor(String plantId, long bucketStartMillis) {
+        return plantId + "_" + bucketStartMillis;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getPlantId() {
+        return plantId;
+    }
+
+    public void setPlantId(String plantId) {
+        this.plantId = plantId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Instant getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(Instant bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public MetricStats getTempC() {
+        return tempC;
+    }
+
+    public void setTempC(MetricStats tempC) {
+        this.tempC = tempC;
+    }
+
+    public MetricStats getAmbientHumidity() {
+        return ambientHumidity;
+    }
+
+    public void setAmbientHumidity(MetricStats ambientHumidity) {
+        this.ambientHumidity = ambientHumidity;
+    }
+
+    public MetricStats getSoilHumidity() {
+        return soilHumidity;
+    }
+
+    public void setSoilHumidity(MetricStats soilHumidity) {
+        this.soilHumidity = soilHumidity;
+    }
+
+    public MetricStats getLightLux() {
+        return lightLux;
+    }
+
+    public void setLightLux(MetricStats lightLux) {
+        this.lightLux = lightLux;
+    }
+
+    /**
+     * Estadísticas de una métrica dentro del intervalo.
+     * El promedio no se persiste: se calcula como sum / count.
+     */
+    public static class MetricStats {
+        private Double min;
+        private Double max;
+        private double sum;
+        private long count;
+        private Double last;
+        private Instant lastTimestamp;
+
+        public MetricStats() {
+        }
+
+        public Double getAvg() {
+            return count > 0 ? sum / count : null;
+        }
+
+        /**
+         * Combina otro resumen del mismo intervalo (ej. persistido + abierto en memoria).
+         */
+        public MetricStats merge(MetricStats other) {
+            if (other == null || other.count == 0) {
+                return this;
+            }
+            MetricStats merged = new MetricStats();
+            merged.min = min == null ? other.min : Math.min(min, other.min);
+            merged.max = max == null ? other.max : Math.max(max, other.max);
+            merged.sum = sum + other.sum;
+            merged.count = count + other.count;
+            boolean otherIsLater = lastTimestamp == null
+                    || (other.lastTimestamp != null && other.lastTimestamp.isAfter(lastTimestamp));
+            merged.last = otherIsLater ? other.last : last;
+            merged.lastTimestamp = otherIsLater ? other.lastTimestamp : lastTimestamp;
+            return merged;
+        }
+
+        public Double getMin() {
+            return min;
+        }
+
+        public void setMin(Double min) {
+            this.min = min;
+        }
+
+        public Double getMax() {
+            return max;
+        }
+
+        public void setMax(Double max) {
+            this.max = max;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public void setSum(double sum) {
+            this.sum = sum;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+
+        public Double getLast() {
+            return last;
+        }
+
+        public void setLast(Double last) {
+            this.last = last;
+        }
+
+        public Instant getLastTimestamp() {
+            return lastTimestamp;
+        }
+
+        public void setLastTimestamp(Instant lastTimestamp) {
+            this.lastTimestamp = lastTimestamp;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.api.plant.entity;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Perfil de calibración por dispositivo (documento embebido en PlantDevice).
+ * Cada métrica puede calibrarse con offset/ganancia o con una curva lineal por tramos
+ * construida a partir de 2 o 3 puntos (valor crudo -> valor de referencia).
+ */
+public class SensorCalibration {
+
+    // Se incrementa en cada cambio: CalibrationService lo usa para recompilar las tablas.
+    private long version;
+    private Instant updatedAt;
+
+    private MetricCalibration tempC;
+    private MetricCalibration ambientHumidity;
+    private MetricCalibration soilHumidity;
+    private MetricCalibration lightLux;
+
+    public SensorCalibration() {
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public MetricCalibration getTempC() {
+        return tempC;
+    }
+
+    public void setTempC(MetricCalibration tempC) {
+        this.tempC = tempC;
+    }
+
+    public MetricCalibration getAmbientHumidity() {
+        return ambientHumidity;
+    }
+
+    public void setAmbientHumidity(MetricCalibration ambientHumidity) {
+        this.ambientHumidity = ambientHumidity;
+    }
+
+    public MetricCalibration getSoilHumidity() {
+        return soilHumidity;
+    }
+
+    public void setSoilHumidity(MetricCalibration soilHumidity) {
+        this.soilHumidity = soilHumidity;
+    }
+
+    public MetricCalibration getLightLux() {
+        return lightLux;
+    }
+
+    public void setLightLux(MetricCalibration lightLux) {
+        this.lightLux = lightLux;
+    }
+
+    /**
+     * Calibración de una métrica. Si hay puntos (2 o 3) se usa la curva por tramos;
+     * si no, se aplica: valor = crudo * gain + offset.
+     */
+    public static class MetricCalibration {
+
+        private Double offset;
+        private Double gain;
+        private List<CalibrationPoint> points;
+
+        public MetricCalibration() {
+        }
+
+        public Double getOffset() {
+            return offset;
+        }
+
+        public void setOffset(Double offset) {
+            this.offset = offset;
+        }
+
+        public Double getGain() {
+            return gain;
+        }
+
+        public void setGain(Double gain) {
+            this.gain = gain;
+        }
+
+        public List<CalibrationPoint> getPoints() {
+            return points;
+        }
+
+        public void setPoints(List<CalibrationPoint> points) {
+            this.points = points;
+        }
+    }
+
+    /**
+     * Punto de calibración: lo que reportó el sensor (raw) y lo que marcó el instrumento de referencia.
+     */
+    public static class CalibrationPoint {
+
+        private double raw;
+        private double reference;
+
+        public CalibrationPoint() {
+        }
+
+        public CalibrationPoint(double raw, double reference) {
+            this.raw = raw;
+            this.reference = reference;
+        }
+
+        public double getRaw() {
+            return raw;
+        }
+
+        public void setRaw(double raw) {
+            this.raw = raw;
+        }
+
+        public double getReference() {
+            return reference;
+        }
+
+        public void setReference(double reference) {
+            this.reference = reference;
+        }
+    }
+}
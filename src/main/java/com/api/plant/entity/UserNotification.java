@@ -0,0 +1,117 @@
+package com.api.plant.entity;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Notificación persistida en la bandeja (inbox) del usuario.
+ * Append-only: solo cambia el estado de lectura (read/readAt).
+ */
+@Document(collection = "notifications")
+@CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
+public class UserNotification {
+
+    @Id
+    private String id;
+
+    private String userId;
+    private String plantId;
+
+    // Mismo contrato que NotificationMessage (CRITICA, ALERTA, RECOMENDACION)
+    private String type;
+    private String title;
+    private String action;
+
+    // Momento de la lectura que disparó la alerta
+    private Instant readingTimestamp;
+    private Instant createdAt;
+
+    private boolean read = false;
+    private Instant readAt;
+
+    public UserNotification() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getPlantId() {
+        return plantId;
+    }
+
+    public void setPlantId(String plantId) {
+        this.plantId = plantId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public Instant getReadingTimestamp() {
+        return readingTimestamp;
+    }
+
+    public void setReadingTimestamp(Instant readingTimestamp) {
+        this.readingTimestamp = readingTimestamp;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public boolean isRead() {
+        return read;
+    }
+
+    public void setRead(boolean read) {
+        this.read = read;
+    }
+
+    public Instant getReadAt() {
+        return readAt;
+    }
+
+    public void setReadAt(Instant readAt) {
+        this.readAt = readAt;
+    }
+}
@@ -12,6 +12,9 @@ public interface PlantDeviceRepository extends MongoRepository<PlantDevice, Stri
     // 1. Usado para el Advisor y comandos
     Optional<PlantDevice> findByPlantId(String plantId);
 
+    // Usado por la ACL de MQTT (solo importa si el dispositivo existe)
+    boolean existsByPlantId(String plantId);
+
     // 2. Usado para listar las plantas del usuario (DeviceService.getDevicesByOwner)
     List<PlantDevice> findByOwnerId(String ownerId);
 
@@ -0,0 +1,126 @@
+package com.api.plant.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Costo de una consulta de ACL MQTT, por línea de comandos (el proceso termina al acabar).
+ *
+ * Ejemplo:
+ * <pre>
+ * java -jar plant.jar --spring.main.web-application-type=none \
+ *      --acl.benchmark [--acl.benchmark.iterations=5000000]
+ * </pre>
+ *
+ * Compara las reglas 'mqtt.acl.device' compiladas en TopicAclTrie contra la forma anterior
+ * (armar los tópicos del dispositivo con String.format y compararlos), con una mezcla de tópicos
+ * permitidos y rechazados. Registra ns por consulta y bytes asignados por consulta (hilo actual).
+ * No consulta Mongo ni pasa por la caché de decisiones: mide solo el matching.
+ */
+@Component
+public class AclBenchmarkRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AclBenchmarkRunner.class);
+
+    private final MqttTopicService mqttTopicService;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${mqtt.acl.device}")
+    private List<String> deviceRules;
+
+    public AclBenchmarkRunner(MqttTopicService mqttTopicService, ConfigurableApplicationContext context) {
+        this.mqttTopicService = mqttTopicService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("acl.benchmark")) {
+            return;
+        }
+        int exitCode = 0;
+        try {
+            benchmark(args);
+        } catch (Exception e) {
+            log.error("BENCHMARK: Falló: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private void benchmark(ApplicationArguments args) {
+        List<String> values = args.getOptionValues("acl.benchmark.iterations");
+        int iterations = values == null || values.isEmpty() ? 5_000_000 : Integer.parseInt(values.get(0));
+
+        TopicAclTrie trie = TopicAclTrie.compile(deviceRules);
+        String username = "PNT-ABC123";
+        String clientId = "esp32-" + username;
+        String[] topics = {
+                mqttTopicService.getDeviceDataTopic(username),
+                mqttTopicService.getDeviceCommandTopic(username),
+                mqttTopicService.getDeviceDataTopic("PNT-OTRA01"),
+                "control/provisioning/discovery"
+        };
+        int[] accesses = {TopicAclTrie.WRITE, TopicAclTrie.READ, TopicAclTrie.WRITE, TopicAclTrie.WRITE};
+
+        // Ambas formas deben decidir lo mismo antes de medir
+        for (int i = 0; i < topics.length; i++) {
+            if (trie.allows(topics[i], accesses[i], username, clientId) != legacy(topics[i], accesses[i], username)) {
+                throw new IllegalStateException("Decisión distinta para " + topics[i] + " (acc=" + accesses[i] + ")");
+            }
+        }
+
+        // Calentamiento (JIT)
+        run(iterations / 10, topics, i -> trie.allows(topics[i], accesses[i], username, clientId));
+        run(iterations / 10, topics, i -> legacy(topics[i], accesses[i], username));
+
+        Result compiled = run(iterations, topics, i -> trie.allows(topics[i], accesses[i], username, clientId));
+        Result previous = run(iterations, topics, i -> legacy(topics[i], accesses[i], username));
+
+        log.info("📊 BENCHMARK ACL ({} consultas, {} regla(s) de dispositivo):", iterations, trie.ruleCount());
+        log.info("   trie compilado: {} ns/consulta, {} bytes/consulta ({} permitidas)",
+                compiled.nanosPerOp(), compiled.bytesPerOp(), compiled.allowed());
+        log.info("   String.format + equals: {} ns/consulta, {} bytes/consulta ({} permitidas)",
+                previous.nanosPerOp(), previous.bytesPerOp(), previous.allowed());
+    }
+
+    private boolean legacy(String topic, int access, String username) {
+        return (access == TopicAclTrie.WRITE && topic.equals(mqttTopicService.getDeviceDataTopic(username)))
+                || (access == TopicAclTrie.READ && topic.equals(mqttTopicService.getDeviceCommandTopic(username)));
+    }
+
+    private record Result(String nanosPerOp, String bytesPerOp, int allowed) {}
+
+    private interface Check {
+        boolean test(int index);
+    }
+
+    private static Result run(int iterations, String[] topics, Check check) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        int allowed = 0;
+
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (check.test(i % topics.length)) {
+                allowed++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        return new Result(String.format("%.1f", (double) elapsed / iterations),
+                String.format("%.2f", (double) bytes / iterations), allowed);
+    }
+}
@@ -54,7 +54,7 @@ public class AdvisorService {
         // --- 1. EVALUACIÓN CRÍTICA: RIEGO (Humedad de SUELO) ---
         // CRÍTICA: Humedad de Suelo < Mínima
         // =======================================================
-        if (reading.getSoilHumidity() < minSoilHumidity) {
+        if (reading.getSoilHumidity() != null && reading.getSoilHumidity() < minSoilHumidity) {
 
             reading.setAdvisorResult(AdvisorResult.CRITICA);
             log.error("🛑 CRÍTICO en {}: Humedad de SUELO ({}) < Mínimo ({}). REQUIERE RIEGO.",
@@ -72,7 +72,7 @@ public class AdvisorService {
         // =================================================================
 
         // A. Alerta por exceso de calor
-        if (reading.getTempC() > maxTempC) {
+        if (reading.getTempC() != null && reading.getTempC() > maxTempC) {
             reading.setAdvisorResult(AdvisorResult.ALERTA);
             log.warn("🔥 ALERTA en {}: Temperatura ({}) > Máximo ({}). Riesgo de calor.",
                     reading.getPlantId(), reading.getTempC(), maxTempC);
@@ -81,7 +81,7 @@ public class AdvisorService {
         }
 
         // B. Alerta por exceso de frío
-        if (reading.getTempC() < minTempC) {
+        if (reading.getTempC() != null && reading.getTempC() < minTempC) {
             reading.setAdvisorResult(AdvisorResult.ALERTA);
             log.warn("❄️ ALERTA en {}: Temperatura ({}) < Mínimo ({}). Riesgo de frío.",
                     reading.getPlantId(), reading.getTempC(), minTempC);
@@ -99,7 +99,7 @@ public class AdvisorService {
         }
 
         // D. Alerta por exceso de humedad de suelo (encharcamiento/raíces podridas)
-        if (reading.getSoilHumidity() > maxSoilHumidity) {
+        if (reading.getSoilHumidity() != null && reading.getSoilHumidity() > maxSoilHumidity) {
             reading.setAdvisorResult(AdvisorResult.ALERTA);
             log.warn("💧 ALERTA en {}: Humedad de SUELO ({}) > Máximo ({}). Riesgo de encharcamiento.",
                     reading.getPlantId(), reading.getSoilHumidity(), maxSoilHumidity);
@@ -108,7 +108,7 @@ public class AdvisorService {
         }
 
         // E. Alerta por humedad ambiental alta
-        if (reading.getAmbientHumidity() > maxAmbientHumidity) {
+        if (reading.getAmbientHumidity() != null && reading.getAmbientHumidity() > maxAmbientHumidity) {
             reading.setAdvisorResult(AdvisorResult.ALERTA);
             log.warn("💨 ALERTA en {}: Humedad AMBIENTAL ({}) > Máximo ({}). Riesgo de hongo.",
                     reading.getPlantId(), reading.getAmbientHumidity(), maxAmbientHumidity);
@@ -117,7 +117,7 @@ public class AdvisorService {
         }
 
         // F. Alerta por humedad ambiental baja (aire seco)
-        if (reading.getAmbientHumidity() < minAmbientHumidity) {
+        if (reading.getAmbientHumidity() != null && reading.getAmbientHumidity() < minAmbientHumidity) {
             reading.setAdvisorResult(AdvisorResult.ALERTA);
             log.warn("🏜️ ALERTA en {}: Humedad AMBIENTAL ({}) < Mínimo ({}). Riesgo de aire seco.",
                     reading.getPlantId(), reading.getAmbientHumidity(), minAmbientHumidity);
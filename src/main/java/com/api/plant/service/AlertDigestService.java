@@ -0,0 +1,169 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.NotificationMessage;
+import com.api.plant.entity.AppUser;
+import com.api.plant.repository.AppUserRepository;
+import com.api.plant.service.NotificationDispatcher.PendingAlert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumen (digest) de alertas por correo.
+ * En lugar de un correo por alerta, acumula las alertas de cada usuario y cada
+ * 'email.digest.interval-ms' envía UN correo con el resumen de todas ellas.
+ */
+@Service
+public class AlertDigestService {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertDigestService.class);
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
+    private final EmailService emailService;
+    private final AppUserRepository userRepository;
+
+    // userId -> alertas acumuladas desde el último resumen
+    private final Map<String, UserDigest> pendingByUser = new ConcurrentHashMap<>();
+
+    @Value("${email.digest.enabled:true}")
+    private boolean enabled;
+
+    // Máximo de alertas detalladas por correo (el resto solo se cuenta)
+    @Value("${email.digest.max-items:50}")
+    private int maxItems;
+
+    public AlertDigestService(EmailService emailService, AppUserRepository userRepository) {
+        this.emailService = emailService;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Registra una alerta para el próximo resumen del usuario.
+     */
+    public void record(PendingAlert alert) {
+        if (!enabled || alert.userId() == null) {
+            return;
+        }
+        // compute() es atómico respecto al remove() de sendDigests: ninguna alerta se pierde entre resúmenes
+        pendingByUser.compute(alert.userId(), (id, digest) -> {
+            UserDigest target = digest != null ? digest : new UserDigest();
+            target.total++;
+            if (target.alerts.size() < maxItems) {
+                target.alerts.add(alert);
+            }
+            return target;
+        });
+    }
+
+    /**
+     * Tarea programada: envía un resumen por usuario con alertas pendientes.
+     */
+    @Scheduled(fixedRateString = "${email.digest.interval-ms:900000}", initialDelayString = "${email.digest.interval-ms:900000}")
+    public void sendDigests() {
+        if (!enabled || pendingByUser.isEmpty()) {
+            return;
+        }
+
+        // 1. Tomar las alertas pendientes (las que lleguen mientras tanto van al siguiente resumen)
+        Map<String, UserDigest> snapshot = new HashMap<>();
+        for (String userId : pendingByUser.keySet()) {
+            UserDigest digest = pendingByUser.remove(userId);
+            if (digest != null) {
+                snapshot.put(userId, digest);
+            }
+        }
+
+        // 2. Resolver los correos de todos los usuarios con UNA consulta
+        Iterable<AppUser> users;
+        try {
+            users = userRepository.findAllById(snapshot.keySet());
+        } catch (Exception e) {
+            // Sin usuarios no hay correos: las alertas vuelven al siguiente resumen
+            snapshot.forEach(this::requeue);
+            log.error("📧 DIGEST: No se pudieron cargar los usuarios, {} resumen(es) se reintentan en el próximo ciclo: {}",
+                    snapshot.size(), e.getMessage());
+            return;
+        }
+
+        int sent = 0;
+        for (AppUser user : users) {
+            if (user.getEmail() == null || user.getEmail().isBlank()) {
+                continue;
+            }
+            UserDigest digest = snapshot.get(user.getId());
+            if (emailService.enviarCorreo(user.getEmail(), buildSubject(digest), buildBody(user, digest))) {
+                sent++;
+            } else {
+                // Outbox lleno: se reintenta en el próximo resumen
+                requeue(user.getId(), digest);
+            }
+        }
+        log.info("📧 DIGEST: {} resumen(es) de alertas encolados para {} usuario(s) con alertas.", sent, snapshot.size());
+    }
+
+    /**
+     * Devuelve un resumen no enviado a los pendientes, antes de las alertas que llegaron mientras tanto.
+     */
+    private void requeue(String userId, UserDigest digest) {
+        pendingByUser.merge(userId, digest, (current, returned) -> {
+            UserDigest merged = new UserDigest();
+            merged.total = returned.total + current.total;
+            for (PendingAlert alert : returned.alerts) {
+                if (merged.alerts.size() < maxItems) {
+                    merged.alerts.add(alert);
+                }
+            }
+            for (PendingAlert alert : current.alerts) {
+                if (merged.alerts.size() < maxItems) {
+                    merged.alerts.add(alert);
+                }
+            }
+            return merged;
+        });
+    }
+
+    private String buildSubject(UserDigest digest) {
+        return "Resumen de alertas de tus plantas (" + digest.total + ")";
+    }
+
+    private String buildBody(AppUser user, UserDigest digest) {
+        StringBuilder body = new StringBuilder();
+        body.append("Hola ").append(user.getUsername()).append(",\n\n");
+        body.append("Estas son las alertas de tus plantas desde el último resumen:\n\n");
+
+        for (PendingAlert alert : digest.alerts) {
+            NotificationMessage message = NotificationService.buildMessage(alert);
+            if (message == null) {
+                continue;
+            }
+            body.append("- [").append(TIME_FORMAT.format(alert.timestamp())).append("] ")
+                    .append(alert.plantId()).append(": ").append(message.title()).append('\n')
+                    .append("    ").append(message.action()).append('\n');
+        }
+
+        int omitted = digest.total - digest.alerts.size();
+        if (omitted > 0) {
+            body.append("\n... y ").append(omitted).append(" alerta(s) más.\n");
+        }
+        return body.toString();
+    }
+
+    /**
+     * Alertas acumuladas de un usuario.
+     */
+    private static final class UserDigest {
+        private final List<PendingAlert> alerts = new ArrayList<>();
+        private int total;
+    }
+}
@@ -0,0 +1,102 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.storage.ReadingArchive;
+import com.api.plant.storage.ReadingSegment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Historial leído del archivo local (segmentos comprimidos por planta y día).
+ * Se descomprime un día a la vez, así la memoria queda acotada a un segmento.
+ */
+@Component
+public class ArchiveReadingHistorySource implements ReadingHistorySource {
+
+    private final ReadingArchive archive;
+
+    public ArchiveReadingHistorySource(ReadingArchive archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    public void scan(ReadingHistoryQuery query, Predicate<ReadingView> sink) {
+        long from = query.from().toEpochMilli();
+        long to = query.to().toEpochMilli();
+        int emitted = 0;
+
+        try {
+            List<Long> days = archive.days(query.plantId(), ReadingArchive.dayStart(from), to);
+            if (query.descending()) {
+                Collections.reverse(days);
+            }
+
+            for (long day : days) {
+                Optional<ReadingSegment> segment = archive.read(query.plantId(), day);
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                ReadingSegment rows = segment.get();
+                int size = rows.size();
+                for (int i = 0; i < size; i++) {
+                    int row = query.descending() ? size - 1 - i : i;
+                    if (!matches(query, rows, row, from, to)) {
+                        continue;
+                    }
+                    if (!sink.test(toView(query, rows, row))) {
+                        return;
+                    }
+                    if (query.limit() > 0 && ++emitted >= query.limit()) {
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el archivo de lecturas de " + query.plantId(), e);
+        }
+    }
+
+    private static boolean matches(ReadingHistoryQuery query, ReadingSegment rows, int row, long from, long to) {
+        long ts = rows.timestamp(row);
+        if (ts < from || ts >= to) {
+            return false;
+        }
+        if (!query.qcStatuses().isEmpty() && !query.qcStatuses().contains(rows.qcStatus(row))) {
+            return false;
+        }
+        if (!query.advisorResults().isEmpty() && !query.advisorResults().contains(rows.advisorResult(row))) {
+            return false;
+        }
+
+        // Keyset: mismo orden (timestamp, _id) que en Mongo; los ObjectId en hex comparan igual que en binario
+        if (query.afterTimestamp() != null) {
+            long after = query.afterTimestamp().toEpochMilli();
+            int byId = rows.id(row).compareTo(query.afterId() != null ? query.afterId() : "");
+            return query.descending()
+                    ? ts < after || (ts == after && byId < 0)
+                    : ts > after || (ts == after && byId > 0);
+        }
+        return true;
+    }
+
+    private static ReadingView toView(ReadingHistoryQuery query, ReadingSegment rows, int row) {
+        return new ReadingView(
+                rows.id(row),
+                Instant.ofEpochMilli(rows.timestamp(row)),
+                query.fields().contains("tempC") ? rows.tempC(row) : null,
+                query.fields().contains("ambientHumidity") ? rows.ambientHumidity(row) : null,
+                query.fields().contains("soilHumidity") ? rows.soilHumidity(row) : null,
+                query.fields().contains("lightLux") ? rows.lightLux(row) : null,
+                query.fields().contains("qcStatus") ? rows.qcStatus(row) : null,
+                query.fields().contains("advisorResult") ? rows.advisorResult(row) : null
+        );
+    }
+}
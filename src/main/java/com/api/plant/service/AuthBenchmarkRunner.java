@@ -0,0 +1,123 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.TokenResponse;
+import com.api.plant.repository.AppUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Costo de autenticación por request, por línea de comandos (el proceso termina al acabar).
+ *
+ * Ejemplo:
+ * <pre>
+ * java -jar plant.jar --spring.main.web-application-type=none \
+ *      --auth.benchmark --auth.benchmark.username=ana --auth.benchmark.password=secreto [--auth.benchmark.iterations=50]
+ * </pre>
+ *
+ * Compara lo que hace cada request con HTTP Basic (findByUsername + BCrypt + el findByUsername del controlador)
+ * contra la validación de un access token (solo HMAC y parseo de claims). Registra mediana y p95.
+ */
+@Component
+public class AuthBenchmarkRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AuthBenchmarkRunner.class);
+
+    private final UserDetailsService userDetailsService;
+    private final PasswordEncoder passwordEncoder;
+    private final AppUserRepository userRepository;
+    private final AuthService authService;
+    private final TokenService tokenService;
+    private final ConfigurableApplicationContext context;
+
+    public AuthBenchmarkRunner(UserDetailsService userDetailsService,
+                               PasswordEncoder passwordEncoder,
+                               AppUserRepository userRepository,
+                               AuthService authService,
+                               TokenService tokenService,
+                               ConfigurableApplicationContext context) {
+        this.userDetailsService = userDetailsService;
+        this.passwordEncoder = passwordEncoder;
+        this.userRepository = userRepository;
+        this.authService = authService;
+        this.tokenService = tokenService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("auth.benchmark")) {
+            return;
+        }
+        int exitCode = 0;
+        try {
+            benchmark(args);
+        } catch (Exception e) {
+            log.error("BENCHMARK: Falló: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private void benchmark(ApplicationArguments args) {
+        String username = option(args, "auth.benchmark.username", null);
+        String password = option(args, "auth.benchmark.password", null);
+        if (username == null || password == null) {
+            throw new IllegalArgumentException("Faltan --auth.benchmark.username y --auth.benchmark.password.");
+        }
+        int iterations = Math.max(1, Integer.parseInt(option(args, "auth.benchmark.iterations", "50")));
+
+        TokenResponse tokens = authService.login(username, password)
+                .orElseThrow(() -> new IllegalArgumentException("Credenciales inválidas."));
+
+        long[] basic = new long[iterations];
+        long[] bearer = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            UserDetails details = userDetailsService.loadUserByUsername(username);
+            boolean matches = passwordEncoder.matches(password, details.getPassword());
+            String userId = userRepository.findByUsername(username).orElseThrow().getId();
+            basic[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            TokenService.TokenClaims claims = tokenService.verify(tokens.accessToken(), TokenService.TYPE_ACCESS).orElseThrow();
+            bearer[i] = System.nanoTime() - start;
+
+            if (!matches || !userId.equals(claims.userId())) {
+                throw new IllegalStateException("Resultados distintos entre HTTP Basic y token.");
+            }
+        }
+
+        log.info("📊 BENCHMARK DE AUTENTICACIÓN ({} requests simulados):", iterations);
+        log.info("   HTTP Basic (2x findByUsername + BCrypt): mediana {} ms / p95 {} ms",
+                millis(percentile(basic, 0.5)), millis(percentile(basic, 0.95)));
+        log.info("   Bearer (firma HS256): mediana {} ms / p95 {} ms",
+                millis(percentile(bearer, 0.5)), millis(percentile(bearer, 0.95)));
+    }
+
+    private static long percentile(long[] values, double p) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    private static String option(ApplicationArguments args, String name, String defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() || values.get(0).isBlank() ? defaultValue : values.get(0);
+    }
+}
@@ -1,12 +1,22 @@
 package com.api.plant.service;
 
+import com.api.plant.dto.TokenResponse;
 import com.api.plant.entity.AppUser;
+import com.api.plant.entity.ConsumedRefreshToken;
 import com.api.plant.repository.AppUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Optional;
 
 /**
  * Servicio encargado de la lógica de negocio de autenticación, como el registro de usuarios.
@@ -14,6 +24,8 @@ import java.util.ArrayList;
 @Service
 public class AuthService {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+
     @Autowired
     private AppUserRepository userRepository;
 
@@ -21,14 +33,24 @@ public class AuthService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Hash de relleno: si el usuario no existe igual se paga un BCrypt (no se revela qué usuarios existen)
+    private volatile String dummyHash;
+
     /**
      * Registra un nuevo usuario en el sistema.
      * Cifra la contraseña antes de la persistencia.
      * * @param username El nombre de usuario.
      * @param rawPassword La contraseña en texto plano recibida del frontend.
+     * @param email Correo del usuario (opcional, usado para los resúmenes de alertas).
      * @return El objeto AppUser guardado.
      */
-    public AppUser registerNewUser(String username, String rawPassword) {
+    public AppUser registerNewUser(String username, String rawPassword, String email) {
 
         // 1. Crear la entidad
         AppUser newUser = new AppUser();
@@ -43,13 +65,96 @@ public class AuthService {
         newUser.setPlantsIds(new ArrayList<>());
 
         // 4. Se asigna un email (si se recibe en el DTO de registro)
-        // (Asumiendo que el DTO de entrada maneja el email)
-        // Por simplicidad, aquí no lo asignamos, pero es el punto de la lógica.
+        // Es el destino de los resúmenes de alertas por correo.
+        newUser.setEmail(email);
 
         // 5. Guardar el nuevo AppUser cifrado en MongoDB
         return userRepository.save(newUser);
     }
 
-    // NOTA: La lógica de 'login' real la maneja Spring Security (UserDetailsServiceImpl)
-    // comparando la contraseña raw con el passwordHash usando el mismo PasswordEncoder.
+    // --- TOKENS ---
+
+    /**
+     * Verifica usuario y contraseña (el único BCrypt de la sesión) y emite el par de tokens.
+     * @return Vacío si las credenciales no son válidas.
+     */
+    public Optional<TokenResponse> login(String username, String rawPassword) {
+        if (username == null || rawPassword == null) {
+            return Optional.empty();
+        }
+        Optional<AppUser> user = userRepository.findByUsername(username);
+        if (user.isEmpty()) {
+            passwordEncoder.matches(rawPassword, dummyHash());
+            return Optional.empty();
+        }
+        if (!passwordEncoder.matches(rawPassword, user.get().getPasswordHash())) {
+            return Optional.empty();
+        }
+        return Optional.of(tokenService.issue(user.get()));
+    }
+
+    /**
+     * Emite tokens para un usuario que ya se autenticó en este request (ej. HTTP Basic en /login).
+     */
+    public Optional<TokenResponse> issueFor(String userId) {
+        return userRepository.findById(userId).map(tokenService::issue);
+    }
+
+    /**
+     * Renueva la sesión: valida el refresh token, lo consume y devuelve un par nuevo (rotación).
+     * @return Vacío si el token no es válido, expiró, ya se usó o la sesión se cerró.
+     */
+    public Optional<TokenResponse> refresh(String refreshToken) {
+        return tokenService.verify(refreshToken, TokenService.TYPE_REFRESH)
+                .flatMap(claims -> userRepository.findById(claims.userId())
+                        .filter(user -> user.getTokenVersion() == claims.tokenVersion())
+                        .filter(user -> consume(claims)))
+                .map(tokenService::issue);
+    }
+
+    /**
+     * Marca el refresh token como usado. El insert es atómico: si dos renovaciones llegan a la vez
+     * (o el token fue robado y reutilizado) solo una gana; la otra choca con el _id.
+     * No se sube tokenVersion para no cerrar las sesiones de los demás dispositivos del usuario.
+     */
+    private boolean consume(TokenService.TokenClaims claims) {
+        if (claims.tokenId() == null) {
+            return false;
+        }
+        try {
+            mongoTemplate.insert(new ConsumedRefreshToken(claims.tokenId(), claims.userId(), claims.expiresAt()));
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.warn("AUTH: Refresh token reutilizado para el usuario {}.", claims.userId());
+            return false;
+        }
+    }
+
+    /**
+     * Cierra todas las sesiones del usuario: los refresh tokens emitidos hasta ahora dejan de servir
+     * (los access tokens vigentes expiran solos en 'auth.jwt.access-ttl-seconds').
+     * @return false si el refresh token no es válido.
+     */
+    public boolean logout(String refreshToken) {
+        return tokenService.verify(refreshToken, TokenService.TYPE_REFRESH)
+                .map(claims -> mongoTemplate.updateFirst(
+                        new Query(Criteria.where("_id").is(claims.userId()).andOperator(versionIs(claims.tokenVersion()))),
+                        new Update().inc("tokenVersion", 1),
+                        AppUser.class).getModifiedCount() > 0)
+                .orElse(false);
+    }
+
+    // Los usuarios creados antes de existir el campo no lo tienen (equivale a 0)
+    private static Criteria versionIs(int version) {
+        return version == 0
+                ? new Criteria().orOperator(Criteria.where("tokenVersion").is(0), Criteria.where("tokenVersion").exists(false))
+                : Criteria.where("tokenVersion").is(version);
+    }
+
+    private String dummyHash() {
+        if (dummyHash == null) {
+            dummyHash = passwordEncoder.encode("dummy-password");
+        }
+        return dummyHash;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.entity.Reading;
+import com.api.plant.entity.ReadingBucket;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Historial leído del layout por buckets horarios (readings.layout=bucket).
+ * Se recorre un cursor de buckets en orden de hora y cada bucket se expande y ordena en memoria
+ * (a lo sumo una hora de puntos), así la memoria queda acotada igual que con el cursor por documento.
+ */
+@Component
+public class BucketReadingHistorySource implements ReadingHistorySource {
+
+    private final MongoTemplate mongoTemplate;
+
+    // Buckets por ida y vuelta al servidor
+    @Value("${readings.bucket.cursor-batch-size:24}")
+    private int cursorBatchSize;
+
+    public BucketReadingHistorySource(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void scan(ReadingHistoryQuery query, Predicate<ReadingView> sink) {
+        long from = query.from().toEpochMilli();
+        long to = query.to().toEpochMilli();
+
+        List<String> projected = new ArrayList<>(List.of(
+                "hourStart", ReadingBucket.OFFSETS, ReadingBucket.IDS, ReadingBucket.QC, ReadingBucket.ADVISOR));
+        if (query.fields().contains("tempC")) {
+            projected.add(ReadingBucket.TEMP);
+        }
+        if (query.fields().contains("ambientHumidity")) {
+            projected.add(ReadingBucket.AMBIENT);
+        }
+        if (query.fields().contains("soilHumidity")) {
+            projected.add(ReadingBucket.SOIL);
+        }
+        if (query.fields().contains("lightLux")) {
+            projected.add(ReadingBucket.LIGHT);
+        }
+
+        int emitted = 0;
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(ReadingBucket.COLLECTION)
+                .find(buildFilter(query, from, to))
+                .projection(Projections.include(projected))
+                .sort(query.descending() ? Sorts.descending("hourStart") : Sorts.ascending("hourStart"))
+                .batchSize(cursorBatchSize)
+                .iterator()) {
+            while (cursor.hasNext()) {
+                for (ReadingView view : expand(cursor.next(), query, from, to)) {
+                    if (!sink.test(view)) {
+                        return;
+                    }
+                    if (query.limit() > 0 && ++emitted >= query.limit()) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static Bson buildFilter(ReadingHistoryQuery query, long from, long to) {
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.eq("plantId", query.plantId()));
+        filters.add(Filters.gte("hourStart", new Date(ReadingBucket.hourStart(from))));
+        filters.add(Filters.lt("hourStart", new Date(to)));
+        if (query.afterTimestamp() != null) {
+            Date afterHour = new Date(ReadingBucket.hourStart(query.afterTimestamp().toEpochMilli()));
+            filters.add(query.descending() ? Filters.lte("hourStart", afterHour) : Filters.gte("hourStart", afterHour));
+        }
+        return Filters.and(filters);
+    }
+
+    /**
+     * Puntos del bucket que cumplen la consulta, en el orden pedido por (timestamp, _id).
+     */
+    private static List<ReadingView> expand(Document bucket, ReadingHistoryQuery query, long from, long to) {
+        long hour = bucket.getDate("hourStart").getTime();
+        List<Integer> offsets = bucket.getList(ReadingBucket.OFFSETS, Integer.class);
+        List<Object> ids = bucket.getList(ReadingBucket.IDS, Object.class);
+
+        List<ReadingView> views = new ArrayList<>(offsets.size());
+        for (int i = 0; i < offsets.size(); i++) {
+            long ts = hour + offsets.get(i);
+            if (ts < from || ts >= to) {
+                continue;
+            }
+            Reading.QcStatus qc = ReadingBucketService.toQcStatus(
+                    ReadingBucketService.toInteger(ReadingBucketService.element(bucket, ReadingBucket.QC, i)));
+            Reading.AdvisorResult advisor = ReadingBucketService.toAdvisorResult(
+                    ReadingBucketService.toInteger(ReadingBucketService.element(bucket, ReadingBucket.ADVISOR, i)));
+            if (!query.qcStatuses().isEmpty() && !query.qcStatuses().contains(qc)) {
+                continue;
+            }
+            if (!query.advisorResults().isEmpty() && !query.advisorResults().contains(advisor)) {
+                continue;
+            }
+
+            Object rawId = ids.get(i);
+            String id = rawId instanceof ObjectId oid ? oid.toHexString() : String.valueOf(rawId);
+            if (query.afterTimestamp() != null) {
+                long after = query.afterTimestamp().toEpochMilli();
+                int byId = id.compareTo(query.afterId() != null ? query.afterId() : "");
+                boolean beyond = query.descending()
+                        ? ts < after || (ts == after && byId < 0)
+                        : ts > after || (ts == after && byId > 0);
+                if (!beyond) {
+                    continue;
+                }
+            }
+
+            views.add(new ReadingView(
+                    id,
+                    Instant.ofEpochMilli(ts),
+                    ReadingBucketService.toDouble(ReadingBucketService.element(bucket, ReadingBucket.TEMP, i)),
+                    ReadingBucketService.toInteger(ReadingBucketService.element(bucket, ReadingBucket.AMBIENT, i)),
+                    ReadingBucketService.toInteger(ReadingBucketService.element(bucket, ReadingBucket.SOIL, i)),
+                    ReadingBucketService.toInteger(ReadingBucketService.element(bucket, ReadingBucket.LIGHT, i)),
+                    query.fields().contains("qcStatus") ? qc : null,
+                    query.fields().contains("advisorResult") ? advisor : null
+            ));
+        }
+
+        Comparator<ReadingView> order = Comparator.comparing(ReadingView::timestamp).thenComparing(ReadingView::id);
+        views.sort(query.descending() ? order.reversed() : order);
+        return views;
+    }
+}
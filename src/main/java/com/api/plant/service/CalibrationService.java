@@ -0,0 +1,275 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.DeviceChangedEvent;
+import com.api.plant.dto.device.CalibrationUpdateDto;
+import com.api.plant.entity.PlantDevice;
+import com.api.plant.entity.Reading;
+import com.api.plant.entity.SensorCalibration;
+import com.api.plant.entity.SensorCalibration.CalibrationPoint;
+import com.api.plant.entity.SensorCalibration.MetricCalibration;
+import com.api.plant.repository.PlantDeviceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio de calibración por dispositivo.
+ *
+ * Los perfiles guardados en PlantDevice se "compilan" una sola vez (por versión) en tablas
+ * primitivas: las humedades (dominio entero 0..100) usan una tabla de búsqueda directa y
+ * la temperatura/luz usan tramos precalculados (pendiente + intercepto). Aplicar la
+ * calibración a una lectura es O(1).
+ *
+ * Un crudo de humedad fuera de 0..100 no se calibra: llega tal cual al QC, que lo descarta como OUT_OF_RANGE.
+ */
+@Service
+public class CalibrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(CalibrationService.class);
+
+    // Dominio de las métricas en porcentaje (tabla de búsqueda directa)
+    private static final int PERCENT_LUT_SIZE = 101;
+    private static final int MAX_POINTS = 3;
+
+    private final PlantDeviceRepository plantDeviceRepository;
+
+    // Tablas compiladas por plantId (se recompilan cuando cambia la versión del perfil)
+    private final Map<String, CompiledCalibration> compiledByPlant = new ConcurrentHashMap<>();
+
+    public CalibrationService(PlantDeviceRepository plantDeviceRepository) {
+        this.plantDeviceRepository = plantDeviceRepository;
+    }
+
+    /**
+     * Aplica la calibración del dispositivo a la lectura (en sitio), ANTES de las validaciones de QC.
+     * Si el dispositivo no tiene perfil, la lectura no se modifica.
+     */
+    public void apply(Reading reading, PlantDevice device) {
+        SensorCalibration profile = device.getCalibration();
+        if (profile == null) {
+            return;
+        }
+
+        CompiledCalibration compiled = compiledByPlant.get(device.getPlantId());
+        if (compiled == null || compiled.version != profile.getVersion()) {
+            compiled = compile(profile);
+            compiledByPlant.put(device.getPlantId(), compiled);
+        }
+
+        if (reading.getTempC() != null && compiled.temp != null) {
+            reading.setTempC(compiled.temp.eval(reading.getTempC()));
+        }
+        if (reading.getAmbientHumidity() != null && compiled.ambientHumidity != null) {
+            reading.setAmbientHumidity(compiled.ambientHumidity.evalPercent(reading.getAmbientHumidity()));
+        }
+        if (reading.getSoilHumidity() != null && compiled.soilHumidity != null) {
+            reading.setSoilHumidity(compiled.soilHumidity.evalPercent(reading.getSoilHumidity()));
+        }
+        if (reading.getLightLux() != null && compiled.lightLux != null) {
+            reading.setLightLux((int) Math.round(compiled.lightLux.eval(reading.getLightLux())));
+        }
+    }
+
+    /**
+     * Guarda (o reemplaza) la calibración de una métrica de la planta.
+     * @throws IllegalArgumentException si la métrica o los puntos no son válidos.
+     */
+    public PlantDevice updateCalibration(String plantId, CalibrationUpdateDto dto) throws Exception {
+        PlantDevice device = plantDeviceRepository.findByPlantId(plantId)
+                .orElseThrow(() -> new Exception("PlantDevice no encontrado para calibración."));
+
+        MetricCalibration metric = toMetricCalibration(dto);
+
+        SensorCalibration profile = device.getCalibration() != null ? device.getCalibration() : new SensorCalibration();
+        setMetric(profile, dto.metric(), metric);
+        return saveProfile(device, profile);
+    }
+
+    /**
+     * Elimina la calibración de una métrica (vuelve a usar el valor crudo del sensor).
+     */
+    public PlantDevice resetCalibration(String plantId, String metricName) throws Exception {
+        PlantDevice device = plantDeviceRepository.findByPlantId(plantId)
+                .orElseThrow(() -> new Exception("PlantDevice no encontrado para calibración."));
+
+        SensorCalibration profile = device.getCalibration();
+        if (profile == null) {
+            return device;
+        }
+        setMetric(profile, metricName, null);
+        return saveProfile(device, profile);
+    }
+
+    private PlantDevice saveProfile(PlantDevice device, SensorCalibration profile) {
+        profile.setVersion(profile.getVersion() + 1);
+        profile.setUpdatedAt(Instant.now());
+        device.setCalibration(profile);
+
+        PlantDevice saved = plantDeviceRepository.save(device);
+        compiledByPlant.remove(device.getPlantId());
+        log.info("🎚️ Calibración de {} actualizada (versión {}).", device.getPlantId(), profile.getVersion());
+        return saved;
+    }
+
+    /**
+     * Re-sincronizado o vinculado de nuevo: el perfil puede ser otro aunque repita el número de versión.
+     */
+    @EventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (event.previousPlantId() != null) {
+            compiledByPlant.remove(event.previousPlantId());
+        }
+        if (event.plantId() != null) {
+            compiledByPlant.remove(event.plantId());
+        }
+    }
+
+    // --- MÉTODOS AUXILIARES PRIVADOS ---
+
+    private MetricCalibration toMetricCalibration(CalibrationUpdateDto dto) {
+        MetricCalibration metric = new MetricCalibration();
+
+        if (dto.points() != null && !dto.points().isEmpty()) {
+            if (dto.points().size() < 2 || dto.points().size() > MAX_POINTS) {
+                throw new IllegalArgumentException("La calibración por puntos requiere 2 o 3 puntos.");
+            }
+            List<CalibrationPoint> points = new ArrayList<>();
+            for (CalibrationUpdateDto.Point p : dto.points()) {
+                points.add(new CalibrationPoint(p.raw(), p.reference()));
+            }
+            points.sort(Comparator.comparingDouble(CalibrationPoint::getRaw));
+            for (int i = 1; i < points.size(); i++) {
+                if (points.get(i).getRaw() == points.get(i - 1).getRaw()) {
+                    throw new IllegalArgumentException("Los puntos de calibración deben tener valores crudos distintos.");
+                }
+            }
+            metric.setPoints(points);
+            return metric;
+        }
+
+        double gain = dto.gain() != null ? dto.gain() : 1.0;
+        if (gain == 0.0) {
+            throw new IllegalArgumentException("La ganancia no puede ser 0.");
+        }
+        metric.setGain(gain);
+        metric.setOffset(dto.offset() != null ? dto.offset() : 0.0);
+        return metric;
+    }
+
+    private void setMetric(SensorCalibration profile, String metricName, MetricCalibration metric) {
+        if (metricName == null) {
+            throw new IllegalArgumentException("Debe indicar la métrica a calibrar.");
+        }
+        switch (metricName) {
+            case "tempC" -> profile.setTempC(metric);
+            case "ambientHumidity" -> profile.setAmbientHumidity(metric);
+            case "soilHumidity" -> profile.setSoilHumidity(metric);
+            case "lightLux" -> profile.setLightLux(metric);
+            default -> throw new IllegalArgumentException("Métrica desconocida: " + metricName);
+        }
+    }
+
+    private CompiledCalibration compile(SensorCalibration profile) {
+        return new CompiledCalibration(
+                profile.getVersion(),
+                Curve.of(profile.getTempC(), false),
+                Curve.of(profile.getAmbientHumidity(), true),
+                Curve.of(profile.getSoilHumidity(), true),
+                Curve.of(profile.getLightLux(), false)
+        );
+    }
+
+    /**
+     * Calibración compilada de un dispositivo (inmutable).
+     */
+    private record CompiledCalibration(long version, Curve temp, Curve ambientHumidity, Curve soilHumidity, Curve lightLux) {}
+
+    /**
+     * Curva lineal por tramos en arreglos primitivos.
+     * breaks[i] es el valor crudo donde empieza el tramo i+1; cada tramo es: y = slope * x + intercept.
+     */
+    private static final class Curve {
+
+        private final double[] breaks;
+        private final double[] slopes;
+        private final double[] intercepts;
+        // Tabla directa para métricas en porcentaje (índice = valor crudo 0..100), o null
+        private final int[] percentLut;
+
+        private Curve(double[] breaks, double[] slopes, double[] intercepts, boolean percent) {
+            this.breaks = breaks;
+            this.slopes = slopes;
+            this.intercepts = intercepts;
+            if (percent) {
+                percentLut = new int[PERCENT_LUT_SIZE];
+                for (int raw = 0; raw < PERCENT_LUT_SIZE; raw++) {
+                    percentLut[raw] = clampPercent(eval(raw));
+                }
+            } else {
+                percentLut = null;
+            }
+        }
+
+        static Curve of(MetricCalibration metric, boolean percent) {
+            if (metric == null) {
+                return null;
+            }
+
+            List<CalibrationPoint> points = metric.getPoints();
+            if (points == null || points.size() < 2) {
+                double gain = metric.getGain() != null ? metric.getGain() : 1.0;
+                double offset = metric.getOffset() != null ? metric.getOffset() : 0.0;
+                return new Curve(new double[0], new double[]{gain}, new double[]{offset}, percent);
+            }
+
+            // N puntos ordenados -> N-1 tramos (los extremos se extrapolan con el primer/último tramo)
+            int segments = points.size() - 1;
+            double[] breaks = new double[segments - 1];
+            double[] slopes = new double[segments];
+            double[] intercepts = new double[segments];
+            for (int i = 0; i < segments; i++) {
+                CalibrationPoint a = points.get(i);
+                CalibrationPoint b = points.get(i + 1);
+                slopes[i] = (b.getReference() - a.getReference()) / (b.getRaw() - a.getRaw());
+                intercepts[i] = a.getReference() - slopes[i] * a.getRaw();
+                if (i > 0) {
+                    breaks[i - 1] = a.getRaw();
+                }
+            }
+            return new Curve(breaks, slopes, intercepts, percent);
+        }
+
+        double eval(double raw) {
+            int segment = 0;
+            // Como máximo 1 comparación (3 puntos = 2 tramos): O(1)
+            while (segment < breaks.length && raw >= breaks[segment]) {
+                segment++;
+            }
+            return slopes[segment] * raw + intercepts[segment];
+        }
+
+        int evalPercent(int raw) {
+            if (raw >= 0 && raw < PERCENT_LUT_SIZE) {
+                return percentLut[raw];
+            }
+            // Fuera de dominio (crudo imposible): no se calibra, así el QC lo marca OUT_OF_RANGE
+            return raw;
+        }
+
+        /**
+         * Un crudo válido (0..100) calibrado se limita a 0..100: una curva de 2 puntos (ej. crudo 30->0 / 80->100)
+         * extrapola por encima de 100 cerca de la saturación, y el QC de límites físicos descartaría una lectura sana.
+         */
+        private static int clampPercent(double value) {
+            return (int) Math.max(0, Math.min(PERCENT_LUT_SIZE - 1, Math.round(value)));
+        }
+    }
+}
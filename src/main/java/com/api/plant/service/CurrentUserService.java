@@ -0,0 +1,41 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.AuthenticatedUser;
+import com.api.plant.entity.AppUser;
+import com.api.plant.repository.AppUserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.security.Principal;
+import java.util.Optional;
+
+/**
+ * Resuelve el userId de Mongo del usuario autenticado (REST y STOMP).
+ * Con access token el userId ya viene en el principal; con HTTP Basic se busca por nombre de usuario.
+ */
+@Service
+public class CurrentUserService {
+
+    @Autowired
+    private AppUserRepository userRepository;
+
+    public Optional<String> findUserId(Principal principal) {
+        if (principal == null) {
+            return Optional.empty();
+        }
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return Optional.of(user.userId());
+        }
+        if (principal instanceof AuthenticatedUser user) {
+            return Optional.of(user.userId());
+        }
+        return userRepository.findByUsername(principal.getName()).map(AppUser::getId);
+    }
+
+    public String getUserId(Principal principal) throws Exception {
+        return findUserId(principal)
+                .orElseThrow(() -> new Exception("Usuario no encontrado en la base de datos."));
+    }
+}
@@ -0,0 +1,297 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.DeviceChangedEvent;
+import com.api.plant.dto.DeviceHealthEvent;
+import com.api.plant.dto.PlantReadingUpdate;
+import com.api.plant.dto.dashboard.DashboardView;
+import com.api.plant.dto.dashboard.PlantDashboardState;
+import com.api.plant.dto.dashboard.PlantDashboardState.Liveness;
+import com.api.plant.entity.PlantDevice;
+import com.api.plant.entity.Reading;
+import com.api.plant.repository.PlantDeviceRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modelo de lectura en memoria con el estado actual de cada planta (última lectura válida,
+ * último resultado del Advisor, última vez que reportó y falla de sensor activa).
+ *
+ * - Lo actualiza la ingesta en cada lectura y los eventos DeviceHealthEvent / DeviceChangedEvent,
+ *   así GET /api/dashboard no consulta Mongo más que la primera vez que se pide un usuario.
+ * - Cada usuario tiene un número de versión que sube con cada cambio en sus plantas; junto con el
+ *   liveness (que cambia solo con el paso del tiempo) forma el ETag de la respuesta.
+ */
+@Service
+public class DashboardReadModel {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardReadModel.class);
+
+    private final PlantDeviceRepository deviceRepository;
+    private final ReadingStorageService readingStorageService;
+    private final Duration staleAfter;
+    private final Duration offlineAfter;
+
+    // Estado por planta (snapshots inmutables reemplazados con compute)
+    private final Map<String, PlantSnapshot> plants = new ConcurrentHashMap<>();
+    // Plantas y versión por usuario, cargadas la primera vez que el usuario pide su dashboard
+    private final Map<String, UserView> users = new ConcurrentHashMap<>();
+    // Distingue las versiones de este arranque de las de un proceso anterior (ETags ya emitidos)
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+
+    // --- Métricas ---
+    private final Counter loadsCounter;
+    private final Counter hitsCounter;
+
+    public DashboardReadModel(PlantDeviceRepository deviceRepository,
+                              ReadingStorageService readingStorageService,
+                              MeterRegistry meterRegistry,
+                              @Value("${dashboard.liveness.stale-seconds:180}") long staleSeconds,
+                              @Value("${dashboard.liveness.offline-seconds:900}") long offlineSeconds) {
+        this.deviceRepository = deviceRepository;
+        this.readingStorageService = readingStorageService;
+        this.staleAfter = Duration.ofSeconds(staleSeconds);
+        this.offlineAfter = Duration.ofSeconds(Math.max(staleSeconds, offlineSeconds));
+
+        this.loadsCounter = meterRegistry.counter("dashboard.user.loads");
+        this.hitsCounter = meterRegistry.counter("dashboard.user.hits");
+        meterRegistry.gaugeMapSize("dashboard.plants.cached", List.of(), plants);
+        meterRegistry.gaugeMapSize("dashboard.users.cached", List.of(), users);
+    }
+
+    /**
+     * Estado de una planta dentro del modelo.
+     */
+    private record PlantSnapshot(
+            String plantId,
+            String ownerId,
+            String name,
+            String description,
+            boolean active,
+            Instant lastSeen,
+            PlantReadingUpdate latestReading,
+            DeviceHealthEvent fault
+    ) {
+        PlantSnapshot withReading(Reading reading) {
+            Instant seen = max(lastSeen, reading.getTimestamp());
+            PlantReadingUpdate latest = latestReading;
+            if (reading.getQcStatus() == Reading.QcStatus.VALID
+                    && (latest == null || !reading.getTimestamp().isBefore(latest.timestamp()))) {
+                latest = PlantReadingUpdate.from(reading);
+            }
+            return new PlantSnapshot(plantId, ownerId, name, description, active, seen, latest, fault);
+        }
+
+        PlantSnapshot withFault(DeviceHealthEvent event) {
+            return new PlantSnapshot(plantId, ownerId, name, description, active, lastSeen, latestReading, event);
+        }
+
+        PlantSnapshot withDevice(String ownerId, String name, String description, boolean active) {
+            return new PlantSnapshot(plantId, ownerId, name, description, active, lastSeen, latestReading, fault);
+        }
+    }
+
+    private record UserView(Set<String> plantIds, AtomicLong version) {}
+
+    /**
+     * Dashboard listo para responder, con su ETag.
+     */
+    public record Dashboard(String etag, DashboardView view) {}
+
+    // --- LECTURA ---
+
+    /**
+     * Estado actual de todas las plantas del usuario.
+     */
+    public Dashboard getDashboard(String userId) {
+        UserView user = users.get(userId);
+        if (user == null) {
+            // La carga (Mongo) va fuera de la función de mapeo para no bloquear el bin del mapa;
+            // si dos consultas cargan a la vez, se queda la primera
+            UserView loaded = loadUser(userId);
+            UserView raced = users.putIfAbsent(userId, loaded);
+            user = raced != null ? raced : loaded;
+        } else {
+            hitsCounter.increment();
+        }
+
+        // La versión se lee antes de armar la vista: si cambia mientras tanto, el ETag queda viejo
+        // y el cliente simplemente vuelve a pedir la vista completa en la siguiente consulta.
+        long version = user.version().get();
+        Instant now = Instant.now();
+
+        List<PlantDashboardState> states = new ArrayList<>(user.plantIds().size());
+        int livenessHash = 1;
+        for (String plantId : user.plantIds().stream().sorted().toList()) {
+            PlantSnapshot snapshot = plants.get(plantId);
+            if (snapshot == null || !userId.equals(snapshot.ownerId())) {
+                continue;
+            }
+            PlantDashboardState state = toState(snapshot, now);
+            livenessHash = 31 * livenessHash + state.liveness().ordinal();
+            states.add(state);
+        }
+
+        String etag = "\"" + epoch + "-" + Long.toHexString(version) + "-" + Integer.toHexString(livenessHash) + "\"";
+        return new Dashboard(etag, new DashboardView(now, states));
+    }
+
+    // --- ACTUALIZACIONES ---
+
+    /**
+     * Registra una lectura ya procesada por la ingesta (VALID o rechazada por el QC).
+     */
+    public void onReading(Reading reading, PlantDevice device) {
+        if (reading.getPlantId() == null || reading.getTimestamp() == null) {
+            return;
+        }
+        PlantSnapshot updated = plants.compute(reading.getPlantId(), (plantId, current) -> {
+            if (current == null) {
+                // Planta aún no cargada por ningún dashboard: se guarda igual para no perder el dato
+                current = device != null
+                        ? fromDevice(device)
+                        : new PlantSnapshot(plantId, reading.getUserId(), null, null, true, null, null, null);
+            }
+            return current.withReading(reading);
+        });
+        bump(updated.ownerId());
+    }
+
+    @EventListener
+    public void onDeviceHealth(DeviceHealthEvent event) {
+        PlantSnapshot updated = plants.computeIfPresent(event.plantId(), (plantId, current) -> {
+            if (event.recovered()) {
+                // Solo se limpia si se recuperó la misma falla que está activa
+                boolean sameFault = current.fault() != null
+                        && current.fault().fault() == event.fault()
+                        && Objects.equals(current.fault().metric(), event.metric());
+                return sameFault ? current.withFault(null) : current;
+            }
+            return current.withFault(event);
+        });
+        if (updated != null) {
+            bump(updated.ownerId());
+        }
+    }
+
+    @EventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        // Re-sincronizado con otro plantId: el anterior ya no existe
+        if (event.previousPlantId() != null) {
+            PlantSnapshot removed = plants.remove(event.previousPlantId());
+            UserView oldView = removed != null && removed.ownerId() != null ? users.get(removed.ownerId()) : null;
+            if (oldView != null && oldView.plantIds().remove(event.previousPlantId())) {
+                oldView.version().incrementAndGet();
+            }
+        }
+
+        PlantSnapshot previous = plants.get(event.plantId());
+        plants.compute(event.plantId(), (plantId, current) -> current != null
+                ? current.withDevice(event.ownerId(), event.name(), event.description(), event.active())
+                : new PlantSnapshot(plantId, event.ownerId(), event.name(), event.description(), event.active(), null, null, null));
+
+        if (previous != null && previous.ownerId() != null && !previous.ownerId().equals(event.ownerId())) {
+            UserView oldOwner = users.get(previous.ownerId());
+            if (oldOwner != null) {
+                oldOwner.plantIds().remove(event.plantId());
+                oldOwner.version().incrementAndGet();
+            }
+        }
+        UserView owner = event.ownerId() != null ? users.get(event.ownerId()) : null;
+        if (owner != null) {
+            owner.plantIds().add(event.plantId());
+            owner.version().incrementAndGet();
+        }
+    }
+
+    // --- INTERNOS ---
+
+    private UserView loadUser(String userId) {
+        loadsCounter.increment();
+        Set<String> plantIds = ConcurrentHashMap.newKeySet();
+        for (PlantDevice device : deviceRepository.findByOwnerId(userId)) {
+            if (device.getPlantId() == null) {
+                continue;
+            }
+            plantIds.add(device.getPlantId());
+            PlantSnapshot existing = plants.get(device.getPlantId());
+            // La consulta a Mongo se hace fuera del compute para no bloquear a la ingesta
+            Reading last = existing == null || existing.latestReading() == null
+                    ? readingStorageService.findLastValid(device.getPlantId()).orElse(null)
+                    : null;
+            plants.compute(device.getPlantId(), (plantId, current) -> {
+                // Si la ingesta ya tenía la planta se conservan sus datos y solo se refrescan los metadatos
+                PlantSnapshot snapshot = current == null
+                        ? fromDevice(device)
+                        : current.withDevice(device.getOwnerId(), device.getName(), device.getDescription(),
+                                Boolean.TRUE.equals(device.getIsActive()));
+                return last != null ? snapshot.withReading(last) : snapshot;
+            });
+        }
+        log.debug("DASHBOARD: Cargadas {} planta(s) del usuario {}.", plantIds.size(), userId);
+        return new UserView(plantIds, new AtomicLong());
+    }
+
+    private static PlantSnapshot fromDevice(PlantDevice device) {
+        return new PlantSnapshot(device.getPlantId(), device.getOwnerId(), device.getName(), device.getDescription(),
+                Boolean.TRUE.equals(device.getIsActive()), device.getLastDataReceived(), null, null);
+    }
+
+    private void bump(String userId) {
+        if (userId == null) {
+            return;
+        }
+        UserView user = users.get(userId);
+        if (user != null) {
+            user.version().incrementAndGet();
+        }
+    }
+
+    private PlantDashboardState toState(PlantSnapshot snapshot, Instant now) {
+        DeviceHealthEvent fault = snapshot.fault();
+        PlantReadingUpdate latest = snapshot.latestReading();
+        return new PlantDashboardState(
+                snapshot.plantId(),
+                snapshot.name(),
+                snapshot.description(),
+                snapshot.active(),
+                liveness(snapshot.lastSeen(), now),
+                snapshot.lastSeen(),
+                latest,
+                latest != null ? latest.advisorResult() : null,
+                fault != null ? fault.fault() + ":" + fault.metric() : null
+        );
+    }
+
+    private Liveness liveness(Instant lastSeen, Instant now) {
+        if (lastSeen == null) {
+            return Liveness.UNKNOWN;
+        }
+        Duration age = Duration.between(lastSeen, now);
+        if (age.compareTo(staleAfter) <= 0) {
+            return Liveness.ONLINE;
+        }
+        return age.compareTo(offlineAfter) <= 0 ? Liveness.STALE : Liveness.OFFLINE;
+    }
+
+    private static Instant max(Instant a, Instant b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+}
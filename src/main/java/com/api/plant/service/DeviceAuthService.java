@@ -7,6 +7,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value; // Importante
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -16,7 +17,15 @@ public class DeviceAuthService {
     private static final Logger log = LoggerFactory.getLogger(DeviceAuthService.class);
 
     private final PlantDeviceRepository plantDeviceRepository;
-    private final MqttTopicService mqttTopicService;
+    private final MqttAuthDecisionCache decisionCache;
+    private final DeviceCredentialService credentialService;
+
+    // --- Reglas ACL por tipo de cliente (filtros MQTT compilados al arrancar) ---
+    private enum AclRole { BACKEND, PROVISIONING, DEVICE, NONE }
+
+    private final TopicAclTrie backendAcl;
+    private final TopicAclTrie provisioningAcl;
+    private final TopicAclTrie deviceAcl;
 
     // --- 1. Inyectar las credenciales del Backend ---
     @Value("${mqtt.backend.username}")
@@ -30,41 +39,85 @@ public class DeviceAuthService {
     private final String PROVISION_USER = "provision_user";
     private final String PROVISION_PASS = "provision_pass";
 
-    public DeviceAuthService(PlantDeviceRepository plantDeviceRepository, MqttTopicService mqttTopicService) {
+    public DeviceAuthService(PlantDeviceRepository plantDeviceRepository,
+                             MqttAuthDecisionCache decisionCache,
+                             DeviceCredentialService credentialService,
+                             @Value("${mqtt.acl.backend}") List<String> backendRules,
+                             @Value("${mqtt.acl.provisioning}") List<String> provisioningRules,
+                             @Value("${mqtt.acl.device}") List<String> deviceRules) {
         this.plantDeviceRepository = plantDeviceRepository;
-        this.mqttTopicService = mqttTopicService;
+        this.decisionCache = decisionCache;
+        this.credentialService = credentialService;
+        this.backendAcl = TopicAclTrie.compile(backendRules);
+        this.provisioningAcl = TopicAclTrie.compile(provisioningRules);
+        this.deviceAcl = TopicAclTrie.compile(deviceRules);
+        log.info("ACL: Reglas compiladas (backend: {}, provisioning: {}, dispositivos: {}).",
+                backendAcl.ruleCount(), provisioningAcl.ruleCount(), deviceAcl.ruleCount());
     }
 
     /**
      * Autentica a cualquier cliente (Backend, Provisioning, o Dispositivo Registrado).
+     * La decisión se guarda en MqttAuthDecisionCache: en una tormenta de reconexiones no se consulta Mongo.
      */
     public boolean authenticateDevice(String username, String password) {
+        if (username == null || password == null) {
+            return false;
+        }
+        return decisionCache.authenticate(username, password, () -> evaluateCredentials(username, password));
+    }
 
-        // 3. AÑADIR LOGS DE DEPURACIÓN
-        log.info("--- INICIO DE AUTENTICACIÓN ---");
-        log.info("AUTH: Intentando autenticar usuario: [{}], Contraseña: [{}]", username, password);
+    /**
+     * Autentica solo dispositivos registrados (username = plantId); las credenciales del backend y de
+     * provisioning no valen aquí. Usa la misma caché de decisiones que authenticateDevice.
+     */
+    public boolean authenticatePlantDevice(String plantId, String password) {
+        if (plantId == null || plantId.equals(backendUsername) || plantId.equals(PROVISION_USER)) {
+            return false;
+        }
+        return authenticateDevice(plantId, password);
+    }
+
+    /**
+     * Autoriza el acceso a tópicos (ACLs) para los 3 tipos de usuarios, con las reglas 'mqtt.acl.*'.
+     * access (go-auth): 1 = read, 2 = write (publicar), 4 = subscribe.
+     * La decisión se guarda en MqttAuthDecisionCache (se invalida al cambiar el dispositivo).
+     */
+    public boolean authorizeTopic(String username, String clientId, String topic, int access) {
+        if (username == null || topic == null) {
+            return false;
+        }
+        return decisionCache.authorize(username, clientId, topic, access,
+                () -> evaluateTopic(username, clientId, topic, access));
+    }
+
+    // --- REGLAS (solo se evalúan si la decisión no está en caché) ---
+
+    private boolean evaluateCredentials(String username, String password) {
+
+        // 3. AÑADIR LOGS DE DEPURACIÓN (nunca se registra el password)
+        log.debug("--- INICIO DE AUTENTICACIÓN ---");
+        log.debug("AUTH: Intentando autenticar usuario: [{}]", username);
 
         // REGLA 1: Backend
         if (username.equals(backendUsername)) {
             log.debug("AUTH: Coincide con REGLA 1 (Backend)");
-            boolean match = password.equals(backendPassword);
-            log.info("AUTH: Resultado de REGLA 1: {}", match);
-            log.info("--- FIN DE AUTENTICACIÓN ---");
+            boolean match = DeviceCredentialService.constantTimeEquals(backendPassword, password);
+            log.debug("AUTH: Resultado de REGLA 1: {}", match);
+            log.debug("--- FIN DE AUTENTICACIÓN ---");
             return match;
         }
 
         // REGLA 2: Provisioning
         if (username.equals(PROVISION_USER)) {
             log.debug("AUTH: Coincide con REGLA 2 (Provisioning)");
-            log.debug("AUTH: Recibido: [{}], Esperado: [{}]", password, PROVISION_PASS);
-            boolean match = password.equals(PROVISION_PASS);
+            boolean match = DeviceCredentialService.constantTimeEquals(PROVISION_PASS, password);
 
             if(!match) {
                 log.error("¡FALLO DE AUTENTICACIÓN DE PROVISIONING! Las contraseñas no coinciden.");
             }
 
-            log.info("AUTH: Resultado de REGLA 2: {}", match);
-            log.info("--- FIN DE AUTENTICACIÓN ---");
+            log.debug("AUTH: Resultado de REGLA 2: {}", match);
+            log.debug("--- FIN DE AUTENTICACIÓN ---");
             return match;
         }
 
@@ -72,121 +125,54 @@ public class DeviceAuthService {
         Optional<PlantDevice> deviceOpt = plantDeviceRepository.findByPlantId(username);
         if (deviceOpt.isPresent()) {
             log.debug("AUTH: Coincide con REGLA 3 (Dispositivo)");
-            boolean match = password.equals(deviceOpt.get().getMqttPassword());
-            log.info("AUTH: Resultado de REGLA 3: {}", match);
-            log.info("--- FIN DE AUTENTICACIÓN ---");
+            // Hash + salt (o texto plano anterior, que se migra si coincide)
+            boolean match = credentialService.verify(deviceOpt.get(), password);
+            log.debug("AUTH: Resultado de REGLA 3: {}", match);
+            log.debug("--- FIN DE AUTENTICACIÓN ---");
             return match;
         }
 
         // REGLA 4: Rechazar
         log.warn("AUTH: Usuario [{}] no coincidió con ninguna regla. RECHAZADO.", username);
-        log.info("--- FIN DE AUTENTICACIÓN ---");
+        log.debug("--- FIN DE AUTENTICACIÓN ---");
         return false;
     }
 
+    private boolean evaluateTopic(String username, String clientId, String topic, int access) {
+        AclRole role = resolveRole(username);
+        if (role == AclRole.NONE) {
+            log.warn("ACL: Usuario [{}] no coincidió con ninguna regla ACL. RECHAZADO.", username);
+            return false;
+        }
+        boolean allowed = aclFor(role).allows(topic, access, username, clientId);
+        if (allowed) {
+            log.debug("ACL: [{}] ({}) acc={} en [{}]: permitido", username, role, access, topic);
+        } else {
+            log.warn("ACL: [{}] ({}) acc={} en [{}]: RECHAZADO", username, role, access, topic);
+        }
+        return allowed;
+    }
+
     /**
-     * Autoriza el acceso a tópicos (ACLs) para los 3 tipos de usuarios.
-     * (Logs de depuración añadidos)
+     * Tipo de cliente que decide qué reglas aplican. Los dispositivos requieren una consulta a Mongo
+     * (solo en un fallo de caché).
      */
-    public boolean authorizeTopic(String username, String topic, int access) {
-        // access 1 = SUB (Suscribir), 2 = PUB (Publicar)
-        String accessType = (access == 1) ? "SUSCRIBIRSE" : "PUBLICAR";
-
-        log.info("--- INICIO DE AUTORIZACIÓN (ACL) ---");
-        log.info("ACL: Usuario [{}] quiere [{}] en el tópico [{}]", username, accessType, topic);
-
-        // REGLA 1: Reglas para el Backend de Spring Boot
+    private AclRole resolveRole(String username) {
         if (username.equals(backendUsername)) {
-            log.debug("ACL: Coincide con REGLA 1 (Backend)");
-            // El backend puede hacer todo en 'planta/' y 'control/'
-            if (topic.startsWith("planta/") || topic.startsWith("control/") || topic.startsWith("test/inbox")) {
-                log.info("ACL: Resultado de REGLA 1: true (Permitido)");
-                log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-                return true;
-            }
-            log.warn("ACL: Resultado de REGLA 1: false (Tópico no permitido para Backend: {})", topic);
-            log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-            return false;
+            return AclRole.BACKEND;
         }
-// REGLA 2: Reglas para el usuario genérico de provisioning (CORREGIDA)
-        // REGLA 2: Reglas para el usuario genérico de provisioning (CORREGIDA)
         if (username.equals(PROVISION_USER)) {
-            log.debug("ACL: Coincide con REGLA 2 (Provisioning)");
-            log.debug("ACL: Valor de ACCESS recibido: [{}]", access);
-
-            // REGLA 2.A: Permiso para publicar (Access = 2)
-            if (access == 2) {
-                if (topic.startsWith("control/provisioning/discovery")) {
-                    log.info("ACL: Resultado de REGLA 2.A (Discovery): true (Permitido)");
-                    log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-                    return true;
-                }
-            }
-
-            // REGLA 2.B: Permiso para suscribirse (Access = 1 o 4)
-            // --- ¡CORRECCIÓN CRÍTICA! ---
-            if (access == 1 || access == 4) { // <-- Aceptamos 1 (estándar) y 4 (lo que estás viendo)
-
-                log.info("ACL: Detectada acción de SUSCRIBIRSE (Access={})", access);
-
-                // Tópico: "control/provisioning/device/"
-                if (topic.startsWith("control/provisioning/device/")) {
-                    log.info("ACL: Resultado de REGLA 2.B (Suscripción MAC): true (Permitido)");
-                    log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-                    return true;
-                }
-
-                // Tópico: "test/inbox"
-                if (topic.startsWith("test/inbox")) {
-                    log.info("ACL: Resultado de REGLA 2.C (Suscripción TEST): true (Permitido)");
-                    log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-                    return true;
-                }
-            }
-
-            // REGLA 2.C: Permiso para Probar (Publicar)
-            // (Movemos la publicación de test/inbox fuera del bloque 'access == 2'
-            //  para que la REGLA 2.C de tu código anterior funcione)
-            if (topic.startsWith("test/inbox")) {
-                log.info("ACL: Resultado de REGLA 2.C (Test Inbox): true (Permitido)");
-                log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-                return true;
-            }
-
-            // Si no es ninguna de esas acciones, rechazar.
-            log.warn("ACL: Resultado de REGLA 2: false (Acción [{}] en Tópico [{}] RECHAZADA para provision_user)", accessType, topic);
-            log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-            return false;
-        }
-
-        // REGLA 3: Reglas para dispositivos vinculados
-        Optional<PlantDevice> deviceOpt = plantDeviceRepository.findByPlantId(username);
-        if (deviceOpt.isPresent()) {
-            log.debug("ACL: Coincide con REGLA 3 (Dispositivo Vinculado)");
-
-            // El dispositivo solo puede publicar en su propio tópico de datos
-            String dataTopic = mqttTopicService.getDeviceDataTopic(username);
-            if (access == 2 && topic.equals(dataTopic)) {
-                log.info("ACL: Resultado de REGLA 3: true (Publicación de datos permitida)");
-                log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-                return true;
-            }
-
-            // El dispositivo solo puede suscribirse a su propio tópico de comandos
-            String commandTopic = mqttTopicService.getDeviceCommandTopic(username);
-            if (access == 1 && topic.equals(commandTopic)) {
-                log.info("ACL: Resultado de REGLA 3: true (Suscripción a comandos permitida)");
-                log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-                return true;
-            }
-
-            log.warn("ACL: Resultado de REGLA 3: false (Acción [{}] en Tópico [{}] RECHAZADA para dispositivo vinculado)", accessType, topic);
-            log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-            return false;
+            return AclRole.PROVISIONING;
         }
+        return plantDeviceRepository.existsByPlantId(username) ? AclRole.DEVICE : AclRole.NONE;
+    }
 
-        log.error("ACL: Usuario [{}] no coincidió con ninguna regla ACL. RECHAZADO.", username);
-        log.info("--- FIN DE AUTORIZACIÓN (ACL) ---");
-        return false;
+    private TopicAclTrie aclFor(AclRole role) {
+        return switch (role) {
+            case BACKEND -> backendAcl;
+            case PROVISIONING -> provisioningAcl;
+            case DEVICE -> deviceAcl;
+            case NONE -> throw new IllegalArgumentException("Sin reglas para " + role);
+        };
     }
-}
\ No newline at end of file
+}
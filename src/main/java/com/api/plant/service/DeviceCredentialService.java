@@ -0,0 +1,167 @@
+package com.api.plant.service;
+
+import com.api.plant.entity.PlantDevice;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Hash y verificación de las contraseñas MQTT de los dispositivos.
+ *
+ * - Se guarda HMAC-SHA256(pepper, salt + password) con un salt aleatorio por dispositivo; el pepper
+ *   ('mqtt.credentials.pepper') no está en la base, así un volcado de Mongo no alcanza para atacar los hashes.
+ * - Es un hash rápido a propósito: las contraseñas las genera DeviceService (96 bits aleatorios), así que
+ *   no hace falta un KDF lento como BCrypt, que no aguantaría una tormenta de reconexiones.
+ * - La comparación es de tiempo constante (MessageDigest.isEqual).
+ * - Los registros anteriores con la contraseña en texto plano se migran en el primer login correcto.
+ */
+@Service
+public class DeviceCredentialService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeviceCredentialService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SALT_BYTES = 16;
+
+    private final MongoTemplate mongoTemplate;
+    private final SecretKeySpec pepper;
+    private final SecureRandom random = new SecureRandom();
+    // Mac no es thread-safe: una instancia por hilo
+    private final ThreadLocal<Mac> macs;
+
+    private final Counter migratedCounter;
+
+    /**
+     * Hash y salt (Base64) listos para guardar en PlantDevice.
+     */
+    public record HashedCredential(String hash, String salt) {}
+
+    public DeviceCredentialService(MongoTemplate mongoTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${mqtt.credentials.pepper:}") String pepper) {
+        this.mongoTemplate = mongoTemplate;
+
+        byte[] keyBytes;
+        if (pepper == null || pepper.isBlank()) {
+            // Sin pepper el esquema sigue siendo válido (salt + HMAC), pero depende solo de la base
+            keyBytes = new byte[32];
+            log.warn("⚠️ MQTT AUTH: 'mqtt.credentials.pepper' no configurado; los hashes de dispositivos no usan pepper.");
+        } else {
+            keyBytes = Base64.getDecoder().decode(pepper.trim());
+            if (keyBytes.length < 32) {
+                throw new IllegalStateException("mqtt.credentials.pepper debe tener al menos 32 bytes (256 bits).");
+            }
+        }
+        this.pepper = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+
+        this.migratedCounter = meterRegistry.counter("mqtt.credentials.migrated");
+    }
+
+    /**
+     * Asigna una contraseña nueva al dispositivo (solo hash y salt; el texto plano no se guarda).
+     */
+    public void assign(PlantDevice device, String rawPassword) {
+        HashedCredential credential = hash(rawPassword);
+        device.setMqttPasswordHash(credential.hash());
+        device.setMqttPasswordSalt(credential.salt());
+        device.setMqttPassword(null);
+    }
+
+    public HashedCredential hash(String rawPassword) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return new HashedCredential(
+                Base64.getEncoder().encodeToString(digest(salt, rawPassword)),
+                Base64.getEncoder().encodeToString(salt));
+    }
+
+    /**
+     * Verifica la contraseña del dispositivo. Si el registro todavía tiene la contraseña en texto plano
+     * y coincide, se reemplaza en Mongo por hash + salt.
+     */
+    public boolean verify(PlantDevice device, String rawPassword) {
+        if (rawPassword == null) {
+            return false;
+        }
+        if (device.getMqttPasswordHash() != null && device.getMqttPasswordSalt() != null) {
+            try {
+                byte[] salt = Base64.getDecoder().decode(device.getMqttPasswordSalt());
+                byte[] expected = Base64.getDecoder().decode(device.getMqttPasswordHash());
+                return MessageDigest.isEqual(expected, digest(salt, rawPassword));
+            } catch (IllegalArgumentException e) {
+                log.error("MQTT AUTH: Hash de credenciales inválido para [{}].", device.getPlantId());
+                return false;
+            }
+        }
+
+        String legacy = device.getMqttPassword();
+        if (legacy == null || !constantTimeEquals(legacy, rawPassword)) {
+            return false;
+        }
+        migrate(device, rawPassword);
+        return true;
+    }
+
+    /**
+     * Comparación de tiempo constante entre dos secretos en texto (ej. credenciales fijas del backend).
+     */
+    public static boolean constantTimeEquals(String expected, String actual) {
+        if (expected == null || actual == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // --- INTERNOS ---
+
+    private void migrate(PlantDevice device, String rawPassword) {
+        HashedCredential credential = hash(rawPassword);
+        // Condicionado al texto plano actual: si otra petición ya migró o cambió la contraseña, no se pisa
+        Query query = new Query(Criteria.where("plantId").is(device.getPlantId()).and("mqttPassword").is(rawPassword));
+        Update update = new Update()
+                .set("mqttPasswordHash", credential.hash())
+                .set("mqttPasswordSalt", credential.salt())
+                .unset("mqttPassword");
+        try {
+            if (mongoTemplate.updateFirst(query, update, PlantDevice.class).getModifiedCount() > 0) {
+                migratedCounter.increment();
+                log.info("🔐 MQTT AUTH: Credenciales de [{}] migradas a hash.", device.getPlantId());
+            }
+        } catch (Exception e) {
+            // El login ya es válido; se reintenta en el próximo
+            log.warn("MQTT AUTH: No se pudo migrar la contraseña de [{}]: {}", device.getPlantId(), e.getMessage());
+        }
+    }
+
+    private byte[] digest(byte[] salt, String rawPassword) {
+        Mac mac = macs.get();
+        mac.update(salt);
+        return mac.doFinal(rawPassword.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(pepper);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 no disponible.", e);
+        }
+    }
+}
@@ -114,9 +114,10 @@
         /**
          * FUNCIÓN 2 (CORE): Envía el comando CONFIG_SET con las credenciales MQTT únicas al ESP32.
          * Este método se llama desde un Controller/Service después de que un usuario vincula un dispositivo.
-         * @param device El dispositivo PlantDevice ya actualizado con el ownerId, plantId y mqttPassword únicos.
+         * @param device El dispositivo PlantDevice ya actualizado con el ownerId y plantId únicos.
+         * @param mqttPassword La contraseña MQTT en texto plano (en Mongo solo queda su hash).
          */
-        public void sendConfigurationCommand(PlantDevice device) throws Exception {
+        public void sendConfigurationCommand(PlantDevice device, String mqttPassword) throws Exception {
 
             // 1. Obtener el cliente activo (Asumimos que el broker de provisioning está activo)
             // Usamos un metodo del Discovery Service o ActuatorService para obtener un cliente activo
@@ -129,7 +130,7 @@
             // 3. Payload: Contiene las credenciales que el ESP32 debe guardar (persistencia local)
             Map<String, Object> parameters = Map.of(
                     "new_user", device.getPlantId(),        // El nuevo MQTT Username
-                    "new_pass", device.getMqttPassword(),   // La nueva MQTT Password
+                    "new_pass", mqttPassword,               // La nueva MQTT Password
                     "new_topic", device.getTopic()          // Tópico donde debe publicar sus datos
             );
 
@@ -1,5 +1,6 @@
 package com.api.plant.service;
 
+import com.api.plant.dto.DeviceChangedEvent;
 import com.api.plant.dto.device.PlantDeviceUpdateDto;
 import com.api.plant.entity.AppUser;
 import com.api.plant.entity.PlantDevice;
@@ -8,6 +9,7 @@ import com.api.plant.repository.MqttBrokerRepository;
 import com.api.plant.repository.PlantDeviceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -35,6 +37,12 @@ public class DeviceService {
     @Autowired
     private MqttBrokerRepository brokerRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DeviceCredentialService credentialService;
+
 
     // --- INYECCIÓN DE TODOS LOS UMBRALES POR DEFECTO ---
     @Value("${device.thresholds.humidity.min:30}")
@@ -102,7 +110,7 @@ public class DeviceService {
         PlantDevice newDevice = new PlantDevice();
         newDevice.setOwnerId(userId);
         newDevice.setPlantId(plantId);
-        newDevice.setMqttPassword(mqttPassword);
+        credentialService.assign(newDevice, mqttPassword); // Solo se guarda hash + salt
         newDevice.setName(name);
         newDevice.setDescription(description != null ? description : "Nueva Planta");
         newDevice.setTopic(topic);
@@ -125,6 +133,7 @@ public class DeviceService {
         user.getPlantsIds().add(plantId);
         userRepository.save(user);
 
+        publishChange(savedDevice, DeviceChangedEvent.Change.REGISTERED);
         return savedDevice;
     }
 
@@ -136,6 +145,9 @@ public class DeviceService {
         PlantDevice device = plantDeviceRepository.findByMacAddress(macAddress)
                 .orElseThrow(() -> new IllegalStateException("Dispositivo no encontrado o no disponible para sincronizar."));
 
+        // Si ya estaba vinculado, sus credenciales anteriores dejan de valer
+        String previousPlantId = device.getPlantId();
+
         // 2. GENERAR CREDENCIALES ÚNICAS
         String plantId = "PNT-" + UUID.randomUUID().toString().substring(0, 6).toUpperCase();
         String mqttPassword = generateSecurePassword();
@@ -144,7 +156,7 @@ public class DeviceService {
         // 3. ACTUALIZAR ESTADO DEL DISPOSITIVO
         device.setOwnerId(userId);
         device.setPlantId(plantId);
-        device.setMqttPassword(mqttPassword);
+        credentialService.assign(device, mqttPassword); // Solo se guarda hash + salt
         device.setName(name);
         device.setDescription(description);
         device.setTopic(topic);
@@ -165,8 +177,9 @@ public class DeviceService {
         PlantDevice savedDevice = plantDeviceRepository.save(device);
 
         // 6. DISPARAR PROVISIONING REMOTO
-        provisioningService.sendConfigurationCommand(savedDevice);
+        provisioningService.sendConfigurationCommand(savedDevice, mqttPassword);
 
+        publishChange(savedDevice, DeviceChangedEvent.Change.REGISTERED, previousPlantId);
         return savedDevice;
     }
 
@@ -243,6 +256,28 @@ public class DeviceService {
             device.setMaxLightLux(updateDto.maxLightLux());
         }
 
-        return plantDeviceRepository.save(device);
+        device.setThresholdsVersion(device.getThresholdsVersion() + 1);
+        PlantDevice savedDevice = plantDeviceRepository.save(device);
+
+        publishChange(savedDevice, DeviceChangedEvent.Change.UPDATED);
+        return savedDevice;
+    }
+
+    /**
+     * Avisa a los modelos en memoria (ej. dashboard, caché de auth MQTT) que el dispositivo cambió.
+     */
+    private void publishChange(PlantDevice device, DeviceChangedEvent.Change change) {
+        publishChange(device, change, null);
+    }
+
+    private void publishChange(PlantDevice device, DeviceChangedEvent.Change change, String previousPlantId) {
+        eventPublisher.publishEvent(new DeviceChangedEvent(
+                device.getPlantId(),
+                device.getOwnerId(),
+                device.getName(),
+                device.getDescription(),
+                Boolean.TRUE.equals(device.getIsActive()),
+                change,
+                previousPlantId != null && !previousPlantId.equals(device.getPlantId()) ? previousPlantId : null));
     }
 }
\ No newline at end of file
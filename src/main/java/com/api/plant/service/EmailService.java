@@ -1,38 +1,221 @@
 package com.api.plant.service;
 
+import com.api.plant.config.WorkerThreads;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Canal de correo asíncrono (outbox en memoria).
+ *
+ * - enviarCorreo() solo encola (cola acotada) y devuelve de inmediato.
+ * - Un hilo dedicado envía en lotes: JavaMailSender.send(SimpleMailMessage...) reutiliza
+ *   UNA sesión SMTP para todo el lote en lugar de abrir una conexión por mensaje.
+ * - Los mensajes fallidos se reintentan con backoff exponencial hasta un máximo de intentos.
+ */
 @Service
 public class EmailService {
 
+    private static final Logger log = LoggerFactory.getLogger(EmailService.class);
+
+    private final WorkerThreads workerThreads;
+
     // Spring inyectará automáticamente la configuración que pusimos en application.properties
-    @Autowired
-    private JavaMailSender mailSender;
+    private final JavaMailSender mailSender;
+
+    // DelayQueue: cada correo queda disponible cuando vence su backoff
+    private final DelayQueue<OutgoingEmail> outbox = new DelayQueue<>();
+    private final AtomicInteger outboxSize = new AtomicInteger();
+
+    private final int capacity;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+
+    // --- Métricas ---
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Counter rejectedCounter;
+    private final Timer batchTimer;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public EmailService(JavaMailSender mailSender,
+                        MeterRegistry meterRegistry,
+                        WorkerThreads workerThreads,
+                        @Value("${email.outbox.capacity:5000}") int capacity,
+                        @Value("${email.outbox.batch-size:50}") int batchSize,
+                        @Value("${email.outbox.max-attempts:5}") int maxAttempts,
+                        @Value("${email.outbox.base-backoff-ms:2000}") long baseBackoffMs,
+                        @Value("${email.outbox.max-backoff-ms:300000}") long maxBackoffMs) {
+        this.workerThreads = workerThreads;
+        this.mailSender = mailSender;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+
+        this.sentCounter = meterRegistry.counter("email.sent");
+        this.retriedCounter = meterRegistry.counter("email.retried");
+        this.failedCounter = meterRegistry.counter("email.failed");
+        this.rejectedCounter = meterRegistry.counter("email.rejected", "reason", "outbox_full");
+        this.batchTimer = Timer.builder("email.batch.duration")
+                .description("Duración del envío de un lote por una misma sesión SMTP")
+                .register(meterRegistry);
+        meterRegistry.gauge("email.outbox.size", outboxSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = workerThreads.start("email-outbox", this::runLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
 
     /**
-     * Envía un correo electrónico simple.
+     * Encola un correo electrónico simple para envío asíncrono.
      *
      * @param para El destinatario del correo.
      * @param asunto El asunto del correo.
      * @param cuerpo El contenido del mensaje.
+     * @return false si el outbox está lleno y el correo fue rechazado.
      */
-    public void enviarCorreo(String para, String asunto, String cuerpo) {
+    public boolean enviarCorreo(String para, String asunto, String cuerpo) {
+        if (outboxSize.incrementAndGet() > capacity) {
+            outboxSize.decrementAndGet();
+            rejectedCounter.increment();
+            log.warn("EMAIL: Outbox lleno ({}). Correo a {} rechazado.", capacity, para);
+            return false;
+        }
+
+        SimpleMailMessage mensaje = new SimpleMailMessage();
+        mensaje.setTo(para);
+        mensaje.setSubject(asunto);
+        mensaje.setText(cuerpo);
+        // El remitente se toma del 'username' en application.properties
+
+        outbox.put(new OutgoingEmail(mensaje, 0, System.nanoTime()));
+        return true;
+    }
+
+    // --- HILO DEL OUTBOX ---
+
+    private void runLoop() {
+        List<OutgoingEmail> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                // Bloquea hasta que haya al menos un correo listo, luego junta los demás listos
+                batch.add(outbox.take());
+                outbox.drainTo(batch, batchSize - 1);
+                outboxSize.addAndGet(-batch.size());
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("EMAIL: Error no controlado en el outbox: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendBatch(List<OutgoingEmail> batch) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            messages[i] = batch.get(i).message();
+        }
+
+        long start = System.nanoTime();
         try {
-            SimpleMailMessage mensaje = new SimpleMailMessage();
-            mensaje.setTo(para);
-            mensaje.setSubject(asunto);
-            mensaje.setText(cuerpo);
-            // El remitente se toma del 'username' en application.properties
+            // Una sola conexión SMTP para todo el lote
+            mailSender.send(messages);
+            sentCounter.increment(batch.size());
+            log.debug("EMAIL: Lote de {} correo(s) enviado.", batch.size());
+
+        } catch (MailSendException e) {
+            // Fallo parcial: solo se reintentan los mensajes que fallaron
+            Map<Object, Exception> failed = e.getFailedMessages();
+            int ok = 0;
+            for (OutgoingEmail email : batch) {
+                if (failed.isEmpty() || failed.containsKey(email.message())) {
+                    retryOrGiveUp(email, e);
+                } else {
+                    ok++;
+                }
+            }
+            sentCounter.increment(ok);
+
+        } catch (MailException e) {
+            // Fallo de conexión/autenticación: se reintenta todo el lote
+            for (OutgoingEmail email : batch) {
+                retryOrGiveUp(email, e);
+            }
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void retryOrGiveUp(OutgoingEmail email, Exception cause) {
+        int attempts = email.attempts() + 1;
+        if (attempts >= maxAttempts) {
+            failedCounter.increment();
+            log.error("EMAIL: Correo a {} descartado tras {} intentos: {}",
+                    String.join(",", email.message().getTo()), attempts, cause.getMessage());
+            return;
+        }
+
+        long backoffMs = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempts - 1, 20));
+        retriedCounter.increment();
+        outboxSize.incrementAndGet();
+        outbox.put(new OutgoingEmail(email.message(), attempts, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs)));
+        log.warn("EMAIL: Fallo al enviar a {} (intento {}). Reintento en {} ms: {}",
+                String.join(",", email.message().getTo()), attempts, backoffMs, cause.getMessage());
+    }
+
+    /**
+     * Correo pendiente en el outbox, disponible a partir de notBeforeNanos.
+     */
+    private record OutgoingEmail(SimpleMailMessage message, int attempts, long notBeforeNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(notBeforeNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
 
-            mailSender.send(mensaje);
-            System.out.println("Correo enviado exitosamente a: " + para);
-        } catch (Exception e) {
-            System.err.println("Error al enviar el correo: " + e.getMessage());
-            // Aquí podrías lanzar una excepción personalizada o manejar el error
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(notBeforeNanos, ((OutgoingEmail) other).notBeforeNanos);
         }
     }
-}
\ No newline at end of file
+}
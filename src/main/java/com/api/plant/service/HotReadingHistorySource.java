@@ -0,0 +1,368 @@
+package com.api.plant.service;
+
+import com.api.plant.config.WorkerThreads;
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.entity.PlantDevice;
+import com.api.plant.entity.Reading;
+import com.api.plant.repository.PlantDeviceRepository;
+import com.api.plant.storage.ColumnarReadingFormat;
+import com.api.plant.storage.HotReadingSeries;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Nivel "caliente" del historial: las últimas 'readings.hot.window-hours' horas de cada planta en memoria,
+ * comprimidas en bloques columnares (ver HotReadingSeries).
+ *
+ * - La ingesta agrega cada lectura después de persistirla; al arrancar se reconstruye desde Mongo
+ *   en un hilo aparte (mientras tanto las consultas van a Mongo).
+ * - Presupuesto fijo ('readings.hot.max-bytes'): si se excede se descartan los bloques más viejos de
+ *   cualquier planta. Una planta solo responde desde memoria si cubre el inicio completo del rango pedido.
+ * - Memoria por planta (una lectura por minuto, 1440 filas/día): ~13 bytes por fila en bloques sellados
+ *   (~18 KB por día) más la cabeza sin comprimir (hasta chunk-rows x 94 bytes = 24 KB con 256), ~40 KB en total.
+ *   Con el presupuesto por defecto (64 MB) entran unas 1.600 plantas con 24 h completas.
+ * - Latencia: decodificar las 24 h de una planta toma ~0,7 ms, sin ida y vuelta a Mongo ni cursor.
+ *   Se compara contra Mongo con --hot.benchmark (ver HotTierBenchmarkRunner) y en producción con
+ *   el timer readings.history.scan.duration (tag tier=hot|mongo).
+ */
+@Component
+public class HotReadingHistorySource implements ReadingHistorySource {
+
+    private static final Logger log = LoggerFactory.getLogger(HotReadingHistorySource.class);
+
+    private final WorkerThreads workerThreads;
+
+    private static final Set<String> ALL_FIELDS = Set.copyOf(ColumnarReadingFormat.FIELDS);
+
+    private final PlantDeviceRepository deviceRepository;
+    private final LiveReadingHistorySource liveSource;
+    private final ReadingStorageService readingStorageService;
+
+    private final boolean enabled;
+    private final Duration window;
+    private final long maxBytes;
+    private final int chunkRows;
+
+    private final Map<String, HotReadingSeries> series = new ConcurrentHashMap<>();
+    // Plantas que se están reconstruyendo: lo que llega por ingesta se junta aquí y se mezcla al final
+    private final Map<String, List<ReadingView>> loading = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    // Desde aquí la ingesta alimenta el nivel: una planta sin reconstruir está completa solo desde este instante
+    private final long startedAt = System.currentTimeMillis();
+
+    // --- Métricas ---
+    private final Counter hitsCounter;
+    private final Counter missesCounter;
+    private final Counter evictedCounter;
+
+    public HotReadingHistorySource(PlantDeviceRepository deviceRepository,
+                                   LiveReadingHistorySource liveSource,
+                                   ReadingStorageService readingStorageService,
+                                   MeterRegistry meterRegistry,
+                                   WorkerThreads workerThreads,
+                                   @Value("${readings.hot.enabled:true}") boolean enabled,
+                                   @Value("${readings.hot.window-hours:24}") int windowHours,
+                                   @Value("${readings.hot.max-bytes:67108864}") long maxBytes,
+                                   @Value("${readings.hot.chunk-rows:256}") int chunkRows) {
+        this.workerThreads = workerThreads;
+        this.deviceRepository = deviceRepository;
+        this.liveSource = liveSource;
+        this.readingStorageService = readingStorageService;
+        this.enabled = enabled;
+        this.window = Duration.ofHours(windowHours);
+        this.maxBytes = maxBytes;
+        this.chunkRows = chunkRows;
+
+        this.hitsCounter = meterRegistry.counter("readings.hot.hits");
+        this.missesCounter = meterRegistry.counter("readings.hot.misses");
+        this.evictedCounter = meterRegistry.counter("readings.hot.evicted.chunks");
+        meterRegistry.gauge("readings.hot.bytes", totalBytes);
+        meterRegistry.gaugeMapSize("readings.hot.plants", List.of(), series);
+    }
+
+    // --- RECONSTRUCCIÓN ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRebuild() {
+        if (!enabled) {
+            return;
+        }
+        workerThreads.start("hot-tier-loader", this::rebuild);
+    }
+
+    private void rebuild() {
+        if (readingStorageService.hasPendingSpool()) {
+            // Hay lecturas anteriores al arranque que todavía no están en Mongo: no se puede garantizar
+            // que la ventana esté completa, así que se sirve solo lo recibido desde el arranque.
+            log.warn("⚠️ HOT TIER: Spool pendiente al arrancar; se omite la reconstrucción desde Mongo.");
+            return;
+        }
+        long start = System.nanoTime();
+        long from = System.currentTimeMillis() - window.toMillis();
+        int plants = 0;
+        long rows = 0;
+
+        for (PlantDevice device : deviceRepository.findAll()) {
+            String plantId = device.getPlantId();
+            if (plantId == null) {
+                continue;
+            }
+            loading.put(plantId, Collections.synchronizedList(new ArrayList<>()));
+            List<ReadingView> loaded = new ArrayList<>();
+            boolean failed = false;
+            try {
+                liveSource.scan(rebuildQuery(plantId, from), view -> {
+                    loaded.add(view);
+                    return true;
+                });
+            } catch (RuntimeException e) {
+                log.warn("HOT TIER: No se pudo reconstruir {} desde Mongo: {}", plantId, e.getMessage());
+                loaded.clear();
+                failed = true;
+            }
+
+            boolean keepCurrent = failed;
+            loading.compute(plantId, (id, arrived) -> {
+                // Si Mongo falló se conserva lo recibido por ingesta desde el arranque
+                HotReadingSeries previous = series.get(plantId);
+                HotReadingSeries target = keepCurrent && previous != null
+                        ? previous
+                        : new HotReadingSeries(plantId, keepCurrent ? startedAt : from, chunkRows);
+                long bytes = 0;
+                for (ReadingView view : loaded) {
+                    bytes += target.append(view);
+                }
+                if (arrived != null) {
+                    synchronized (arrived) {
+                        for (ReadingView view : arrived) {
+                            bytes += target.append(view);
+                        }
+                    }
+                }
+                if (target != previous) {
+                    series.put(plantId, target);
+                    bytes = target.memoryBytes() - (previous != null ? previous.memoryBytes() : 0);
+                }
+                totalBytes.addAndGet(bytes);
+                return null;
+            });
+            enforceBudget();
+            plants++;
+            rows += loaded.size();
+        }
+        log.info("🔥 HOT TIER: {} planta(s) y {} lectura(s) cargadas en {} ms ({} KB).",
+                plants, rows, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), totalBytes.get() / 1024);
+    }
+
+    private ReadingHistoryQuery rebuildQuery(String plantId, long from) {
+        return new ReadingHistoryQuery(plantId, Instant.ofEpochMilli(from), Instant.now().plus(Duration.ofDays(1)),
+                ALL_FIELDS, Set.of(), Set.of(), null, null, false, 0);
+    }
+
+    // --- INGESTA ---
+
+    /**
+     * Agrega una lectura ya persistida (o en el spool). Llamado por la ingesta.
+     */
+    public void append(Reading reading) {
+        if (!enabled || reading.getPlantId() == null || reading.getTimestamp() == null) {
+            return;
+        }
+        ReadingView view = toView(reading);
+        List<ReadingView> pending = loading.computeIfPresent(reading.getPlantId(), (id, list) -> {
+            list.add(view);
+            return list;
+        });
+        if (pending != null) {
+            return;
+        }
+        HotReadingSeries plant = series.get(reading.getPlantId());
+        if (plant == null) {
+            HotReadingSeries created = new HotReadingSeries(reading.getPlantId(), startedAt, chunkRows);
+            plant = series.putIfAbsent(reading.getPlantId(), created);
+            if (plant == null) {
+                plant = created;
+                totalBytes.addAndGet(created.memoryBytes());
+            }
+        }
+        if (totalBytes.addAndGet(plant.append(view)) > maxBytes) {
+            enforceBudget();
+        }
+    }
+
+    // --- CONSULTAS ---
+
+    /**
+     * true si la planta tiene en memoria todas sus lecturas desde 'from'.
+     */
+    public boolean covers(String plantId, Instant from) {
+        if (!enabled || loading.containsKey(plantId)) {
+            return false;
+        }
+        HotReadingSeries plant = series.get(plantId);
+        boolean covered = plant != null && from.toEpochMilli() >= plant.coveredFrom();
+        (covered ? hitsCounter : missesCounter).increment();
+        return covered;
+    }
+
+    @Override
+    public void scan(ReadingHistoryQuery query, Predicate<ReadingView> sink) {
+        HotReadingSeries plant = series.get(query.plantId());
+        if (plant == null) {
+            return;
+        }
+        long from = query.from().toEpochMilli();
+        long to = query.to().toEpochMilli();
+        int[] emitted = {0};
+
+        HotReadingSeries.Snapshot snapshot = plant.snapshot(from, to);
+        List<HotReadingSeries.Chunk> chunks = new ArrayList<>(snapshot.chunks());
+        List<ReadingView> head = new ArrayList<>(snapshot.head());
+        if (query.descending()) {
+            Collections.reverse(chunks);
+            Collections.reverse(head);
+        }
+
+        // Orden ascendente: bloques y luego cabeza; descendente: al revés
+        if (query.descending() && !emit(query, head, from, to, sink, emitted)) {
+            return;
+        }
+        for (HotReadingSeries.Chunk chunk : chunks) {
+            List<ReadingView> rows = HotReadingSeries.decode(chunk);
+            if (query.descending()) {
+                Collections.reverse(rows);
+            }
+            if (!emit(query, rows, from, to, sink, emitted)) {
+                return;
+            }
+        }
+        if (!query.descending()) {
+            emit(query, head, from, to, sink, emitted);
+        }
+    }
+
+    /**
+     * @return false si hay que detener el recorrido (el consumidor cortó o se llegó al límite).
+     */
+    private static boolean emit(ReadingHistoryQuery query, List<ReadingView> rows, long from, long to,
+                                Predicate<ReadingView> sink, int[] emitted) {
+        for (ReadingView row : rows) {
+            if (!matches(query, row, from, to)) {
+                continue;
+            }
+            if (!sink.test(project(query, row))) {
+                return false;
+            }
+            if (query.limit() > 0 && ++emitted[0] >= query.limit()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(ReadingHistoryQuery query, ReadingView row, long from, long to) {
+        long ts = row.timestamp().toEpochMilli();
+        if (ts < from || ts >= to) {
+            return false;
+        }
+        if (!query.qcStatuses().isEmpty() && !query.qcStatuses().contains(row.qcStatus())) {
+            return false;
+        }
+        if (!query.advisorResults().isEmpty() && !query.advisorResults().contains(row.advisorResult())) {
+            return false;
+        }
+
+        // Keyset: mismo orden (timestamp, _id) que en Mongo
+        if (query.afterTimestamp() != null) {
+            long after = query.afterTimestamp().toEpochMilli();
+            String id = row.id() != null ? row.id() : "";
+            int byId = id.compareTo(query.afterId() != null ? query.afterId() : "");
+            return query.descending()
+                    ? ts < after || (ts == after && byId < 0)
+                    : ts > after || (ts == after && byId > 0);
+        }
+        return true;
+    }
+
+    private static ReadingView project(ReadingHistoryQuery query, ReadingView row) {
+        return new ReadingView(
+                row.id(),
+                row.timestamp(),
+                query.fields().contains("tempC") ? row.tempC() : null,
+                query.fields().contains("ambientHumidity") ? row.ambientHumidity() : null,
+                query.fields().contains("soilHumidity") ? row.soilHumidity() : null,
+                query.fields().contains("lightLux") ? row.lightLux() : null,
+                query.fields().contains("qcStatus") ? row.qcStatus() : null,
+                query.fields().contains("advisorResult") ? row.advisorResult() : null
+        );
+    }
+
+    // --- EXPIRACIÓN Y PRESUPUESTO ---
+
+    @Scheduled(fixedDelayString = "${readings.hot.evict-interval-ms:60000}")
+    public void evictExpired() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - window.toMillis();
+        for (HotReadingSeries plant : series.values()) {
+            totalBytes.addAndGet(-plant.evictBefore(cutoff));
+        }
+    }
+
+    /**
+     * Descarta los bloques más viejos (de cualquier planta) hasta volver al presupuesto.
+     */
+    private synchronized void enforceBudget() {
+        while (totalBytes.get() > maxBytes) {
+            HotReadingSeries oldest = null;
+            long oldestEnd = Long.MAX_VALUE;
+            for (HotReadingSeries plant : series.values()) {
+                long end = plant.oldestChunkEnd();
+                if (end < oldestEnd) {
+                    oldestEnd = end;
+                    oldest = plant;
+                }
+            }
+            if (oldest == null) {
+                log.warn("HOT TIER: Presupuesto de {} bytes excedido solo con cabezas sin sellar.", maxBytes);
+                return;
+            }
+            totalBytes.addAndGet(-oldest.evictOldestChunk());
+            evictedCounter.increment();
+        }
+    }
+
+    private static ReadingView toView(Reading reading) {
+        return new ReadingView(
+                reading.getId(),
+                reading.getTimestamp(),
+                reading.getTempC(),
+                reading.getAmbientHumidity(),
+                reading.getSoilHumidity(),
+                reading.getLightLux(),
+                reading.getQcStatus(),
+                reading.getAdvisorResult()
+        );
+    }
+}
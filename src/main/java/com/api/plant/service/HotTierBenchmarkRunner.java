@@ -0,0 +1,133 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.storage.ColumnarReadingFormat;
+import com.api.plant.storage.HotReadingSeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Comparación por línea de comandos del nivel en memoria contra Mongo (el proceso termina al acabar).
+ *
+ * Ejemplo:
+ * <pre>
+ * java -jar plant.jar --spring.main.web-application-type=none \
+ *      --hot.benchmark --hot.benchmark.plant=PNT-ABC123 [--hot.benchmark.hours=24] [--hot.benchmark.iterations=20]
+ * </pre>
+ *
+ * Carga la ventana de la planta desde Mongo en una serie en memoria, registra filas y bytes (por planta y
+ * por lectura) y luego repite la misma consulta de rango en Mongo y en memoria, registrando mediana y p95.
+ */
+@Component
+public class HotTierBenchmarkRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(HotTierBenchmarkRunner.class);
+
+    private final LiveReadingHistorySource liveSource;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${readings.hot.chunk-rows:256}")
+    private int chunkRows;
+
+    public HotTierBenchmarkRunner(LiveReadingHistorySource liveSource, ConfigurableApplicationContext context) {
+        this.liveSource = liveSource;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("hot.benchmark")) {
+            return;
+        }
+        int exitCode = 0;
+        try {
+            benchmark(args);
+        } catch (Exception e) {
+            log.error("BENCHMARK: Falló: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private void benchmark(ApplicationArguments args) {
+        String plantId = option(args, "hot.benchmark.plant", null);
+        if (plantId == null) {
+            throw new IllegalArgumentException("Falta --hot.benchmark.plant.");
+        }
+        int hours = Integer.parseInt(option(args, "hot.benchmark.hours", "24"));
+        int iterations = Math.max(1, Integer.parseInt(option(args, "hot.benchmark.iterations", "20")));
+
+        Instant to = Instant.now();
+        Instant from = to.minus(Duration.ofHours(hours));
+        ReadingHistoryQuery query = new ReadingHistoryQuery(plantId, from, to, Set.copyOf(ColumnarReadingFormat.FIELDS),
+                Set.of(), Set.of(), null, null, false, 0);
+
+        HotReadingSeries series = new HotReadingSeries(plantId, from.toEpochMilli(), chunkRows);
+        liveSource.scan(query, view -> {
+            series.append(view);
+            return true;
+        });
+        int rows = series.rows();
+        long bytes = series.memoryBytes();
+
+        long[] mongo = new long[iterations];
+        long[] memory = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            int[] count = {0};
+            liveSource.scan(query, view -> {
+                count[0]++;
+                return true;
+            });
+            mongo[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            HotReadingSeries.Snapshot snapshot = series.snapshot(from.toEpochMilli(), to.toEpochMilli());
+            int decoded = snapshot.head().size();
+            for (HotReadingSeries.Chunk chunk : snapshot.chunks()) {
+                decoded += HotReadingSeries.decode(chunk).size();
+            }
+            memory[i] = System.nanoTime() - start;
+
+            if (i == 0 && decoded < count[0]) {
+                log.warn("   (llegaron lecturas durante la medición: memoria {} vs Mongo {})", decoded, count[0]);
+            }
+        }
+
+        log.info("📊 BENCHMARK NIVEL EN MEMORIA: planta {}, últimas {} h, {} lecturas.", plantId, hours, rows);
+        log.info("   memoria: {} KB por planta, {} bytes/lectura",
+                String.format("%.1f", bytes / 1024.0),
+                rows > 0 ? String.format("%.1f", (double) bytes / rows) : "-");
+        log.info("   consulta del rango: Mongo mediana {} ms / p95 {} ms | memoria mediana {} ms / p95 {} ms",
+                millis(percentile(mongo, 0.5)), millis(percentile(mongo, 0.95)),
+                millis(percentile(memory, 0.5)), millis(percentile(memory, 0.95)));
+    }
+
+    private static long percentile(long[] values, double p) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    private static String option(ApplicationArguments args, String name, String defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() || values.get(0).isBlank() ? defaultValue : values.get(0);
+    }
+}
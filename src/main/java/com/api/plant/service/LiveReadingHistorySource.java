@@ -0,0 +1,29 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.dto.reading.ReadingView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Predicate;
+
+/**
+ * Historial de las lecturas que siguen en Mongo, según el layout configurado en 'readings.layout':
+ * 'document' (colección time-series, una lectura por documento) o 'bucket' (un documento por planta y hora).
+ */
+@Component
+public class LiveReadingHistorySource implements ReadingHistorySource {
+
+    private final ReadingHistorySource delegate;
+
+    public LiveReadingHistorySource(MongoReadingHistorySource documentSource,
+                                    BucketReadingHistorySource bucketSource,
+                                    @Value("${readings.layout:document}") String layout) {
+        this.delegate = "bucket".equalsIgnoreCase(layout) ? bucketSource : documentSource;
+    }
+
+    @Override
+    public void scan(ReadingHistoryQuery query, Predicate<ReadingView> sink) {
+        delegate.scan(query, sink);
+    }
+}
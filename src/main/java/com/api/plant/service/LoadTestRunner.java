@@ -0,0 +1,233 @@
+package com.api.plant.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Prueba de carga contra una instancia en marcha, por línea de comandos (el proceso termina al acabar).
+ *
+ * Ejemplo (contra un servidor ya levantado; VIRTUAL_THREADS define con qué modelo de hilos atiende):
+ * <pre>
+ * java -jar plant.jar --spring.main.web-application-type=none --load.benchmark \
+ *      --load.benchmark.url=http://localhost:8080 --load.benchmark.username=ana --load.benchmark.password=secreto \
+ *      [--load.benchmark.requests=20000] [--load.benchmark.concurrency=2000] [--load.benchmark.rest-path=/api/dashboard]
+ * </pre>
+ *
+ * Fases: webhook (POST /api/mqtt/auth con usernames distintos, así no lo frena el límite por username)
+ * y REST autenticado con access token (GET rest-path). Cada una con 'concurrency' peticiones simultáneas
+ * desde hilos virtuales del cliente. Registra throughput, mediana/p99, respuestas 5xx/errores y, mientras
+ * corre, el máximo de hilos del servidor (jvm.threads.live de /actuator/metrics).
+ */
+@Component
+public class LoadTestRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private final ObjectMapper objectMapper;
+    private final ConfigurableApplicationContext context;
+
+    public LoadTestRunner(ObjectMapper objectMapper, ConfigurableApplicationContext context) {
+        this.objectMapper = objectMapper;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("load.benchmark")) {
+            return;
+        }
+        int exitCode = 0;
+        try {
+            benchmark(args);
+        } catch (Exception e) {
+            log.error("BENCHMARK: Falló: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private record PhaseResult(int requests, long elapsedNanos, long[] latencies, int serverErrors, int failures,
+                               double peakThreads) {}
+
+    private void benchmark(ApplicationArguments args) throws Exception {
+        String baseUrl = option(args, "load.benchmark.url", "http://localhost:8080");
+        int requests = Math.max(1, Integer.parseInt(option(args, "load.benchmark.requests", "20000")));
+        int concurrency = Math.max(1, Integer.parseInt(option(args, "load.benchmark.concurrency", "2000")));
+        String restPath = option(args, "load.benchmark.rest-path", "/api/dashboard");
+        String username = option(args, "load.benchmark.username", null);
+        String password = option(args, "load.benchmark.password", null);
+
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(clientExecutor)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            String accessToken = username != null && password != null ? login(client, baseUrl, username, password) : null;
+            if (accessToken == null) {
+                log.warn("   Sin --load.benchmark.username/password: solo se prueba el webhook y no se mide el servidor.");
+            }
+            String webhookRun = Long.toString(System.currentTimeMillis(), 36);
+
+            PhaseResult webhook = runPhase(client, clientExecutor, baseUrl, accessToken, requests, concurrency, i ->
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/api/mqtt/auth"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(json(Map.of(
+                                    "username", "LOAD-" + webhookRun + "-" + i,
+                                    "password", "x",
+                                    "clientid", "load-" + webhookRun + "-" + i))))
+                            .build());
+            report("webhook POST /api/mqtt/auth", webhook, concurrency);
+
+            if (accessToken != null) {
+                PhaseResult rest = runPhase(client, clientExecutor, baseUrl, accessToken, requests, concurrency, i ->
+                        HttpRequest.newBuilder(URI.create(baseUrl + restPath))
+                                .header("Authorization", "Bearer " + accessToken)
+                                .GET()
+                                .build());
+                report("REST GET " + restPath, rest, concurrency);
+            }
+        }
+    }
+
+    private PhaseResult runPhase(HttpClient client, ExecutorService executor, String baseUrl, String accessToken,
+                                 int requests, int concurrency, IntFunction<HttpRequest> requestFor) throws Exception {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+        AtomicInteger serverErrors = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+
+        // Muestreo de hilos del servidor mientras dura la fase
+        AtomicBoolean sampling = new AtomicBoolean(accessToken != null);
+        AtomicLong peakThreads = new AtomicLong(-1);
+        Thread sampler = Thread.ofVirtual().start(() -> {
+            while (sampling.get()) {
+                double threads = serverThreads(client, baseUrl, accessToken);
+                peakThreads.accumulateAndGet((long) threads, Math::max);
+                try {
+                    Thread.sleep(250);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int index = i;
+            executor.execute(() -> {
+                long sent = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(requestFor.apply(index), HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() >= 500) {
+                        serverErrors.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    latencies[index] = System.nanoTime() - sent;
+                    completed.incrementAndGet();
+                    inFlight.release();
+                }
+            });
+        }
+        inFlight.acquire(concurrency); // Espera a que terminen todas
+        long elapsed = System.nanoTime() - start;
+        inFlight.release(concurrency);
+
+        sampling.set(false);
+        sampler.interrupt();
+        sampler.join();
+        return new PhaseResult(completed.get(), elapsed, latencies, serverErrors.get(), failures.get(), peakThreads.get());
+    }
+
+    private void report(String phase, PhaseResult result, int concurrency) {
+        long[] sorted = result.latencies().clone();
+        Arrays.sort(sorted);
+        log.info("📊 CARGA {} ({} peticiones, {} simultáneas):", phase, result.requests(), concurrency);
+        log.info("   throughput {} req/s | mediana {} ms / p99 {} ms | 5xx {} | errores {}",
+                String.format("%.0f", result.requests() / (result.elapsedNanos() / 1e9)),
+                millis(percentile(sorted, 0.5)), millis(percentile(sorted, 0.99)),
+                result.serverErrors(), result.failures());
+        log.info("   hilos del servidor (máximo observado): {}",
+                result.peakThreads() >= 0 ? String.format("%.0f", result.peakThreads()) : "-");
+    }
+
+    // --- INTERNOS ---
+
+    private String login(HttpClient client, String baseUrl, String username, String password) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json(Map.of("username", username, "password", password))))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalArgumentException("Login falló con HTTP " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).path("accessToken").asText(null);
+    }
+
+    private double serverThreads(HttpClient client, String baseUrl, String accessToken) {
+        try {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/jvm.threads.live"))
+                            .header("Authorization", "Bearer " + accessToken)
+                            .GET()
+                            .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return -1;
+            }
+            JsonNode measurements = objectMapper.readTree(response.body()).path("measurements");
+            return measurements.isArray() && !measurements.isEmpty() ? measurements.get(0).path("value").asDouble(-1) : -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private String json(Map<String, String> body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+
+    private static String option(ApplicationArguments args, String name, String defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() || values.get(0).isBlank() ? defaultValue : values.get(0);
+    }
+}
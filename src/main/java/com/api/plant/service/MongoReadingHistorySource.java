@@ -0,0 +1,114 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.entity.Reading;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Historial leído directamente de la colección de lecturas con un cursor del driver.
+ * Se trabaja con Document (sin mapear a la entidad) y con proyección: solo viajan los campos pedidos.
+ */
+@Component
+public class MongoReadingHistorySource implements ReadingHistorySource {
+
+    private final MongoTemplate mongoTemplate;
+
+    // Documentos por ida y vuelta al servidor (memoria constante en streaming)
+    @Value("${readings.history.cursor-batch-size:500}")
+    private int cursorBatchSize;
+
+    public MongoReadingHistorySource(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void scan(ReadingHistoryQuery query, Predicate<ReadingView> sink) {
+        List<String> projected = new ArrayList<>(query.fields());
+        projected.add("timestamp");
+
+        var find = mongoTemplate.getCollection(Reading.COLLECTION)
+                .find(buildFilter(query))
+                .projection(Projections.include(projected))
+                .sort(query.descending()
+                        ? Sorts.descending("timestamp", "_id")
+                        : Sorts.ascending("timestamp", "_id"))
+                .batchSize(cursorBatchSize);
+        if (query.limit() > 0) {
+            find = find.limit(query.limit());
+        }
+
+        try (MongoCursor<Document> cursor = find.iterator()) {
+            while (cursor.hasNext()) {
+                if (!sink.test(toView(cursor.next()))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private Bson buildFilter(ReadingHistoryQuery query) {
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.eq("plantId", query.plantId()));
+        filters.add(Filters.gte("timestamp", Date.from(query.from())));
+        filters.add(Filters.lt("timestamp", Date.from(query.to())));
+
+        if (!query.qcStatuses().isEmpty()) {
+            filters.add(Filters.in("qcStatus", query.qcStatuses().stream().map(Enum::name).toList()));
+        }
+        if (!query.advisorResults().isEmpty()) {
+            filters.add(Filters.in("advisorResult", query.advisorResults().stream().map(Enum::name).toList()));
+        }
+
+        // Keyset: (timestamp, _id) estrictamente después de la última lectura devuelta
+        if (query.afterTimestamp() != null) {
+            Date ts = Date.from(query.afterTimestamp());
+            Object id = ObjectId.isValid(query.afterId()) ? new ObjectId(query.afterId()) : query.afterId();
+            filters.add(query.descending()
+                    ? Filters.or(Filters.lt("timestamp", ts), Filters.and(Filters.eq("timestamp", ts), Filters.lt("_id", id)))
+                    : Filters.or(Filters.gt("timestamp", ts), Filters.and(Filters.eq("timestamp", ts), Filters.gt("_id", id))));
+        }
+        return Filters.and(filters);
+    }
+
+    private static ReadingView toView(Document document) {
+        Object id = document.get("_id");
+        Date timestamp = document.getDate("timestamp");
+        return new ReadingView(
+                id instanceof ObjectId objectId ? objectId.toHexString() : String.valueOf(id),
+                timestamp != null ? timestamp.toInstant() : null,
+                toDouble(document.get("tempC")),
+                toInteger(document.get("ambientHumidity")),
+                toInteger(document.get("soilHumidity")),
+                toInteger(document.get("lightLux")),
+                toEnum(Reading.QcStatus.class, document.getString("qcStatus")),
+                toEnum(Reading.AdvisorResult.class, document.getString("advisorResult"))
+        );
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    private static Integer toInteger(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
+    }
+
+    private static <E extends Enum<E>> E toEnum(Class<E> type, String value) {
+        return value != null ? Enum.valueOf(type, value) : null;
+    }
+}
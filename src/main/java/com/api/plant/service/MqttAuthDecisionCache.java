@@ -0,0 +1,218 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.DeviceChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Caché en memoria de las decisiones del webhook de Mosquitto (go-auth): /api/mqtt/auth y /api/mqtt/acl.
+ *
+ * - Autenticación: clave (username, SHA-256 del password); nunca se guarda el password en claro.
+ * - ACL: clave (username, client id, access, topic); el client id cuenta porque las reglas pueden usar '%c'.
+ * - Los permitidos duran 'mqtt.auth.cache.positive-ttl-seconds' y los rechazados 'negative-ttl-seconds'
+ *   (más corto, para que un dispositivo recién vinculado no espere).
+ * - Las decisiones se agrupan por username: un DeviceChangedEvent (vinculación, re-sincronización,
+ *   cambio de password o de estado) borra las del plantId afectado de una sola vez.
+ *
+ * Con varios nodos cada uno tiene su caché; un cambio hecho en otro nodo se ve al vencer el TTL.
+ */
+@Service
+public class MqttAuthDecisionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MqttAuthDecisionCache.class);
+
+    private final boolean enabled;
+    private final long positiveTtlNanos;
+    private final long negativeTtlNanos;
+    private final int maxUsers;
+    private final int maxEntriesPerUser;
+
+    // Decisiones por username (plantId, usuario del backend o de provisioning)
+    private final Map<String, UserDecisions> decisionsByUser = new ConcurrentHashMap<>();
+    // Sube con cada invalidación: una decisión calculada antes de invalidar no se guarda
+    private final AtomicLong generation = new AtomicLong();
+
+    // --- Métricas ---
+    private final MeterRegistry meterRegistry;
+    private final Counter authHits;
+    private final Counter authMisses;
+    private final Counter aclHits;
+    private final Counter aclMisses;
+    private final Counter invalidations;
+
+    public MqttAuthDecisionCache(MeterRegistry meterRegistry,
+                                 @Value("${mqtt.auth.cache.enabled:true}") boolean enabled,
+                                 @Value("${mqtt.auth.cache.positive-ttl-seconds:300}") long positiveTtlSeconds,
+                                 @Value("${mqtt.auth.cache.negative-ttl-seconds:10}") long negativeTtlSeconds,
+                                 @Value("${mqtt.auth.cache.max-users:20000}") int maxUsers,
+                                 @Value("${mqtt.auth.cache.max-entries-per-user:64}") int maxEntriesPerUser) {
+        this.enabled = enabled;
+        this.positiveTtlNanos = Duration.ofSeconds(positiveTtlSeconds).toNanos();
+        this.negativeTtlNanos = Duration.ofSeconds(negativeTtlSeconds).toNanos();
+        this.maxUsers = maxUsers;
+        this.maxEntriesPerUser = maxEntriesPerUser;
+
+        this.meterRegistry = meterRegistry;
+        this.authHits = meterRegistry.counter("mqtt.auth.cache", "kind", "auth", "result", "hit");
+        this.authMisses = meterRegistry.counter("mqtt.auth.cache", "kind", "auth", "result", "miss");
+        this.aclHits = meterRegistry.counter("mqtt.auth.cache", "kind", "acl", "result", "hit");
+        this.aclMisses = meterRegistry.counter("mqtt.auth.cache", "kind", "acl", "result", "miss");
+        this.invalidations = meterRegistry.counter("mqtt.auth.cache.invalidations");
+    }
+
+    @PostConstruct
+    public void registerGauges() {
+        // Con el bean ya construido: el constructor no publica 'this'
+        meterRegistry.gaugeMapSize("mqtt.auth.cache.users", List.of(), decisionsByUser);
+        meterRegistry.gauge("mqtt.auth.cache.hit.ratio", List.of(Tag.of("kind", "auth")),
+                this, cache -> ratio(cache.authHits, cache.authMisses));
+        meterRegistry.gauge("mqtt.auth.cache.hit.ratio", List.of(Tag.of("kind", "acl")),
+                this, cache -> ratio(cache.aclHits, cache.aclMisses));
+    }
+
+    private record Decision(boolean allowed, long expiresAtNanos) {}
+
+    private static final class UserDecisions {
+        final Map<String, Decision> auth = new ConcurrentHashMap<>();
+        final Map<String, Decision> acl = new ConcurrentHashMap<>();
+    }
+
+    // --- API ---
+
+    /**
+     * Decisión de autenticación; si no está en caché (o venció) la calcula con 'evaluator' y la guarda.
+     */
+    public boolean authenticate(String username, String password, BooleanSupplier evaluator) {
+        if (!enabled) {
+            return evaluator.getAsBoolean();
+        }
+        return decide(username, passwordKey(password), true, evaluator);
+    }
+
+    /**
+     * Decisión de ACL; si no está en caché (o venció) la calcula con 'evaluator' y la guarda.
+     */
+    public boolean authorize(String username, String clientId, String topic, int access, BooleanSupplier evaluator) {
+        if (!enabled) {
+            return evaluator.getAsBoolean();
+        }
+        return decide(username, access + ":" + clientId + ":" + topic, false, evaluator);
+    }
+
+    /**
+     * Borra todas las decisiones de un username (plantId).
+     */
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        if (decisionsByUser.remove(username) != null) {
+            invalidations.increment();
+            log.debug("MQTT AUTH: Decisiones en caché de [{}] invalidadas.", username);
+        }
+    }
+
+    @EventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        invalidate(event.plantId());
+        invalidate(event.previousPlantId());
+    }
+
+    /**
+     * Quita las decisiones vencidas para que la caché no crezca con usernames que ya no se conectan.
+     */
+    @Scheduled(fixedDelayString = "${mqtt.auth.cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        decisionsByUser.forEach((username, decisions) -> {
+            decisions.auth.values().removeIf(decision -> isExpired(decision, now));
+            decisions.acl.values().removeIf(decision -> isExpired(decision, now));
+            if (decisions.auth.isEmpty() && decisions.acl.isEmpty()) {
+                decisionsByUser.remove(username, decisions);
+            }
+        });
+    }
+
+    // --- INTERNOS ---
+
+    private boolean decide(String username, String key, boolean auth, BooleanSupplier evaluator) {
+        Counter hits = auth ? authHits : aclHits;
+        Counter misses = auth ? authMisses : aclMisses;
+
+        UserDecisions decisions = decisionsByUser.get(username);
+        if (decisions != null) {
+            Decision cached = (auth ? decisions.auth : decisions.acl).get(key);
+            if (cached != null && !isExpired(cached, System.nanoTime())) {
+                hits.increment();
+                return cached.allowed();
+            }
+        }
+
+        misses.increment();
+        long observedGeneration = generation.get();
+        boolean allowed = evaluator.getAsBoolean();
+        store(username, key, auth, allowed, observedGeneration);
+        return allowed;
+    }
+
+    private void store(String username, String key, boolean auth, boolean allowed, long observedGeneration) {
+        UserDecisions decisions = decisionsByUser.get(username);
+        if (decisions == null) {
+            // Tope de usernames: con la caché llena se sigue respondiendo, solo que sin guardar
+            if (decisionsByUser.size() >= maxUsers) {
+                return;
+            }
+            decisions = decisionsByUser.computeIfAbsent(username, u -> new UserDecisions());
+        }
+        Map<String, Decision> target = auth ? decisions.auth : decisions.acl;
+        if (target.size() >= maxEntriesPerUser) {
+            // Ej. alguien probando passwords distintos para el mismo username
+            target.clear();
+        }
+        long ttl = allowed ? positiveTtlNanos : negativeTtlNanos;
+        target.put(key, new Decision(allowed, System.nanoTime() + ttl));
+
+        // Si hubo una invalidación mientras se calculaba, la decisión puede ser vieja
+        if (generation.get() != observedGeneration) {
+            target.remove(key);
+        }
+    }
+
+    private static boolean isExpired(Decision decision, long now) {
+        return now - decision.expiresAtNanos() >= 0;
+    }
+
+    private static String passwordKey(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible.", e);
+        }
+    }
+
+    private static double ratio(Counter hits, Counter misses) {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+}
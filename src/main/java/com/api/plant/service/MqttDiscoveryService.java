@@ -1,6 +1,7 @@
 package com.api.plant.service;
 
 import com.api.plant.config.MqttConfig;
+import com.api.plant.config.WorkerThreads;
 import com.api.plant.entity.MqttBroker;
 import com.api.plant.repository.MqttBrokerRepository;
 import org.eclipse.paho.client.mqttv3.MqttCallback;
@@ -18,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,6 +33,7 @@ public class MqttDiscoveryService {
     private final MqttConfig mqttConfig;
     private final MqttTopicService mqttTopicService;
     private final ApplicationContext applicationContext; // Para obtener el bean de Ingesta
+    private final WorkerThreads workerThreads;
 
     private final Map<String, MqttClient> activeClients = new ConcurrentHashMap<>();
 
@@ -39,12 +42,14 @@ public class MqttDiscoveryService {
                                 MqttConnectOptions mqttConnectOptions,
                                 MqttConfig mqttConfig,
                                 MqttTopicService mqttTopicService,
-                                ApplicationContext applicationContext) {
+                                ApplicationContext applicationContext,
+                                WorkerThreads workerThreads) {
         this.brokerRepository = brokerRepository;
         this.mqttConnectOptions = mqttConnectOptions;
         this.mqttConfig = mqttConfig;
         this.mqttTopicService = mqttTopicService;
         this.applicationContext = applicationContext;
+        this.workerThreads = workerThreads;
     }
     /**
      * Tarea programada: Consulta Mongo periódicamente (cada 30 segundos)
@@ -72,42 +77,53 @@ public class MqttDiscoveryService {
             return false;
         });
 
-        // 4. Conectar o Reconectar clientes necesarios
-        for (MqttBroker broker : activeBrokers) {
-            String brokerUrl = getBrokerUrl(broker);
-            // ... (Lógica de if client == null) ...
+        // 4. Conectar o Reconectar clientes necesarios (en paralelo: un broker lento no retrasa a los demás)
+        try (ExecutorService connectExecutor = workerThreads.newPerTaskExecutor("mqtt-connect-")) {
+            for (MqttBroker broker : activeBrokers) {
+                String brokerUrl = getBrokerUrl(broker);
+                MqttClient existing = activeClients.get(brokerUrl);
+                if (existing != null && existing.isConnected()) {
+                    continue; // Ya conectado: reconectar con el mismo client id expulsaría la sesión actual
+                }
+                connectExecutor.execute(() -> connect(brokerUrl, existing));
+            }
+        } // close() espera a que terminen todas las conexiones
 
-            try {
-                MqttClient newClient = mqttConfig.createNewMqttClient(brokerUrl);
+        // Manejo del caso en que todos los brokers se desactivan
+        if (activeBrokers.isEmpty() && !activeClients.isEmpty()) {
+            log.warn("⚠️ No se encontró ningún Broker activo. Cerrando todas las conexiones MQTT.");
+            activeClients.values().forEach(client -> disconnectAndCloseClient(client, "No hay brokers activos en DB."));
+            activeClients.clear();
+        }
+    }
 
-                // --- (Lógica de CustomMqttCallback) ---
-                MqttIngestionService ingestionService = applicationContext.getBean(MqttIngestionService.class);
-                MqttCallback customCallback = new CustomMqttCallback(brokerUrl, ingestionService);
-                newClient.setCallback(customCallback);
-                // ------------------------------------
+    /**
+     * Conecta (o reemplaza) el cliente de un broker y se suscribe a los tópicos de datos y control.
+     */
+    private void connect(String brokerUrl, MqttClient stale) {
+        try {
+            disconnectAndCloseClient(stale, "Cliente desconectado, se reemplaza.");
+            MqttClient newClient = mqttConfig.createNewMqttClient(brokerUrl);
 
-                newClient.connect(mqttConnectOptions);
+            // --- (Lógica de CustomMqttCallback) ---
+            MqttIngestionService ingestionService = applicationContext.getBean(MqttIngestionService.class);
+            MqttCallback customCallback = new CustomMqttCallback(brokerUrl, ingestionService);
+            newClient.setCallback(customCallback);
+            // ------------------------------------
 
-                // --- ¡LA CORRECCIÓN ESTÁ AQUÍ! ---
-                // 1. Suscripción a datos de plantas (la que ya tenías)
-                newClient.subscribe(mqttTopicService.getWildcardSubscriptionTopic(), 1);
+            newClient.connect(mqttConnectOptions);
 
-                // 2. Suscripción a tópicos de control (LA QUE FALTABA)
-                newClient.subscribe(mqttTopicService.getWildcardControlTopic(), 1);
-                // ------------------------------------
+            // 1. Suscripción a datos de plantas
+            newClient.subscribe(mqttTopicService.getWildcardSubscriptionTopic(), 1);
 
-                activeClients.put(brokerUrl, newClient);
-                log.info("✅ Conexión MQTT exitosa a: {}. Suscrito a planta/# y control/#", brokerUrl);
+            // 2. Suscripción a tópicos de control
+            newClient.subscribe(mqttTopicService.getWildcardControlTopic(), 1);
 
-            } catch (MqttException e) {
-                // ... (error handling) ...
-            }
-        }
-        // Manejo del caso en que todos los brokers se desactivan
-        if (activeBrokers.isEmpty() && !activeClients.isEmpty()) {
-            log.warn("⚠️ No se encontró ningún Broker activo. Cerrando todas las conexiones MQTT.");
-            activeClients.values().forEach(client -> disconnectAndCloseClient(client, "No hay brokers activos en DB."));
-            activeClients.clear();
+            activeClients.put(brokerUrl, newClient);
+            log.info("✅ Conexión MQTT exitosa a: {}. Suscrito a planta/# y control/#", brokerUrl);
+
+        } catch (MqttException e) {
+            log.error("❌ No se pudo conectar al broker {}: {}", brokerUrl, e.getMessage());
         }
     }
 
@@ -3,15 +3,17 @@ package com.api.plant.service;
 import com.api.plant.entity.PlantDevice;
 import com.api.plant.entity.Reading;
 import com.api.plant.repository.PlantDeviceRepository;
-import com.api.plant.repository.ReadingRepository;
 import org.eclipse.paho.client.mqttv3.MqttMessage; // Importante
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class MqttIngestionService { // ¡YA NO IMPLEMENTA MqttCallback!
@@ -20,26 +22,44 @@ public class MqttIngestionService { // ¡YA NO IMPLEMENTA MqttCallback!
 
     // Repositorios y Servicios Centrales
     private final PlantDeviceRepository deviceRepository;
-    private final ReadingRepository readingRepository;
+    private final ReadingStorageService readingStorageService;
     private final QCLayerService qcLayerService;
     private final AdvisorService advisorService;
     private final DeviceProvisioningService provisioningService;
     private final MqttTopicService mqttTopicService;
+    private final PlantReadingStreamPublisher readingStreamPublisher;
+    private final UserEventStreamService userEventStreamService;
+    private final ReadingRollupService readingRollupService;
+    private final DashboardReadModel dashboardReadModel;
+    private final HotReadingHistorySource hotReadingSource;
     // El ObjectMapper es inyectado en QCLayerService, no es necesario aquí.
 
+    // Último estado conocido de cada dispositivo: solo se usa si Mongo no responde (las lecturas van al spool)
+    private final Map<String, PlantDevice> lastKnownDevices = new ConcurrentHashMap<>();
+
     // Constructor con Inyección de Dependencias
     public MqttIngestionService(PlantDeviceRepository deviceRepository,
-                                ReadingRepository readingRepository,
+                                ReadingStorageService readingStorageService,
                                 QCLayerService qcLayerService,
                                 AdvisorService advisorService,
                                 DeviceProvisioningService provisioningService,
-                                MqttTopicService mqttTopicService) {
+                                MqttTopicService mqttTopicService,
+                                PlantReadingStreamPublisher readingStreamPublisher,
+                                UserEventStreamService userEventStreamService,
+                                ReadingRollupService readingRollupService,
+                                DashboardReadModel dashboardReadModel,
+                                HotReadingHistorySource hotReadingSource) {
         this.deviceRepository = deviceRepository;
-        this.readingRepository = readingRepository;
+        this.readingStorageService = readingStorageService;
         this.qcLayerService = qcLayerService;
         this.advisorService = advisorService;
         this.provisioningService = provisioningService;
         this.mqttTopicService = mqttTopicService;
+        this.readingStreamPublisher = readingStreamPublisher;
+        this.userEventStreamService = userEventStreamService;
+        this.readingRollupService = readingRollupService;
+        this.dashboardReadModel = dashboardReadModel;
+        this.hotReadingSource = hotReadingSource;
     }
 
     /**
@@ -95,7 +115,7 @@ public class MqttIngestionService { // ¡YA NO IMPLEMENTA MqttCallback!
         String plantId = parts[1]; // PlantId es el MQTT Username
 
         // 2.1. Buscar el Dispositivo
-        Optional<PlantDevice> deviceOpt = deviceRepository.findByPlantId(plantId);
+        Optional<PlantDevice> deviceOpt = findDevice(plantId);
         if (deviceOpt.isEmpty() || !deviceOpt.get().getIsActive()) {
             log.warn("❌ Dato de lectura ignorado. PlantId desconocido o inactivo: {}", plantId);
             return;
@@ -116,15 +136,50 @@ public class MqttIngestionService { // ¡YA NO IMPLEMENTA MqttCallback!
             device.setLastDataReceived(Instant.now());
 
             // 2.4. Persistencia: Guardar la lectura y actualizar el estado de Heartbeat del dispositivo
-            readingRepository.save(finalReading);
-            deviceRepository.save(device); // <-- Persiste el lastDataReceived
+            // (si Mongo no responde, ambos quedan en el spool local y se reenvían después)
+            readingStorageService.persist(finalReading, device);
+            hotReadingSource.append(finalReading);
+
+            // 2.5. Rollups minuto/hora/día (en memoria hasta que se cierra el intervalo)
+            readingRollupService.accumulate(finalReading);
+
+            // 2.6. Stream en vivo (no hace nada si nadie está suscrito a la planta)
+            readingStreamPublisher.publish(finalReading);
+            userEventStreamService.publishReading(finalReading);
+
+            // 2.7. Estado actual para el dashboard (en memoria)
+            dashboardReadModel.onReading(finalReading, device);
 
             log.info("✅ Lectura de {} válida. Resultado: {}", plantId, finalReading.getAdvisorResult());
 
         } else {
             // Si falla el QC, se guarda para auditoría pero se marca con el error
-            readingRepository.save(qcReading);
+            readingStorageService.persist(qcReading, null);
+            hotReadingSource.append(qcReading);
+            dashboardReadModel.onReading(qcReading, device);
+            if (qcReading.getQcStatus() != Reading.QcStatus.QC_ERROR) {
+                readingStreamPublisher.publish(qcReading);
+                userEventStreamService.publishReading(qcReading);
+            }
             log.warn("⚠️ Lectura de {} descartada por QC. Status: {}", plantId, qcReading.getQcStatus());
         }
     }
+
+    /**
+     * Busca el dispositivo; si Mongo no responde, usa el último estado conocido para no perder la lectura.
+     */
+    private Optional<PlantDevice> findDevice(String plantId) {
+        try {
+            Optional<PlantDevice> device = deviceRepository.findByPlantId(plantId);
+            device.ifPresentOrElse(d -> lastKnownDevices.put(plantId, d), () -> lastKnownDevices.remove(plantId));
+            return device;
+        } catch (DataAccessException e) {
+            PlantDevice cached = lastKnownDevices.get(plantId);
+            if (cached == null) {
+                throw e;
+            }
+            log.warn("INGESTION: Mongo no responde al buscar {}. Se usa el último estado conocido.", plantId);
+            return Optional.of(cached);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.api.plant.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Límite de peticiones del webhook de Mosquitto (/api/mqtt/auth, /api/mqtt/acl y /api/auth/mqtt-validate).
+ *
+ * - Cada clave tiene un token bucket (ráfaga 'burst', recarga 'refill-per-second') implementado como GCRA:
+ *   el estado es un solo long (instante teórico de la próxima llegada) que se actualiza con un CAS, sin locks.
+ * - Cada petición consume del bucket de su client id. El bucket del username solo se consume cuando las
+ *   credenciales fallan ({@link #recordAuthFailure}): un username con el bucket vacío queda bloqueado para
+ *   cualquier client id (fuerza bruta repartida), pero los reintentos de un dispositivo legítimo no lo gastan.
+ * - Un bucket vacío responde al instante (el controlador devuelve 429 con Retry-After), así una tormenta
+ *   de reconexiones o un ataque de fuerza bruta no llega a Mongo.
+ * - Los buckets llenos (sin actividad reciente) se borran periódicamente. Si se alcanza 'max-keys', las claves
+ *   nuevas pasan sin bucket (se cuentan en mqtt.ratelimit.overflow) en lugar de crecer sin límite o de
+ *   compartir uno solo: un bucket común haría que un ataque dejara afuera a los dispositivos legítimos.
+ * - 'exempt-users' (por defecto el backend) no se limita. 'shared-users' (por defecto provision_user, que
+ *   comparte toda la flota sin vincular) se limita solo por client id: nunca se bloquea el username.
+ */
+@Service
+public class MqttRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(MqttRateLimiter.class);
+
+    public enum Endpoint { AUTH, ACL }
+
+    private final boolean enabled;
+    private final Set<String> exemptUsers;
+    private final Set<String> sharedUsers;
+    private final Limiter authLimiter;
+    private final Limiter aclLimiter;
+
+    public MqttRateLimiter(MeterRegistry meterRegistry,
+                           @Value("${mqtt.ratelimit.enabled:true}") boolean enabled,
+                           @Value("${mqtt.ratelimit.exempt-users:${mqtt.backend.username}}") Set<String> exemptUsers,
+                           @Value("${mqtt.ratelimit.shared-users:provision_user}") Set<String> sharedUsers,
+                           @Value("${mqtt.ratelimit.max-keys:50000}") int maxKeys,
+                           @Value("${mqtt.ratelimit.auth.burst:5}") int authBurst,
+                           @Value("${mqtt.ratelimit.auth.refill-per-second:0.2}") double authRefill,
+                           @Value("${mqtt.ratelimit.acl.burst:50}") int aclBurst,
+                           @Value("${mqtt.ratelimit.acl.refill-per-second:10}") double aclRefill) {
+        this.enabled = enabled;
+        this.exemptUsers = Set.copyOf(exemptUsers);
+        this.sharedUsers = Set.copyOf(sharedUsers);
+        this.authLimiter = new Limiter("auth", authBurst, authRefill, maxKeys, meterRegistry);
+        this.aclLimiter = new Limiter("acl", aclBurst, aclRefill, maxKeys, meterRegistry);
+        log.info("MQTT RATE LIMIT: auth ráfaga {} / {} por s, acl ráfaga {} / {} por s (habilitado: {}).",
+                authBurst, authRefill, aclBurst, aclRefill, enabled);
+    }
+
+    /**
+     * En AUTH rechaza si el username está bloqueado por credenciales fallidas (sin consumir su bucket);
+     * después consume un token del client id.
+     * @return 0 si se permite; si no, los milisegundos sugeridos para reintentar (Retry-After).
+     */
+    public long tryAcquire(Endpoint endpoint, String username, String clientId) {
+        if (!enabled || (username != null && exemptUsers.contains(username))) {
+            return 0;
+        }
+        long waitNanos = 0;
+        if (endpoint == Endpoint.AUTH && !isShared(username)) {
+            waitNanos = authLimiter.peek(authLimiter.byUsername, username, authLimiter.rejectedByUsername);
+        }
+        if (waitNanos == 0) {
+            Limiter limiter = endpoint == Endpoint.AUTH ? authLimiter : aclLimiter;
+            waitNanos = limiter.acquire(limiter.byClientId, clientId, limiter.rejectedByClientId);
+        }
+        return toMillis(waitNanos);
+    }
+
+    /**
+     * Consume un token del username tras una verificación de credenciales fallida.
+     */
+    public void recordAuthFailure(String username) {
+        if (!enabled || username == null || exemptUsers.contains(username) || isShared(username)) {
+            return;
+        }
+        authLimiter.acquire(authLimiter.byUsername, username, authLimiter.rejectedByUsername);
+    }
+
+    private boolean isShared(String username) {
+        return username != null && sharedUsers.contains(username);
+    }
+
+    private static long toMillis(long waitNanos) {
+        return waitNanos == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    /**
+     * Borra los buckets que ya se recargaron por completo (equivalen a uno nuevo).
+     */
+    @Scheduled(fixedDelayString = "${mqtt.ratelimit.purge-interval-ms:60000}")
+    public void purgeIdle() {
+        long now = System.nanoTime();
+        authLimiter.purge(now);
+        aclLimiter.purge(now);
+    }
+
+    // --- BUCKETS (GCRA) ---
+
+    private static final class Limiter {
+        final long emissionIntervalNanos;   // Tiempo para recargar un token
+        final long burstToleranceNanos;     // Cuánto puede adelantarse el bucket (ráfaga - 1 tokens)
+        final int maxKeys;
+
+        final Map<String, AtomicLong> byUsername = new ConcurrentHashMap<>();
+        final Map<String, AtomicLong> byClientId = new ConcurrentHashMap<>();
+
+        final Counter rejectedByUsername;
+        final Counter rejectedByClientId;
+        final Counter overflowCounter;
+
+        Limiter(String name, int burst, double refillPerSecond, int maxKeys, MeterRegistry meterRegistry) {
+            if (burst < 1 || refillPerSecond <= 0) {
+                throw new IllegalStateException("mqtt.ratelimit." + name + ": burst >= 1 y refill-per-second > 0.");
+            }
+            this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+            this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+            this.maxKeys = maxKeys;
+
+            this.rejectedByUsername = meterRegistry.counter("mqtt.ratelimit.rejected", "endpoint", name, "key", "username");
+            this.rejectedByClientId = meterRegistry.counter("mqtt.ratelimit.rejected", "endpoint", name, "key", "clientid");
+            this.overflowCounter = meterRegistry.counter("mqtt.ratelimit.overflow", "endpoint", name);
+            meterRegistry.gaugeMapSize("mqtt.ratelimit.buckets", List.of(Tag.of("endpoint", name), Tag.of("key", "username")), byUsername);
+            meterRegistry.gaugeMapSize("mqtt.ratelimit.buckets", List.of(Tag.of("endpoint", name), Tag.of("key", "clientid")), byClientId);
+        }
+
+        /**
+         * @return 0 si hay tokens; si no, nanosegundos hasta que alcancen.
+         */
+        long acquire(Map<String, AtomicLong> buckets, String key, Counter rejected) {
+            if (key == null || key.isEmpty()) {
+                return 0;
+            }
+            AtomicLong bucket = buckets.get(key);
+            if (bucket == null) {
+                if (buckets.size() >= maxKeys) {
+                    // Tabla llena: la clave nueva pasa sin bucket hasta la próxima purga
+                    overflowCounter.increment();
+                    return 0;
+                }
+                // Un bucket nuevo está lleno: su instante teórico es "ahora"
+                bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(System.nanoTime()));
+            }
+
+            while (true) {
+                long now = System.nanoTime();
+                long tat = bucket.get();
+                long base = tat - now > 0 ? tat : now;
+                long next = base + emissionIntervalNanos;
+                long ahead = next - now - emissionIntervalNanos;
+                if (ahead > burstToleranceNanos) {
+                    rejected.increment();
+                    return ahead - burstToleranceNanos;
+                }
+                if (bucket.compareAndSet(tat, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Como {@link #acquire} pero sin consumir: 0 si al menos queda un token (o la clave no tiene bucket).
+         */
+        long peek(Map<String, AtomicLong> buckets, String key, Counter rejected) {
+            AtomicLong bucket = key != null ? buckets.get(key) : null;
+            if (bucket == null) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            long ahead = bucket.get() - now;
+            if (ahead > burstToleranceNanos) {
+                rejected.increment();
+                return ahead - burstToleranceNanos;
+            }
+            return 0;
+        }
+
+        void purge(long now) {
+            byUsername.values().removeIf(bucket -> bucket.get() - now <= 0);
+            byClientId.values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+    }
+}
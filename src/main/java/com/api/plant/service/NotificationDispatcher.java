@@ -0,0 +1,238 @@
+package com.api.plant.service;
+
+import com.api.plant.config.WorkerThreads;
+import com.api.plant.dto.NotificationBatch;
+import com.api.plant.dto.NotificationMessage;
+import com.api.plant.entity.Reading.AdvisorResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Despachador asíncrono de alertas WebSocket.
+ *
+ * La ingesta solo encola (cola acotada, sin bloquear). Un hilo dedicado agrupa las alertas
+ * de cada usuario dentro de una ventana de tiempo y las envía como UN solo frame:
+ * - 1 alerta en la ventana  -> NotificationMessage (contrato original).
+ * - N alertas en la ventana -> NotificationBatch (type = "BATCH").
+ * Si la cola está llena la alerta se descarta y se contabiliza (nunca se frena la ingesta).
+ */
+@Service
+public class NotificationDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private final WorkerThreads workerThreads;
+
+    private static final String ALERTS_DESTINATION = "/queue/alerts";
+
+    /**
+     * Alerta pendiente: solo los datos mínimos, el mensaje se arma al despachar.
+     */
+    public record PendingAlert(
+            String userId,
+            String plantId,
+            Instant timestamp,
+            AdvisorResult advisorResult,
+            Double tempC,
+            Integer ambientHumidity,
+            Integer soilHumidity,
+            Integer lightLux
+    ) {}
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final BlockingQueue<PendingAlert> queue;
+    private final long coalesceWindowMs;
+    private final int maxBatchSize;
+
+    // Ventanas abiertas por usuario (solo las toca el hilo del dispatcher).
+    // LinkedHashMap en orden de inserción = orden de vencimiento, porque la ventana dura lo mismo para todos.
+    private final Map<String, UserWindow> openWindows = new LinkedHashMap<>();
+
+    // --- Métricas de entrega ---
+    private final Counter enqueuedCounter;
+    private final Counter droppedCounter;
+    private final Counter skippedNoSessionCounter;
+    private final Counter framesSentCounter;
+    private final Counter alertsDeliveredCounter;
+    private final Counter sendErrorsCounter;
+    private final Timer deliveryDelayTimer;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public NotificationDispatcher(SimpMessagingTemplate messagingTemplate,
+                                  MeterRegistry meterRegistry,
+                                  WorkerThreads workerThreads,
+                                  @Value("${notifications.dispatcher.queue-capacity:10000}") int queueCapacity,
+                                  @Value("${notifications.dispatcher.coalesce-window-ms:2000}") long coalesceWindowMs,
+                                  @Value("${notifications.dispatcher.max-batch-size:100}") int maxBatchSize) {
+        this.workerThreads = workerThreads;
+        this.messagingTemplate = messagingTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.coalesceWindowMs = coalesceWindowMs;
+        this.maxBatchSize = maxBatchSize;
+
+        this.enqueuedCounter = meterRegistry.counter("notifications.alerts.enqueued");
+        this.droppedCounter = meterRegistry.counter("notifications.alerts.dropped");
+        this.skippedNoSessionCounter = meterRegistry.counter("notifications.alerts.skipped", "reason", "no_session");
+        this.framesSentCounter = meterRegistry.counter("notifications.frames.sent");
+        this.alertsDeliveredCounter = meterRegistry.counter("notifications.alerts.delivered");
+        this.sendErrorsCounter = meterRegistry.counter("notifications.send.errors");
+        this.deliveryDelayTimer = Timer.builder("notifications.delivery.delay")
+                .description("Tiempo entre que se encola la primera alerta de la ventana y se envía el frame")
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("notifications.queue.size", List.of(), queue);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = workerThreads.start("notification-dispatcher", this::runLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Encola una alerta sin bloquear. Si la cola está llena, la alerta se descarta.
+     */
+    public void enqueue(PendingAlert alert) {
+        if (queue.offer(alert)) {
+            enqueuedCounter.increment();
+        } else {
+            droppedCounter.increment();
+            log.warn("NOTIFICACIONES: Cola llena. Alerta {} de la planta {} descartada.", alert.advisorResult(), alert.plantId());
+        }
+    }
+
+    public void recordSkippedNoSession() {
+        skippedNoSessionCounter.increment();
+    }
+
+    // --- HILO DEL DISPATCHER ---
+
+    private void runLoop() {
+        List<PendingAlert> drained = new ArrayList<>();
+        while (running) {
+            try {
+                long waitMs = millisUntilNextDeadline();
+                PendingAlert first = queue.poll(waitMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    addToWindow(first);
+                    queue.drainTo(drained);
+                    for (PendingAlert alert : drained) {
+                        addToWindow(alert);
+                    }
+                    drained.clear();
+                }
+                flushExpired(System.currentTimeMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("NOTIFICACIONES: Error no controlado en el dispatcher: {}", e.getMessage(), e);
+            }
+        }
+        // Al apagar: enviar lo que quede en las ventanas abiertas
+        flushExpired(Long.MAX_VALUE);
+    }
+
+    private long millisUntilNextDeadline() {
+        if (openWindows.isEmpty()) {
+            return coalesceWindowMs;
+        }
+        UserWindow oldest = openWindows.values().iterator().next();
+        return Math.max(1, oldest.deadline - System.currentTimeMillis());
+    }
+
+    private void addToWindow(PendingAlert alert) {
+        UserWindow window = openWindows.get(alert.userId());
+        if (window == null) {
+            window = new UserWindow(System.currentTimeMillis() + coalesceWindowMs);
+            openWindows.put(alert.userId(), window);
+        }
+        window.alerts.add(alert);
+
+        // Ventana llena: se envía ya, sin esperar al vencimiento
+        if (window.alerts.size() >= maxBatchSize) {
+            openWindows.remove(alert.userId());
+            send(alert.userId(), window);
+        }
+    }
+
+    private void flushExpired(long now) {
+        Iterator<Map.Entry<String, UserWindow>> it = openWindows.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, UserWindow> entry = it.next();
+            if (entry.getValue().deadline > now) {
+                break; // Las siguientes vencen después (orden de inserción)
+            }
+            it.remove();
+            send(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void send(String userId, UserWindow window) {
+        try {
+            List<NotificationMessage> messages = new ArrayList<>(window.alerts.size());
+            for (PendingAlert alert : window.alerts) {
+                NotificationMessage message = NotificationService.buildMessage(alert);
+                if (message != null) {
+                    messages.add(message);
+                }
+            }
+            if (messages.isEmpty()) {
+                return;
+            }
+
+            // La ruta es: /user/{userId}/queue/alerts
+            Object payload = messages.size() == 1 ? messages.get(0) : new NotificationBatch(messages);
+            messagingTemplate.convertAndSendToUser(userId, ALERTS_DESTINATION, payload);
+
+            framesSentCounter.increment();
+            alertsDeliveredCounter.increment(messages.size());
+            deliveryDelayTimer.record(System.currentTimeMillis() - window.openedAt, TimeUnit.MILLISECONDS);
+            log.debug("NOTIFICACIONES: {} alerta(s) enviadas al usuario {} en un frame.", messages.size(), userId);
+
+        } catch (Exception e) {
+            sendErrorsCounter.increment();
+            log.error("NOTIFICACIONES: Fallo al enviar alertas al usuario {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Ventana de agrupación de un usuario.
+     */
+    private static final class UserWindow {
+        private final long openedAt = System.currentTimeMillis();
+        private final long deadline;
+        private final List<PendingAlert> alerts = new ArrayList<>();
+
+        private UserWindow(long deadline) {
+            this.deadline = deadline;
+        }
+    }
+}
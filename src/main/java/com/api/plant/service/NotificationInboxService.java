@@ -0,0 +1,427 @@
+package com.api.plant.service;
+
+import com.api.plant.config.WorkerThreads;
+import com.api.plant.dto.InboxPage;
+import com.api.plant.dto.NotificationMessage;
+import com.api.plant.entity.NotificationCounter;
+import com.api.plant.entity.UserNotification;
+import com.api.plant.service.NotificationDispatcher.PendingAlert;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bandeja de notificaciones persistida por usuario.
+ *
+ * - Escrituras agrupadas: las alertas se encolan y un hilo dedicado las inserta en lote
+ *   (un insertMany + un bulk de $inc a los contadores) cada 'notifications.inbox.flush-interval-ms'
+ *   o al juntar 'notifications.inbox.batch-size'.
+ * - Un lote que falla se reintenta (con backoff) antes de tomar el siguiente; mientras tanto las alertas
+ *   nuevas esperan en la cola. Las notificaciones llevan _id desde que se arma el lote, así un reintento
+ *   no duplica las que ya se insertaron, y los contadores se incrementan solo cuando todas están escritas.
+ * - Lecturas paginadas por cursor (createdAt, _id): sin skip, usando el índice (userId, createdAt, _id).
+ * - El conteo de no leídas se lee del documento contador, nunca con count().
+ */
+@Service
+public class NotificationInboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificationInboxService.class);
+
+    private final WorkerThreads workerThreads;
+
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int DUPLICATE_KEY = 11000;
+    private static final long MAX_RETRY_BACKOFF_MS = 30_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final BlockingQueue<PendingAlert> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+
+    // --- Métricas ---
+    private final Counter persistedCounter;
+    private final Counter droppedCounter;
+    private final Counter flushErrorsCounter;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public NotificationInboxService(MongoTemplate mongoTemplate,
+                                    MeterRegistry meterRegistry,
+                                    WorkerThreads workerThreads,
+                                    @Value("${notifications.inbox.queue-capacity:20000}") int queueCapacity,
+                                    @Value("${notifications.inbox.batch-size:500}") int batchSize,
+                                    @Value("${notifications.inbox.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.workerThreads = workerThreads;
+        this.mongoTemplate = mongoTemplate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+
+        this.persistedCounter = meterRegistry.counter("notifications.inbox.persisted");
+        this.droppedCounter = meterRegistry.counter("notifications.inbox.dropped");
+        this.flushErrorsCounter = meterRegistry.counter("notifications.inbox.flush.errors");
+        this.flushTimer = Timer.builder("notifications.inbox.flush.duration")
+                .description("Duración de una escritura en lote de la bandeja")
+                .register(meterRegistry);
+        meterRegistry.gaugeCollectionSize("notifications.inbox.queue.size", List.of(), queue);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = workerThreads.start("notification-inbox-writer", this::runLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Encola una alerta para persistirla en la bandeja del usuario (sin bloquear).
+     */
+    public void append(PendingAlert alert) {
+        if (alert.userId() == null) {
+            return;
+        }
+        if (!queue.offer(alert)) {
+            droppedCounter.increment();
+            log.warn("INBOX: Cola llena. Alerta {} de la planta {} no persistida.", alert.advisorResult(), alert.plantId());
+        }
+    }
+
+    // --- LECTURAS ---
+
+    /**
+     * Devuelve una página de la bandeja (más recientes primero).
+     * @param cursor Cursor opaco devuelto en la página anterior (null para la primera).
+     * @throws IllegalArgumentException si el cursor no es válido.
+     */
+    public InboxPage list(String userId, String cursor, int limit, boolean unreadOnly) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        Criteria criteria = Criteria.where("userId").is(userId);
+        if (unreadOnly) {
+            criteria = criteria.and("read").is(false);
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            Cursor position = decodeCursor(cursor);
+            criteria = criteria.orOperator(
+                    Criteria.where("createdAt").lt(position.createdAt()),
+                    Criteria.where("createdAt").is(position.createdAt()).and("_id").lt(position.id())
+            );
+        }
+
+        // Se pide un elemento de más para saber si hay otra página
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(pageSize + 1);
+        List<UserNotification> items = mongoTemplate.find(query, UserNotification.class);
+
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = new ArrayList<>(items.subList(0, pageSize));
+            nextCursor = encodeCursor(items.get(pageSize - 1));
+        }
+        return new InboxPage(items, nextCursor);
+    }
+
+    /**
+     * Página de notificaciones posteriores a (afterCreatedAt, afterId) y anteriores a 'to', en orden cronológico.
+     * Usado para reanudar streams SSE: se pide la siguiente página desde la última notificación devuelta.
+     * @param afterId _id de la última notificación ya entregada (null = todo lo posterior a afterCreatedAt).
+     */
+    public List<UserNotification> findAfter(String userId, Instant afterCreatedAt, String afterId, Instant to, int limit) {
+        Criteria criteria = Criteria.where("userId").is(userId).and("createdAt").lt(to);
+        if (afterId == null) {
+            criteria = criteria.andOperator(Criteria.where("createdAt").gt(afterCreatedAt));
+        } else {
+            criteria = criteria.orOperator(
+                    Criteria.where("createdAt").gt(afterCreatedAt),
+                    Criteria.where("createdAt").is(afterCreatedAt).and("_id").gt(afterId)
+            );
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "createdAt", "_id"))
+                .limit(limit);
+        return mongoTemplate.find(query, UserNotification.class);
+    }
+
+    /**
+     * Cantidad de no leídas, leída del contador incremental.
+     */
+    public long unreadCount(String userId) {
+        NotificationCounter counter = mongoTemplate.findById(userId, NotificationCounter.class);
+        return counter != null ? Math.max(0, counter.getUnread()) : 0;
+    }
+
+    /**
+     * Marca una notificación como leída.
+     * @return false si no existe, no es del usuario o ya estaba leída.
+     */
+    public boolean markRead(String userId, String notificationId) {
+        Query query = new Query(Criteria.where("_id").is(notificationId)
+                .and("userId").is(userId)
+                .and("read").is(false));
+        UpdateResult result = mongoTemplate.updateFirst(query,
+                new Update().set("read", true).set("readAt", Instant.now()),
+                UserNotification.class);
+
+        if (result.getModifiedCount() == 0) {
+            return false;
+        }
+        incrementUnread(userId, -1);
+        return true;
+    }
+
+    /**
+     * Marca todas las notificaciones del usuario como leídas.
+     * @return cuántas cambiaron de estado.
+     */
+    public long markAllRead(String userId) {
+        Query query = new Query(Criteria.where("userId").is(userId).and("read").is(false));
+        UpdateResult result = mongoTemplate.updateMulti(query,
+                new Update().set("read", true).set("readAt", Instant.now()),
+                UserNotification.class);
+
+        long modified = result.getModifiedCount();
+        if (modified > 0) {
+            incrementUnread(userId, -modified);
+        }
+        return modified;
+    }
+
+    // --- HILO DE ESCRITURA ---
+
+    private void runLoop() {
+        List<PendingAlert> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingAlert first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                // Espera a completar el lote o a que venza el intervalo
+                long deadline = System.currentTimeMillis() + flushIntervalMs;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingAlert next = queue.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(prepare(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("INBOX: Error no controlado en el escritor: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+        // Al apagar: persistir lo que quede en la cola (un solo intento)
+        queue.drainTo(batch);
+        if (!batch.isEmpty()) {
+            PreparedBatch prepared = prepare(batch);
+            if (!tryWrite(prepared)) {
+                log.error("INBOX: {} notificación(es) no persistidas al apagar.", prepared.size);
+            }
+        }
+    }
+
+    /**
+     * Escribe el lote, reintentando con backoff mientras el servicio esté activo.
+     */
+    private void write(PreparedBatch prepared) throws InterruptedException {
+        long backoffMs = Math.max(100, flushIntervalMs);
+        while (!tryWrite(prepared)) {
+            if (!running) {
+                log.error("INBOX: {} notificación(es) no persistidas al apagar.", prepared.size);
+                return;
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                // Apagando: un último intento antes de salir
+                if (!tryWrite(prepared)) {
+                    log.error("INBOX: {} notificación(es) no persistidas al apagar.", prepared.size);
+                }
+                throw e;
+            }
+            backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+        }
+    }
+
+    private PreparedBatch prepare(List<PendingAlert> batch) {
+        List<UserNotification> documents = new ArrayList<>(batch.size());
+        Map<String, Integer> unreadByUser = new HashMap<>();
+
+        for (PendingAlert alert : batch) {
+            NotificationMessage message = NotificationService.buildMessage(alert);
+            if (message == null) {
+                continue;
+            }
+            UserNotification notification = new UserNotification();
+            // _id asignado aquí (no en Mongo): el mismo en todos los reintentos del lote
+            notification.setId(new ObjectId().toHexString());
+            notification.setUserId(alert.userId());
+            notification.setPlantId(message.plantId());
+            notification.setType(message.type());
+            notification.setTitle(message.title());
+            notification.setAction(message.action());
+            notification.setReadingTimestamp(message.timestamp());
+            notification.setCreatedAt(Instant.now());
+            documents.add(notification);
+            unreadByUser.merge(alert.userId(), 1, Integer::sum);
+        }
+        return new PreparedBatch(documents, unreadByUser, documents.size());
+    }
+
+    /**
+     * Un intento de escritura: primero las notificaciones pendientes, luego los contadores pendientes.
+     * Lo ya escrito se quita del lote, así el siguiente intento solo repite lo que falta.
+     * @return true si el lote quedó completo.
+     */
+    private boolean tryWrite(PreparedBatch prepared) {
+        if (prepared.size == 0) {
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            // 1. Un solo insertMany (sin orden) para todo el lote
+            if (!prepared.documents.isEmpty()) {
+                insertPending(prepared.documents);
+            }
+
+            // 2. Un solo bulk de $inc (upsert) para los contadores de los usuarios afectados
+            if (!prepared.unreadByUser.isEmpty()) {
+                incrementPending(prepared.unreadByUser);
+            }
+
+            persistedCounter.increment(prepared.size);
+            log.debug("INBOX: {} notificación(es) persistidas.", prepared.size);
+            return true;
+        } catch (Exception e) {
+            flushErrorsCounter.increment();
+            log.error("INBOX: Fallo al persistir un lote de {} notificación(es), se reintenta: {}", prepared.size, e.getMessage());
+            return false;
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void insertPending(List<UserNotification> documents) {
+        BulkOperations inserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserNotification.class);
+        inserts.insert(documents);
+        try {
+            inserts.execute();
+            documents.clear();
+        } catch (BulkOperationException e) {
+            // Clave duplicada = ya insertada en un intento anterior; las demás se reintentan
+            List<UserNotification> failed = new ArrayList<>();
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    failed.add(documents.get(error.getIndex()));
+                }
+            }
+            documents.clear();
+            documents.addAll(failed);
+            if (!failed.isEmpty()) {
+                throw e;
+            }
+        }
+    }
+
+    private void incrementPending(Map<String, Integer> unreadByUser) {
+        List<String> userIds = new ArrayList<>(unreadByUser.keySet());
+        BulkOperations counters = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationCounter.class);
+        for (String userId : userIds) {
+            counters.upsert(new Query(Criteria.where("_id").is(userId)), new Update().inc("unread", unreadByUser.get(userId)));
+        }
+        try {
+            counters.execute();
+            unreadByUser.clear();
+        } catch (BulkOperationException e) {
+            // Solo se reintentan los usuarios cuyo $inc falló (los demás ya se aplicaron)
+            List<String> failed = new ArrayList<>();
+            for (BulkWriteError error : e.getErrors()) {
+                failed.add(userIds.get(error.getIndex()));
+            }
+            unreadByUser.keySet().retainAll(failed);
+            throw e;
+        }
+    }
+
+    private void incrementUnread(String userId, long delta) {
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(userId)),
+                new Update().inc("unread", delta),
+                NotificationCounter.class);
+    }
+
+    /**
+     * Lote listo para escribir. documents y unreadByUser guardan solo lo que falta escribir.
+     */
+    private record PreparedBatch(List<UserNotification> documents, Map<String, Integer> unreadByUser, int size) {}
+
+    // --- CURSOR ---
+
+    /**
+     * Posición en la bandeja: (createdAt, _id) de la última notificación devuelta.
+     */
+    private record Cursor(Instant createdAt, String id) {}
+
+    private static String encodeCursor(UserNotification last) {
+        String raw = last.getCreatedAt().toEpochMilli() + ":" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new Cursor(Instant.ofEpochMilli(Long.parseLong(raw.substring(0, separator))), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido.");
+        }
+    }
+}
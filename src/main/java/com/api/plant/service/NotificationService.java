@@ -1,14 +1,20 @@
 package com.api.plant.service;
 
+import com.api.plant.dto.DeviceHealthEvent;
 import com.api.plant.dto.NotificationMessage;
 import com.api.plant.entity.Reading;
 import com.api.plant.entity.Reading.AdvisorResult;
+import com.api.plant.service.NotificationDispatcher.PendingAlert;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
 import org.springframework.stereotype.Service;
 
 /**
  * Servicio encargado de enviar notificaciones en tiempo real vía WebSocket.
+ * El envío real es asíncrono (NotificationDispatcher): la ingesta solo encola la alerta.
  */
 @Service
 public class NotificationService {
@@ -16,22 +22,78 @@ public class NotificationService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private SimpUserRegistry simpUserRegistry;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private AlertDigestService alertDigestService;
+
+    @Autowired
+    private NotificationInboxService notificationInboxService;
+
+    @Autowired
+    private UserEventStreamService userEventStreamService;
+
     /**
-     * Envía una alerta al usuario propietario de la planta.
+     * Encola una alerta para el usuario propietario de la planta.
+     * No construye el mensaje: eso ocurre en el hilo del dispatcher.
      * @param reading La lectura que disparó la alerta.
      * @param userId El ID del usuario propietario.
      * @param advisorResult El resultado del Advisor (Enum) para el switch.
      */
     public void sendAlert(Reading reading, String userId, AdvisorResult advisorResult) {
 
+        // No enviar notificación para "INFO" o estados desconocidos.
+        if (advisorResult == null || advisorResult == AdvisorResult.INFO) {
+            return;
+        }
+
+        PendingAlert alert = new PendingAlert(
+                userId,
+                reading.getPlantId(),
+                reading.getTimestamp(),
+                advisorResult,
+                reading.getTempC(),
+                reading.getAmbientHumidity(),
+                reading.getSoilHumidity(),
+                reading.getLightLux()
+        );
+
+        // Bandeja persistida: se guarda siempre, el usuario la consulta al volver a conectarse
+        notificationInboxService.append(alert);
+
+        // Stream SSE (solo si el usuario tiene un stream abierto recientemente)
+        userEventStreamService.publishAlert(alert);
+
+        // Canal de correo: se acumula para el resumen periódico (aunque el usuario esté desconectado)
+        alertDigestService.record(alert);
+
+        // Si el usuario no tiene sesiones STOMP activas no hay a quién entregar: ni siquiera se arma el mensaje.
+        if (!hasActiveSession(userId)) {
+            notificationDispatcher.recordSkippedNoSession();
+            return;
+        }
+
+        notificationDispatcher.enqueue(alert);
+    }
+
+    /**
+     * Construye el mensaje (título y acción sugerida) de una alerta encolada.
+     * Se llama desde el hilo del dispatcher, fuera de la cadena de ingesta.
+     */
+    static NotificationMessage buildMessage(PendingAlert alert) {
+
         String title;
         String actionSuggestion;
 
         // Usamos el Enum para la seguridad de tipos
-        switch (advisorResult) {
+        switch (alert.advisorResult()) {
             case CRITICA:
                 // CRÍTICA siempre es por Humedad de SUELO BAJA
-                title = "🚨 CRÍTICA: ¡Riesgo de sequía! Humedad de suelo en " + reading.getSoilHumidity() + "%.";
+                title = "🚨 CRÍTICA: ¡Riesgo de sequía! Humedad de suelo en " + alert.soilHumidity() + "%.";
                 actionSuggestion = "Verifique la planta inmediatamente y active el riego. Revise si hay fallas en la bomba.";
                 break;
             case ALERTA:
@@ -40,38 +102,50 @@ public class NotificationService {
                 // Proporcionamos un resumen de las métricas clave para que el usuario diagnostique mejor.
                 actionSuggestion = String.format(
                         "Métricas Actuales: Temp: %.1f°C, Hum.Amb: %d%%, Hum.Suelo: %d%%. Revise el log para el detalle de la causa.",
-                        reading.getTempC(),
-                        reading.getAmbientHumidity(),
-                        reading.getSoilHumidity()
+                        alert.tempC(),
+                        alert.ambientHumidity(),
+                        alert.soilHumidity()
                 );
                 break;
             case RECOMENDACION:
                 // RECOMENDACION siempre es por Luz baja
-                title = "💡 RECOMENDACIÓN: Nivel de luz bajo (" + reading.getLightLux() + " lux).";
+                title = "💡 RECOMENDACIÓN: Nivel de luz bajo (" + alert.lightLux() + " lux).";
                 actionSuggestion = "Considere mover la planta a un lugar con mejor iluminación.";
                 break;
             case INFO:
             default:
-                return; // No enviar notificación para "INFO" o estados desconocidos.
+                return null;
         }
 
-        // 1. CREACIÓN DEL MENSAJE
-        NotificationMessage message = new NotificationMessage(
-                advisorResult.name(),
-                reading.getPlantId(),
-                reading.getTimestamp(),
+        return new NotificationMessage(
+                alert.advisorResult().name(),
+                alert.plantId(),
+                alert.timestamp(),
                 title,
                 actionSuggestion
         );
+    }
 
-        // 2. Enviar el Mensaje por WebSocket al Usuario Específico
-        // La ruta es: /user/{userId}/queue/alerts
-        messagingTemplate.convertAndSendToUser(
-                userId,                             // User ID (Destino)
-                "/queue/alerts",                    // Tópico privado del usuario
-                message                             // Payload del mensaje
-        );
+    /**
+     * Indica si el usuario tiene al menos una sesión STOMP conectada.
+     */
+    public boolean hasActiveSession(String userId) {
+        if (userId == null) {
+            return false;
+        }
+        SimpUser user = simpUserRegistry.getUser(userId);
+        return user != null && user.hasSessions();
+    }
 
-        System.out.println(">>> [NOTIFICACIÓN] Alerta " + advisorResult.name() + " enviada al usuario: " + userId);
+    /**
+     * Reenvía los cambios de salud del sensor (falla/recuperación) al dueño de la planta.
+     * La ruta es: /user/{userId}/queue/device-health
+     */
+    @EventListener
+    public void onDeviceHealthEvent(DeviceHealthEvent event) {
+        if (!hasActiveSession(event.userId())) {
+            return;
+        }
+        messagingTemplate.convertAndSendToUser(event.userId(), "/queue/device-health", event);
     }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package com.api.plant.service;
+
+import com.api.plant.config.WebSocketConfig;
+import com.api.plant.dto.PlantReadingUpdate;
+import com.api.plant.entity.Reading;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpSubscription;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publica las lecturas en vivo por planta en /topic/plants/{plantId}/readings.
+ *
+ * - Solo se publica si la planta tiene suscriptores (contador mantenido con los eventos STOMP).
+ *   Sin suscriptores, publish() no reserva ni serializa nada.
+ * - Conflación: por planta se guarda solo la ÚLTIMA lectura pendiente y se envía como máximo
+ *   una vez por intervalo (websocket.readings.min-interval-ms). Un cliente lento recibe el
+ *   estado más reciente en lugar de acumular un backlog.
+ * - En modo stomp-relay los suscriptores pueden estar en otro nodo: se consulta además el
+ *   SimpUserRegistry multi-nodo, refrescado periódicamente (no en cada lectura).
+ */
+@Service
+public class PlantReadingStreamPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(PlantReadingStreamPublisher.class);
+
+    public static final String DESTINATION_PREFIX = "/topic/plants/";
+    public static final String DESTINATION_SUFFIX = "/readings";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry simpUserRegistry;
+    private final boolean relayMode;
+
+    // plantId -> número de suscripciones activas (en este nodo)
+    private final Map<String, Integer> subscribersByPlant = new ConcurrentHashMap<>();
+    // sessionId -> (subscriptionId -> plantId), para limpiar al desuscribir o desconectar
+    private final Map<String, Map<String, String>> subscriptionsBySession = new ConcurrentHashMap<>();
+    // plantId -> última lectura pendiente de enviar (slot de conflación)
+    private final Map<String, Reading> pendingByPlant = new ConcurrentHashMap<>();
+    // Plantas con suscriptores en CUALQUIER nodo (solo en modo relay; snapshot inmutable)
+    private volatile Set<String> clusterSubscribedPlants = Set.of();
+
+    public PlantReadingStreamPublisher(SimpMessagingTemplate messagingTemplate,
+                                       SimpUserRegistry simpUserRegistry,
+                                       @Value("${websocket.broker.mode:simple}") String brokerMode) {
+        this.messagingTemplate = messagingTemplate;
+        this.simpUserRegistry = simpUserRegistry;
+        this.relayMode = WebSocketConfig.isRelayMode(brokerMode);
+    }
+
+    /**
+     * Llamado por la ingesta con cada lectura procesada.
+     */
+    public void publish(Reading reading) {
+        if (reading.getPlantId() == null || !hasSubscribers(reading.getPlantId())) {
+            return;
+        }
+        // Sobrescribe la pendiente anterior: solo importa el estado más reciente
+        pendingByPlant.put(reading.getPlantId(), reading);
+    }
+
+    public boolean hasSubscribers(String plantId) {
+        return subscribersByPlant.containsKey(plantId) || clusterSubscribedPlants.contains(plantId);
+    }
+
+    /**
+     * Modo relay: recalcula qué plantas tienen suscriptores en todo el clúster.
+     */
+    @Scheduled(fixedRateString = "${websocket.readings.cluster-refresh-ms:5000}")
+    public void refreshClusterSubscriptions() {
+        if (!relayMode) {
+            return;
+        }
+        Set<String> plants = new HashSet<>();
+        for (SimpSubscription subscription : simpUserRegistry.findSubscriptions(s -> extractPlantId(s.getDestination()) != null)) {
+            plants.add(extractPlantId(subscription.getDestination()));
+        }
+        clusterSubscribedPlants = Set.copyOf(plants);
+    }
+
+    /**
+     * Envía la última lectura de cada planta con cambios, a la tasa máxima configurada.
+     */
+    @Scheduled(fixedRateString = "${websocket.readings.min-interval-ms:1000}")
+    public void flushPending() {
+        Iterator<Map.Entry<String, Reading>> it = pendingByPlant.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Reading> entry = it.next();
+            it.remove();
+            try {
+                messagingTemplate.convertAndSend(destinationFor(entry.getKey()), PlantReadingUpdate.from(entry.getValue()));
+            } catch (Exception e) {
+                log.error("STREAM: Error al publicar la lectura de {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    public static String destinationFor(String plantId) {
+        return DESTINATION_PREFIX + plantId + DESTINATION_SUFFIX;
+    }
+
+    /**
+     * Extrae el plantId de "/topic/plants/{plantId}/readings" o null si no coincide.
+     */
+    public static String extractPlantId(String destination) {
+        if (destination == null || !destination.startsWith(DESTINATION_PREFIX) || !destination.endsWith(DESTINATION_SUFFIX)) {
+            return null;
+        }
+        String plantId = destination.substring(DESTINATION_PREFIX.length(), destination.length() - DESTINATION_SUFFIX.length());
+        return (plantId.isEmpty() || plantId.contains("/")) ? null : plantId;
+    }
+
+    // --- CONTEO DE SUSCRIPTORES (eventos STOMP) ---
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        String plantId = extractPlantId(accessor.getDestination());
+        if (plantId == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        subscriptionsBySession
+                .computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>())
+                .put(accessor.getSubscriptionId(), plantId);
+        subscribersByPlant.merge(plantId, 1, Integer::sum);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = subscriptionsBySession.get(accessor.getSessionId());
+        if (subscriptions == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        String plantId = subscriptions.remove(accessor.getSubscriptionId());
+        if (plantId != null) {
+            decrement(plantId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = subscriptionsBySession.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::decrement);
+        }
+    }
+
+    private void decrement(String plantId) {
+        // Devolver null elimina la entrada: sin suscriptores, hasSubscribers() es false
+        subscribersByPlant.computeIfPresent(plantId, (id, count) -> count > 1 ? count - 1 : null);
+        if (!subscribersByPlant.containsKey(plantId)) {
+            pendingByPlant.remove(plantId);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.api.plant.service;
 import com.api.plant.entity.PlantDevice;
 import com.api.plant.entity.Reading;
 import com.api.plant.entity.Reading.QcStatus;
-import com.api.plant.repository.ReadingRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -18,9 +17,12 @@ public class QCLayerService {
 
     private static final Logger log = LoggerFactory.getLogger(QCLayerService.class);
 
-    private final ReadingRepository readingRepository;
+    private final ReadingStorageService readingStorageService;
     private final ObjectMapper objectMapper;
     private final MqttTopicService mqttTopicService;
+    private final StatisticalOutlierDetector outlierDetector;
+    private final SensorHealthDetector sensorHealthDetector;
+    private final CalibrationService calibrationService;
     // Nota: MqttTopicService se mantiene en el constructor aunque no se use en QC,
     // para mantener la inyección de dependencias si se usa en otro lugar.
 
@@ -30,17 +32,22 @@ public class QCLayerService {
     // Constante Lógica: Tiempo máximo para considerar el dato anterior (ej. 10 minutos)
     private static final Long MAX_TIME_DIFF_MINUTES = 10L;
 
-    public QCLayerService(ReadingRepository readingRepository, ObjectMapper objectMapper, MqttTopicService mqttTopicService) {
-        this.readingRepository = readingRepository;
+    public QCLayerService(ReadingStorageService readingStorageService, ObjectMapper objectMapper, MqttTopicService mqttTopicService,
+                          StatisticalOutlierDetector outlierDetector, SensorHealthDetector sensorHealthDetector,
+                          CalibrationService calibrationService) {
+        this.readingStorageService = readingStorageService;
         this.objectMapper = objectMapper;
         this.mqttTopicService = mqttTopicService;
+        this.outlierDetector = outlierDetector;
+        this.sensorHealthDetector = sensorHealthDetector;
+        this.calibrationService = calibrationService;
     }
 
     /**
      * Aplica la técnica de Validación de Límites Físicos y Lógicos (Tasa de Cambio).
      * @param jsonPayload El payload JSON original recibido por MQTT.
      * @param device El dispositivo asociado (contiene plantId y userId).
-     * @return El objeto Reading con su QcStatus definido (VALID, OUT_OF_RANGE, RATE_ERROR, etc.).
+     * @return El objeto Reading con su QcStatus definido (VALID, OUT_OF_RANGE, RATE_ERROR, SENSOR_FAULT, STATISTICAL_OUTLIER, etc.).
      */
     public Reading applyQualityCheck(String jsonPayload, PlantDevice device) {
 
@@ -55,10 +62,17 @@ public class QCLayerService {
         } catch (JsonProcessingException e) {
             log.error("❌ QC: Fallo en la deserialización del payload JSON de {}.", device.getPlantId(), e);
             Reading errorReading = new Reading();
+            errorReading.setPlantId(device.getPlantId());
+            errorReading.setUserId(device.getOwnerId());
             errorReading.setQcStatus(QcStatus.QC_ERROR);
             return errorReading;
         }
 
+        // --- PASO 0: CALIBRACIÓN POR DISPOSITIVO ---
+        // Se corrige el valor crudo ANTES de validar, para que límites y umbrales
+        // se apliquen sobre el valor real y no sobre la deriva de cada sensor.
+        calibrationService.apply(currentReading, device);
+
         // --- VALIDACIÓN 1: LÍMITES FÍSICOS ABSOLUTOS ---
         // Se usan valores ABSOLUTOS (ej. la humedad no puede ser > 100 ni < 0)
         if (!validatePhysicalLimits(currentReading)) {
@@ -68,6 +82,20 @@ public class QCLayerService {
             return currentReading;
         }
 
+        // --- VALIDACIÓN 1.B: SALUD DEL SENSOR (flatline, saturación, combinaciones imposibles) ---
+        SensorHealthDetector.HealthCheck health = sensorHealthDetector.check(currentReading);
+        if (health.rejected()) {
+            currentReading.setQcStatus(QcStatus.SENSOR_FAULT);
+            log.warn("🩺 QC: Dato de {} descartado por falla de sensor (Temp: {}, HumAmb: {}, HumSuelo: {}).",
+                    device.getPlantId(), currentReading.getTempC(), currentReading.getAmbientHumidity(), currentReading.getSoilHumidity());
+            return currentReading;
+        }
+        if (!health.faultyMetrics().isEmpty()) {
+            // Solo se descartan las métricas del sensor en falla (quedan en null); el resto sigue el QC normal
+            log.warn("🩺 QC: Métricas {} de {} descartadas por falla de sensor.", health.faultyMetrics(), device.getPlantId());
+            health.faultyMetrics().forEach(metric -> clearMetric(currentReading, metric));
+        }
+
         // --- VALIDACIÓN 2: TASA DE CAMBIO LÓGICA (Solo si pasa la física) ---
         // Usa la última lectura VÁLIDA guardada en la base de datos
         if (!validateRateOfChange(currentReading)) {
@@ -77,11 +105,28 @@ public class QCLayerService {
             return currentReading;
         }
 
-        // Si pasa ambas validaciones
+        // --- VALIDACIÓN 3: OUTLIER ESTADÍSTICO (EWMA + mediana/MAD por planta) ---
+        if (outlierDetector.isOutlier(currentReading)) {
+            currentReading.setQcStatus(QcStatus.STATISTICAL_OUTLIER);
+            log.warn("📉 QC: Dato de {} descartado por outlier estadístico (Temp: {}, HumAmb: {}, HumSuelo: {}).",
+                    device.getPlantId(), currentReading.getTempC(), currentReading.getAmbientHumidity(), currentReading.getSoilHumidity());
+            return currentReading;
+        }
+
+        // Si pasa todas las validaciones
         currentReading.setQcStatus(QcStatus.VALID);
         return currentReading;
     }
 
+    private static void clearMetric(Reading reading, String metric) {
+        switch (metric) {
+            case "tempC" -> reading.setTempC(null);
+            case "ambientHumidity" -> reading.setAmbientHumidity(null);
+            case "soilHumidity" -> reading.setSoilHumidity(null);
+            default -> throw new IllegalArgumentException("Métrica desconocida: " + metric);
+        }
+    }
+
     /**
      * Regla 1: Descartar valores fuera de los límites físicos universales.
      */
@@ -106,12 +151,12 @@ public class QCLayerService {
      */
     private boolean validateRateOfChange(Reading currentReading) {
 
-        // Buscar la última lectura VÁLIDA para esta planta/dispositivo
-        Optional<Reading> lastValidReadingOpt = readingRepository.findTopByPlantIdAndQcStatusOrderByTimestampDesc(
-                currentReading.getPlantId(), QcStatus.VALID
-        );
+        // Buscar la última lectura VÁLIDA para esta planta/dispositivo (incluye las que siguen en el spool)
+        Optional<Reading> lastValidReadingOpt = readingStorageService.findLastValid(currentReading.getPlantId());
 
-        if (lastValidReadingOpt.isPresent()) {
+        // Sin humedad de suelo (sensor en falla, ahora o en la lectura anterior) no hay con qué comparar
+        if (lastValidReadingOpt.isPresent() && currentReading.getSoilHumidity() != null
+                && lastValidReadingOpt.get().getSoilHumidity() != null) {
             Reading lastReading = lastValidReadingOpt.get();
 
             // 1. Validar la diferencia de tiempo: No comparar si los datos son muy viejos.
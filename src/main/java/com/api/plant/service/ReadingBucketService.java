@@ -0,0 +1,293 @@
+package com.api.plant.service;
+
+import com.api.plant.entity.Reading;
+import com.api.plant.entity.ReadingBucket;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Escritura y lectura puntual del layout por buckets horarios (ver ReadingBucket).
+ * Las lecturas de rango del historial están en BucketReadingHistorySource.
+ */
+@Service
+public class ReadingBucketService {
+
+    // Nombre de cada código estable (índice = código, null = código sin uso), para las agregaciones
+    private static final List<String> QC_NAMES = namesByCode(Reading.QcStatus.values(), Reading.QcStatus::code);
+    private static final List<String> ADVISOR_NAMES = namesByCode(Reading.AdvisorResult.values(), Reading.AdvisorResult::code);
+
+    // Horas hacia atrás que se revisan buscando la última lectura VALID
+    private static final int LAST_VALID_LOOKBACK_BUCKETS = 48;
+
+    private final MongoTemplate mongoTemplate;
+
+    public ReadingBucketService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void append(Reading reading) {
+        appendAll(ReadingBucket.COLLECTION, List.of(reading));
+    }
+
+    public void appendAll(List<Reading> readings) {
+        appendAll(ReadingBucket.COLLECTION, readings);
+    }
+
+    /**
+     * Agrega las lecturas a sus buckets: un upsert con $push/$each por bucket afectado, en un solo bulk.
+     */
+    public void appendAll(String collection, List<Reading> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        Map<String, List<Reading>> byBucket = new LinkedHashMap<>();
+        for (Reading reading : readings) {
+            if (reading.getId() == null) {
+                reading.setId(new ObjectId().toHexString());
+            }
+            long hour = ReadingBucket.hourStart(reading.getTimestamp().toEpochMilli());
+            byBucket.computeIfAbsent(ReadingBucket.idFor(reading.getPlantId(), hour), key -> new ArrayList<>()).add(reading);
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, collection);
+        for (Map.Entry<String, List<Reading>> entry : byBucket.entrySet()) {
+            List<Reading> points = entry.getValue();
+            Reading first = points.get(0);
+            long hour = ReadingBucket.hourStart(first.getTimestamp().toEpochMilli());
+
+            Update update = new Update()
+                    .setOnInsert("plantId", first.getPlantId())
+                    .setOnInsert("userId", first.getUserId())
+                    .setOnInsert("hourStart", Instant.ofEpochMilli(hour))
+                    .inc("n", points.size());
+            update.push(ReadingBucket.OFFSETS).each(points.stream()
+                    .map(r -> (int) (r.getTimestamp().toEpochMilli() - hour)).toArray());
+            update.push(ReadingBucket.IDS).each(points.stream()
+                    .map(r -> ObjectId.isValid(r.getId()) ? new ObjectId(r.getId()) : r.getId()).toArray());
+            update.push(ReadingBucket.TEMP).each(points.stream().map(Reading::getTempC).toArray());
+            update.push(ReadingBucket.AMBIENT).each(points.stream().map(Reading::getAmbientHumidity).toArray());
+            update.push(ReadingBucket.SOIL).each(points.stream().map(Reading::getSoilHumidity).toArray());
+            update.push(ReadingBucket.LIGHT).each(points.stream().map(Reading::getLightLux).toArray());
+            update.push(ReadingBucket.QC).each(points.stream().map(r -> qcCode(r.getQcStatus())).toArray());
+            update.push(ReadingBucket.ADVISOR).each(points.stream().map(r -> advisorCode(r.getAdvisorResult())).toArray());
+
+            bulk.upsert(new Query(Criteria.where("_id").is(entry.getKey())), update);
+        }
+        bulk.execute();
+    }
+
+    /**
+     * Última lectura VALID de la planta (revisa los buckets más recientes).
+     */
+    public Optional<Reading> findLastValid(String plantId) {
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(ReadingBucket.COLLECTION)
+                .find(Filters.eq("plantId", plantId))
+                .sort(Sorts.descending("hourStart"))
+                .limit(LAST_VALID_LOOKBACK_BUCKETS)
+                .batchSize(2)
+                .iterator()) {
+            while (cursor.hasNext()) {
+                Document bucket = cursor.next();
+                List<Integer> offsets = bucket.getList(ReadingBucket.OFFSETS, Integer.class);
+                List<Integer> qc = bucket.getList(ReadingBucket.QC, Integer.class);
+                int best = -1;
+                for (int i = 0; i < offsets.size(); i++) {
+                    boolean valid = qc.get(i) != null && qc.get(i) == Reading.QcStatus.VALID.code();
+                    if (valid && (best < 0 || offsets.get(i) >= offsets.get(best))) {
+                        best = i;
+                    }
+                }
+                if (best >= 0) {
+                    return Optional.of(toReading(bucket, best));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Página de lecturas de un usuario posteriores a (afterTimestamp, afterId) y anteriores a 'to',
+     * en orden (timestamp, _id) (reanudación de streams SSE).
+     *
+     * Los buckets se recorren por hora y se deja de leer al completar la hora en la que se alcanzó el límite
+     * (los buckets de otras plantas de esa misma hora pueden traer lecturas anteriores).
+     * @param afterId _id de la última lectura ya entregada (null = todo lo posterior a afterTimestamp).
+     */
+    public List<Reading> findByUserAfter(String userId, Instant afterTimestamp, String afterId, Instant to, int limit) {
+        List<Reading> readings = new ArrayList<>();
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(ReadingBucket.COLLECTION)
+                .find(Filters.and(
+                        Filters.eq("userId", userId),
+                        Filters.gte("hourStart", new Date(ReadingBucket.hourStart(afterTimestamp.toEpochMilli()))),
+                        Filters.lt("hourStart", Date.from(to))))
+                .sort(Sorts.ascending("hourStart"))
+                // Cada bucket trae al menos una lectura: con 'limit' buckets por lote casi siempre alcanza uno
+                .batchSize(Math.max(2, Math.min(limit, 100)))
+                .iterator()) {
+            Date fullHour = null;
+            while (cursor.hasNext()) {
+                Document bucket = cursor.next();
+                Date hour = bucket.getDate("hourStart");
+                if (fullHour != null && hour.after(fullHour)) {
+                    break;
+                }
+                int size = bucket.getList(ReadingBucket.OFFSETS, Integer.class).size();
+                for (int i = 0; i < size; i++) {
+                    Reading reading = toReading(bucket, i);
+                    if (isAfter(reading, afterTimestamp, afterId) && reading.getTimestamp().isBefore(to)) {
+                        readings.add(reading);
+                    }
+                }
+                if (fullHour == null && readings.size() >= limit) {
+                    fullHour = hour;
+                }
+            }
+        }
+        readings.sort(Comparator.comparing(Reading::getTimestamp).thenComparing(Reading::getId));
+        return readings.size() > limit ? readings.subList(0, limit) : readings;
+    }
+
+    private static boolean isAfter(Reading reading, Instant afterTimestamp, String afterId) {
+        int byTime = reading.getTimestamp().compareTo(afterTimestamp);
+        // Los _id son ObjectId en hexadecimal (mismo largo): el orden de texto es el de Mongo
+        return byTime > 0 || (byTime == 0 && afterId != null && reading.getId().compareTo(afterId) > 0);
+    }
+
+    /**
+     * _id de las lecturas que ya están en sus buckets (reenvío idempotente del spool).
+     */
+    public Set<String> existingIds(List<Reading> readings) {
+        Set<String> bucketIds = new HashSet<>();
+        for (Reading reading : readings) {
+            bucketIds.add(ReadingBucket.idFor(reading.getPlantId(),
+                    ReadingBucket.hourStart(reading.getTimestamp().toEpochMilli())));
+        }
+        Set<String> existing = new HashSet<>();
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(ReadingBucket.COLLECTION)
+                .find(Filters.in("_id", bucketIds))
+                .projection(Projections.include(ReadingBucket.IDS))
+                .iterator()) {
+            cursor.forEachRemaining(bucket -> bucket.getList(ReadingBucket.IDS, Object.class)
+                    .forEach(id -> existing.add(id instanceof ObjectId oid ? oid.toHexString() : String.valueOf(id))));
+        }
+        return existing;
+    }
+
+    /**
+     * Etapas de agregación que convierten los buckets en documentos con la forma de Reading
+     * (_id, plantId, userId, timestamp, métricas y qcStatus/advisorResult como texto) y aplican 'readingMatch'.
+     * Permite correr sobre este layout las mismas agregaciones escritas para la colección de lecturas.
+     *
+     * @param plantFilter Valor para el campo plantId (un id o un operador, ej. {$in: [...]}).
+     */
+    public static List<Document> asReadingsStages(Object plantFilter, Date from, Date to, Document readingMatch) {
+        Document project = new Document("_id", new Document("$arrayElemAt", List.of("$" + ReadingBucket.IDS, "$k")))
+                .append("plantId", 1)
+                .append("userId", 1)
+                .append("timestamp", new Document("$add", List.of("$hourStart", "$" + ReadingBucket.OFFSETS)))
+                .append("tempC", elementAt(ReadingBucket.TEMP))
+                .append("ambientHumidity", elementAt(ReadingBucket.AMBIENT))
+                .append("soilHumidity", elementAt(ReadingBucket.SOIL))
+                .append("lightLux", elementAt(ReadingBucket.LIGHT))
+                .append("qcStatus", new Document("$arrayElemAt", List.of(QC_NAMES, elementAt(ReadingBucket.QC))))
+                .append("advisorResult", new Document("$arrayElemAt", List.of(ADVISOR_NAMES, elementAt(ReadingBucket.ADVISOR))));
+
+        return List.of(
+                new Document("$match", new Document("plantId", plantFilter)
+                        .append("hourStart", new Document("$gte", new Date(ReadingBucket.hourStart(from.getTime()))).append("$lt", to))),
+                new Document("$unwind", new Document("path", "$" + ReadingBucket.OFFSETS).append("includeArrayIndex", "k")),
+                new Document("$project", project),
+                new Document("$match", readingMatch)
+        );
+    }
+
+    private static Document elementAt(String field) {
+        return new Document("$arrayElemAt", List.of("$" + field, "$k"));
+    }
+
+    private static <E extends Enum<E>> List<String> namesByCode(E[] values, ToIntFunction<E> code) {
+        String[] names = new String[Arrays.stream(values).mapToInt(code).max().orElse(-1) + 1];
+        for (E value : values) {
+            names[code.applyAsInt(value)] = value.name();
+        }
+        // Arrays.asList admite null (códigos sin uso)
+        return Arrays.asList(names);
+    }
+
+    /**
+     * Reconstruye el punto 'index' de un bucket como Reading.
+     */
+    static Reading toReading(Document bucket, int index) {
+        long hour = bucket.getDate("hourStart").getTime();
+        Reading reading = new Reading();
+        Object id = bucket.getList(ReadingBucket.IDS, Object.class).get(index);
+        reading.setId(id instanceof ObjectId oid ? oid.toHexString() : String.valueOf(id));
+        reading.setPlantId(bucket.getString("plantId"));
+        reading.setUserId(bucket.getString("userId"));
+        reading.setTimestamp(Instant.ofEpochMilli(hour + bucket.getList(ReadingBucket.OFFSETS, Integer.class).get(index)));
+        reading.setTempC(toDouble(element(bucket, ReadingBucket.TEMP, index)));
+        reading.setAmbientHumidity(toInteger(element(bucket, ReadingBucket.AMBIENT, index)));
+        reading.setSoilHumidity(toInteger(element(bucket, ReadingBucket.SOIL, index)));
+        reading.setLightLux(toInteger(element(bucket, ReadingBucket.LIGHT, index)));
+        Integer qc = toInteger(element(bucket, ReadingBucket.QC, index));
+        Integer advisor = toInteger(element(bucket, ReadingBucket.ADVISOR, index));
+        reading.setQcStatus(toQcStatus(qc));
+        reading.setAdvisorResult(toAdvisorResult(advisor));
+        return reading;
+    }
+
+    static Object element(Document bucket, String field, int index) {
+        List<?> values = bucket.getList(field, Object.class);
+        return values != null && index < values.size() ? values.get(index) : null;
+    }
+
+    static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    static Integer toInteger(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
+    }
+
+    private static Integer qcCode(Reading.QcStatus value) {
+        return value != null ? value.code() : null;
+    }
+
+    private static Integer advisorCode(Reading.AdvisorResult value) {
+        return value != null ? value.code() : null;
+    }
+
+    /**
+     * Código guardado -> enum. Un código desconocido (escrito por una versión más nueva) queda en null.
+     */
+    static Reading.QcStatus toQcStatus(Integer code) {
+        return code != null ? Reading.QcStatus.fromCode(code) : null;
+    }
+
+    static Reading.AdvisorResult toAdvisorResult(Integer code) {
+        return code != null ? Reading.AdvisorResult.fromCode(code) : null;
+    }
+}
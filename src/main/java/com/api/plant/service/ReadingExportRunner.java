@@ -0,0 +1,152 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.storage.ColumnarReadingReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exportación columnar por línea de comandos (el proceso termina al acabar).
+ *
+ * Ejemplo:
+ * <pre>
+ * java -jar plant.jar --spring.main.web-application-type=none \
+ *      --export.plant=PLANTA-01 --export.from=2025-01-01T00:00:00Z --export.to=2025-02-01T00:00:00Z \
+ *      --export.out=planta01.rcol [--export.fields=tempC,soilHumidity] [--export.benchmark]
+ * </pre>
+ *
+ * Con --export.benchmark se exporta además el mismo rango en NDJSON (descartando la salida) y se relee
+ * el archivo columnar, y se registran bytes por lectura y lecturas por segundo de cada formato.
+ */
+@Component
+public class ReadingExportRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingExportRunner.class);
+
+    private final ReadingHistoryService readingHistoryService;
+    private final ConfigurableApplicationContext context;
+
+    public ReadingExportRunner(ReadingHistoryService readingHistoryService, ConfigurableApplicationContext context) {
+        this.readingHistoryService = readingHistoryService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("export.plant")) {
+            return;
+        }
+        int exitCode = 0;
+        try {
+            export(args);
+        } catch (Exception e) {
+            log.error("EXPORTACIÓN: Falló: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private void export(ApplicationArguments args) throws IOException {
+        String plantId = option(args, "export.plant");
+        String from = option(args, "export.from");
+        String to = option(args, "export.to");
+        String fields = option(args, "export.fields");
+        String out = option(args, "export.out");
+        if (out == null) {
+            out = plantId + ".rcol";
+        }
+
+        ReadingHistoryQuery query = readingHistoryService.buildQuery(
+                plantId,
+                from != null ? Instant.parse(from) : null,
+                to != null ? Instant.parse(to) : null,
+                fields != null ? Arrays.asList(fields.split(",")) : null,
+                List.of(), List.of(), null, "asc", 1);
+
+        Path path = Path.of(out);
+        long start = System.nanoTime();
+        long rows;
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)) {
+            rows = readingHistoryService.export(query, file);
+        }
+        long columnarNanos = System.nanoTime() - start;
+        long columnarBytes = Files.size(path);
+        log.info("📦 EXPORTACIÓN: {} lecturas de {} en {} ({} bytes).", rows, plantId, path, columnarBytes);
+
+        if (!args.containsOption("export.benchmark")) {
+            return;
+        }
+
+        // NDJSON del mismo rango, contando bytes sin guardarlos
+        CountingOutputStream ndjson = new CountingOutputStream();
+        start = System.nanoTime();
+        readingHistoryService.stream(query, ndjson);
+        long ndjsonNanos = System.nanoTime() - start;
+
+        // Relectura del archivo columnar
+        start = System.nanoTime();
+        long decoded = 0;
+        try (ColumnarReadingReader reader = new ColumnarReadingReader(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (reader.hasNext()) {
+                ReadingView ignored = reader.next();
+                decoded++;
+            }
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        log.info("📊 BENCHMARK ({} lecturas, incluye el tiempo de lectura de Mongo):", rows);
+        log.info("   columnar: {} bytes/lectura, {} lecturas/s al exportar",
+                perRow(columnarBytes, rows), perSecond(rows, columnarNanos));
+        log.info("   ndjson:   {} bytes/lectura, {} lecturas/s al exportar",
+                perRow(ndjson.count, rows), perSecond(rows, ndjsonNanos));
+        log.info("   columnar: {} lecturas/s al decodificar ({} leídas)", perSecond(decoded, decodeNanos), decoded);
+        if (columnarBytes > 0) {
+            log.info("   relación de tamaño ndjson/columnar: {}", String.format("%.1fx", (double) ndjson.count / columnarBytes));
+        }
+    }
+
+    private static String option(ApplicationArguments args, String name) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static String perRow(long bytes, long rows) {
+        return rows > 0 ? String.format("%.2f", (double) bytes / rows) : "-";
+    }
+
+    private static String perSecond(long rows, long nanos) {
+        return nanos > 0 ? String.format("%.0f", rows * 1e9 / nanos) : "-";
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.reading.ReadingHistoryPage;
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.entity.Reading;
+import com.api.plant.storage.ColumnarReadingWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Historial de lecturas de una planta: paginado por cursor (timestamp, _id), en streaming NDJSON
+ * o exportado en formato columnar comprimido.
+ * Nunca carga el rango completo en memoria: las páginas están acotadas y el streaming escribe
+ * cada lectura al response a medida que sale del cursor.
+ */
+@Service
+public class ReadingHistoryService {
+
+    // Campos que se pueden pedir en 'fields' (id y timestamp van siempre)
+    public static final Set<String> SELECTABLE_FIELDS = Set.of(
+            "tempC", "ambientHumidity", "soilHumidity", "lightLux", "qcStatus", "advisorResult");
+
+    private final ReadingHistorySource source;
+    private final ObjectMapper objectMapper;
+
+    @Value("${readings.history.max-page-size:1000}")
+    private int maxPageSize;
+
+    // Rango por defecto cuando no se envía 'from'
+    @Value("${readings.history.default-range-hours:24}")
+    private long defaultRangeHours;
+
+    // Filas por bloque en la exportación columnar (memoria del writer acotada a un bloque)
+    @Value("${readings.export.block-rows:4096}")
+    private int exportBlockRows;
+
+    public ReadingHistoryService(ReadingHistorySource source, ObjectMapper objectMapper) {
+        this.source = source;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Valida los parámetros HTTP y arma la consulta.
+     * @throws IllegalArgumentException si algún parámetro no es válido.
+     */
+    public ReadingHistoryQuery buildQuery(String plantId, Instant from, Instant to, List<String> fields,
+                                          List<Reading.QcStatus> qcStatuses, List<Reading.AdvisorResult> advisorResults,
+                                          String cursor, String order, int limit) {
+        Cursor position = cursor != null && !cursor.isBlank() ? decodeCursor(cursor) : null;
+
+        // Con cursor se usa el rango resuelto en la primera página (si no, un 'to' por defecto
+        // recalculado con Instant.now() en cada página desplazaría el rango entre páginas)
+        Instant end = position != null && position.to() != null ? position.to() : (to != null ? to : Instant.now());
+        Instant start = position != null && position.from() != null ? position.from()
+                : (from != null ? from : end.minus(Duration.ofHours(defaultRangeHours)));
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("'from' debe ser anterior a 'to'.");
+        }
+
+        Set<String> selected = new LinkedHashSet<>();
+        if (fields == null || fields.isEmpty()) {
+            selected.addAll(SELECTABLE_FIELDS);
+        } else {
+            for (String field : fields) {
+                if (!SELECTABLE_FIELDS.contains(field.trim())) {
+                    throw new IllegalArgumentException("Campo desconocido: " + field);
+                }
+                selected.add(field.trim());
+            }
+        }
+
+        boolean descending;
+        if (order == null || order.equalsIgnoreCase("asc")) {
+            descending = false;
+        } else if (order.equalsIgnoreCase("desc")) {
+            descending = true;
+        } else {
+            throw new IllegalArgumentException("'order' debe ser asc o desc.");
+        }
+
+        if (position != null && position.descending() != null && position.descending() != descending) {
+            throw new IllegalArgumentException("El cursor corresponde a otro 'order'.");
+        }
+
+        return new ReadingHistoryQuery(
+                plantId,
+                start,
+                end,
+                selected,
+                qcStatuses == null || qcStatuses.isEmpty() ? Set.of() : EnumSet.copyOf(qcStatuses),
+                advisorResults == null || advisorResults.isEmpty() ? Set.of() : EnumSet.copyOf(advisorResults),
+                position != null ? position.afterTimestamp() : null,
+                position != null ? position.afterId() : null,
+                descending,
+                Math.max(1, Math.min(limit, maxPageSize))
+        );
+    }
+
+    /**
+     * Una página de lecturas (se pide una de más para saber si hay siguiente).
+     */
+    public ReadingHistoryPage page(ReadingHistoryQuery query) {
+        int pageSize = query.limit();
+        List<ReadingView> items = new ArrayList<>(pageSize + 1);
+        source.scan(withLimit(query, pageSize + 1), reading -> {
+            items.add(reading);
+            return items.size() <= pageSize;
+        });
+
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items.remove(pageSize);
+            nextCursor = encodeCursor(query, items.get(pageSize - 1));
+        }
+        return new ReadingHistoryPage(items, nextCursor);
+    }
+
+    /**
+     * Escribe TODAS las lecturas de la consulta como NDJSON (una por línea), directo del cursor.
+     * El cursor de la consulta se respeta; el límite de página no.
+     */
+    public void stream(ReadingHistoryQuery query, OutputStream out) throws IOException {
+        try (SequenceWriter writer = objectMapper.writerFor(ReadingView.class)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            source.scan(withLimit(query, 0), reading -> {
+                try {
+                    writer.write(reading);
+                    return true;
+                } catch (IOException e) {
+                    // Cliente desconectado: se corta el cursor
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+            out.write('\n');
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Exporta TODAS las lecturas de la consulta en formato columnar (ver ColumnarReadingFormat),
+     * directo del cursor y bloque a bloque.
+     * @return cantidad de lecturas exportadas.
+     */
+    public long export(ReadingHistoryQuery query, OutputStream out) throws IOException {
+        ColumnarReadingWriter writer = new ColumnarReadingWriter(out, query.plantId(), query.fields(), exportBlockRows);
+        try {
+            source.scan(withLimit(query, 0), reading -> {
+                try {
+                    writer.write(reading);
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        return writer.getWritten();
+    }
+
+    private static ReadingHistoryQuery withLimit(ReadingHistoryQuery query, int limit) {
+        return new ReadingHistoryQuery(query.plantId(), query.from(), query.to(), query.fields(),
+                query.qcStatuses(), query.advisorResults(), query.afterTimestamp(), query.afterId(),
+                query.descending(), limit);
+    }
+
+    /**
+     * Posición del cursor más el rango y el orden de la consulta original.
+     * from/to/descending son null en cursores del formato anterior (solo "timestamp:id").
+     */
+    private record Cursor(Instant afterTimestamp, String afterId, Instant from, Instant to, Boolean descending) {}
+
+    // Formato: "timestamp:from:to:a|d:id" (el id va al final: es el único campo de texto libre)
+    private static String encodeCursor(ReadingHistoryQuery query, ReadingView last) {
+        String raw = last.timestamp().toEpochMilli()
+                + ":" + query.from().toEpochMilli()
+                + ":" + query.to().toEpochMilli()
+                + ":" + (query.descending() ? "d" : "a")
+                + ":" + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 5);
+            Instant afterTimestamp = Instant.ofEpochMilli(Long.parseLong(parts[0]));
+            if (parts.length < 5) {
+                return new Cursor(afterTimestamp, raw.substring(parts[0].length() + 1), null, null, null);
+            }
+            if (!parts[3].equals("a") && !parts[3].equals("d")) {
+                throw new IllegalArgumentException();
+            }
+            return new Cursor(afterTimestamp, parts[4],
+                    Instant.ofEpochMilli(Long.parseLong(parts[1])),
+                    Instant.ofEpochMilli(Long.parseLong(parts[2])),
+                    parts[3].equals("d"));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido.");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.dto.reading.ReadingView;
+
+import java.util.function.Predicate;
+
+/**
+ * Origen de lecturas históricas (Mongo, archivo comprimido, memoria...).
+ * ReadingHistoryService solo habla con esta interfaz, así el almacenamiento puede cambiar
+ * sin tocar el controlador ni el formato de la API.
+ */
+public interface ReadingHistorySource {
+
+    /**
+     * Recorre las lecturas que cumplen la consulta, en el orden pedido, y las entrega una a una.
+     * Debe usar memoria constante (cursor), sin cargar el rango completo.
+     *
+     * @param sink Recibe cada lectura; si devuelve false el recorrido se detiene.
+     */
+    void scan(ReadingHistoryQuery query, Predicate<ReadingView> sink);
+}
@@ -0,0 +1,206 @@
+package com.api.plant.service;
+
+import com.api.plant.entity.Reading;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Comparación de layouts de lecturas por línea de comandos (el proceso termina al acabar).
+ *
+ * Ejemplo:
+ * <pre>
+ * java -jar plant.jar --spring.main.web-application-type=none \
+ *      --layout.benchmark --layout.benchmark.points=100000 --layout.benchmark.plants=10
+ * </pre>
+ *
+ * Genera lecturas sintéticas (una por minuto por planta) y las inserta en colecciones temporales con cada
+ * layout: documento plano, time-series y buckets horarios. Registra bytes por lectura (datos, disco e índices)
+ * e inserciones por segundo, tanto una a una (como la ingesta) como en lotes (como el reenvío del spool).
+ * Las colecciones se borran al terminar salvo con --layout.benchmark.keep.
+ */
+@Component
+public class ReadingLayoutBenchmarkRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingLayoutBenchmarkRunner.class);
+
+    private static final String PREFIX = "bench_layout_";
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ReadingBucketService bucketService;
+    private final ConfigurableApplicationContext context;
+
+    public ReadingLayoutBenchmarkRunner(MongoTemplate mongoTemplate,
+                                        ReadingBucketService bucketService,
+                                        ConfigurableApplicationContext context) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketService = bucketService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("layout.benchmark")) {
+            return;
+        }
+        int exitCode = 0;
+        try {
+            benchmark(args);
+        } catch (Exception e) {
+            log.error("BENCHMARK: Falló: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private void benchmark(ApplicationArguments args) {
+        int points = intOption(args, "layout.benchmark.points", 100_000);
+        int plants = intOption(args, "layout.benchmark.plants", 10);
+        int single = Math.min(points, intOption(args, "layout.benchmark.single", 2_000));
+        List<Reading> readings = generate(points, plants);
+
+        String document = PREFIX + "document";
+        String timeSeries = PREFIX + "timeseries";
+        String bucket = PREFIX + "bucket";
+        List<String> collections = List.of(document, timeSeries, bucket);
+        collections.forEach(mongoTemplate::dropCollection);
+
+        mongoTemplate.createCollection(document);
+        mongoTemplate.createCollection(timeSeries, CollectionOptions.empty().timeSeries(
+                CollectionOptions.TimeSeriesOptions.timeSeries("timestamp").metaField("plantId").granularity(Granularity.MINUTES)));
+        for (String name : List.of(document, timeSeries)) {
+            mongoTemplate.indexOps(name).createIndex(new Index().on("plantId", Sort.Direction.ASC)
+                    .on("qcStatus", Sort.Direction.ASC).on("timestamp", Sort.Direction.DESC));
+            mongoTemplate.indexOps(name).createIndex(new Index().on("userId", Sort.Direction.ASC)
+                    .on("timestamp", Sort.Direction.DESC));
+        }
+        mongoTemplate.createCollection(bucket);
+        mongoTemplate.indexOps(bucket).createIndex(new Index().on("plantId", Sort.Direction.ASC).on("hourStart", Sort.Direction.DESC));
+        mongoTemplate.indexOps(bucket).createIndex(new Index().on("userId", Sort.Direction.ASC).on("hourStart", Sort.Direction.DESC));
+
+        try {
+            log.info("📊 BENCHMARK DE LAYOUTS: {} lecturas, {} plantas ({} insertadas de a una, el resto en lotes de {}).",
+                    points, plants, single, BATCH_SIZE);
+            report("documento", document, readings, single,
+                    r -> mongoTemplate.insert(r, document),
+                    batch -> mongoTemplate.insert(batch, document));
+            report("time-series", timeSeries, readings, single,
+                    r -> mongoTemplate.insert(r, timeSeries),
+                    batch -> mongoTemplate.insert(batch, timeSeries));
+            report("bucket", bucket, readings, single,
+                    r -> bucketService.appendAll(bucket, List.of(r)),
+                    batch -> bucketService.appendAll(bucket, batch));
+            log.info("   (el tamaño en disco depende del checkpoint de WiredTiger; repetir la medición si sale en 0)");
+        } finally {
+            if (!args.containsOption("layout.benchmark.keep")) {
+                collections.forEach(mongoTemplate::dropCollection);
+            }
+        }
+    }
+
+    private void report(String label, String collection, List<Reading> readings, int single,
+                        Consumer<Reading> insertOne, Consumer<List<Reading>> insertBatch) {
+        long start = System.nanoTime();
+        for (int i = 0; i < single; i++) {
+            insertOne.accept(copy(readings.get(i)));
+        }
+        long singleNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int from = single; from < readings.size(); from += BATCH_SIZE) {
+            List<Reading> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < Math.min(from + BATCH_SIZE, readings.size()); i++) {
+                batch.add(copy(readings.get(i)));
+            }
+            insertBatch.accept(batch);
+        }
+        long batchNanos = System.nanoTime() - start;
+
+        Document stats = mongoTemplate.executeCommand(new Document("collStats", collection));
+        long dataSize = number(stats, "size");
+        long storageSize = number(stats, "storageSize");
+        long indexSize = number(stats, "totalIndexSize");
+        int n = readings.size();
+
+        log.info("   {}: datos {} B/lectura, disco {} B/lectura, índices {} B/lectura | {} ins/s de a una, {} ins/s en lote",
+                label,
+                String.format("%.1f", (double) dataSize / n),
+                String.format("%.1f", (double) storageSize / n),
+                String.format("%.1f", (double) indexSize / n),
+                single > 0 ? String.format("%.0f", single * 1e9 / singleNanos) : "-",
+                n > single ? String.format("%.0f", (n - single) * 1e9 / batchNanos) : "-");
+    }
+
+    private static List<Reading> generate(int points, int plants) {
+        Random random = new Random(42);
+        List<Reading> readings = new ArrayList<>(points);
+        long start = Instant.now().minusSeconds(60L * (points / plants + 1)).toEpochMilli();
+        double[] temp = new double[plants];
+        int[] soil = new int[plants];
+        for (int p = 0; p < plants; p++) {
+            temp[p] = 22;
+            soil[p] = 50;
+        }
+        for (int i = 0; i < points; i++) {
+            int p = i % plants;
+            temp[p] = Math.round((temp[p] + (random.nextInt(3) - 1) * 0.1) * 10) / 10.0;
+            soil[p] = Math.max(0, Math.min(100, soil[p] + random.nextInt(3) - 1));
+
+            Reading reading = new Reading();
+            reading.setPlantId("BENCH-" + p);
+            reading.setUserId("bench-user");
+            reading.setTimestamp(Instant.ofEpochMilli(start + (long) (i / plants) * 60_000 + random.nextInt(500)));
+            reading.setTempC(temp[p]);
+            reading.setAmbientHumidity(40 + random.nextInt(5));
+            reading.setSoilHumidity(soil[p]);
+            reading.setLightLux(random.nextInt(1000));
+            reading.setQcStatus(random.nextInt(50) == 0 ? Reading.QcStatus.RATE_ERROR : Reading.QcStatus.VALID);
+            reading.setAdvisorResult(Reading.AdvisorResult.INFO);
+            readings.add(reading);
+        }
+        return readings;
+    }
+
+    // Cada layout recibe objetos nuevos (insert asigna el _id sobre el objeto)
+    private static Reading copy(Reading source) {
+        Reading reading = new Reading();
+        reading.setPlantId(source.getPlantId());
+        reading.setUserId(source.getUserId());
+        reading.setTimestamp(source.getTimestamp());
+        reading.setTempC(source.getTempC());
+        reading.setAmbientHumidity(source.getAmbientHumidity());
+        reading.setSoilHumidity(source.getSoilHumidity());
+        reading.setLightLux(source.getLightLux());
+        reading.setQcStatus(source.getQcStatus());
+        reading.setAdvisorResult(source.getAdvisorResult());
+        return reading;
+    }
+
+    private static int intOption(ApplicationArguments args, String name, int defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() || values.get(0).isBlank() ? defaultValue : Integer.parseInt(values.get(0));
+    }
+
+    private static long number(Document stats, String key) {
+        Object value = stats.get(key);
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+}
@@ -0,0 +1,246 @@
+package com.api.plant.service;
+
+import com.api.plant.config.WorkerThreads;
+import com.api.plant.entity.Reading;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Migración de la colección plana 'readings' a la colección time-series 'readings_ts'.
+ *
+ * Se activa con readings.migration.enabled=true. Recorre la colección original por _id
+ * (keyset, sin skip) en "olas": lee N lotes y los inserta en paralelo (insertMany no ordenado),
+ * y solo cuando TODOS los lotes de la ola se insertaron guarda un checkpoint con el último _id copiado.
+ * Si el proceso se interrumpe, la siguiente ejecución continúa desde el checkpoint. La colección
+ * time-series no tiene índice único, así que de la primera ola de una ejecución reanudada se quitan
+ * los documentos que ya estén en destino (insertados antes del corte pero sin checkpoint).
+ * Los intervalos de cada ola copiada se marcan para que los rollups se recalculen con las lecturas importadas.
+ */
+@Component
+public class ReadingMigrationService implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingMigrationService.class);
+
+    private static final String CHECKPOINT_COLLECTION = "migration_checkpoints";
+    private static final String CHECKPOINT_ID = "readings_to_timeseries";
+
+    private final MongoTemplate mongoTemplate;
+    private final ReadingRollupService rollupService;
+    private final WorkerThreads workerThreads;
+
+    @Value("${readings.migration.enabled:false}")
+    private boolean enabled;
+
+    @Value("${readings.migration.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${readings.migration.threads:4}")
+    private int threads;
+
+    public ReadingMigrationService(MongoTemplate mongoTemplate, ReadingRollupService rollupService,
+                                   WorkerThreads workerThreads) {
+        this.mongoTemplate = mongoTemplate;
+        this.rollupService = rollupService;
+        this.workerThreads = workerThreads;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!enabled) {
+            return;
+        }
+        if (!mongoTemplate.collectionExists(Reading.LEGACY_COLLECTION)) {
+            log.info("MIGRACIÓN: No existe la colección '{}'. Nada que migrar.", Reading.LEGACY_COLLECTION);
+            return;
+        }
+
+        // Se corre en segundo plano para no retrasar el arranque
+        workerThreads.start("readings-migration", this::migrate);
+    }
+
+    private void migrate() {
+        MongoCollection<Document> source = mongoTemplate.getCollection(Reading.LEGACY_COLLECTION);
+        MongoCollection<Document> target = mongoTemplate.getCollection(Reading.COLLECTION);
+        MongoCollection<Document> checkpoints = mongoTemplate.getCollection(CHECKPOINT_COLLECTION);
+
+        Document checkpoint = checkpoints.find(Filters.eq("_id", CHECKPOINT_ID)).first();
+        if (checkpoint != null && checkpoint.getBoolean("completed", false)) {
+            log.info("MIGRACIÓN: Ya completada anteriormente ({} lecturas).", checkpoint.get("copied"));
+            return;
+        }
+        Object lastId = checkpoint != null ? checkpoint.get("lastId") : null;
+        long copied = checkpoint != null ? checkpoint.get("copied", Number.class).longValue() : 0;
+
+        log.info("MIGRACIÓN: Copiando '{}' -> '{}' (lotes de {}, {} hilos){}.",
+                Reading.LEGACY_COLLECTION, Reading.COLLECTION, batchSize, threads,
+                lastId != null ? " desde el checkpoint " + lastId : "");
+
+        long start = System.currentTimeMillis();
+        boolean resumed = lastId != null;
+        // Un hilo por lote: cada ola envía como mucho 'threads' lotes, que es lo que acota el paralelismo
+        ExecutorService pool = workerThreads.newPerTaskExecutor("readings-migration-");
+        try {
+            while (true) {
+                // 1. Leer una ola (threads lotes) en orden de _id
+                List<List<Document>> wave = new ArrayList<>(threads);
+                for (int i = 0; i < threads; i++) {
+                    List<Document> batch = readBatch(source, lastId);
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    wave.add(batch);
+                    lastId = batch.get(batch.size() - 1).get("_id");
+                }
+                if (wave.isEmpty()) {
+                    break;
+                }
+                if (resumed) {
+                    copied += skipAlreadyCopied(target, wave);
+                    resumed = false;
+                }
+
+                // 2. Insertar los lotes de la ola en paralelo
+                List<Future<Integer>> results = new ArrayList<>(wave.size());
+                for (List<Document> batch : wave) {
+                    results.add(pool.submit(() -> insertBatch(target, batch)));
+                }
+                for (Future<Integer> result : results) {
+                    copied += result.get();
+                }
+
+                // 3. Checkpoint (solo si todos los lotes se insertaron: si no, result.get() ya lanzó la excepción)
+                checkpoints.updateOne(Filters.eq("_id", CHECKPOINT_ID),
+                        Updates.combine(Updates.set("lastId", lastId), Updates.set("copied", copied), Updates.set("updatedAt", new Date())),
+                        new UpdateOptions().upsert(true));
+                markForRepair(wave);
+                log.info("MIGRACIÓN: {} lecturas copiadas (último _id {}).", copied, lastId);
+            }
+
+            checkpoints.updateOne(Filters.eq("_id", CHECKPOINT_ID),
+                    Updates.combine(Updates.set("completed", true), Updates.set("copied", copied), Updates.set("updatedAt", new Date())),
+                    new UpdateOptions().upsert(true));
+
+            long elapsedMs = Math.max(1, System.currentTimeMillis() - start);
+            log.info("✅ MIGRACIÓN: Completada. {} lecturas en {} ms ({} lecturas/s).", copied, elapsedMs, copied * 1000 / elapsedMs);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("MIGRACIÓN: Interrumpida. Se reanudará desde el último checkpoint.");
+        } catch (Exception e) {
+            log.error("MIGRACIÓN: Falló ({}). Se reanudará desde el último checkpoint.", e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<Document> readBatch(MongoCollection<Document> source, Object afterId) {
+        Bson filter = afterId != null ? Filters.gt("_id", afterId) : new Document();
+        return source.find(filter)
+                .sort(Sorts.ascending("_id"))
+                .limit(batchSize)
+                .into(new ArrayList<>(batchSize));
+    }
+
+    private int insertBatch(MongoCollection<Document> target, List<Document> batch) {
+        // Las colecciones time-series exigen el timeField: se omiten documentos sin timestamp
+        List<Document> valid = new ArrayList<>(batch.size());
+        for (Document document : batch) {
+            if (document.get("timestamp") instanceof Date) {
+                valid.add(document);
+            }
+        }
+        if (valid.isEmpty()) {
+            return 0;
+        }
+        try {
+            target.insertMany(valid, new InsertManyOptions().ordered(false));
+            return valid.size();
+        } catch (MongoBulkWriteException e) {
+            // La ola no se marca como copiada: la próxima ejecución la repite (sin duplicar lo ya insertado)
+            log.warn("MIGRACIÓN: {} documento(s) del lote no se pudieron copiar: {}", e.getWriteErrors().size(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Marca para recalcular los rollups del rango de lecturas VALID de cada planta en la ola.
+     */
+    private void markForRepair(List<List<Document>> wave) {
+        Map<String, long[]> ranges = new HashMap<>();
+        for (List<Document> batch : wave) {
+            for (Document document : batch) {
+                if (document.get("timestamp") instanceof Date timestamp
+                        && document.get("plantId") instanceof String plantId
+                        && Reading.QcStatus.VALID.name().equals(document.get("qcStatus"))) {
+                    long ts = timestamp.getTime();
+                    long[] range = ranges.computeIfAbsent(plantId, id -> new long[]{ts, ts});
+                    range[0] = Math.min(range[0], ts);
+                    range[1] = Math.max(range[1], ts);
+                }
+            }
+        }
+        ranges.forEach((plantId, range) ->
+                rollupService.markForRepair(plantId, Instant.ofEpochMilli(range[0]), Instant.ofEpochMilli(range[1] + 1)));
+    }
+
+    /**
+     * Quita de la ola los documentos que ya están en destino (mismo _id).
+     * La colección time-series no indexa _id: se acota por el rango de timestamp de la ola.
+     * @return cuántos se quitaron (ya estaban copiados).
+     */
+    private int skipAlreadyCopied(MongoCollection<Document> target, List<List<Document>> wave) {
+        List<Object> ids = new ArrayList<>();
+        Date min = null;
+        Date max = null;
+        for (List<Document> batch : wave) {
+            for (Document document : batch) {
+                if (document.get("timestamp") instanceof Date timestamp) {
+                    ids.add(document.get("_id"));
+                    min = min == null || timestamp.before(min) ? timestamp : min;
+                    max = max == null || timestamp.after(max) ? timestamp : max;
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        Set<Object> existing = new HashSet<>();
+        target.find(Filters.and(Filters.gte("timestamp", min), Filters.lte("timestamp", max), Filters.in("_id", ids)))
+                .projection(Projections.include("_id"))
+                .forEach(document -> existing.add(document.get("_id")));
+        if (existing.isEmpty()) {
+            return 0;
+        }
+        for (List<Document> batch : wave) {
+            batch.removeIf(document -> existing.contains(document.get("_id")));
+        }
+        log.info("MIGRACIÓN: {} lectura(s) de la primera ola ya estaban copiadas (sin checkpoint); se omiten.", existing.size());
+        return existing.size();
+    }
+}
@@ -0,0 +1,368 @@
+package com.api.plant.service;
+
+import com.api.plant.config.ReadingCollectionInitializer;
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.entity.PlantDevice;
+import com.api.plant.entity.Reading;
+import com.api.plant.entity.ReadingBucket;
+import com.api.plant.entity.ReadingRollup.Resolution;
+import com.api.plant.repository.PlantDeviceRepository;
+import com.api.plant.storage.ReadingArchive;
+import com.api.plant.storage.ReadingSegment;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.result.DeleteResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Políticas de retención de lecturas y rollups, con archivo previo a disco.
+ *
+ * - Lecturas crudas: TTL nativo de la colección time-series (retention.raw-days), o índice TTL sobre
+ *   hourStart en el layout por buckets. El TTL se ajusta después de cada archivado y nunca alcanza un día
+ *   que siga sin archivar: si una planta falla, se alarga hasta cubrirlo (o se desactiva si no se sabe cuál es).
+ * - Lecturas rechazadas por QC: se borran antes (retention.rejected-days), solo si su día ya está archivado.
+ * - Rollups: índice TTL sobre bucketStart, con retención propia por resolución (0 = sin vencimiento).
+ * - Antes de que venzan, los días cerrados se archivan como segmentos comprimidos por planta y día
+ *   (ReadingArchive); el historial los sigue sirviendo desde ahí (TieredReadingHistorySource).
+ *   Se archiva cada plantId distinto que tenga lecturas por vencer, exista o no el dispositivo hoy
+ *   (dispositivos borrados o re-sincronizados con otro plantId).
+ * - El archivo es local al nodo (retention.archive.dir): con varias instancias, el directorio debe ser un
+ *   volumen compartido o la tarea debe correr en un solo nodo; si no, cada nodo solo ve lo que archivó él.
+ */
+@Service
+public class ReadingRetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingRetentionService.class);
+
+    private static final long DAY_MS = ReadingArchive.DAY_MS;
+    // El TTL calculado debe seguir cubriendo el día pendiente hasta la próxima ejecución diaria (con holgura)
+    private static final long TTL_MARGIN_MS = 2 * DAY_MS;
+    // Máximo que acepta expireAfterSeconds en un índice TTL (equivale a "sin vencimiento")
+    private static final long MAX_INDEX_TTL_SECONDS = Integer.MAX_VALUE;
+
+    private final MongoTemplate mongoTemplate;
+    private final PlantDeviceRepository plantDeviceRepository;
+    private final ReadingArchive archive;
+    private final LiveReadingHistorySource liveSource;
+    private final boolean bucketLayout;
+
+    @Value("${retention.enabled:true}")
+    private boolean enabled;
+
+    @Value("${retention.raw-days:30}")
+    private int rawDays;
+
+    @Value("${retention.rejected-days:7}")
+    private int rejectedDays;
+
+    // Los días se archivan cuando ya pasaron estos días (el día está cerrado y sin lecturas tardías)
+    @Value("${retention.archive.after-days:2}")
+    private int archiveAfterDays;
+
+    @Value("${retention.rollups.minute-days:30}")
+    private int minuteRollupDays;
+
+    @Value("${retention.rollups.hour-days:730}")
+    private int hourRollupDays;
+
+    @Value("${retention.rollups.day-days:0}")
+    private int dayRollupDays;
+
+    private final Counter archivedSegmentsCounter;
+    private final Counter archivedReadingsCounter;
+    private final Counter deletedRejectedCounter;
+
+    // La colección time-series debe existir antes de aplicarle el TTL
+    public ReadingRetentionService(MongoTemplate mongoTemplate,
+                                   PlantDeviceRepository plantDeviceRepository,
+                                   ReadingArchive archive,
+                                   LiveReadingHistorySource liveSource,
+                                   ReadingCollectionInitializer collectionInitializer,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${readings.layout:document}") String layout) {
+        this.mongoTemplate = mongoTemplate;
+        this.plantDeviceRepository = plantDeviceRepository;
+        this.archive = archive;
+        this.liveSource = liveSource;
+        this.bucketLayout = "bucket".equalsIgnoreCase(layout);
+        this.archivedSegmentsCounter = meterRegistry.counter("retention.archived.segments");
+        this.archivedReadingsCounter = meterRegistry.counter("retention.archived.readings");
+        this.deletedRejectedCounter = meterRegistry.counter("retention.deleted.rejected");
+    }
+
+    @PostConstruct
+    public void applyPolicies() {
+        if (!enabled) {
+            return;
+        }
+        if (archiveAfterDays >= rejectedDays || archiveAfterDays >= rawDays) {
+            log.warn("⚠️ RETENCIÓN: retention.archive.after-days ({}) debería ser menor que rejected-days ({}) y raw-days ({}); " +
+                    "las lecturas se conservarán hasta archivarlas.", archiveAfterDays, rejectedDays, rawDays);
+        }
+
+        // El TTL de las lecturas crudas se aplica en run(), después de archivar (nunca antes)
+        applyTtl(Resolution.MINUTE.getCollection(), "bucketStart", minuteRollupDays, "bucket_ttl_idx");
+        applyTtl(Resolution.HOUR.getCollection(), "bucketStart", hourRollupDays, "bucket_ttl_idx");
+        applyTtl(Resolution.DAY.getCollection(), "bucketStart", dayRollupDays, "bucket_ttl_idx");
+    }
+
+    private void applyTtl(String collection, String field, int days, String indexName) {
+        if (days <= 0) {
+            return;
+        }
+        try {
+            mongoTemplate.indexOps(collection).createIndex(new Index()
+                    .on(field, Sort.Direction.ASC)
+                    .expire(Duration.ofDays(days))
+                    .named(indexName));
+        } catch (Exception e) {
+            // Ej. el índice existe con otro vencimiento: hay que cambiarlo con collMod
+            log.warn("RETENCIÓN: No se pudo crear el TTL de '{}': {}", collection, e.getMessage());
+        }
+    }
+
+    /**
+     * Tarea diaria: archiva los días cerrados y borra las lecturas rechazadas ya archivadas.
+     */
+    @Scheduled(cron = "${retention.cron:0 30 3 * * *}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long archiveCutoff = ReadingArchive.dayStart(now) - archiveAfterDays * DAY_MS;
+
+        Set<String> plantIds;
+        try {
+            plantIds = expiringPlantIds(archiveCutoff);
+        } catch (Exception e) {
+            log.error("RETENCIÓN: No se pudieron listar las plantas a archivar: {}", e.getMessage(), e);
+            applyRawTtl(Long.MIN_VALUE, now);
+            return;
+        }
+
+        Map<String, String> owners = new HashMap<>();
+        for (PlantDevice device : plantDeviceRepository.findAll()) {
+            if (device.getPlantId() != null) {
+                owners.put(device.getPlantId(), device.getOwnerId());
+            }
+        }
+
+        Set<String> failedPlants = new HashSet<>();
+        // Día más antiguo que sigue sin archivar: el TTL no debe alcanzarlo
+        long oldestPending = archiveCutoff;
+        for (String plantId : plantIds) {
+            long pending = archivePlant(plantId, owners.get(plantId), archiveCutoff);
+            if (pending < archiveCutoff) {
+                failedPlants.add(plantId);
+                oldestPending = Math.min(oldestPending, pending);
+            }
+        }
+
+        applyRawTtl(oldestPending, now);
+        deleteRejected(archiveCutoff, failedPlants);
+    }
+
+    /**
+     * plantIds con lecturas anteriores al corte (las que el TTL puede vencer), existan o no como dispositivo.
+     */
+    private Set<String> expiringPlantIds(long archiveCutoff) {
+        Set<String> plantIds = new TreeSet<>();
+        mongoTemplate.getCollection(rawCollection())
+                .distinct("plantId", Filters.lt(rawTimeField(), new Date(archiveCutoff)), String.class)
+                .into(plantIds);
+        plantIds.remove(null);
+        return plantIds;
+    }
+
+    /**
+     * Archiva los días cerrados de la planta.
+     *
+     * @return archiveCutoff si quedó todo archivado; si no, el primer día sin archivar
+     *         (Long.MIN_VALUE si el fallo ocurrió antes de saber cuál es).
+     */
+    private long archivePlant(String plantId, String ownerId, long archiveCutoff) {
+        long pending = Long.MIN_VALUE;
+        try {
+            // Primera lectura que sigue en Mongo (del layout que esté activo)
+            ReadingView[] first = new ReadingView[1];
+            liveSource.scan(dayQuery(plantId, 0, archiveCutoff, 1), view -> {
+                first[0] = view;
+                return false;
+            });
+            if (first[0] == null) {
+                return archiveCutoff;
+            }
+            // Dispositivo borrado o re-sincronizado: el dueño se toma de las propias lecturas
+            String owner = ownerId != null ? ownerId : lastKnownOwner(plantId);
+
+            for (long day = ReadingArchive.dayStart(first[0].timestamp().toEpochMilli()); day < archiveCutoff; day += DAY_MS) {
+                pending = day;
+                if (!archive.exists(plantId, day)) {
+                    archiveDay(plantId, owner, day);
+                }
+            }
+            return archiveCutoff;
+        } catch (Exception e) {
+            log.error("RETENCIÓN: Fallo al archivar la planta {}: {}", plantId, e.getMessage(), e);
+            return pending;
+        }
+    }
+
+    private String lastKnownOwner(String plantId) {
+        Document last = mongoTemplate.getCollection(rawCollection())
+                .find(Filters.eq("plantId", plantId))
+                .projection(Projections.include("userId"))
+                .sort(Sorts.descending(rawTimeField()))
+                .first();
+        return last != null ? last.getString("userId") : null;
+    }
+
+    private void archiveDay(String plantId, String ownerId, long day) throws Exception {
+        ReadingSegment.Builder builder = new ReadingSegment.Builder(plantId, day);
+        liveSource.scan(dayQuery(plantId, day, day + DAY_MS, 0), view -> {
+            builder.add(view.id(), ownerId, view.timestamp().toEpochMilli(), view.tempC(),
+                    view.ambientHumidity(), view.soilHumidity(), view.lightLux(), view.qcStatus(), view.advisorResult());
+            return true;
+        });
+
+        if (builder.size() == 0) {
+            return;
+        }
+        archive.write(builder.build());
+        archivedSegmentsCounter.increment();
+        archivedReadingsCounter.increment(builder.size());
+        log.info("🗄️ RETENCIÓN: Día {} de {} archivado ({} lecturas).", new Date(day).toInstant(), plantId, builder.size());
+    }
+
+    /**
+     * TTL de las lecturas crudas: retention.raw-days, alargado si hace falta para no vencer días sin archivar.
+     *
+     * @param oldestPending primer día sin archivar (Long.MIN_VALUE = desconocido: se desactiva el vencimiento).
+     */
+    private void applyRawTtl(long oldestPending, long now) {
+        Long seconds = null;
+        if (rawDays > 0 && oldestPending != Long.MIN_VALUE) {
+            long configured = Duration.ofDays(rawDays).toSeconds();
+            seconds = Math.max(configured, Duration.ofMillis(now - oldestPending + TTL_MARGIN_MS).toSeconds());
+            if (seconds > configured) {
+                log.warn("⚠️ RETENCIÓN: Hay días sin archivar desde {}; el TTL de las lecturas se extiende a {} h.",
+                        new Date(oldestPending).toInstant(), Duration.ofSeconds(seconds).toHours());
+            }
+        } else if (rawDays > 0) {
+            log.warn("⚠️ RETENCIÓN: Archivado incompleto; el vencimiento de las lecturas queda suspendido hasta la próxima ejecución.");
+        }
+
+        try {
+            // TTL nativo de la colección time-series (sobre el timeField)
+            mongoTemplate.executeCommand(new Document("collMod", Reading.COLLECTION)
+                    .append("expireAfterSeconds", seconds != null ? (Object) seconds : "off"));
+        } catch (Exception e) {
+            log.warn("RETENCIÓN: No se pudo aplicar el TTL a '{}': {}", Reading.COLLECTION, e.getMessage());
+        }
+
+        // Layout por buckets horarios: vencen por hora completa
+        if (bucketLayout && (rawDays > 0 || indexExists(ReadingBucket.COLLECTION, "hour_ttl_idx"))) {
+            setIndexTtl(ReadingBucket.COLLECTION, "hourStart", "hour_ttl_idx",
+                    seconds != null ? seconds : MAX_INDEX_TTL_SECONDS);
+        }
+    }
+
+    private void setIndexTtl(String collection, String field, String indexName, long seconds) {
+        try {
+            if (indexExists(collection, indexName)) {
+                mongoTemplate.executeCommand(new Document("collMod", collection)
+                        .append("index", new Document("name", indexName).append("expireAfterSeconds", seconds)));
+            } else {
+                mongoTemplate.indexOps(collection).createIndex(new Index()
+                        .on(field, Sort.Direction.ASC)
+                        .expire(Duration.ofSeconds(seconds))
+                        .named(indexName));
+            }
+        } catch (Exception e) {
+            log.warn("RETENCIÓN: No se pudo aplicar el TTL a '{}': {}", collection, e.getMessage());
+        }
+    }
+
+    private boolean indexExists(String collection, String indexName) {
+        return mongoTemplate.indexOps(collection).getIndexInfo().stream()
+                .anyMatch(index -> indexName.equals(index.getName()));
+    }
+
+    private String rawCollection() {
+        return bucketLayout ? ReadingBucket.COLLECTION : Reading.COLLECTION;
+    }
+
+    private String rawTimeField() {
+        return bucketLayout ? "hourStart" : "timestamp";
+    }
+
+    private static ReadingHistoryQuery dayQuery(String plantId, long from, long to, int limit) {
+        return new ReadingHistoryQuery(plantId, Instant.ofEpochMilli(from), Instant.ofEpochMilli(to),
+                ReadingHistoryService.SELECTABLE_FIELDS, Set.of(), Set.of(), null, null, false, limit);
+    }
+
+    /**
+     * Borra las lecturas rechazadas vencidas (solo de días ya archivados).
+     * Nota: borrar por un campo que no es el metaField en time-series requiere MongoDB 7.0+.
+     */
+    private void deleteRejected(long archiveCutoff, Set<String> failedPlants) {
+        if (bucketLayout) {
+            // En buckets los puntos no se pueden quitar uno a uno; vencen con el bucket (TTL)
+            return;
+        }
+        long rejectedCutoff = Math.min(System.currentTimeMillis() - rejectedDays * DAY_MS, archiveCutoff);
+
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.ne("qcStatus", Reading.QcStatus.VALID.name()));
+        filters.add(Filters.lt("timestamp", new Date(rejectedCutoff)));
+        if (!failedPlants.isEmpty()) {
+            filters.add(Filters.nin("plantId", failedPlants));
+        }
+
+        try {
+            DeleteResult result = mongoTemplate.getCollection(Reading.COLLECTION).deleteMany(Filters.and(filters));
+            deletedRejectedCounter.increment(result.getDeletedCount());
+            log.info("🧹 RETENCIÓN: {} lecturas rechazadas eliminadas (anteriores a {}).",
+                    result.getDeletedCount(), new Date(rejectedCutoff).toInstant());
+        } catch (Exception e) {
+            log.error("RETENCIÓN: Fallo al eliminar lecturas rechazadas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Inicio del primer día que con seguridad sigue completo en Mongo (lo anterior se lee del archivo).
+     * Long.MIN_VALUE si la retención está desactivada.
+     */
+    public long liveTierStart() {
+        if (!enabled || rawDays <= 0) {
+            return Long.MIN_VALUE;
+        }
+        return ReadingArchive.dayStart(System.currentTimeMillis() - rawDays * DAY_MS) + DAY_MS;
+    }
+}
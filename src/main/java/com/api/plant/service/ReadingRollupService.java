@@ -0,0 +1,606 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.RollupSeries;
+import com.api.plant.entity.Reading;
+import com.api.plant.entity.ReadingBucket;
+import com.api.plant.entity.ReadingRollup;
+import com.api.plant.entity.ReadingRollup.MetricStats;
+import com.api.plant.entity.ReadingRollup.Resolution;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Rollups incrementales (minuto/hora/día) de las lecturas VALID.
+ *
+ * - Ingesta: cada lectura se acumula en memoria en el intervalo abierto de cada resolución.
+ *   Cuando llega una lectura de un intervalo posterior (o vence el intervalo) se cierra y se
+ *   escribe con upsert ($min/$max/$inc), en un bulk por resolución.
+ * - Lecturas tardías (de un intervalo ya cerrado) no se acumulan: marcan el intervalo para
+ *   reparación, que lo recalcula desde las lecturas crudas con una agregación.
+ * - Consultas: eligen la resolución más fina cuya cantidad de puntos cabe en maxPoints.
+ * - Cobertura: la primera lectura acumulada de cada planta se guarda en ReadingRollup.COVERAGE_COLLECTION;
+ *   antes de ese instante los rollups no tienen los datos y hay que ir a las lecturas crudas.
+ */
+@Service
+public class ReadingRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingRollupService.class);
+
+    private static final Resolution[] RESOLUTIONS = Resolution.values();
+    private static final String[] METRICS = {"tempC", "ambientHumidity", "soilHumidity", "lightLux"};
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean bucketLayout;
+
+    // plantId -> intervalos abiertos (uno por resolución)
+    private final Map<String, PlantBuckets> openByPlant = new ConcurrentHashMap<>();
+    // Intervalos cerrados pendientes de escribir
+    private final Queue<ClosedBucket> closed = new ConcurrentLinkedQueue<>();
+    // Intervalos a recalcular desde las lecturas crudas
+    private final Set<DirtyBucket> dirty = ConcurrentHashMap.newKeySet();
+    // Primera lectura acumulada por planta, pendiente de registrar como cobertura (plantId -> epochMillis)
+    private final Map<String, Long> pendingCoverage = new ConcurrentHashMap<>();
+    // Plantas cuya cobertura ya está en Mongo (en esta ejecución)
+    private final Set<String> coverageRecorded = ConcurrentHashMap.newKeySet();
+
+    @Value("${rollups.enabled:true}")
+    private boolean enabled;
+
+    // Tolerancia antes de cerrar un intervalo vencido (lecturas con algo de retraso)
+    @Value("${rollups.close-grace-ms:5000}")
+    private long closeGraceMs;
+
+    private final Counter flushedCounter;
+    private final Counter repairedCounter;
+    private final Counter lateCounter;
+
+    public ReadingRollupService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                                @Value("${readings.layout:document}") String layout) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketLayout = "bucket".equalsIgnoreCase(layout);
+        this.flushedCounter = meterRegistry.counter("rollups.buckets.flushed");
+        this.repairedCounter = meterRegistry.counter("rollups.buckets.repaired");
+        this.lateCounter = meterRegistry.counter("rollups.readings.late");
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        for (Resolution resolution : RESOLUTIONS) {
+            mongoTemplate.indexOps(resolution.getCollection()).createIndex(new Index()
+                    .on("plantId", Sort.Direction.ASC)
+                    .on("bucketStart", Sort.Direction.ASC)
+                    .named("plant_bucket_idx"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Flush parcial de los intervalos abiertos: los $inc posteriores se suman al mismo documento
+        for (PlantBuckets buckets : openByPlant.values()) {
+            synchronized (buckets) {
+                for (int i = 0; i < RESOLUTIONS.length; i++) {
+                    if (buckets.open[i] != null) {
+                        closed.add(new ClosedBucket(buckets.plantId, buckets.userId, buckets.open[i]));
+                        buckets.open[i] = null;
+                    }
+                }
+            }
+        }
+        flushClosed();
+    }
+
+    // --- INGESTA ---
+
+    /**
+     * Acumula una lectura VALID en los intervalos abiertos de la planta.
+     */
+    public void accumulate(Reading reading) {
+        if (!enabled || reading.getQcStatus() != Reading.QcStatus.VALID || reading.getTimestamp() == null) {
+            return;
+        }
+        long ts = reading.getTimestamp().toEpochMilli();
+        PlantBuckets buckets = openByPlant.computeIfAbsent(reading.getPlantId(), PlantBuckets::new);
+        if (!coverageRecorded.contains(reading.getPlantId())) {
+            pendingCoverage.merge(reading.getPlantId(), ts, Math::min);
+        }
+
+        synchronized (buckets) {
+            buckets.userId = reading.getUserId();
+            for (int i = 0; i < RESOLUTIONS.length; i++) {
+                Resolution resolution = RESOLUTIONS[i];
+                long start = resolution.bucketStart(ts);
+                Accumulator open = buckets.open[i];
+
+                if (open != null && start < open.bucketStart) {
+                    // Tardía: su intervalo ya se cerró
+                    lateCounter.increment();
+                    dirty.add(new DirtyBucket(reading.getPlantId(), resolution, start));
+                    continue;
+                }
+                if (open == null || start > open.bucketStart) {
+                    if (open != null) {
+                        closed.add(new ClosedBucket(buckets.plantId, buckets.userId, open));
+                    }
+                    open = new Accumulator(resolution, start);
+                    buckets.open[i] = open;
+                }
+                open.add(reading, ts);
+            }
+        }
+    }
+
+    /**
+     * Marca un rango [from, to) para recalcular (ej. después de importar lecturas históricas).
+     */
+    public void markForRepair(String plantId, Instant from, Instant to) {
+        if (!enabled) {
+            return;
+        }
+        for (Resolution resolution : RESOLUTIONS) {
+            long size = resolution.getBucket().toMillis();
+            for (long start = resolution.bucketStart(from.toEpochMilli()); start < to.toEpochMilli(); start += size) {
+                dirty.add(new DirtyBucket(plantId, resolution, start));
+            }
+        }
+    }
+
+    /**
+     * Marca para recalcular los intervalos de las lecturas VALID dadas, que llegaron a Mongo después de
+     * acumularse (ej. reenviadas desde el spool): una reparación anterior pudo calcularlos sin ellas.
+     */
+    public void markForRepair(Collection<Reading> readings) {
+        Map<String, long[]> ranges = new HashMap<>();
+        for (Reading reading : readings) {
+            if (reading.getQcStatus() != Reading.QcStatus.VALID || reading.getPlantId() == null || reading.getTimestamp() == null) {
+                continue;
+            }
+            long ts = reading.getTimestamp().toEpochMilli();
+            long[] range = ranges.computeIfAbsent(reading.getPlantId(), id -> new long[]{ts, ts});
+            range[0] = Math.min(range[0], ts);
+            range[1] = Math.max(range[1], ts);
+        }
+        ranges.forEach((plantId, range) ->
+                markForRepair(plantId, Instant.ofEpochMilli(range[0]), Instant.ofEpochMilli(range[1] + 1)));
+    }
+
+    // --- ESCRITURA ---
+
+    /**
+     * Cierra los intervalos vencidos (plantas que dejaron de reportar) y escribe los cerrados.
+     */
+    @Scheduled(fixedRateString = "${rollups.flush-interval-ms:5000}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (PlantBuckets buckets : openByPlant.values()) {
+            synchronized (buckets) {
+                for (int i = 0; i < RESOLUTIONS.length; i++) {
+                    Accumulator open = buckets.open[i];
+                    if (open != null && open.bucketStart + RESOLUTIONS[i].getBucket().toMillis() + closeGraceMs <= now) {
+                        closed.add(new ClosedBucket(buckets.plantId, buckets.userId, open));
+                        buckets.open[i] = null;
+                    }
+                }
+            }
+        }
+        flushClosed();
+        writeCoverage();
+    }
+
+    /**
+     * Registra la cobertura de las plantas nuevas. $setOnInsert: la primera ejecución que acumuló gana,
+     * así un reinicio no adelanta el inicio de la cobertura.
+     */
+    private void writeCoverage() {
+        for (Map.Entry<String, Long> entry : pendingCoverage.entrySet()) {
+            try {
+                mongoTemplate.getCollection(ReadingRollup.COVERAGE_COLLECTION).updateOne(
+                        Filters.eq("_id", entry.getKey()),
+                        new Document("$setOnInsert", new Document("since", new Date(entry.getValue()))),
+                        new UpdateOptions().upsert(true));
+                coverageRecorded.add(entry.getKey());
+                pendingCoverage.remove(entry.getKey());
+            } catch (Exception e) {
+                log.error("ROLLUPS: No se pudo registrar la cobertura de {}, se reintenta: {}", entry.getKey(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private synchronized void flushClosed() {
+        if (closed.isEmpty()) {
+            return;
+        }
+        Map<Resolution, List<ClosedBucket>> byResolution = new EnumMap<>(Resolution.class);
+        ClosedBucket bucket;
+        while ((bucket = closed.poll()) != null) {
+            byResolution.computeIfAbsent(bucket.accumulator().resolution, r -> new ArrayList<>()).add(bucket);
+        }
+
+        int written = 0;
+        for (Map.Entry<Resolution, List<ClosedBucket>> entry : byResolution.entrySet()) {
+            written += writeClosed(entry.getKey(), entry.getValue());
+        }
+        flushedCounter.increment(written);
+        log.debug("ROLLUPS: {} intervalo(s) escritos.", written);
+    }
+
+    /**
+     * Un bulk de upserts por resolución. Lo que no se escribió no se pierde:
+     * - Fallo informado por Mongo (BulkOperationException): esos intervalos no se aplicaron y vuelven a la cola.
+     * - Fallo de resultado desconocido (ej. timeout de red): el $inc podría haberse aplicado, así que no se
+     *   reintenta (duplicaría sumas); esos intervalos se marcan para recalcular desde las lecturas crudas.
+     * @return cuántos intervalos se escribieron.
+     */
+    private int writeClosed(Resolution resolution, List<ClosedBucket> buckets) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReadingRollup.class, resolution.getCollection());
+        for (ClosedBucket bucket : buckets) {
+            bulk.upsert(new Query(Criteria.where("_id").is(ReadingRollup.idFor(bucket.plantId(), bucket.accumulator().bucketStart))),
+                    toUpdate(bucket));
+        }
+        try {
+            bulk.execute();
+            return buckets.size();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                closed.add(buckets.get(error.getIndex()));
+            }
+            log.error("ROLLUPS: {} intervalo(s) {} no escritos, se reintentan: {}", e.getErrors().size(), resolution, e.getMessage());
+            return buckets.size() - e.getErrors().size();
+        } catch (Exception e) {
+            for (ClosedBucket bucket : buckets) {
+                dirty.add(new DirtyBucket(bucket.plantId(), resolution, bucket.accumulator().bucketStart));
+            }
+            log.error("ROLLUPS: Fallo al escribir {} intervalo(s) {}, se recalcularán desde las lecturas crudas: {}",
+                    buckets.size(), resolution, e.getMessage());
+            return 0;
+        }
+    }
+
+    private Update toUpdate(ClosedBucket bucket) {
+        Accumulator acc = bucket.accumulator();
+        Update update = new Update()
+                .setOnInsert("plantId", bucket.plantId())
+                .setOnInsert("bucketStart", new Date(acc.bucketStart))
+                .set("userId", bucket.userId())
+                .inc("count", acc.count);
+
+        for (int m = 0; m < METRICS.length; m++) {
+            MetricAccumulator metric = acc.metrics[m];
+            if (metric.count == 0) {
+                continue;
+            }
+            String field = METRICS[m];
+            update.min(field + ".min", metric.min)
+                    .max(field + ".max", metric.max)
+                    .inc(field + ".sum", metric.sum)
+                    .inc(field + ".count", metric.count)
+                    // Los flush de un mismo intervalo llegan en orden cronológico
+                    .set(field + ".last", metric.last)
+                    .set(field + ".lastTimestamp", new Date(metric.lastTimestamp));
+        }
+        return update;
+    }
+
+    // --- REPARACIÓN ---
+
+    /**
+     * Recalcula desde las lecturas crudas los intervalos con lecturas tardías o importadas.
+     */
+    @Scheduled(fixedRateString = "${rollups.repair-interval-ms:60000}")
+    public void repair() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        // Primero se escriben los cerrados pendientes: el recálculo reemplaza el documento completo
+        flushClosed();
+
+        Set<DirtyBucket> batch = new HashSet<>(dirty);
+        dirty.removeAll(batch);
+
+        int repaired = 0;
+        for (DirtyBucket bucket : batch) {
+            if (isOpen(bucket)) {
+                // Sigue abierto en memoria: se recalcula cuando se cierre y se escriba
+                dirty.add(bucket);
+                continue;
+            }
+            try {
+                recompute(bucket);
+                repairedCounter.increment();
+                repaired++;
+            } catch (Exception e) {
+                log.error("ROLLUPS: Fallo al reparar {} {} de {}: {}", bucket.resolution(), bucket.bucketStart(), bucket.plantId(), e.getMessage());
+                dirty.add(bucket);
+            }
+        }
+        log.info("🔧 ROLLUPS: {} intervalo(s) recalculados desde las lecturas crudas.", repaired);
+    }
+
+    private boolean isOpen(DirtyBucket bucket) {
+        PlantBuckets buckets = openByPlant.get(bucket.plantId());
+        if (buckets == null) {
+            return false;
+        }
+        synchronized (buckets) {
+            Accumulator open = buckets.open[bucket.resolution().ordinal()];
+            return open != null && open.bucketStart == bucket.bucketStart();
+        }
+    }
+
+    private void recompute(DirtyBucket bucket) {
+        Date start = new Date(bucket.bucketStart());
+        Date end = new Date(bucket.bucketStart() + bucket.resolution().getBucket().toMillis());
+
+        Document group = new Document("_id", null)
+                .append("count", new Document("$sum", 1))
+                .append("userId", new Document("$last", "$userId"))
+                .append("lastTimestamp", new Document("$last", "$timestamp"));
+        for (String metric : METRICS) {
+            String ref = "$" + metric;
+            group.append(metric + "_min", new Document("$min", ref))
+                    .append(metric + "_max", new Document("$max", ref))
+                    .append(metric + "_sum", new Document("$sum", ref))
+                    .append(metric + "_count", new Document("$sum", new Document("$cond", List.of(new Document("$isNumber", ref), 1, 0))))
+                    .append(metric + "_last", new Document("$last", ref));
+        }
+
+        Document match = new Document("plantId", bucket.plantId())
+                .append("qcStatus", Reading.QcStatus.VALID.name())
+                .append("timestamp", new Document("$gte", start).append("$lt", end));
+        List<Document> pipeline = new ArrayList<>(bucketLayout
+                ? ReadingBucketService.asReadingsStages(bucket.plantId(), start, end, match)
+                : List.of(new Document("$match", match)));
+        pipeline.add(new Document("$sort", new Document("timestamp", 1)));
+        pipeline.add(new Document("$group", group));
+
+        String id = ReadingRollup.idFor(bucket.plantId(), bucket.bucketStart());
+        var target = mongoTemplate.getCollection(bucket.resolution().getCollection());
+        String source = bucketLayout ? ReadingBucket.COLLECTION : Reading.COLLECTION;
+        Document result = mongoTemplate.getCollection(source).aggregate(pipeline).first();
+
+        if (result == null) {
+            target.deleteOne(Filters.eq("_id", id));
+            return;
+        }
+
+        Document rollup = new Document("_id", id)
+                .append("plantId", bucket.plantId())
+                .append("userId", result.getString("userId"))
+                .append("bucketStart", start)
+                .append("count", ((Number) result.get("count")).longValue());
+        for (String metric : METRICS) {
+            long metricCount = ((Number) result.get(metric + "_count")).longValue();
+            if (metricCount == 0) {
+                continue;
+            }
+            rollup.append(metric, new Document("min", toDouble(result.get(metric + "_min")))
+                    .append("max", toDouble(result.get(metric + "_max")))
+                    .append("sum", toDouble(result.get(metric + "_sum")))
+                    .append("count", metricCount)
+                    .append("last", toDouble(result.get(metric + "_last")))
+                    .append("lastTimestamp", result.get("lastTimestamp")));
+        }
+        target.replaceOne(Filters.eq("_id", id), rollup, new ReplaceOptions().upsert(true));
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    // --- CONSULTA ---
+
+    /**
+     * Inicio de la cobertura de rollups de cada planta (las plantas sin rollups no aparecen).
+     */
+    public Map<String, Instant> coveredSince(Collection<String> plantIds) {
+        Map<String, Instant> coverage = new HashMap<>();
+        for (Document document : mongoTemplate.getCollection(ReadingRollup.COVERAGE_COLLECTION)
+                .find(Filters.in("_id", plantIds))) {
+            coverage.put(document.getString("_id"), document.getDate("since").toInstant());
+        }
+        return coverage;
+    }
+
+    /**
+     * Devuelve la serie de la planta en [from, to).
+     * @param forced Resolución pedida explícitamente, o null para elegirla según maxPoints.
+     */
+    public RollupSeries query(String plantId, Instant from, Instant to, int maxPoints, Resolution forced) {
+        Resolution resolution = forced != null ? forced : chooseResolution(from, to, maxPoints);
+        long alignedFrom = resolution.bucketStart(from.toEpochMilli());
+
+        Query query = new Query(Criteria.where("plantId").is(plantId)
+                .and("bucketStart").gte(Instant.ofEpochMilli(alignedFrom)).lt(to))
+                .with(Sort.by(Sort.Direction.ASC, "bucketStart"));
+        List<ReadingRollup> points = new ArrayList<>(mongoTemplate.find(query, ReadingRollup.class, resolution.getCollection()));
+
+        // El intervalo abierto todavía no está en Mongo: se agrega desde memoria
+        ReadingRollup open = snapshotOpen(plantId, resolution);
+        if (open != null && open.getBucketStart().toEpochMilli() >= alignedFrom && open.getBucketStart().isBefore(to)) {
+            ReadingRollup last = points.isEmpty() ? null : points.get(points.size() - 1);
+            if (last != null && last.getBucketStart().equals(open.getBucketStart())) {
+                points.set(points.size() - 1, merge(last, open));
+            } else {
+                points.add(open);
+            }
+        }
+        return new RollupSeries(plantId, resolution, points);
+    }
+
+    /**
+     * La resolución más fina cuya cantidad de intervalos en el rango no supera maxPoints.
+     */
+    public static Resolution chooseResolution(Instant from, Instant to, int maxPoints) {
+        long rangeMs = Math.max(1, to.toEpochMilli() - from.toEpochMilli());
+        for (Resolution resolution : RESOLUTIONS) {
+            long buckets = (rangeMs + resolution.getBucket().toMillis() - 1) / resolution.getBucket().toMillis();
+            if (buckets <= maxPoints) {
+                return resolution;
+            }
+        }
+        return Resolution.DAY;
+    }
+
+    private ReadingRollup snapshotOpen(String plantId, Resolution resolution) {
+        PlantBuckets buckets = openByPlant.get(plantId);
+        if (buckets == null) {
+            return null;
+        }
+        synchronized (buckets) {
+            Accumulator open = buckets.open[resolution.ordinal()];
+            return open != null ? open.toRollup(plantId, buckets.userId) : null;
+        }
+    }
+
+    private static ReadingRollup merge(ReadingRollup persisted, ReadingRollup open) {
+        ReadingRollup merged = new ReadingRollup();
+        merged.setId(persisted.getId());
+        merged.setPlantId(persisted.getPlantId());
+        merged.setUserId(open.getUserId());
+        merged.setBucketStart(persisted.getBucketStart());
+        merged.setCount(persisted.getCount() + open.getCount());
+        merged.setTempC(mergeStats(persisted.getTempC(), open.getTempC()));
+        merged.setAmbientHumidity(mergeStats(persisted.getAmbientHumidity(), open.getAmbientHumidity()));
+        merged.setSoilHumidity(mergeStats(persisted.getSoilHumidity(), open.getSoilHumidity()));
+        merged.setLightLux(mergeStats(persisted.getLightLux(), open.getLightLux()));
+        return merged;
+    }
+
+    private static MetricStats mergeStats(MetricStats a, MetricStats b) {
+        if (a == null) {
+            return b;
+        }
+        return a.merge(b);
+    }
+
+    // --- ESTRUCTURAS EN MEMORIA ---
+
+    private record ClosedBucket(String plantId, String userId, Accumulator accumulator) {}
+
+    private record DirtyBucket(String plantId, Resolution resolution, long bucketStart) {}
+
+    private static final class PlantBuckets {
+        private final String plantId;
+        private final Accumulator[] open = new Accumulator[RESOLUTIONS.length];
+        private String userId;
+
+        private PlantBuckets(String plantId) {
+            this.plantId = plantId;
+        }
+    }
+
+    /**
+     * Intervalo abierto: acumuladores primitivos por métrica (sin objetos por lectura).
+     */
+    private static final class Accumulator {
+        private final Resolution resolution;
+        private final long bucketStart;
+        private final MetricAccumulator[] metrics = {
+                new MetricAccumulator(), new MetricAccumulator(), new MetricAccumulator(), new MetricAccumulator()
+        };
+        private long count;
+
+        private Accumulator(Resolution resolution, long bucketStart) {
+            this.resolution = resolution;
+            this.bucketStart = bucketStart;
+        }
+
+        void add(Reading reading, long ts) {
+            count++;
+            if (reading.getTempC() != null) {
+                metrics[0].add(reading.getTempC(), ts);
+            }
+            if (reading.getAmbientHumidity() != null) {
+                metrics[1].add(reading.getAmbientHumidity(), ts);
+            }
+            if (reading.getSoilHumidity() != null) {
+                metrics[2].add(reading.getSoilHumidity(), ts);
+            }
+            if (reading.getLightLux() != null) {
+                metrics[3].add(reading.getLightLux(), ts);
+            }
+        }
+
+        ReadingRollup toRollup(String plantId, String userId) {
+            ReadingRollup rollup = new ReadingRollup();
+            rollup.setId(ReadingRollup.idFor(plantId, bucketStart));
+            rollup.setPlantId(plantId);
+            rollup.setUserId(userId);
+            rollup.setBucketStart(Instant.ofEpochMilli(bucketStart));
+            rollup.setCount(count);
+            rollup.setTempC(metrics[0].toStats());
+            rollup.setAmbientHumidity(metrics[1].toStats());
+            rollup.setSoilHumidity(metrics[2].toStats());
+            rollup.setLightLux(metrics[3].toStats());
+            return rollup;
+        }
+    }
+
+    private static final class MetricAccumulator {
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private double sum;
+        private long count;
+        private double last;
+        private long lastTimestamp = Long.MIN_VALUE;
+
+        void add(double value, long ts) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+            count++;
+            if (ts >= lastTimestamp) {
+                last = value;
+                lastTimestamp = ts;
+            }
+        }
+
+        MetricStats toStats() {
+            if (count == 0) {
+                return null;
+            }
+            MetricStats stats = new MetricStats();
+            stats.setMin(min);
+            stats.setMax(max);
+            stats.setSum(sum);
+            stats.setCount(count);
+            stats.setLast(last);
+            stats.setLastTimestamp(Instant.ofEpochMilli(lastTimestamp));
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.reading.ReadingStats;
+import com.api.plant.dto.reading.ReadingStats.Bucket;
+import com.api.plant.dto.reading.ReadingStats.MetricSummary;
+import com.api.plant.entity.PlantDevice;
+import com.api.plant.entity.Reading;
+import com.api.plant.entity.ReadingBucket;
+import com.api.plant.entity.ReadingRollup.Resolution;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estadísticas por intervalo (min/max/avg/percentiles) calculadas en Mongo con agregaciones.
+ *
+ * - Sin percentiles y con un rango alineado, ya cerrado y cubierto por los rollups de todas las plantas
+ *   (ver ReadingRollupService.coveredSince), se agrega sobre los rollups (un documento por minuto/hora/día)
+ *   en lugar de las lecturas crudas: el costo depende del rango pedido, no del tamaño total de la colección.
+ * - Con percentiles se usa la colección cruda, siempre acotada por (plantId, timestamp).
+ * - Los resultados de rangos cerrados se cachean por (plantas, rango, intervalo, versión de umbrales).
+ *
+ * Versión mínima de MongoDB: 5.0 ($dateTrunc). Los percentiles usan $percentile, que requiere 7.0;
+ * con un servidor anterior las consultas con percentiles se rechazan (400) y el resto sigue funcionando.
+ */
+@Service
+public class ReadingStatsService {
+
+    public static final Set<String> METRICS = Set.of("tempC", "ambientHumidity", "soilHumidity", "lightLux");
+
+    // $percentile (agregación) existe desde MongoDB 7.0
+    static final int PERCENTILE_MIN_MAJOR_VERSION = 7;
+
+    private static final Pattern INTERVAL_PATTERN = Pattern.compile("^(\\d+)([mhd])$");
+
+    private final MongoTemplate mongoTemplate;
+    private final ReadingRollupService rollupService;
+    private final boolean bucketLayout;
+    private final Counter cacheHitCounter;
+    private final Counter cacheMissCounter;
+
+    @Value("${stats.max-buckets:5000}")
+    private int maxBuckets;
+
+    // Un rango se considera cerrado si termina antes de (ahora - este margen)
+    @Value("${stats.closed-range-margin-ms:120000}")
+    private long closedRangeMarginMs;
+
+    @Value("${stats.cache.ttl-ms:3600000}")
+    private long cacheTtlMs;
+
+    private final Map<CacheKey, CachedStats> cache;
+
+    // null = aún no consultado (buildInfo se pide una sola vez)
+    private volatile Boolean percentileSupported;
+
+    public ReadingStatsService(MongoTemplate mongoTemplate,
+                               ReadingRollupService rollupService,
+                               MeterRegistry meterRegistry,
+                               @Value("${stats.cache.max-entries:1000}") int cacheMaxEntries,
+                               @Value("${readings.layout:document}") String layout) {
+        this.mongoTemplate = mongoTemplate;
+        this.rollupService = rollupService;
+        this.bucketLayout = "bucket".equalsIgnoreCase(layout);
+        this.cacheHitCounter = meterRegistry.counter("stats.cache", "result", "hit");
+        this.cacheMissCounter = meterRegistry.counter("stats.cache", "result", "miss");
+        // LRU acotado (orden de acceso)
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CachedStats> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        };
+    }
+
+    /**
+     * Calcula las estadísticas de las plantas indicadas.
+     *
+     * @param interval    Tamaño del intervalo: 5m, 1h, 1d...
+     * @param metrics     Métricas a resumir (vacío = todas).
+     * @param percentiles Percentiles a calcular (ej. 50, 90, 95), vacío = ninguno.
+     * @param perPlant    true = un bucket por planta; false = todas las plantas juntas.
+     * @throws IllegalArgumentException si los parámetros no son válidos.
+     */
+    public ReadingStats compute(List<PlantDevice> devices, Instant from, Instant to, String interval,
+                                List<String> metrics, List<Integer> percentiles, boolean perPlant) {
+        Interval bin = parseInterval(interval);
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' debe ser anterior a 'to'.");
+        }
+        if (Duration.between(from, to).toMillis() / bin.duration().toMillis() > maxBuckets) {
+            throw new IllegalArgumentException("El rango genera más de " + maxBuckets + " intervalos. Use un intervalo mayor.");
+        }
+        List<String> selected = metrics == null || metrics.isEmpty() ? List.copyOf(METRICS) : metrics;
+        for (String metric : selected) {
+            if (!METRICS.contains(metric)) {
+                throw new IllegalArgumentException("Métrica desconocida: " + metric);
+            }
+        }
+        List<Integer> pcts = percentiles == null ? List.of() : percentiles;
+        for (Integer p : pcts) {
+            if (p == null || p <= 0 || p >= 100) {
+                throw new IllegalArgumentException("Los percentiles deben estar entre 1 y 99.");
+            }
+        }
+        if (!pcts.isEmpty() && !isPercentileSupported()) {
+            throw new IllegalArgumentException("Los percentiles requieren MongoDB " + PERCENTILE_MIN_MAJOR_VERSION + ".0 o superior.");
+        }
+
+        List<String> plantIds = devices.stream().map(PlantDevice::getPlantId).sorted().toList();
+        if (plantIds.isEmpty()) {
+            return new ReadingStats(interval, perPlant ? "plant" : "all", "raw", List.of());
+        }
+
+        boolean closed = to.toEpochMilli() <= System.currentTimeMillis() - closedRangeMarginMs;
+        CacheKey key = null;
+        if (closed) {
+            // La versión de umbrales de cada planta forma parte de la llave
+            List<Long> versions = devices.stream()
+                    .sorted(Comparator.comparing(PlantDevice::getPlantId))
+                    .map(PlantDevice::getThresholdsVersion)
+                    .toList();
+            key = new CacheKey(plantIds, versions, from, to, interval, selected, pcts, perPlant);
+            ReadingStats cached = getCached(key);
+            if (cached != null) {
+                cacheHitCounter.increment();
+                return cached;
+            }
+            cacheMissCounter.increment();
+        }
+
+        Resolution rollup = pcts.isEmpty() ? chooseRollup(bin, plantIds, from, to) : null;
+        ReadingStats result = rollup != null
+                ? aggregateRollups(rollup, plantIds, from, to, bin, interval, selected, perPlant)
+                : aggregateRaw(plantIds, from, to, bin, interval, selected, pcts, perPlant);
+
+        if (key != null) {
+            synchronized (cache) {
+                cache.put(key, new CachedStats(result, System.currentTimeMillis()));
+            }
+        }
+        return result;
+    }
+
+    // --- AGREGACIÓN SOBRE LECTURAS CRUDAS ---
+
+    private ReadingStats aggregateRaw(List<String> plantIds, Instant from, Instant to, Interval bin, String interval,
+                                      List<String> metrics, List<Integer> percentiles, boolean perPlant) {
+        Document group = new Document("_id", groupId("$timestamp", bin, perPlant))
+                .append("count", new Document("$sum", 1));
+        List<Double> p = percentiles.stream().map(value -> value / 100.0).toList();
+        for (String metric : metrics) {
+            String ref = "$" + metric;
+            group.append(metric + "_min", new Document("$min", ref))
+                    .append(metric + "_max", new Document("$max", ref))
+                    .append(metric + "_avg", new Document("$avg", ref));
+            if (!p.isEmpty()) {
+                group.append(metric + "_pct", new Document("$percentile",
+                        new Document("input", ref).append("p", p).append("method", "approximate")));
+            }
+        }
+
+        Document match = new Document("plantId", new Document("$in", plantIds))
+                .append("qcStatus", Reading.QcStatus.VALID.name())
+                .append("timestamp", new Document("$gte", Date.from(from)).append("$lt", Date.from(to)));
+        List<Document> pipeline = new ArrayList<>(bucketLayout
+                ? ReadingBucketService.asReadingsStages(new Document("$in", plantIds), Date.from(from), Date.from(to), match)
+                : List.of(new Document("$match", match)));
+        pipeline.add(new Document("$group", group));
+        pipeline.add(new Document("$sort", new Document("_id.start", 1).append("_id.plantId", 1)));
+
+        String collection = bucketLayout ? ReadingBucket.COLLECTION : Reading.COLLECTION;
+        List<Bucket> buckets = new ArrayList<>();
+        for (Document row : mongoTemplate.getCollection(collection).aggregate(pipeline).allowDiskUse(true)) {
+            Map<String, MetricSummary> summaries = new LinkedHashMap<>();
+            for (String metric : metrics) {
+                Map<String, Double> pctValues = null;
+                List<?> values = row.getList(metric + "_pct", Object.class);
+                if (values != null) {
+                    pctValues = new LinkedHashMap<>();
+                    for (int i = 0; i < percentiles.size() && i < values.size(); i++) {
+                        pctValues.put("p" + percentiles.get(i), toDouble(values.get(i)));
+                    }
+                }
+                summaries.put(metric, new MetricSummary(
+                        toDouble(row.get(metric + "_min")),
+                        toDouble(row.get(metric + "_max")),
+                        toDouble(row.get(metric + "_avg")),
+                        pctValues));
+            }
+            buckets.add(toBucket(row, summaries));
+        }
+        return new ReadingStats(interval, perPlant ? "plant" : "all", "raw", buckets);
+    }
+
+    // --- AGREGACIÓN SOBRE ROLLUPS ---
+
+    private ReadingStats aggregateRollups(Resolution resolution, List<String> plantIds, Instant from, Instant to,
+                                          Interval bin, String interval, List<String> metrics, boolean perPlant) {
+        Document group = new Document("_id", groupId("$bucketStart", bin, perPlant))
+                .append("count", new Document("$sum", "$count"));
+        for (String metric : metrics) {
+            group.append(metric + "_min", new Document("$min", "$" + metric + ".min"))
+                    .append(metric + "_max", new Document("$max", "$" + metric + ".max"))
+                    .append(metric + "_sum", new Document("$sum", "$" + metric + ".sum"))
+                    .append(metric + "_count", new Document("$sum", "$" + metric + ".count"));
+        }
+
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document("plantId", new Document("$in", plantIds))
+                        .append("bucketStart", new Document("$gte", Date.from(from)).append("$lt", Date.from(to)))),
+                new Document("$group", group),
+                new Document("$sort", new Document("_id.start", 1).append("_id.plantId", 1))
+        );
+
+        List<Bucket> buckets = new ArrayList<>();
+        for (Document row : mongoTemplate.getCollection(resolution.getCollection()).aggregate(pipeline)) {
+            Map<String, MetricSummary> summaries = new LinkedHashMap<>();
+            for (String metric : metrics) {
+                Double sum = toDouble(row.get(metric + "_sum"));
+                Double count = toDouble(row.get(metric + "_count"));
+                summaries.put(metric, new MetricSummary(
+                        toDouble(row.get(metric + "_min")),
+                        toDouble(row.get(metric + "_max")),
+                        sum != null && count != null && count > 0 ? sum / count : null,
+                        null));
+            }
+            buckets.add(toBucket(row, summaries));
+        }
+        return new ReadingStats(interval, perPlant ? "plant" : "all", "rollup-" + resolution.name().toLowerCase(), buckets);
+    }
+
+    /**
+     * Rollup más grueso que sirve para el intervalo: el intervalo debe ser múltiplo de la resolución,
+     * el rango debe estar alineado a ella, ya cerrado (el intervalo abierto aún no está en Mongo) y cubierto
+     * por los rollups de todas las plantas. Si alguna planta tiene lecturas del rango anteriores a su
+     * cobertura (datos previos al despliegue de los rollups), se agrega sobre las lecturas crudas.
+     */
+    private Resolution chooseRollup(Interval bin, List<String> plantIds, Instant from, Instant to) {
+        long now = System.currentTimeMillis() - closedRangeMarginMs;
+        Map<String, Instant> coverage = null;
+        Resolution[] candidates = Resolution.values();
+        for (int i = candidates.length - 1; i >= 0; i--) {
+            Resolution resolution = candidates[i];
+            long size = resolution.getBucket().toMillis();
+            boolean multiple = bin.duration().toMillis() % size == 0;
+            boolean aligned = from.toEpochMilli() % size == 0 && to.toEpochMilli() % size == 0;
+            boolean closed = to.toEpochMilli() <= resolution.bucketStart(now);
+            if (!multiple || !aligned || !closed) {
+                continue;
+            }
+            if (coverage == null) {
+                coverage = rollupService.coveredSince(plantIds);
+            }
+            if (isCovered(resolution, coverage, plantIds, from)) {
+                return resolution;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * true si para todas las plantas el rango empieza en o después del primer intervalo completo de la resolución
+     * (el intervalo que contiene 'since' pudo tener lecturas anteriores que no se acumularon).
+     */
+    private static boolean isCovered(Resolution resolution, Map<String, Instant> coverage, List<String> plantIds, Instant from) {
+        for (String plantId : plantIds) {
+            Instant since = coverage.get(plantId);
+            if (since == null) {
+                return false;
+            }
+            long start = resolution.bucketStart(since.toEpochMilli());
+            long firstComplete = start == since.toEpochMilli() ? start : start + resolution.getBucket().toMillis();
+            if (from.toEpochMilli() < firstComplete) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- AUXILIARES ---
+
+    private boolean isPercentileSupported() {
+        Boolean supported = percentileSupported;
+        if (supported == null) {
+            List<Integer> version = mongoTemplate.executeCommand(new Document("buildInfo", 1))
+                    .getList("versionArray", Integer.class);
+            supported = version != null && !version.isEmpty() && version.get(0) >= PERCENTILE_MIN_MAJOR_VERSION;
+            percentileSupported = supported;
+        }
+        return supported;
+    }
+
+    private static Document groupId(String dateField, Interval bin, boolean perPlant) {
+        Document id = new Document("start", new Document("$dateTrunc", new Document("date", dateField)
+                .append("unit", bin.unit())
+                .append("binSize", bin.binSize())));
+        if (perPlant) {
+            id.append("plantId", "$plantId");
+        }
+        return id;
+    }
+
+    private static Bucket toBucket(Document row, Map<String, MetricSummary> summaries) {
+        Document id = row.get("_id", Document.class);
+        return new Bucket(
+                id.getDate("start").toInstant(),
+                id.getString("plantId"),
+                ((Number) row.get("count")).longValue(),
+                summaries);
+    }
+
+    private ReadingStats getCached(CacheKey key) {
+        synchronized (cache) {
+            CachedStats cached = cache.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - cached.createdAt() > cacheTtlMs) {
+                cache.remove(key);
+                return null;
+            }
+            return cached.stats();
+        }
+    }
+
+    static Interval parseInterval(String interval) {
+        Matcher matcher = interval == null ? null : INTERVAL_PATTERN.matcher(interval.trim());
+        if (matcher == null || !matcher.matches()) {
+            throw new IllegalArgumentException("Intervalo inválido (ej. 5m, 1h, 1d): " + interval);
+        }
+        int binSize = Integer.parseInt(matcher.group(1));
+        if (binSize <= 0) {
+            throw new IllegalArgumentException("El intervalo debe ser mayor que cero.");
+        }
+        return switch (matcher.group(2)) {
+            case "m" -> new Interval("minute", binSize, Duration.ofMinutes(binSize));
+            case "h" -> new Interval("hour", binSize, Duration.ofHours(binSize));
+            default -> new Interval("day", binSize, Duration.ofDays(binSize));
+        };
+    }
+
+    private static Double toDouble(Object value) {
+        return value instanceof Number number ? number.doubleValue() : null;
+    }
+
+    /**
+     * Intervalo en términos de $dateTrunc (unit + binSize).
+     */
+    record Interval(String unit, int binSize, Duration duration) {}
+
+    private record CacheKey(List<String> plantIds, List<Long> thresholdsVersions, Instant from, Instant to,
+                            String interval, List<String> metrics, List<Integer> percentiles, boolean perPlant) {}
+
+    private record CachedStats(ReadingStats stats, long createdAt) {}
+}
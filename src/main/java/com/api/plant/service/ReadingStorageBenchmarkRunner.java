@@ -0,0 +1,206 @@
+package com.api.plant.service;
+
+import com.api.plant.entity.Reading;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de inserción y de consulta de lecturas: colección plana sin índices (antes) contra la colección
+ * time-series con los índices de ReadingCollectionInitializer (después), por línea de comandos
+ * (el proceso termina al acabar).
+ *
+ * Ejemplo (contra un Mongo local; usa colecciones temporales 'bench_readings_*' y las borra al final):
+ * <pre>
+ * java -jar plant.jar --spring.main.web-application-type=none --readings.benchmark \
+ *      [--readings.benchmark.count=200000] [--readings.benchmark.plants=50] [--readings.benchmark.queries=2000]
+ * </pre>
+ *
+ * Mide: inserción en lotes de 1000 (lecturas/s), la consulta de QC por mensaje (última lectura VALID
+ * de la planta) y un rango de historial de una hora por planta (ms por consulta, mediana y p99).
+ */
+@Component
+public class ReadingStorageBenchmarkRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingStorageBenchmarkRunner.class);
+
+    private static final String FLAT_COLLECTION = "bench_readings_flat";
+    private static final String TIME_SERIES_COLLECTION = "bench_readings_ts";
+    private static final int INSERT_BATCH = 1000;
+    // Una lectura por minuto por planta (como los dispositivos)
+    private static final long READING_INTERVAL_MS = 60_000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ConfigurableApplicationContext context;
+
+    public ReadingStorageBenchmarkRunner(MongoTemplate mongoTemplate, ConfigurableApplicationContext context) {
+        this.mongoTemplate = mongoTemplate;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("readings.benchmark")) {
+            return;
+        }
+        int exitCode = 0;
+        try {
+            benchmark(args);
+        } catch (Exception e) {
+            log.error("BENCHMARK: Falló: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    private record Result(String insertPerSecond, String lastValidMedian, String lastValidP99,
+                          String rangeMedian, String rangeP99) {}
+
+    private void benchmark(ApplicationArguments args) {
+        int count = intOption(args, "readings.benchmark.count", 200_000);
+        int plants = intOption(args, "readings.benchmark.plants", 50);
+        int queries = intOption(args, "readings.benchmark.queries", 2_000);
+
+        MongoDatabase database = mongoTemplate.getDb();
+        try {
+            drop(database);
+
+            // Antes: colección plana, solo el índice de _id
+            database.createCollection(FLAT_COLLECTION);
+            // Después: time-series (mismas opciones que @TimeSeries de Reading) + índices de ReadingCollectionInitializer
+            database.createCollection(TIME_SERIES_COLLECTION, new CreateCollectionOptions().timeSeriesOptions(
+                    new TimeSeriesOptions("timestamp").metaField("plantId").granularity(TimeSeriesGranularity.MINUTES)));
+            MongoCollection<Document> timeSeries = database.getCollection(TIME_SERIES_COLLECTION);
+            timeSeries.createIndex(Indexes.compoundIndex(Indexes.ascending("plantId", "qcStatus"), Indexes.descending("timestamp")),
+                    new IndexOptions().name("plant_qc_ts_idx"));
+            timeSeries.createIndex(Indexes.ascending("plantId", "timestamp", "_id"),
+                    new IndexOptions().name("plant_ts_id_idx"));
+            timeSeries.createIndex(Indexes.compoundIndex(Indexes.ascending("userId"), Indexes.descending("timestamp")),
+                    new IndexOptions().name("user_ts_idx"));
+
+            long end = System.currentTimeMillis();
+            long start = end - (long) (count / plants) * READING_INTERVAL_MS;
+
+            Result flat = measure(database.getCollection(FLAT_COLLECTION), count, plants, queries, start, end);
+            Result after = measure(timeSeries, count, plants, queries, start, end);
+
+            log.info("📊 BENCHMARK LECTURAS ({} lecturas, {} plantas, {} consultas por tipo):", count, plants, queries);
+            log.info("   plana sin índices : inserción {} lecturas/s | última VALID {} ms (p99 {}) | rango 1 h {} ms (p99 {})",
+                    flat.insertPerSecond(), flat.lastValidMedian(), flat.lastValidP99(), flat.rangeMedian(), flat.rangeP99());
+            log.info("   time-series       : inserción {} lecturas/s | última VALID {} ms (p99 {}) | rango 1 h {} ms (p99 {})",
+                    after.insertPerSecond(), after.lastValidMedian(), after.lastValidP99(), after.rangeMedian(), after.rangeP99());
+        } finally {
+            drop(database);
+        }
+    }
+
+    private Result measure(MongoCollection<Document> collection, int count, int plants, int queries, long start, long end) {
+        // 1. Inserción en lotes (mismo generador con la misma semilla para ambas colecciones)
+        SplittableRandom random = new SplittableRandom(42);
+        List<Document> batch = new ArrayList<>(INSERT_BATCH);
+        long insertStart = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            batch.add(reading(i, plants, start, random));
+            if (batch.size() == INSERT_BATCH || i == count - 1) {
+                collection.insertMany(batch, new InsertManyOptions().ordered(false));
+                batch.clear();
+            }
+        }
+        long insertNanos = System.nanoTime() - insertStart;
+
+        // 2. Consultas (calentamiento breve antes de medir)
+        long[] lastValid = new long[queries];
+        long[] range = new long[queries];
+        SplittableRandom queryRandom = new SplittableRandom(7);
+        for (int i = 0; i < Math.min(100, queries); i++) {
+            lastValid(collection, plantId(queryRandom.nextInt(plants)));
+        }
+        for (int i = 0; i < queries; i++) {
+            String plantId = plantId(queryRandom.nextInt(plants));
+            long t0 = System.nanoTime();
+            lastValid(collection, plantId);
+            lastValid[i] = System.nanoTime() - t0;
+
+            long from = start + (long) (queryRandom.nextDouble() * Math.max(1, end - start - 3_600_000L));
+            t0 = System.nanoTime();
+            collection.find(Filters.and(Filters.eq("plantId", plantId),
+                            Filters.gte("timestamp", new Date(from)), Filters.lt("timestamp", new Date(from + 3_600_000L))))
+                    .sort(Sorts.descending("timestamp"))
+                    .into(new ArrayList<>());
+            range[i] = System.nanoTime() - t0;
+        }
+
+        Arrays.sort(lastValid);
+        Arrays.sort(range);
+        return new Result(
+                String.format("%.0f", count / (insertNanos / 1e9)),
+                millis(percentile(lastValid, 0.5)), millis(percentile(lastValid, 0.99)),
+                millis(percentile(range, 0.5)), millis(percentile(range, 0.99)));
+    }
+
+    private static void lastValid(MongoCollection<Document> collection, String plantId) {
+        Bson filter = Filters.and(Filters.eq("plantId", plantId), Filters.eq("qcStatus", Reading.QcStatus.VALID.name()));
+        collection.find(filter).sort(Sorts.descending("timestamp")).limit(1).first();
+    }
+
+    private static Document reading(int index, int plants, long start, SplittableRandom random) {
+        int plant = index % plants;
+        return new Document("plantId", plantId(plant))
+                .append("userId", "bench-user-" + (plant % 10))
+                .append("timestamp", new Date(start + (long) (index / plants) * READING_INTERVAL_MS))
+                .append("tempC", 18 + random.nextDouble() * 12)
+                .append("ambientHumidity", 40 + random.nextInt(40))
+                .append("lightLux", random.nextInt(20_000))
+                .append("soilHumidity", 20 + random.nextInt(60))
+                // ~5% rechazadas por QC, como en producción
+                .append("qcStatus", random.nextInt(20) == 0 ? Reading.QcStatus.QC_ERROR.name() : Reading.QcStatus.VALID.name())
+                .append("advisorResult", Reading.AdvisorResult.INFO.name());
+    }
+
+    private static String plantId(int plant) {
+        return String.format("PNT-BENCH%03d", plant);
+    }
+
+    private static void drop(MongoDatabase database) {
+        database.getCollection(FLAT_COLLECTION).drop();
+        database.getCollection(TIME_SERIES_COLLECTION).drop();
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, Math.max(0, (int) Math.ceil(p * sorted.length) - 1))];
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static int intOption(ApplicationArguments args, String name, int defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? defaultValue : Math.max(1, Integer.parseInt(values.get(0)));
+    }
+}
@@ -0,0 +1,486 @@
+package com.api.plant.service;
+
+import com.api.plant.config.WorkerThreads;
+import com.api.plant.entity.PlantDevice;
+import com.api.plant.entity.Reading;
+import com.api.plant.repository.ReadingRepository;
+import com.api.plant.storage.ReadingSpool;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistencia de lecturas y heartbeats de la ingesta, con spool local cuando Mongo falla.
+ *
+ * - Camino normal: escritura directa en Mongo, con el layout de 'readings.layout' (ver ReadingBucket).
+ * - Si la escritura falla (o tarda más de 'spool.slow-write-ms'), se pasa a modo degradado: todo va al
+ *   spool local (ReadingSpool) hasta que el reenvío lo vacíe. Mientras haya registros pendientes, las
+ *   lecturas nuevas también van al spool para conservar el orden.
+ * - Un hilo dedicado reenvía el spool a Mongo en lotes (insertMany + bulk de heartbeats) con backoff.
+ * - Las lecturas llevan _id asignado antes de encolarse; tras un reinicio, el primer lote se filtra contra
+ *   los _id ya presentes (la colección time-series no tiene índice único de _id).
+ */
+@Service
+public class ReadingStorageService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingStorageService.class);
+
+    private final WorkerThreads workerThreads;
+
+    private final MongoTemplate mongoTemplate;
+    private final ReadingRepository readingRepository;
+    private final ReadingSpool spool;
+    private final ReadingBucketService bucketService;
+    private final ReadingRollupService rollupService;
+
+    // 'document': una lectura por documento (time-series); 'bucket': un documento por planta y hora
+    private final boolean bucketLayout;
+
+    @Value("${spool.replay-batch-size:500}")
+    private int replayBatchSize;
+
+    @Value("${spool.replay-interval-ms:1000}")
+    private long replayIntervalMs;
+
+    @Value("${spool.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    // Una escritura directa más lenta que esto también activa el modo degradado
+    @Value("${spool.slow-write-ms:2000}")
+    private long slowWriteMs;
+
+    // Última lectura VALID que quedó en el spool, por planta (para el QC mientras Mongo no responde)
+    private final Map<String, Reading> lastSpooledValid = new ConcurrentHashMap<>();
+
+    private volatile boolean degraded;
+    private volatile boolean running;
+    private Thread replayer;
+    // true = lo pendiente pudo haber llegado ya a Mongo (caída, escritura fallida o lote a medias): se filtra por _id
+    private volatile boolean checkDuplicates;
+
+    // --- Métricas ---
+    private final MeterRegistry meterRegistry;
+    private final Counter spooledCounter;
+    private final Counter replayedCounter;
+    private final Counter rejectedCounter;
+    private final Timer writeTimer;
+
+    public ReadingStorageService(MongoTemplate mongoTemplate,
+                                 ReadingRepository readingRepository,
+                                 ReadingSpool spool,
+                                 ReadingBucketService bucketService,
+                                 ReadingRollupService rollupService,
+                                 MeterRegistry meterRegistry,
+                                 WorkerThreads workerThreads,
+                                 @Value("${readings.layout:document}") String layout) {
+        this.workerThreads = workerThreads;
+        this.mongoTemplate = mongoTemplate;
+        this.readingRepository = readingRepository;
+        this.spool = spool;
+        this.bucketService = bucketService;
+        this.rollupService = rollupService;
+        this.bucketLayout = "bucket".equalsIgnoreCase(layout);
+
+        this.meterRegistry = meterRegistry;
+        this.spooledCounter = meterRegistry.counter("readings.spool.appended");
+        this.replayedCounter = meterRegistry.counter("readings.spool.replayed");
+        this.rejectedCounter = meterRegistry.counter("readings.spool.rejected");
+        this.writeTimer = Timer.builder("readings.write.duration")
+                .description("Duración de la escritura directa de una lectura en Mongo")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // Los gauges se registran con el bean ya construido (no se publica 'this' desde el constructor)
+        meterRegistry.gauge("readings.spool.pending", spool, ReadingSpool::pendingRecords);
+        meterRegistry.gauge("readings.spool.disk.bytes", spool, ReadingSpool::diskBytes);
+        meterRegistry.gauge("readings.spool.degraded", this, service -> service.degraded ? 1 : 0);
+
+        // Lo pendiente de una ejecución anterior pudo haberse insertado sin llegar al checkpoint
+        checkDuplicates = !spool.isEmpty();
+        degraded = !spool.isEmpty();
+        running = true;
+        replayer = workerThreads.start("reading-spool-replayer", this::runLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (replayer != null) {
+            replayer.interrupt();
+        }
+        spool.force();
+    }
+
+    // --- ESCRITURA ---
+
+    /**
+     * Persiste la lectura y, si se pasa el dispositivo, su heartbeat (lastDataReceived).
+     * Nunca lanza por una falla de Mongo: en ese caso la escritura queda en el spool.
+     */
+    public void persist(Reading reading, PlantDevice heartbeat) {
+        if (reading.getId() == null) {
+            reading.setId(new ObjectId().toHexString());
+        }
+
+        if (!writeDirect(() -> store(reading))) {
+            if (append(ReadingSpool.TYPE_READING, encodeReading(reading)) && reading.getQcStatus() == Reading.QcStatus.VALID) {
+                lastSpooledValid.merge(reading.getPlantId(), reading,
+                        (current, candidate) -> candidate.getTimestamp().isAfter(current.getTimestamp()) ? candidate : current);
+            }
+        }
+
+        if (heartbeat != null && heartbeat.getLastDataReceived() != null) {
+            String plantId = heartbeat.getPlantId();
+            Instant seen = heartbeat.getLastDataReceived();
+            if (!writeDirect(() -> touchHeartbeat(plantId, seen))) {
+                append(ReadingSpool.TYPE_HEARTBEAT, encodeHeartbeat(plantId, seen));
+            }
+        }
+    }
+
+    /**
+     * Última lectura VALID de la planta, considerando también las que siguen en el spool.
+     */
+    public Optional<Reading> findLastValid(String plantId) {
+        Reading spooled = lastSpooledValid.get(plantId);
+        if (!degraded) {
+            try {
+                Optional<Reading> stored = bucketLayout
+                        ? bucketService.findLastValid(plantId)
+                        : readingRepository.findTopByPlantIdAndQcStatusOrderByTimestampDesc(plantId, Reading.QcStatus.VALID);
+                if (stored.isPresent() && (spooled == null || !stored.get().getTimestamp().isBefore(spooled.getTimestamp()))) {
+                    return stored;
+                }
+            } catch (DataAccessException | MongoException e) {
+                log.debug("SPOOL: No se pudo leer la última lectura válida de {}: {}", plantId, e.getMessage());
+            }
+        }
+        return Optional.ofNullable(spooled);
+    }
+
+    /**
+     * Página de lecturas de un usuario posteriores a (afterTimestamp, afterId) y anteriores a 'to',
+     * en orden (timestamp, _id). Reanudación de streams SSE: se pide la siguiente página desde la última lectura.
+     * @param afterId _id de la última lectura ya entregada (null = todo lo posterior a afterTimestamp).
+     */
+    public List<Reading> findByUserAfter(String userId, Instant afterTimestamp, String afterId, Instant to, int limit) {
+        if (bucketLayout) {
+            return bucketService.findByUserAfter(userId, afterTimestamp, afterId, to, limit);
+        }
+        Criteria criteria = Criteria.where("userId").is(userId).and("timestamp").lt(to);
+        if (afterId == null) {
+            criteria = criteria.andOperator(Criteria.where("timestamp").gt(afterTimestamp));
+        } else {
+            criteria = criteria.orOperator(
+                    Criteria.where("timestamp").gt(afterTimestamp),
+                    Criteria.where("timestamp").is(afterTimestamp).and("_id").gt(afterId)
+            );
+        }
+        Query query = new Query(criteria)
+                .with(Sort.by(Sort.Direction.ASC, "timestamp", "_id"))
+                .limit(limit);
+        return mongoTemplate.find(query, Reading.class);
+    }
+
+    public boolean isBucketLayout() {
+        return bucketLayout;
+    }
+
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * true si quedan lecturas en el spool que todavía no llegaron a Mongo.
+     */
+    public boolean hasPendingSpool() {
+        return !spool.isEmpty();
+    }
+
+    private boolean writeDirect(Runnable write) {
+        if (degraded || !spool.isEmpty()) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            write.run();
+        } catch (DataAccessException | MongoException e) {
+            // La escritura pudo aplicarse en el servidor (ej. timeout): el reenvío debe filtrar duplicados
+            checkDuplicates = true;
+            enterDegraded("Mongo no disponible (" + e.getMessage() + ")");
+            return false;
+        }
+        long elapsed = System.nanoTime() - start;
+        writeTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        if (TimeUnit.NANOSECONDS.toMillis(elapsed) > slowWriteMs) {
+            enterDegraded("escritura lenta (" + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms)");
+        }
+        return true;
+    }
+
+    private void enterDegraded(String reason) {
+        if (!degraded) {
+            degraded = true;
+            log.warn("💾 SPOOL: {}. Las lecturas se guardan en el spool local hasta que Mongo se recupere.", reason);
+        }
+    }
+
+    private boolean append(byte type, byte[] payload) {
+        try {
+            if (spool.append(type, payload)) {
+                spooledCounter.increment();
+                return true;
+            }
+            rejectedCounter.increment();
+            log.error("SPOOL: Sin espacio (spool.max-bytes). Registro descartado.");
+        } catch (IOException e) {
+            rejectedCounter.increment();
+            log.error("SPOOL: No se pudo escribir en el spool: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    private void store(Reading reading) {
+        if (bucketLayout) {
+            bucketService.append(reading);
+        } else {
+            readingRepository.save(reading);
+        }
+    }
+
+    private void touchHeartbeat(String plantId, Instant seen) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("plantId").is(plantId)),
+                new Update().max("lastDataReceived", seen), PlantDevice.class);
+    }
+
+    // --- REENVÍO ---
+
+    private void runLoop() {
+        long backoff = replayIntervalMs;
+        while (running) {
+            try {
+                if (spool.isEmpty()) {
+                    if (degraded && ping()) {
+                        degraded = false;
+                        lastSpooledValid.clear();
+                        log.info("✅ SPOOL: Mongo disponible y spool vacío. Escritura directa reanudada.");
+                    }
+                    Thread.sleep(replayIntervalMs);
+                    continue;
+                }
+
+                spool.force();
+                ReadingSpool.Batch batch = spool.read(replayBatchSize);
+                replay(batch.entries());
+                spool.commit(batch);
+                replayedCounter.increment(batch.entries().size());
+                log.debug("SPOOL: {} registro(s) reenviados a Mongo; quedan {}.", batch.entries().size(), spool.pendingRecords());
+                backoff = replayIntervalMs;
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.warn("SPOOL: Reenvío fallido ({}). Reintento en {} ms.", e.getMessage(), backoff);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(backoff * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    private void replay(List<ReadingSpool.Entry> entries) {
+        List<Reading> readings = new ArrayList<>();
+        Map<String, Instant> heartbeats = new HashMap<>();
+        for (ReadingSpool.Entry entry : entries) {
+            if (entry.type() == ReadingSpool.TYPE_READING) {
+                readings.add(decodeReading(entry.payload()));
+            } else if (entry.type() == ReadingSpool.TYPE_HEARTBEAT) {
+                decodeHeartbeat(entry.payload(), heartbeats);
+            }
+        }
+
+        try {
+            if (checkDuplicates && !readings.isEmpty()) {
+                Set<String> existing = bucketLayout ? bucketService.existingIds(readings) : existingIds(readings);
+                readings.removeIf(reading -> existing.contains(reading.getId()));
+            }
+            if (!readings.isEmpty()) {
+                if (bucketLayout) {
+                    bucketService.appendAll(readings);
+                } else {
+                    mongoTemplate.insert(readings, Reading.class);
+                }
+                // Llegan fuera de orden respecto de los rollups ya escritos: se recalculan con las lecturas crudas
+                rollupService.markForRepair(readings);
+            }
+            if (!heartbeats.isEmpty()) {
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PlantDevice.class);
+                heartbeats.forEach((plantId, seen) -> bulk.updateOne(
+                        new Query(Criteria.where("plantId").is(plantId)),
+                        new Update().max("lastDataReceived", seen)));
+                bulk.execute();
+            }
+        } catch (RuntimeException e) {
+            // Parte del lote pudo quedar insertada: el reintento del mismo lote debe filtrar lo que ya está
+            checkDuplicates = true;
+            throw e;
+        }
+        checkDuplicates = false;
+    }
+
+    private Set<String> existingIds(List<Reading> readings) {
+        List<ObjectId> ids = readings.stream()
+                .map(Reading::getId)
+                .filter(ObjectId::isValid)
+                .map(ObjectId::new)
+                .toList();
+        Set<String> existing = new HashSet<>();
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(Reading.COLLECTION)
+                .find(Filters.in("_id", ids))
+                .projection(Projections.include("_id"))
+                .iterator()) {
+            cursor.forEachRemaining(doc -> existing.add(doc.getObjectId("_id").toHexString()));
+        }
+        return existing;
+    }
+
+    private boolean ping() {
+        try {
+            mongoTemplate.executeCommand(new Document("ping", 1));
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // --- CODIFICACIÓN DE REGISTROS ---
+
+    /**
+     * Registro de lectura del spool. plantId y userId vacíos = null (ej. una lectura QC_ERROR sin dispositivo);
+     * qcStatus y advisorResult con el código estable del enum (-1 = null).
+     */
+    static byte[] encodeReading(Reading reading) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(reading.getId());
+            out.writeUTF(reading.getPlantId() != null ? reading.getPlantId() : "");
+            out.writeUTF(reading.getUserId() != null ? reading.getUserId() : "");
+            out.writeLong(reading.getTimestamp().toEpochMilli());
+            int present = (reading.getTempC() != null ? 1 : 0)
+                    | (reading.getAmbientHumidity() != null ? 2 : 0)
+                    | (reading.getSoilHumidity() != null ? 4 : 0)
+                    | (reading.getLightLux() != null ? 8 : 0);
+            out.writeByte(present);
+            if (reading.getTempC() != null) {
+                out.writeDouble(reading.getTempC());
+            }
+            if (reading.getAmbientHumidity() != null) {
+                out.writeInt(reading.getAmbientHumidity());
+            }
+            if (reading.getSoilHumidity() != null) {
+                out.writeInt(reading.getSoilHumidity());
+            }
+            if (reading.getLightLux() != null) {
+                out.writeInt(reading.getLightLux());
+            }
+            out.writeByte(reading.getQcStatus() != null ? reading.getQcStatus().code() : -1);
+            out.writeByte(reading.getAdvisorResult() != null ? reading.getAdvisorResult().code() : -1);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Reading decodeReading(byte[] payload) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            Reading reading = new Reading();
+            reading.setId(in.readUTF());
+            String plantId = in.readUTF();
+            reading.setPlantId(plantId.isEmpty() ? null : plantId);
+            String userId = in.readUTF();
+            reading.setUserId(userId.isEmpty() ? null : userId);
+            reading.setTimestamp(Instant.ofEpochMilli(in.readLong()));
+            int present = in.readUnsignedByte();
+            reading.setTempC((present & 1) != 0 ? in.readDouble() : null);
+            reading.setAmbientHumidity((present & 2) != 0 ? in.readInt() : null);
+            reading.setSoilHumidity((present & 4) != 0 ? in.readInt() : null);
+            reading.setLightLux((present & 8) != 0 ? in.readInt() : null);
+            byte qc = in.readByte();
+            byte advisor = in.readByte();
+            // Código desconocido (registro de una versión más nueva): queda en null
+            reading.setQcStatus(qc >= 0 ? Reading.QcStatus.fromCode(qc) : null);
+            reading.setAdvisorResult(advisor >= 0 ? Reading.AdvisorResult.fromCode(advisor) : null);
+            return reading;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] encodeHeartbeat(String plantId, Instant seen) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(plantId);
+            out.writeLong(seen.toEpochMilli());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void decodeHeartbeat(byte[] payload, Map<String, Instant> heartbeats) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            String plantId = in.readUTF();
+            Instant seen = Instant.ofEpochMilli(in.readLong());
+            heartbeats.merge(plantId, seen, (a, b) -> a.isAfter(b) ? a : b);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
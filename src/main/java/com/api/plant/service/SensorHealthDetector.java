@@ -0,0 +1,258 @@
+package com.api.plant.service;
+
+import com.api.plant.config.WorkerThreads;
+import com.api.plant.dto.DeviceChangedEvent;
+import com.api.plant.dto.DeviceHealthEvent;
+import com.api.plant.dto.DeviceHealthEvent.Fault;
+import com.api.plant.entity.Reading;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Detector de sensores atascados (stuck-sensor) calculado de forma incremental por planta.
+ *
+ * Detecta tres tipos de falla:
+ * 1. FLATLINE: la métrica repite EXACTAMENTE el mismo valor durante N lecturas o T minutos.
+ * 2. SATURATION: humedad (ambiental o de suelo) clavada en 0 o 100 durante M lecturas.
+ * 3. IMPOSSIBLE_COMBINATION: combinaciones de métricas que no pueden ocurrir físicamente.
+ *
+ * El estado es por métrica: un sensor atascado (ej. humedad de suelo clavada) solo invalida esa métrica
+ * y el resto de la lectura sigue su camino. La lectura entera se rechaza si todas las métricas evaluadas
+ * están en falla o si hay una combinación imposible.
+ *
+ * Solo se emite un DeviceHealthEvent cuando el estado de salud de una métrica CAMBIA (falla o recuperación),
+ * no en cada lectura defectuosa. La luz no se evalúa para flatline (de noche es 0 por horas).
+ * Los eventos se publican en un hilo propio (en orden), así los listeners (WebSocket, dashboard)
+ * no frenan el callback de MQTT.
+ */
+@Service
+public class SensorHealthDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorHealthDetector.class);
+
+    // --- Índices de métricas dentro de los arreglos de estado ---
+    private static final int TEMP = 0;
+    private static final int AMBIENT_HUMIDITY = 1;
+    private static final int SOIL_HUMIDITY = 2;
+    private static final int METRICS = 3;
+    private static final String[] METRIC_NAMES = {"tempC", "ambientHumidity", "soilHumidity"};
+
+    /**
+     * Resultado de la evaluación: rechazar la lectura entera, o solo las métricas en falla (nombres de campo).
+     */
+    public record HealthCheck(boolean rejected, List<String> faultyMetrics) {}
+
+    private static final HealthCheck HEALTHY = new HealthCheck(false, List.of());
+
+    private final Map<String, PlantHealth> healthByPlant = new ConcurrentHashMap<>();
+    private final ApplicationEventPublisher eventPublisher;
+    // Un solo hilo: la falla y su recuperación llegan a los listeners en el mismo orden
+    private final ExecutorService eventExecutor;
+
+    @Value("${qc.health.enabled:true}")
+    private boolean enabled;
+
+    // Flatline: N lecturas idénticas consecutivas...
+    @Value("${qc.health.flatline.readings:180}")
+    private int flatlineReadings;
+
+    // ... o T minutos con el mismo valor (lo que ocurra primero)
+    @Value("${qc.health.flatline.minutes:720}")
+    private long flatlineMinutes;
+
+    // Saturación: lecturas consecutivas en 0 o 100
+    @Value("${qc.health.saturation.readings:10}")
+    private int saturationReadings;
+
+    // Combinación imposible: aire saturado (100%) por encima de esta temperatura
+    @Value("${qc.health.saturated-air.max-temp:45.0}")
+    private double saturatedAirMaxTemp;
+
+    public SensorHealthDetector(ApplicationEventPublisher eventPublisher, WorkerThreads workerThreads) {
+        this.eventPublisher = eventPublisher;
+        this.eventExecutor = workerThreads.newSerialExecutor("sensor-health-events");
+    }
+
+    @PreDestroy
+    public void stop() {
+        eventExecutor.shutdown();
+    }
+
+    /**
+     * Evalúa la lectura y actualiza el estado de salud de la planta.
+     * @param reading Lectura que ya pasó los límites físicos (sin nulos).
+     * @return Qué descartar: la lectura entera (no debe llegar al Advisor) o solo las métricas en falla.
+     */
+    public HealthCheck check(Reading reading) {
+        if (!enabled) {
+            return HEALTHY;
+        }
+
+        PlantHealth health = healthByPlant.get(reading.getPlantId());
+        if (health == null) {
+            health = healthByPlant.computeIfAbsent(reading.getPlantId(), id -> new PlantHealth());
+        }
+
+        double temp = reading.getTempC();
+        int ambient = reading.getAmbientHumidity();
+        int soil = reading.getSoilHumidity();
+        long now = reading.getTimestamp().toEpochMilli();
+
+        Fault[] faults = new Fault[METRICS];
+        Fault[] previous;
+        boolean impossible = false;
+
+        synchronized (health) {
+            // 1. Actualizar rachas de valor idéntico y de saturación
+            health.track(TEMP, temp, now);
+            health.track(AMBIENT_HUMIDITY, ambient, now);
+            health.track(SOIL_HUMIDITY, soil, now);
+            health.ambientSaturated = (ambient == 0 || ambient == 100) ? health.ambientSaturated + 1 : 0;
+            health.soilSaturated = (soil == 0 || soil == 100) ? health.soilSaturated + 1 : 0;
+            health.initialized = true;
+
+            // 2. Combinaciones imposibles (una sola lectura basta)
+            if (temp == 0.0 && ambient == 0) {
+                // Firma típica de lectura fallida del DHT11 (devuelve 0/0)
+                faults[TEMP] = Fault.IMPOSSIBLE_COMBINATION;
+                impossible = true;
+            } else if (ambient >= 100 && temp >= saturatedAirMaxTemp) {
+                faults[AMBIENT_HUMIDITY] = Fault.IMPOSSIBLE_COMBINATION;
+                impossible = true;
+            }
+
+            // 3. Saturación (más específica que flatline, por eso va antes)
+            if (faults[SOIL_HUMIDITY] == null && health.soilSaturated >= saturationReadings) {
+                faults[SOIL_HUMIDITY] = Fault.SATURATION;
+            }
+            if (faults[AMBIENT_HUMIDITY] == null && health.ambientSaturated >= saturationReadings) {
+                faults[AMBIENT_HUMIDITY] = Fault.SATURATION;
+            }
+
+            // 4. Flatline, métrica por métrica
+            for (int m = 0; m < METRICS; m++) {
+                if (faults[m] == null && health.isFlat(m, now, flatlineReadings, flatlineMinutes * 60_000L)) {
+                    faults[m] = Fault.FLATLINE;
+                }
+            }
+
+            previous = health.activeFaults.clone();
+            System.arraycopy(faults, 0, health.activeFaults, 0, METRICS);
+        }
+
+        // 5. Emitir eventos SOLO en transiciones de estado de cada métrica (fuera del lock)
+        List<String> faultyMetrics = new ArrayList<>(METRICS);
+        for (int m = 0; m < METRICS; m++) {
+            if (faults[m] != null) {
+                faultyMetrics.add(METRIC_NAMES[m]);
+            }
+            if (faults[m] != null && faults[m] != previous[m]) {
+                String detail = describe(faults[m], m, reading);
+                log.warn("🩺 SALUD: Sensor de {} en falla {} ({}).", reading.getPlantId(), faults[m], detail);
+                publish(new DeviceHealthEvent(reading.getPlantId(), reading.getUserId(), faults[m],
+                        METRIC_NAMES[m], detail, false, reading.getTimestamp()));
+            } else if (faults[m] == null && previous[m] != null) {
+                log.info("🩺 SALUD: Sensor de {} recuperado de {} en {}.", reading.getPlantId(), previous[m], METRIC_NAMES[m]);
+                publish(new DeviceHealthEvent(reading.getPlantId(), reading.getUserId(), previous[m],
+                        METRIC_NAMES[m], "El sensor volvió a reportar datos válidos.", true, reading.getTimestamp()));
+            }
+        }
+
+        if (faultyMetrics.isEmpty()) {
+            return HEALTHY;
+        }
+        return new HealthCheck(impossible || faultyMetrics.size() == METRICS, List.copyOf(faultyMetrics));
+    }
+
+    /**
+     * Libera el estado de una planta (ej. cuando el dispositivo se desvincula).
+     */
+    public void forget(String plantId) {
+        if (plantId != null) {
+            healthByPlant.remove(plantId);
+        }
+    }
+
+    /**
+     * Re-sincronizado: el plantId anterior ya no recibe lecturas.
+     * Vinculado de nuevo o desactivado: las rachas y la falla activa anteriores ya no aplican.
+     */
+    @EventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        forget(event.previousPlantId());
+        if (event.change() == DeviceChangedEvent.Change.REGISTERED || !event.active()) {
+            forget(event.plantId());
+        }
+    }
+
+    private void publish(DeviceHealthEvent event) {
+        try {
+            eventExecutor.execute(() -> {
+                try {
+                    eventPublisher.publishEvent(event);
+                } catch (Exception e) {
+                    log.error("🩺 SALUD: Error notificando el cambio de salud de {}: {}", event.plantId(), e.getMessage(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Solo ocurre durante el apagado
+            log.debug("🩺 SALUD: Evento de {} descartado (apagando).", event.plantId());
+        }
+    }
+
+    private String describe(Fault fault, int metric, Reading reading) {
+        switch (fault) {
+            case FLATLINE:
+                return "Valor constante en " + METRIC_NAMES[metric] + ". Posible sensor desconectado o dañado.";
+            case SATURATION:
+                return "Valor clavado en 0/100 en " + METRIC_NAMES[metric] + ". Revise la conexión del sensor.";
+            case IMPOSSIBLE_COMBINATION:
+            default:
+                return String.format("Combinación imposible: Temp %.1f°C con Hum.Amb %d%%.",
+                        reading.getTempC(), reading.getAmbientHumidity());
+        }
+    }
+
+    /**
+     * Estado de salud por planta: solo primitivos reservados una vez.
+     */
+    private static final class PlantHealth {
+
+        private final double[] lastValue = new double[METRICS];
+        private final int[] runLength = new int[METRICS];
+        private final long[] runStartMillis = new long[METRICS];
+        private int ambientSaturated;
+        private int soilSaturated;
+        private boolean initialized;
+
+        // Falla activa por métrica (null = sana)
+        private final Fault[] activeFaults = new Fault[METRICS];
+
+        private void track(int metric, double value, long now) {
+            if (initialized && value == lastValue[metric]) {
+                runLength[metric]++;
+            } else {
+                lastValue[metric] = value;
+                runLength[metric] = 1;
+                runStartMillis[metric] = now;
+            }
+        }
+
+        private boolean isFlat(int metric, long now, int maxReadings, long maxMillis) {
+            int run = runLength[metric];
+            return run >= maxReadings || (run >= 2 && now - runStartMillis[metric] >= maxMillis);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.DeviceChangedEvent;
+import com.api.plant.entity.Reading;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detector de outliers estadísticos en streaming (por planta y por métrica).
+ *
+ * Mantiene, para cada planta, la media y varianza EWMA y una ventana circular
+ * corta para la mediana/MAD, todo en arreglos primitivos de tamaño fijo.
+ * Una lectura es OUTLIER solo si se sale de la banda de sigmas en AMBOS
+ * estimadores (EWMA y robusto), lo que evita falsos positivos durante el arranque
+ * o cuando el sensor cambia de nivel de forma legítima (ej. después de un riego).
+ *
+ * La memoria por planta es constante y la evaluación no reserva objetos por lectura.
+ * La luz (BH1750) no se evalúa: sus saltos (nubes, lámparas) son normales.
+ */
+@Service
+public class StatisticalOutlierDetector {
+
+    // --- Índices de métricas dentro de los arreglos de estado ---
+    private static final int TEMP = 0;
+    private static final int AMBIENT_HUMIDITY = 1;
+    private static final int SOIL_HUMIDITY = 2;
+    private static final int METRICS = 3;
+
+    // Desviación mínima por métrica (evita dividir entre ~0 cuando el sensor es muy estable).
+    // Orden: Temp (°C), Humedad Ambiental (%), Humedad de Suelo (%)
+    private static final double[] MIN_SIGMA = {0.5, 2.0, 2.0};
+
+    // Factor de consistencia para que MAD estime la desviación estándar (distribución normal)
+    private static final double MAD_TO_SIGMA = 1.4826;
+
+    private final Map<String, PlantStats> statsByPlant = new ConcurrentHashMap<>();
+
+    @Value("${qc.outlier.enabled:true}")
+    private boolean enabled;
+
+    @Value("${qc.outlier.sigma:4.0}")
+    private double sigmaBand;
+
+    @Value("${qc.outlier.ewma-alpha:0.1}")
+    private double alpha;
+
+    @Value("${qc.outlier.window-size:15}")
+    private int windowSize;
+
+    @Value("${qc.outlier.warmup:10}")
+    private int warmupReadings;
+
+    /**
+     * Evalúa la lectura contra el estado de su planta y actualiza dicho estado.
+     * @param reading Lectura que ya pasó los límites físicos (sin nulos en las métricas evaluadas).
+     * @return true si alguna métrica está fuera de la banda de sigmas configurada.
+     */
+    public boolean isOutlier(Reading reading) {
+        if (!enabled) {
+            return false;
+        }
+
+        // get() primero: computeIfAbsent con lambda capturando 'this' reservaría en cada llamada
+        PlantStats stats = statsByPlant.get(reading.getPlantId());
+        if (stats == null) {
+            stats = statsByPlant.computeIfAbsent(reading.getPlantId(), id -> new PlantStats(windowSize));
+        }
+
+        synchronized (stats) {
+            boolean outlier = evaluate(stats, TEMP, reading.getTempC());
+            outlier |= evaluate(stats, AMBIENT_HUMIDITY, reading.getAmbientHumidity());
+            outlier |= evaluate(stats, SOIL_HUMIDITY, reading.getSoilHumidity());
+
+            stats.advance();
+            return outlier;
+        }
+    }
+
+    /**
+     * Libera el estado de una planta (ej. cuando el dispositivo se desvincula).
+     */
+    public void forget(String plantId) {
+        if (plantId != null) {
+            statsByPlant.remove(plantId);
+        }
+    }
+
+    /**
+     * Re-sincronizado: el plantId anterior ya no recibe lecturas.
+     * Vinculado de nuevo o desactivado: el historial estadístico anterior ya no aplica.
+     */
+    @EventListener
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        forget(event.previousPlantId());
+        if (event.change() == DeviceChangedEvent.Change.REGISTERED || !event.active()) {
+            forget(event.plantId());
+        }
+    }
+
+    /**
+     * Evalúa una métrica (antes de actualizar el estado) y luego incorpora el valor.
+     */
+    private boolean evaluate(PlantStats stats, int metric, Number reported) {
+        if (reported == null) {
+            // Métrica descartada por falla de sensor: no se evalúa ni entra a la EWMA
+            stats.hold(metric);
+            return false;
+        }
+        double value = reported.doubleValue();
+        boolean outlier = false;
+
+        if (stats.count >= warmupReadings && stats.filled > 0) {
+            // 1. Banda EWMA
+            double ewmaSigma = Math.max(Math.sqrt(stats.variance[metric]), MIN_SIGMA[metric]);
+            double ewmaScore = Math.abs(value - stats.mean[metric]) / ewmaSigma;
+
+            // 2. Banda robusta (mediana / MAD sobre la ventana circular)
+            double median = stats.median(metric);
+            double robustSigma = Math.max(stats.mad(metric, median) * MAD_TO_SIGMA, MIN_SIGMA[metric]);
+            double robustScore = Math.abs(value - median) / robustSigma;
+
+            outlier = ewmaScore > sigmaBand && robustScore > sigmaBand;
+        }
+
+        // Actualización EWMA incremental (media y varianza)
+        if (stats.count == 0) {
+            stats.mean[metric] = value;
+            stats.variance[metric] = 0.0;
+        } else {
+            double diff = value - stats.mean[metric];
+            double increment = alpha * diff;
+            stats.mean[metric] += increment;
+            stats.variance[metric] = (1 - alpha) * (stats.variance[metric] + diff * increment);
+        }
+
+        stats.push(metric, value);
+        return outlier;
+    }
+
+    /**
+     * Estado por planta: solo arreglos primitivos reservados una vez.
+     */
+    private static final class PlantStats {
+
+        private final double[] mean = new double[METRICS];
+        private final double[] variance = new double[METRICS];
+
+        // Ventanas circulares de las 3 métricas en un solo arreglo: [metric * size + slot]
+        private final double[] window;
+        // Espacio de trabajo para ordenar al calcular mediana/MAD
+        private final double[] scratch;
+        private final int size;
+
+        private int head;   // Próxima posición a escribir
+        private int filled; // Posiciones válidas en la ventana
+        private long count; // Lecturas procesadas
+
+        private PlantStats(int size) {
+            this.size = size;
+            this.window = new double[METRICS * size];
+            this.scratch = new double[size];
+        }
+
+        private void push(int metric, double value) {
+            window[metric * size + head] = value;
+        }
+
+        /**
+         * Métrica sin valor en esta lectura: la ventana sigue alineada con las demás.
+         * Con la ventana llena se conserva el valor anterior de la posición; si no, se usa la media EWMA.
+         */
+        private void hold(int metric) {
+            if (filled < size) {
+                window[metric * size + head] = mean[metric];
+            }
+        }
+
+        /**
+         * Avanza el puntero de la ventana una vez que las 3 métricas fueron escritas.
+         */
+        private void advance() {
+            head = (head + 1) % size;
+            if (filled < size) {
+                filled++;
+            }
+            count++;
+        }
+
+        private double median(int metric) {
+            System.arraycopy(window, metric * size, scratch, 0, filled);
+            return sortedMedian(filled);
+        }
+
+        private double mad(int metric, double median) {
+            int base = metric * size;
+            for (int i = 0; i < filled; i++) {
+                scratch[i] = Math.abs(window[base + i] - median);
+            }
+            return sortedMedian(filled);
+        }
+
+        // Ordenamiento por inserción: la ventana es pequeña y no reserva memoria
+        private double sortedMedian(int n) {
+            for (int i = 1; i < n; i++) {
+                double key = scratch[i];
+                int j = i - 1;
+                while (j >= 0 && scratch[j] > key) {
+                    scratch[j + 1] = scratch[j];
+                    j--;
+                }
+                scratch[j + 1] = key;
+            }
+            int mid = n >>> 1;
+            return (n & 1) == 1 ? scratch[mid] : (scratch[mid - 1] + scratch[mid]) / 2.0;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.reading.ReadingHistoryQuery;
+import com.api.plant.dto.reading.ReadingView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Historial transparente entre niveles: los días ya vencidos en Mongo se leen del archivo local
+ * y el resto de Mongo (con el layout configurado). El corte es un inicio de día UTC, así ningún día
+ * se lee de los dos lados.
+ * Si la parte viva del rango está completa en memoria (HotReadingHistorySource) no se consulta Mongo.
+ */
+@Primary
+@Component
+public class TieredReadingHistorySource implements ReadingHistorySource {
+
+    private final LiveReadingHistorySource liveSource;
+    private final ArchiveReadingHistorySource archiveSource;
+    private final HotReadingHistorySource hotSource;
+    private final ReadingRetentionService retentionService;
+
+    // Duración de la parte viva de cada consulta (incluye el tiempo del consumidor)
+    private final Timer hotTimer;
+    private final Timer mongoTimer;
+
+    public TieredReadingHistorySource(LiveReadingHistorySource liveSource,
+                                      ArchiveReadingHistorySource archiveSource,
+                                      HotReadingHistorySource hotSource,
+                                      ReadingRetentionService retentionService,
+                                      MeterRegistry meterRegistry) {
+        this.liveSource = liveSource;
+        this.archiveSource = archiveSource;
+        this.hotSource = hotSource;
+        this.retentionService = retentionService;
+
+        this.hotTimer = Timer.builder("readings.history.scan.duration")
+                .tag("tier", "hot")
+                .register(meterRegistry);
+        this.mongoTimer = Timer.builder("readings.history.scan.duration")
+                .tag("tier", "mongo")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void scan(ReadingHistoryQuery query, Predicate<ReadingView> sink) {
+        long boundary = retentionService.liveTierStart();
+        if (boundary == Long.MIN_VALUE || !query.from().isBefore(Instant.ofEpochMilli(boundary))) {
+            scanLive(query, sink);
+            return;
+        }
+        Instant cut = Instant.ofEpochMilli(boundary);
+        if (!query.to().isAfter(cut)) {
+            archiveSource.scan(query, sink);
+            return;
+        }
+
+        ReadingHistoryQuery archived = withRange(query, query.from(), cut);
+        ReadingHistoryQuery live = withRange(query, cut, query.to());
+
+        // Si el consumidor corta en el primer nivel, no se consulta el segundo
+        boolean[] stopped = {false};
+        int[] emitted = {0};
+        Predicate<ReadingView> tracking = view -> {
+            emitted[0]++;
+            boolean more = sink.test(view) && (query.limit() <= 0 || emitted[0] < query.limit());
+            stopped[0] = !more;
+            return more;
+        };
+
+        if (query.descending()) {
+            scanLive(live, tracking);
+            if (!stopped[0]) {
+                archiveSource.scan(withLimit(archived, remaining(query, emitted[0])), tracking);
+            }
+        } else {
+            archiveSource.scan(archived, tracking);
+            if (!stopped[0]) {
+                scanLive(withLimit(live, remaining(query, emitted[0])), tracking);
+            }
+        }
+    }
+
+    private void scanLive(ReadingHistoryQuery query, Predicate<ReadingView> sink) {
+        boolean hot = hotSource.covers(query.plantId(), query.from());
+        long start = System.nanoTime();
+        try {
+            if (hot) {
+                hotSource.scan(query, sink);
+            } else {
+                liveSource.scan(query, sink);
+            }
+        } finally {
+            (hot ? hotTimer : mongoTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static int remaining(ReadingHistoryQuery query, int emitted) {
+        return query.limit() > 0 ? query.limit() - emitted : 0;
+    }
+
+    private static ReadingHistoryQuery withRange(ReadingHistoryQuery q, Instant from, Instant to) {
+        return new ReadingHistoryQuery(q.plantId(), from, to, q.fields(), q.qcStatuses(), q.advisorResults(),
+                q.afterTimestamp(), q.afterId(), q.descending(), q.limit());
+    }
+
+    private static ReadingHistoryQuery withLimit(ReadingHistoryQuery q, int limit) {
+        return new ReadingHistoryQuery(q.plantId(), q.from(), q.to(), q.fields(), q.qcStatuses(), q.advisorResults(),
+                q.afterTimestamp(), q.afterId(), q.descending(), limit);
+    }
+}
@@ -0,0 +1,192 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.TokenResponse;
+import com.api.plant.entity.AppUser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Emite y valida tokens JWT firmados con HMAC-SHA256 (HS256).
+ *
+ * - Access token: corta duración, se valida solo con la firma (sin BCrypt ni consultas a Mongo).
+ *   Claims: sub = userId, username, typ = "access", iat, exp.
+ * - Refresh token: larga duración, incluye la tokenVersion del usuario y un jti único; al renovarlo se comprueba
+ *   contra Mongo, así cerrar sesión invalida los refresh tokens ya emitidos, y el jti se consume (un solo uso).
+ *
+ * La clave sale de 'auth.jwt.secret' (Base64, mínimo 32 bytes). Si no se configura se genera una al arrancar:
+ * los tokens dejan de valer al reiniciar y no sirven entre nodos.
+ */
+@Service
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+    public static final String TYPE_ACCESS = "access";
+    public static final String TYPE_REFRESH = "refresh";
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String HEADER = base64Url("{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+    private static final TypeReference<Map<String, Object>> CLAIMS_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+    private final SecretKeySpec key;
+    private final String issuer;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+
+    // Mac no es thread-safe: una instancia por hilo
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * Claims ya verificados (firma, emisor, tipo y expiración).
+     */
+    public record TokenClaims(String userId, String username, String type, int tokenVersion, String tokenId,
+                              Instant expiresAt) {}
+
+    public TokenService(ObjectMapper objectMapper,
+                        @Value("${auth.jwt.secret:}") String secret,
+                        @Value("${auth.jwt.issuer:backend-sp}") String issuer,
+                        @Value("${auth.jwt.access-ttl-seconds:900}") long accessTtlSeconds,
+                        @Value("${auth.jwt.refresh-ttl-seconds:1209600}") long refreshTtlSeconds) {
+        this.objectMapper = objectMapper;
+        this.issuer = issuer;
+        this.accessTtl = Duration.ofSeconds(accessTtlSeconds);
+        this.refreshTtl = Duration.ofSeconds(refreshTtlSeconds);
+
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            log.warn("⚠️ AUTH: 'auth.jwt.secret' no configurado; se usa una clave aleatoria (los tokens no sobreviven a un reinicio).");
+        } else {
+            keyBytes = Base64.getDecoder().decode(secret.trim());
+            if (keyBytes.length < 32) {
+                throw new IllegalStateException("auth.jwt.secret debe tener al menos 32 bytes (256 bits).");
+            }
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    // --- EMISIÓN ---
+
+    /**
+     * Par access + refresh para el usuario.
+     */
+    public TokenResponse issue(AppUser user) {
+        Instant now = Instant.now();
+
+        Map<String, Object> access = baseClaims(user, TYPE_ACCESS, now, accessTtl);
+        Map<String, Object> refresh = baseClaims(user, TYPE_REFRESH, now, refreshTtl);
+        refresh.put("ver", user.getTokenVersion());
+        refresh.put("jti", UUID.randomUUID().toString());
+
+        return new TokenResponse(sign(access), sign(refresh), "Bearer", accessTtl.toSeconds());
+    }
+
+    private Map<String, Object> baseClaims(AppUser user, String type, Instant now, Duration ttl) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("iss", issuer);
+        claims.put("sub", user.getId());
+        claims.put("username", user.getUsername());
+        claims.put("typ", type);
+        claims.put("iat", now.getEpochSecond());
+        claims.put("exp", now.plus(ttl).getEpochSecond());
+        return claims;
+    }
+
+    private String sign(Map<String, Object> claims) {
+        try {
+            String payload = base64Url(objectMapper.writeValueAsBytes(claims));
+            String signingInput = HEADER + "." + payload;
+            return signingInput + "." + base64Url(mac(signingInput));
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo firmar el token.", e);
+        }
+    }
+
+    // --- VALIDACIÓN ---
+
+    /**
+     * Verifica firma, emisor, tipo y expiración.
+     * @return Vacío si el token no es válido (nunca lanza por un token mal formado).
+     */
+    public Optional<TokenClaims> verify(String token, String expectedType) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot) {
+            return Optional.empty();
+        }
+        try {
+            // Solo se acepta la cabecera exacta que emitimos (evita alg=none y cambios de algoritmo)
+            if (!HEADER.equals(token.substring(0, firstDot))) {
+                return Optional.empty();
+            }
+            byte[] expected = mac(token.substring(0, lastDot));
+            byte[] actual = Base64.getUrlDecoder().decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(expected, actual)) {
+                return Optional.empty();
+            }
+
+            Map<String, Object> claims = objectMapper.readValue(
+                    Base64.getUrlDecoder().decode(token.substring(firstDot + 1, lastDot)), CLAIMS_TYPE);
+            if (!issuer.equals(claims.get("iss")) || !expectedType.equals(claims.get("typ"))) {
+                return Optional.empty();
+            }
+            if (!(claims.get("exp") instanceof Number exp) || Instant.now().getEpochSecond() >= exp.longValue()) {
+                return Optional.empty();
+            }
+            Object subject = claims.get("sub");
+            if (!(subject instanceof String userId)) {
+                return Optional.empty();
+            }
+            int version = claims.get("ver") instanceof Number ver ? ver.intValue() : 0;
+            return Optional.of(new TokenClaims(userId, (String) claims.get("username"), expectedType, version,
+                    claims.get("jti") instanceof String jti ? jti : null, Instant.ofEpochSecond(exp.longValue())));
+        } catch (Exception e) {
+            log.debug("AUTH: Token rechazado: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // --- INTERNOS ---
+
+    private byte[] mac(String signingInput) {
+        return macs.get().doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 no disponible.", e);
+        }
+    }
+
+    private static String base64Url(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,232 @@
+package com.api.plant.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Reglas de ACL MQTT compiladas en un trie de niveles de tópico.
+ *
+ * Cada regla es "&lt;permiso&gt; &lt;filtro&gt;", por ejemplo "pub planta/%u/lecturas":
+ * - Permisos: read (1), write / pub (2), subscribe (4), sub (read + subscribe), all (todo).
+ *   Son los valores de 'acc' que manda go-auth; una consulta se permite si su 'acc' está incluido.
+ * - Filtro: niveles separados por '/', con comodines MQTT '+' (un nivel) y '#' (resto del tópico,
+ *   solo al final) y sustituciones de nivel completo '%u' (username) y '%c' (client id).
+ *
+ * El trie se arma una sola vez; {@link #allows} recorre el tópico por índices, sin crear strings ni objetos.
+ * Como en MQTT, los comodines del primer nivel no cubren tópicos que empiezan con '$'.
+ */
+public final class TopicAclTrie {
+
+    public static final int READ = 1;
+    public static final int WRITE = 2;
+    public static final int SUBSCRIBE = 4;
+
+    private final Node root;
+    private final int ruleCount;
+
+    private TopicAclTrie(Node root, int ruleCount) {
+        this.root = root;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * Compila una lista de reglas "&lt;permiso&gt; &lt;filtro&gt;".
+     * @throws IllegalArgumentException si alguna regla está mal escrita (se detecta al arrancar).
+     */
+    public static TopicAclTrie compile(List<String> rules) {
+        Builder root = new Builder();
+        int count = 0;
+        for (String rule : rules) {
+            if (rule == null || rule.isBlank()) {
+                continue;
+            }
+            String[] parts = rule.trim().split("\\s+");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Regla ACL inválida (se espera '<permiso> <filtro>'): " + rule);
+            }
+            add(root, parseAccess(parts[0], rule), parts[1], rule);
+            count++;
+        }
+        return new TopicAclTrie(root.build(), count);
+    }
+
+    public int ruleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * @return true si alguna regla cubre el tópico con el permiso pedido.
+     */
+    public boolean allows(String topic, int access, String username, String clientId) {
+        if (topic == null || topic.isEmpty() || access <= 0) {
+            return false;
+        }
+        return match(root, topic, 0, access, username, clientId);
+    }
+
+    // --- MATCHING ---
+
+    private static boolean match(Node node, String topic, int start, int access, String username, String clientId) {
+        // '#' cubre el nivel actual y todos los siguientes (incluido "ninguno": "a/#" cubre "a")
+        if (node.multiLevel != null && covers(node.multiLevel.access, access)
+                && !(start == 0 && topic.charAt(0) == '$')) {
+            return true;
+        }
+        if (start > topic.length()) {
+            // Ya se consumieron todos los niveles
+            return covers(node.access, access);
+        }
+
+        int end = topic.indexOf('/', start);
+        if (end < 0) {
+            end = topic.length();
+        }
+        int next = end + 1;
+
+        Node literal = node.literal(topic, start, end);
+        if (literal != null && match(literal, topic, next, access, username, clientId)) {
+            return true;
+        }
+        if (node.username != null && regionEquals(username, topic, start, end)
+                && match(node.username, topic, next, access, username, clientId)) {
+            return true;
+        }
+        if (node.clientId != null && regionEquals(clientId, topic, start, end)
+                && match(node.clientId, topic, next, access, username, clientId)) {
+            return true;
+        }
+        return node.singleLevel != null && !(start == 0 && topic.charAt(0) == '$')
+                && match(node.singleLevel, topic, next, access, username, clientId);
+    }
+
+    private static boolean covers(int granted, int access) {
+        return granted != 0 && (granted & access) == access;
+    }
+
+    private static boolean regionEquals(String value, String topic, int start, int end) {
+        // Un username o client id vacío (o con '/') nunca sustituye un nivel
+        return value != null && !value.isEmpty() && value.length() == end - start
+                && topic.regionMatches(start, value, 0, value.length());
+    }
+
+    /**
+     * Compara un nivel del tópico (sin extraerlo) con una clave literal, con el mismo orden que String.compareTo.
+     */
+    private static int compareLevel(String key, String topic, int start, int end) {
+        int length = Math.min(key.length(), end - start);
+        for (int i = 0; i < length; i++) {
+            int diff = key.charAt(i) - topic.charAt(start + i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return key.length() - (end - start);
+    }
+
+    // --- NODOS ---
+
+    /**
+     * Nodo inmutable: hijos literales en arreglos ordenados (búsqueda binaria sobre el nivel del tópico).
+     */
+    private static final class Node {
+        final int access;           // Permisos de las reglas que terminan en este nodo
+        final String[] keys;
+        final Node[] children;
+        final Node singleLevel;     // '+'
+        final Node multiLevel;      // '#'
+        final Node username;        // '%u'
+        final Node clientId;        // '%c'
+
+        Node(int access, String[] keys, Node[] children, Node singleLevel, Node multiLevel, Node username, Node clientId) {
+            this.access = access;
+            this.keys = keys;
+            this.children = children;
+            this.singleLevel = singleLevel;
+            this.multiLevel = multiLevel;
+            this.username = username;
+            this.clientId = clientId;
+        }
+
+        Node literal(String topic, int start, int end) {
+            int low = 0;
+            int high = keys.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compareLevel(keys[mid], topic, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Nodo mutable usado solo mientras se compila.
+     */
+    private static final class Builder {
+        int access;
+        final TreeMap<String, Builder> literals = new TreeMap<>();
+        Builder singleLevel;
+        Builder multiLevel;
+        Builder username;
+        Builder clientId;
+
+        Node build() {
+            String[] keys = literals.keySet().toArray(new String[0]);
+            List<Node> children = new ArrayList<>(keys.length);
+            for (Builder child : literals.values()) {
+                children.add(child.build());
+            }
+            return new Node(access, keys, children.toArray(new Node[0]),
+                    singleLevel != null ? singleLevel.build() : null,
+                    multiLevel != null ? multiLevel.build() : null,
+                    username != null ? username.build() : null,
+                    clientId != null ? clientId.build() : null);
+        }
+    }
+
+    private static void add(Builder root, int access, String filter, String rule) {
+        String[] levels = filter.split("/", -1);
+        Builder node = root;
+        for (int i = 0; i < levels.length; i++) {
+            String level = levels[i];
+            switch (level) {
+                case "#" -> {
+                    if (i != levels.length - 1) {
+                        throw new IllegalArgumentException("'#' solo puede ir al final del filtro: " + rule);
+                    }
+                    node = node.multiLevel != null ? node.multiLevel : (node.multiLevel = new Builder());
+                }
+                case "+" -> node = node.singleLevel != null ? node.singleLevel : (node.singleLevel = new Builder());
+                case "%u" -> node = node.username != null ? node.username : (node.username = new Builder());
+                case "%c" -> node = node.clientId != null ? node.clientId : (node.clientId = new Builder());
+                default -> {
+                    if (level.contains("#") || level.contains("+") || level.contains("%")) {
+                        throw new IllegalArgumentException("Comodín o sustitución a mitad de nivel: " + rule);
+                    }
+                    node = node.literals.computeIfAbsent(level, key -> new Builder());
+                }
+            }
+        }
+        node.access |= access;
+    }
+
+    private static int parseAccess(String value, String rule) {
+        return switch (value.toLowerCase()) {
+            case "read" -> READ;
+            case "write", "pub" -> WRITE;
+            case "subscribe" -> SUBSCRIBE;
+            case "sub" -> READ | SUBSCRIBE;
+            case "readwrite" -> READ | WRITE;
+            case "all" -> READ | WRITE | SUBSCRIBE;
+            default -> throw new IllegalArgumentException("Permiso desconocido '" + value + "' en la regla ACL: " + rule
+                    + " (válidos: read, write, pub, subscribe, sub, readwrite, all)");
+        };
+    }
+}
@@ -0,0 +1,491 @@
+package com.api.plant.service;
+
+import com.api.plant.config.WorkerThreads;
+import com.api.plant.dto.NotificationMessage;
+import com.api.plant.dto.PlantReadingUpdate;
+import com.api.plant.entity.Reading;
+import com.api.plant.entity.UserNotification;
+import com.api.plant.service.NotificationDispatcher.PendingAlert;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Stream SSE por usuario (alertas + lecturas) para clientes que no pueden mantener STOMP.
+ *
+ * - Cada usuario con conexiones SSE recientes tiene un buffer circular acotado con sus últimos eventos.
+ *   Los ids son derivados del tiempo (epochMillis * 1000 + secuencia) y crecientes por usuario.
+ * - Al reconectar con Last-Event-ID, si el hueco está dentro del buffer se reenvía desde memoria;
+ *   si es más grande, se completa desde lo persistido (bandeja + lecturas, paginadas por (timestamp, _id))
+ *   y luego se sigue con el buffer. Si el hueco supera 'sse.fallback.max-events', se envía un evento
+ *   'history-truncated' con el tramo omitido antes de seguir.
+ * - Las conexiones son asíncronas (SseEmitter): no retienen un hilo del servidor. Los envíos se hacen
+ *   en hilos virtuales, con un único "drenado" activo por usuario para conservar el orden.
+ * Entrega al-menos-una-vez: en el borde entre historial y buffer puede repetirse algún evento.
+ */
+@Service
+public class UserEventStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserEventStreamService.class);
+
+    public static final String EVENT_ALERT = "alert";
+    public static final String EVENT_READING = "reading";
+    public static final String EVENT_HISTORY_TRUNCATED = "history-truncated";
+
+    // Ids por milisegundo: deja espacio para 1000 eventos del mismo usuario en el mismo ms
+    private static final long IDS_PER_MILLI = 1000;
+
+    private final ReadingStorageService readingStorageService;
+    private final NotificationInboxService inboxService;
+
+    // Envíos SSE: un hilo por drenado (virtual si la aplicación usa hilos virtuales), no uno por conexión
+    private final ExecutorService fanOutExecutor;
+
+    // userId -> stream (solo existe si el usuario se conectó recientemente)
+    private final Map<String, UserStream> streams = new ConcurrentHashMap<>();
+
+    private final int bufferSize;
+    private final long emitterTimeoutMs;
+    private final long idleTtlMs;
+    private final int fallbackMaxEvents;
+    private final int fallbackPageSize;
+
+    // --- Métricas ---
+    private final Counter resumedFromBufferCounter;
+    private final Counter resumedFromHistoryCounter;
+    private final Counter eventsSentCounter;
+    private final Counter sendErrorsCounter;
+
+    public UserEventStreamService(ReadingStorageService readingStorageService,
+                                  NotificationInboxService inboxService,
+                                  MeterRegistry meterRegistry,
+                                  WorkerThreads workerThreads,
+                                  @Value("${sse.buffer-size:256}") int bufferSize,
+                                  @Value("${sse.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                                  @Value("${sse.buffer.idle-ttl-ms:600000}") long idleTtlMs,
+                                  @Value("${sse.fallback.max-events:5000}") int fallbackMaxEvents,
+                                  @Value("${sse.fallback.page-size:500}") int fallbackPageSize) {
+        this.readingStorageService = readingStorageService;
+        this.inboxService = inboxService;
+        this.fanOutExecutor = workerThreads.newPerTaskExecutor("sse-fanout-");
+        this.bufferSize = bufferSize;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.idleTtlMs = idleTtlMs;
+        this.fallbackMaxEvents = fallbackMaxEvents;
+        this.fallbackPageSize = Math.max(1, fallbackPageSize);
+
+        this.resumedFromBufferCounter = meterRegistry.counter("sse.resume", "source", "buffer");
+        this.resumedFromHistoryCounter = meterRegistry.counter("sse.resume", "source", "history");
+        this.eventsSentCounter = meterRegistry.counter("sse.events.sent");
+        this.sendErrorsCounter = meterRegistry.counter("sse.send.errors");
+        meterRegistry.gaugeMapSize("sse.streams", List.of(), streams);
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (UserStream stream : streams.values()) {
+            for (Client client : stream.clients) {
+                client.emitter.complete();
+            }
+        }
+        fanOutExecutor.shutdownNow();
+    }
+
+    // --- PUBLICACIÓN ---
+
+    /**
+     * Publica una alerta en el stream del usuario (no hace nada si no tiene stream activo).
+     * El mensaje se arma al enviar, fuera del hilo de ingesta.
+     */
+    public void publishAlert(PendingAlert alert) {
+        publish(alert.userId(), EVENT_ALERT, alert);
+    }
+
+    /**
+     * Publica una lectura en el stream del dueño de la planta.
+     */
+    public void publishReading(Reading reading) {
+        if (reading.getUserId() == null || !streams.containsKey(reading.getUserId())) {
+            return;
+        }
+        publish(reading.getUserId(), EVENT_READING, PlantReadingUpdate.from(reading));
+    }
+
+    private void publish(String userId, String name, Object data) {
+        if (userId == null) {
+            return;
+        }
+        UserStream stream = streams.get(userId);
+        if (stream == null) {
+            return;
+        }
+        stream.append(name, data);
+        scheduleDrain(stream);
+    }
+
+    // --- CONEXIÓN ---
+
+    /**
+     * Abre un stream SSE para el usuario.
+     * @param lastEventId Valor del encabezado Last-Event-ID (null en la primera conexión).
+     */
+    public SseEmitter connect(String userId, Long lastEventId) {
+        UserStream stream = streams.computeIfAbsent(userId, id -> new UserStream());
+        stream.touch();
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Client client = new Client(emitter);
+        emitter.onCompletion(() -> disconnect(stream, client));
+        emitter.onTimeout(() -> disconnect(stream, client));
+        emitter.onError(e -> disconnect(stream, client));
+
+        if (lastEventId == null) {
+            // Conexión nueva: solo eventos a partir de ahora
+            client.lastSentId = stream.lastId();
+            stream.clients.add(client);
+            return emitter;
+        }
+
+        long oldest;
+        long boundary;
+        synchronized (stream) {
+            oldest = stream.oldestId();
+            boundary = stream.lastId;
+        }
+
+        if (oldest != 0 && lastEventId >= oldest - 1) {
+            // El hueco está dentro del buffer: se reenvía desde memoria
+            resumedFromBufferCounter.increment();
+            client.lastSentId = lastEventId;
+            stream.clients.add(client);
+            scheduleDrain(stream);
+            return emitter;
+        }
+
+        // El hueco es mayor que el buffer: historial persistido hasta el primer evento en memoria
+        resumedFromHistoryCounter.increment();
+        Instant from = Instant.ofEpochMilli(lastEventId / IDS_PER_MILLI);
+        Instant to = oldest != 0 ? Instant.ofEpochMilli(oldest / IDS_PER_MILLI) : Instant.now();
+        long resumeAfter = oldest != 0 ? oldest - 1 : boundary;
+
+        submit(() -> {
+            try {
+                Instant lastSent = sendHistory(client, userId, from, to);
+                if (client.closed) {
+                    return;
+                }
+                if (lastSent != null) {
+                    // Hueco demasiado grande: el cliente sabe qué tramo no recibió (y puede pedirlo a la API de historial)
+                    send(client, new Event(Math.max(resumeAfter, to.toEpochMilli() * IDS_PER_MILLI - 1),
+                            EVENT_HISTORY_TRUNCATED, new HistoryTruncated(lastSent, to)));
+                }
+                client.lastSentId = resumeAfter;
+                stream.clients.add(client);
+                scheduleDrain(stream);
+            } catch (Exception e) {
+                sendErrorsCounter.increment();
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    private void disconnect(UserStream stream, Client client) {
+        client.closed = true;
+        stream.clients.remove(client);
+        stream.touch();
+    }
+
+    // --- ENVÍO ---
+
+    private void scheduleDrain(UserStream stream) {
+        if (stream.clients.isEmpty() || !stream.draining.compareAndSet(false, true)) {
+            return;
+        }
+        submit(() -> drain(stream));
+    }
+
+    private void drain(UserStream stream) {
+        try {
+            for (Client client : stream.clients) {
+                if (client.closed) {
+                    continue;
+                }
+                for (Event event : stream.eventsAfter(client.lastSentId)) {
+                    if (!send(client, event)) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            stream.draining.set(false);
+        }
+        // Pudieron llegar eventos mientras se drenaba
+        if (stream.hasPendingFor(stream.clients)) {
+            scheduleDrain(stream);
+        }
+    }
+
+    private boolean send(Client client, Event event) {
+        try {
+            client.emitter.send(SseEmitter.event()
+                    .id(Long.toString(event.id()))
+                    .name(event.name())
+                    .data(toPayload(event.data())));
+            client.lastSentId = Math.max(client.lastSentId, event.id());
+            eventsSentCounter.increment();
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado: se marca para no reintentar y el emitter se cierra
+            sendErrorsCounter.increment();
+            client.closed = true;
+            client.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private Object toPayload(Object data) {
+        if (data instanceof PendingAlert alert) {
+            return NotificationService.buildMessage(alert);
+        }
+        return data;
+    }
+
+    private void submit(Runnable task) {
+        try {
+            fanOutExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("SSE: Envío descartado durante el apagado.");
+        }
+    }
+
+    // --- HISTORIAL (hueco mayor que el buffer) ---
+
+    /**
+     * Envía lo persistido en (from, to): alertas y lecturas intercaladas en orden, pidiendo páginas de cada
+     * fuente a medida que se consumen.
+     * @return null si se cubrió todo el hueco; si se alcanzó el máximo, el instante del último evento enviado.
+     */
+    private Instant sendHistory(Client client, String userId, Instant from, Instant to) {
+        HistoryCursor<UserNotification> alerts = new HistoryCursor<>(
+                (afterTs, afterId) -> inboxService.findAfter(userId, afterTs, afterId, to, fallbackPageSize),
+                UserNotification::getCreatedAt, UserNotification::getId, from);
+        HistoryCursor<Reading> readings = new HistoryCursor<>(
+                (afterTs, afterId) -> readingStorageService.findByUserAfter(userId, afterTs, afterId, to, fallbackPageSize),
+                Reading::getTimestamp, Reading::getId, from);
+
+        Instant lastSent = from;
+        int sent = 0;
+        while (!client.closed) {
+            UserNotification alert = alerts.peek();
+            Reading reading = readings.peek();
+            if (alert == null && reading == null) {
+                return null;
+            }
+            if (sent >= fallbackMaxEvents) {
+                return lastSent;
+            }
+
+            Event event;
+            if (reading == null || (alert != null && !alert.getCreatedAt().isAfter(reading.getTimestamp()))) {
+                alerts.next();
+                event = new Event(alert.getCreatedAt().toEpochMilli() * IDS_PER_MILLI, EVENT_ALERT, new NotificationMessage(
+                        alert.getType(),
+                        alert.getPlantId(),
+                        alert.getReadingTimestamp(),
+                        alert.getTitle(),
+                        alert.getAction()
+                ));
+                lastSent = alert.getCreatedAt();
+            } else {
+                readings.next();
+                if (reading.getQcStatus() == Reading.QcStatus.QC_ERROR) {
+                    continue;
+                }
+                event = new Event(reading.getTimestamp().toEpochMilli() * IDS_PER_MILLI, EVENT_READING, PlantReadingUpdate.from(reading));
+                lastSent = reading.getTimestamp();
+            }
+            send(client, event);
+            sent++;
+        }
+        return null;
+    }
+
+    // --- MANTENIMIENTO ---
+
+    /**
+     * Libera los buffers de usuarios sin conexiones desde hace más de 'sse.buffer.idle-ttl-ms'.
+     */
+    @Scheduled(fixedRateString = "${sse.buffer.evict-interval-ms:60000}")
+    public void evictIdleStreams() {
+        long now = System.currentTimeMillis();
+        streams.entrySet().removeIf(entry ->
+                entry.getValue().clients.isEmpty() && now - entry.getValue().lastActivity > idleTtlMs);
+    }
+
+    /**
+     * Comentario SSE periódico: mantiene viva la conexión a través de proxies y detecta clientes caídos.
+     */
+    @Scheduled(fixedRateString = "${sse.heartbeat-ms:25000}")
+    public void heartbeat() {
+        for (UserStream stream : streams.values()) {
+            for (Client client : stream.clients) {
+                submit(() -> {
+                    try {
+                        client.emitter.send(SseEmitter.event().comment("ping"));
+                    } catch (IOException | IllegalStateException e) {
+                        client.emitter.completeWithError(e);
+                    }
+                });
+            }
+        }
+    }
+
+    // --- ESTRUCTURAS ---
+
+    private record Event(long id, String name, Object data) {}
+
+    /**
+     * Tramo del historial que no se reenvió por superar el máximo de eventos.
+     */
+    public record HistoryTruncated(Instant from, Instant to) {}
+
+    @FunctionalInterface
+    private interface PageLoader<T> {
+        List<T> load(Instant afterTimestamp, String afterId);
+    }
+
+    /**
+     * Recorre una fuente persistida página por página, continuando desde (timestamp, _id) del último elemento.
+     */
+    private final class HistoryCursor<T> {
+        private final PageLoader<T> loader;
+        private final Function<T, Instant> timestamp;
+        private final Function<T, String> id;
+
+        private List<T> page = List.of();
+        private int index;
+        private boolean exhausted;
+        private Instant afterTimestamp;
+        private String afterId;
+
+        private HistoryCursor(PageLoader<T> loader, Function<T, Instant> timestamp, Function<T, String> id, Instant from) {
+            this.loader = loader;
+            this.timestamp = timestamp;
+            this.id = id;
+            this.afterTimestamp = from;
+        }
+
+        T peek() {
+            if (index < page.size()) {
+                return page.get(index);
+            }
+            if (exhausted) {
+                return null;
+            }
+            page = loader.load(afterTimestamp, afterId);
+            index = 0;
+            exhausted = page.size() < fallbackPageSize;
+            return page.isEmpty() ? null : page.get(0);
+        }
+
+        void next() {
+            T item = page.get(index++);
+            afterTimestamp = timestamp.apply(item);
+            afterId = id.apply(item);
+        }
+    }
+
+    private static final class Client {
+        private final SseEmitter emitter;
+        private volatile long lastSentId;
+        private volatile boolean closed;
+
+        private Client(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * Stream de un usuario: buffer circular de eventos + conexiones abiertas.
+     */
+    private final class UserStream {
+        private final Event[] ring = new Event[bufferSize];
+        private int next;      // Próxima posición a escribir
+        private int size;      // Eventos válidos en el buffer
+        private long lastId;   // Último id asignado (0 = ninguno)
+
+        private final List<Client> clients = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        void touch() {
+            lastActivity = System.currentTimeMillis();
+        }
+
+        synchronized void append(String name, Object data) {
+            lastId = Math.max(lastId + 1, System.currentTimeMillis() * IDS_PER_MILLI);
+            ring[next] = new Event(lastId, name, data);
+            next = (next + 1) % ring.length;
+            if (size < ring.length) {
+                size++;
+            }
+            touch();
+        }
+
+        synchronized long lastId() {
+            return lastId;
+        }
+
+        synchronized long oldestId() {
+            if (size == 0) {
+                return 0;
+            }
+            return ring[(next - size + ring.length) % ring.length].id();
+        }
+
+        /**
+         * Eventos con id > afterId, en orden. Si afterId quedó fuera del buffer se devuelve todo el buffer.
+         */
+        synchronized List<Event> eventsAfter(long afterId) {
+            if (size == 0 || afterId >= lastId) {
+                return List.of();
+            }
+            List<Event> result = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                Event event = ring[(next - size + i + ring.length) % ring.length];
+                if (event.id() > afterId) {
+                    result.add(event);
+                }
+            }
+            return result;
+        }
+
+        synchronized boolean hasPendingFor(List<Client> targets) {
+            for (Client client : targets) {
+                if (!client.closed && client.lastSentId < lastId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
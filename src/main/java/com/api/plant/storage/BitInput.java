@@ -0,0 +1,53 @@
+package com.api.plant.storage;
+
+/**
+ * Lectura a nivel de bit (MSB primero) sobre un arreglo de bytes; contraparte de BitOutput.
+ */
+public final class BitInput {
+
+    private final byte[] data;
+    private final long endBit;
+    private long position;
+
+    public BitInput(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public BitInput(byte[] data, int offset, int length) {
+        this.data = data;
+        this.position = (long) offset << 3;
+        this.endBit = (long) (offset + length) << 3;
+    }
+
+    public boolean readBit() {
+        checkAvailable(1);
+        boolean bit = (data[(int) (position >>> 3)] & (0x80 >>> (position & 7))) != 0;
+        position++;
+        return bit;
+    }
+
+    /**
+     * Lee 'bits' bits (1..64) como un entero sin signo.
+     */
+    public long readBits(int bits) {
+        checkAvailable(bits);
+        long value = 0;
+        while (bits > 0) {
+            int offset = (int) (position & 7);
+            int available = 8 - offset;
+            int take = Math.min(available, bits);
+            int current = data[(int) (position >>> 3)] & 0xFF;
+            int chunk = (current >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+            position += take;
+            bits -= take;
+        }
+        return value;
+    }
+
+    private void checkAvailable(int bits) {
+        if (position + bits > endBit) {
+            throw new IllegalStateException("Flujo de bits truncado.");
+        }
+    }
+}
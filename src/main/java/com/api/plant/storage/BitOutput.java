@@ -0,0 +1,63 @@
+package com.api.plant.storage;
+
+import java.util.Arrays;
+
+/**
+ * Buffer de escritura a nivel de bit (MSB primero). Base de las codificaciones Gorilla.
+ */
+public final class BitOutput {
+
+    private byte[] buffer;
+    private int bitLength;
+
+    public BitOutput(int initialBytes) {
+        this.buffer = new byte[Math.max(16, initialBytes)];
+    }
+
+    public void writeBit(boolean bit) {
+        ensureCapacity(1);
+        if (bit) {
+            buffer[bitLength >>> 3] |= (byte) (0x80 >>> (bitLength & 7));
+        }
+        bitLength++;
+    }
+
+    /**
+     * Escribe los 'bits' bits menos significativos de value (1..64).
+     */
+    public void writeBits(long value, int bits) {
+        ensureCapacity(bits);
+        while (bits > 0) {
+            int free = 8 - (bitLength & 7);
+            int take = Math.min(free, bits);
+            int chunk = (int) ((value >>> (bits - take)) & ((1 << take) - 1));
+            buffer[bitLength >>> 3] |= (byte) (chunk << (free - take));
+            bitLength += take;
+            bits -= take;
+        }
+    }
+
+    public int bitLength() {
+        return bitLength;
+    }
+
+    public int byteLength() {
+        return (bitLength + 7) >>> 3;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, byteLength());
+    }
+
+    public void reset() {
+        Arrays.fill(buffer, 0, byteLength(), (byte) 0);
+        bitLength = 0;
+    }
+
+    private void ensureCapacity(int bits) {
+        int needed = (bitLength + bits + 7) >>> 3;
+        if (needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(needed, buffer.length * 2));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.api.plant.storage;
+
+import java.util.List;
+
+/**
+ * Formato columnar de exportación de lecturas (".rcol").
+ *
+ * Cabecera: "RCOL" | versión | plantId (UTF) | máscara de campos | filas por bloque.
+ * Luego bloques independientes de hasta N filas: filas | largo | CRC32 | cuerpo, y un bloque final
+ * con 0 filas. El cuerpo tiene una sección (varint largo + bytes) por columna:
+ * - timestamp: delta-of-delta Gorilla;
+ * - id: ObjectId como delta de (segundos, contador) respecto del anterior si comparte proceso,
+ *   texto UTF-8 si no es un ObjectId, o una marca de null (desde la versión 2);
+ * - tempC: bit de presencia + XOR Gorilla;
+ * - métricas enteras: varint zigzag del delta con el último valor (0 = null);
+ * - qcStatus / advisorResult: run-length (ordinal + 1, repeticiones).
+ *
+ * Los bloques permiten escribir directo desde el cursor con memoria acotada y leer en streaming.
+ */
+public final class ColumnarReadingFormat {
+
+    static final int MAGIC = 0x52434F4C; // "RCOL"
+    // Versión 2: marca ID_NULL. Los archivos de la versión 1 se siguen leyendo (nunca la contienen)
+    static final byte VERSION = 2;
+
+    public static final String MEDIA_TYPE = "application/vnd.plant.readings.columnar";
+    public static final String EXTENSION = ".rcol";
+
+    // Orden fijo de las columnas opcionales (bit i de la máscara)
+    public static final List<String> FIELDS = List.of(
+            "tempC", "ambientHumidity", "soilHumidity", "lightLux", "qcStatus", "advisorResult");
+
+    static final int ID_TEXT = 0;
+    static final int ID_OBJECT_ID = 1;
+    static final int ID_OBJECT_ID_DELTA = 2;
+    static final int ID_NULL = 3;
+
+    private ColumnarReadingFormat() {
+    }
+}
@@ -0,0 +1,262 @@
+package com.api.plant.storage;
+
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.entity.Reading;
+import org.bson.types.ObjectId;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import static com.api.plant.storage.ColumnarReadingFormat.*;
+
+/**
+ * Lee un archivo columnar (ver ColumnarReadingFormat) bloque a bloque.
+ *
+ * Uso:
+ * <pre>
+ * try (ColumnarReadingReader reader = new ColumnarReadingReader(Files.newInputStream(path))) {
+ *     while (reader.hasNext()) {
+ *         ReadingView reading = reader.next();
+ *     }
+ * }
+ * </pre>
+ */
+public final class ColumnarReadingReader implements Iterator<ReadingView>, Closeable {
+
+    private static final Reading.QcStatus[] QC_VALUES = Reading.QcStatus.values();
+    private static final Reading.AdvisorResult[] ADVISOR_VALUES = Reading.AdvisorResult.values();
+
+    private final DataInputStream in;
+    private final String plantId;
+    private final int fieldMask;
+
+    private ReadingView[] block = new ReadingView[0];
+    private int position;
+    private boolean ended;
+
+    public ColumnarReadingReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        if (this.in.readInt() != MAGIC) {
+            throw new IOException("No es un archivo columnar de lecturas.");
+        }
+        byte version = this.in.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Versión de formato no soportada: " + version);
+        }
+        this.plantId = this.in.readUTF();
+        this.fieldMask = this.in.readUnsignedByte();
+        this.in.readInt(); // filas por bloque (informativo)
+    }
+
+    public String getPlantId() {
+        return plantId;
+    }
+
+    public Set<String> getFields() {
+        Set<String> fields = new LinkedHashSet<>();
+        for (int i = 0; i < FIELDS.size(); i++) {
+            if (has(i)) {
+                fields.add(FIELDS.get(i));
+            }
+        }
+        return fields;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (position < block.length) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        try {
+            readBlock();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return position < block.length;
+    }
+
+    @Override
+    public ReadingView next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ReadingView reading = block[position];
+        block[position++] = null;
+        return reading;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // --- BLOQUES ---
+
+    private void readBlock() throws IOException {
+        int rows;
+        try {
+            rows = in.readInt();
+        } catch (EOFException e) {
+            throw new IOException("Archivo truncado: falta la marca de fin.", e);
+        }
+        if (rows == 0) {
+            ended = true;
+            block = new ReadingView[0];
+            position = 0;
+            return;
+        }
+        int length = in.readInt();
+        int expectedCrc = in.readInt();
+        byte[] body = new byte[length];
+        in.readFully(body);
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IOException("Bloque corrupto: CRC no coincide.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        long[] timestamps = decodeTimestamps(section(buffer), rows);
+        String[] ids = decodeIds(section(buffer), rows);
+        Double[] temp = has(0) ? decodeDoubles(section(buffer), rows) : null;
+        Integer[] ambient = has(1) ? decodeInts(section(buffer), rows) : null;
+        Integer[] soil = has(2) ? decodeInts(section(buffer), rows) : null;
+        Integer[] light = has(3) ? decodeInts(section(buffer), rows) : null;
+        int[] qc = has(4) ? decodeEnums(section(buffer), rows) : null;
+        int[] advisor = has(5) ? decodeEnums(section(buffer), rows) : null;
+
+        ReadingView[] decoded = new ReadingView[rows];
+        for (int i = 0; i < rows; i++) {
+            decoded[i] = new ReadingView(
+                    ids[i],
+                    Instant.ofEpochMilli(timestamps[i]),
+                    temp != null ? temp[i] : null,
+                    ambient != null ? ambient[i] : null,
+                    soil != null ? soil[i] : null,
+                    light != null ? light[i] : null,
+                    qc != null && qc[i] > 0 ? QC_VALUES[qc[i] - 1] : null,
+                    advisor != null && advisor[i] > 0 ? ADVISOR_VALUES[advisor[i] - 1] : null
+            );
+        }
+        block = decoded;
+        position = 0;
+    }
+
+    private boolean has(int field) {
+        return (fieldMask & (1 << field)) != 0;
+    }
+
+    private static ByteBuffer section(ByteBuffer body) {
+        int length = (int) VarInts.readVarLong(body);
+        ByteBuffer section = body.slice(body.position(), length);
+        body.position(body.position() + length);
+        return section;
+    }
+
+    private static byte[] bytes(ByteBuffer section) {
+        byte[] bytes = new byte[section.remaining()];
+        section.get(bytes);
+        return bytes;
+    }
+
+    private static long[] decodeTimestamps(ByteBuffer section, int rows) {
+        BitInput bits = new BitInput(bytes(section));
+        Gorilla.TimestampDecoder decoder = new Gorilla.TimestampDecoder();
+        long[] values = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = decoder.read(bits);
+        }
+        return values;
+    }
+
+    private static String[] decodeIds(ByteBuffer section, int rows) {
+        String[] ids = new String[rows];
+        byte[] previous = null;
+        for (int i = 0; i < rows; i++) {
+            int tag = (int) VarInts.readVarLong(section);
+            if (tag == ID_NULL) {
+                continue;
+            }
+            if (tag == ID_TEXT) {
+                byte[] text = new byte[(int) VarInts.readVarLong(section)];
+                section.get(text);
+                ids[i] = new String(text, StandardCharsets.UTF_8);
+                continue;
+            }
+            byte[] current = new byte[12];
+            if (tag == ID_OBJECT_ID) {
+                section.get(current);
+            } else if (tag == ID_OBJECT_ID_DELTA && previous != null) {
+                System.arraycopy(previous, 0, current, 0, 12);
+                int seconds = (int) (ColumnarReadingWriter.seconds(previous) + VarInts.readSignedVarLong(section));
+                int counter = (int) ((ColumnarReadingWriter.counter(previous) + VarInts.readSignedVarLong(section)) & 0xFFFFFF);
+                current[0] = (byte) (seconds >>> 24);
+                current[1] = (byte) (seconds >>> 16);
+                current[2] = (byte) (seconds >>> 8);
+                current[3] = (byte) seconds;
+                current[9] = (byte) (counter >>> 16);
+                current[10] = (byte) (counter >>> 8);
+                current[11] = (byte) counter;
+            } else {
+                throw new IllegalStateException("Columna de ids mal formada.");
+            }
+            ids[i] = new ObjectId(current).toHexString();
+            previous = current;
+        }
+        return ids;
+    }
+
+    private static Double[] decodeDoubles(ByteBuffer section, int rows) {
+        BitInput bits = new BitInput(bytes(section));
+        Gorilla.DoubleDecoder decoder = new Gorilla.DoubleDecoder();
+        Double[] values = new Double[rows];
+        for (int i = 0; i < rows; i++) {
+            if (bits.readBit()) {
+                values[i] = decoder.read(bits);
+            }
+        }
+        return values;
+    }
+
+    private static Integer[] decodeInts(ByteBuffer section, int rows) {
+        Integer[] values = new Integer[rows];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            long encoded = VarInts.readVarLong(section);
+            if (encoded != 0) {
+                previous += VarInts.unzigzag(encoded - 1);
+                values[i] = (int) previous;
+            }
+        }
+        return values;
+    }
+
+    private static int[] decodeEnums(ByteBuffer section, int rows) {
+        int[] values = new int[rows];
+        int filled = 0;
+        while (filled < rows) {
+            int code = (int) VarInts.readVarLong(section);
+            int run = (int) VarInts.readVarLong(section);
+            for (int i = 0; i < run && filled < rows; i++) {
+                values[filled++] = code;
+            }
+        }
+        return values;
+    }
+}
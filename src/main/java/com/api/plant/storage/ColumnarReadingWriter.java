@@ -0,0 +1,234 @@
+package com.api.plant.storage;
+
+import com.api.plant.dto.reading.ReadingView;
+import org.bson.types.ObjectId;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import static com.api.plant.storage.ColumnarReadingFormat.*;
+
+/**
+ * Escribe lecturas en el formato columnar (ver ColumnarReadingFormat) a medida que llegan.
+ * Solo se retiene en memoria el bloque en curso. No cierra el stream de salida.
+ */
+public final class ColumnarReadingWriter {
+
+    private final DataOutputStream out;
+    private final int blockRows;
+    private final int fieldMask;
+    private final ReadingView[] block;
+    private int rows;
+    private long written;
+    private boolean finished;
+
+    public ColumnarReadingWriter(OutputStream out, String plantId, Set<String> fields, int blockRows) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.blockRows = Math.max(1, blockRows);
+        this.block = new ReadingView[this.blockRows];
+
+        int mask = 0;
+        for (int i = 0; i < FIELDS.size(); i++) {
+            if (fields.contains(FIELDS.get(i))) {
+                mask |= 1 << i;
+            }
+        }
+        this.fieldMask = mask;
+
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+        this.out.writeUTF(plantId);
+        this.out.writeByte(fieldMask);
+        this.out.writeInt(this.blockRows);
+    }
+
+    public void write(ReadingView reading) throws IOException {
+        block[rows++] = reading;
+        if (rows == blockRows) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Escribe el último bloque y la marca de fin.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        flushBlock();
+        out.writeInt(0);
+        out.flush();
+        finished = true;
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    // --- BLOQUES ---
+
+    private void flushBlock() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(rows * 8 + 64);
+        writeSection(body, encodeTimestamps());
+        writeSection(body, encodeIds());
+        if (has(0)) {
+            writeSection(body, encodeDoubles(ReadingView::tempC));
+        }
+        if (has(1)) {
+            writeSection(body, encodeInts(ReadingView::ambientHumidity));
+        }
+        if (has(2)) {
+            writeSection(body, encodeInts(ReadingView::soilHumidity));
+        }
+        if (has(3)) {
+            writeSection(body, encodeInts(ReadingView::lightLux));
+        }
+        if (has(4)) {
+            writeSection(body, encodeEnums(ReadingView::qcStatus));
+        }
+        if (has(5)) {
+            writeSection(body, encodeEnums(ReadingView::advisorResult));
+        }
+
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        out.writeInt(rows);
+        out.writeInt(bytes.length);
+        out.writeInt((int) crc.getValue());
+        out.write(bytes);
+
+        written += rows;
+        Arrays.fill(block, 0, rows, null);
+        rows = 0;
+    }
+
+    private boolean has(int field) {
+        return (fieldMask & (1 << field)) != 0;
+    }
+
+    private byte[] encodeTimestamps() {
+        BitOutput bits = new BitOutput(rows / 4 + 16);
+        Gorilla.TimestampEncoder encoder = new Gorilla.TimestampEncoder();
+        for (int i = 0; i < rows; i++) {
+            encoder.write(bits, block[i].timestamp().toEpochMilli());
+        }
+        return bits.toByteArray();
+    }
+
+    private byte[] encodeIds() {
+        ByteArrayOutputStream column = new ByteArrayOutputStream(rows * 3);
+        byte[] previous = null;
+        for (int i = 0; i < rows; i++) {
+            String id = block[i].id();
+            if (id == null) {
+                VarInts.writeVarLong(column, ID_NULL);
+                continue;
+            }
+            if (!ObjectId.isValid(id)) {
+                VarInts.writeVarLong(column, ID_TEXT);
+                byte[] text = id.getBytes(StandardCharsets.UTF_8);
+                VarInts.writeVarLong(column, text.length);
+                column.writeBytes(text);
+                continue;
+            }
+            byte[] current = new ObjectId(id).toByteArray();
+            if (previous != null && sameProcess(previous, current)) {
+                // Mismo proceso generador: solo cambian los segundos y el contador
+                VarInts.writeVarLong(column, ID_OBJECT_ID_DELTA);
+                VarInts.writeSignedVarLong(column, (long) seconds(current) - seconds(previous));
+                VarInts.writeSignedVarLong(column, (long) counter(current) - counter(previous));
+            } else {
+                VarInts.writeVarLong(column, ID_OBJECT_ID);
+                column.writeBytes(current);
+            }
+            previous = current;
+        }
+        return column.toByteArray();
+    }
+
+    private byte[] encodeDoubles(Function<ReadingView, Double> getter) {
+        BitOutput bits = new BitOutput(rows + 16);
+        Gorilla.DoubleEncoder encoder = new Gorilla.DoubleEncoder();
+        for (int i = 0; i < rows; i++) {
+            Double value = getter.apply(block[i]);
+            bits.writeBit(value != null);
+            if (value != null) {
+                encoder.write(bits, value);
+            }
+        }
+        return bits.toByteArray();
+    }
+
+    private byte[] encodeInts(Function<ReadingView, Integer> getter) {
+        ByteArrayOutputStream column = new ByteArrayOutputStream(rows);
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            Integer value = getter.apply(block[i]);
+            if (value == null) {
+                VarInts.writeVarLong(column, 0);
+            } else {
+                VarInts.writeVarLong(column, VarInts.zigzag(value - previous) + 1);
+                previous = value;
+            }
+        }
+        return column.toByteArray();
+    }
+
+    private byte[] encodeEnums(Function<ReadingView, Enum<?>> getter) {
+        ByteArrayOutputStream column = new ByteArrayOutputStream(16);
+        int current = -1;
+        int run = 0;
+        for (int i = 0; i < rows; i++) {
+            Enum<?> value = getter.apply(block[i]);
+            int code = value != null ? value.ordinal() + 1 : 0;
+            if (code != current && run > 0) {
+                VarInts.writeVarLong(column, current);
+                VarInts.writeVarLong(column, run);
+                run = 0;
+            }
+            current = code;
+            run++;
+        }
+        if (run > 0) {
+            VarInts.writeVarLong(column, current);
+            VarInts.writeVarLong(column, run);
+        }
+        return column.toByteArray();
+    }
+
+    private static void writeSection(ByteArrayOutputStream body, byte[] section) {
+        VarInts.writeVarLong(body, section.length);
+        body.writeBytes(section);
+    }
+
+    // --- OBJECTID: 4 bytes de segundos | 5 bytes de proceso | 3 bytes de contador ---
+
+    static boolean sameProcess(byte[] a, byte[] b) {
+        for (int i = 4; i < 9; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int seconds(byte[] oid) {
+        return ((oid[0] & 0xFF) << 24) | ((oid[1] & 0xFF) << 16) | ((oid[2] & 0xFF) << 8) | (oid[3] & 0xFF);
+    }
+
+    static int counter(byte[] oid) {
+        return ((oid[9] & 0xFF) << 16) | ((oid[10] & 0xFF) << 8) | (oid[11] & 0xFF);
+    }
+}
@@ -0,0 +1,150 @@
+package com.api.plant.storage;
+
+/**
+ * Codificaciones de series de tiempo del paper "Gorilla" (Facebook, VLDB 2015):
+ * - timestamps: delta-of-delta con prefijos de largo variable (intervalo regular = 1 bit por punto);
+ * - doubles: XOR con el valor anterior, guardando solo los bits significativos.
+ *
+ * Los codificadores tienen estado (valor anterior): uno por columna y por bloque.
+ */
+public final class Gorilla {
+
+    private Gorilla() {
+    }
+
+    /**
+     * Timestamps en milisegundos. El primero va completo (64 bits); luego, zigzag(delta - deltaAnterior) con
+     * '0' (igual al anterior), '10'+7, '110'+9, '1110'+12, '11110'+32 o '11111'+64 bits.
+     */
+    public static final class TimestampEncoder {
+        private boolean first = true;
+        private long previous;
+        private long previousDelta;
+
+        public void write(BitOutput out, long timestamp) {
+            if (first) {
+                out.writeBits(timestamp, 64);
+                previous = timestamp;
+                first = false;
+                return;
+            }
+            long delta = timestamp - previous;
+            // Sin signo: con saltos enormes la resta se desborda y el zigzag queda con el bit alto encendido
+            long dod = VarInts.zigzag(delta - previousDelta);
+            previous = timestamp;
+            previousDelta = delta;
+
+            if (dod == 0) {
+                out.writeBit(false);
+            } else if (dod >>> 7 == 0) {
+                out.writeBits(0b10, 2);
+                out.writeBits(dod, 7);
+            } else if (dod >>> 9 == 0) {
+                out.writeBits(0b110, 3);
+                out.writeBits(dod, 9);
+            } else if (dod >>> 12 == 0) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(dod, 12);
+            } else if (dod >>> 32 == 0) {
+                out.writeBits(0b11110, 5);
+                out.writeBits(dod, 32);
+            } else {
+                out.writeBits(0b11111, 5);
+                out.writeBits(dod, 64);
+            }
+        }
+    }
+
+    public static final class TimestampDecoder {
+        private static final int[] WIDTHS = {0, 7, 9, 12, 32, 64};
+
+        private boolean first = true;
+        private long previous;
+        private long previousDelta;
+
+        public long read(BitInput in) {
+            if (first) {
+                previous = in.readBits(64);
+                first = false;
+                return previous;
+            }
+            int ones = 0;
+            while (ones < 5 && in.readBit()) {
+                ones++;
+            }
+            long dod = ones == 0 ? 0 : VarInts.unzigzag(in.readBits(WIDTHS[ones]));
+            previousDelta += dod;
+            previous += previousDelta;
+            return previous;
+        }
+    }
+
+    /**
+     * Doubles: el primero completo; luego '0' si es igual al anterior, '10' + bits significativos si caben en
+     * la ventana anterior, o '11' + 5 bits de ceros iniciales + 6 bits de largo + bits significativos.
+     */
+    public static final class DoubleEncoder {
+        private boolean first = true;
+        private long previous;
+        private int previousLeading = -1;
+        private int previousTrailing;
+
+        public void write(BitOutput out, double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            if (first) {
+                out.writeBits(bits, 64);
+                previous = bits;
+                first = false;
+                return;
+            }
+            long xor = bits ^ previous;
+            previous = bits;
+            if (xor == 0) {
+                out.writeBit(false);
+                return;
+            }
+            out.writeBit(true);
+
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                out.writeBit(false);
+                out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                out.writeBit(true);
+                out.writeBits(leading, 5);
+                out.writeBits(significant - 1, 6);
+                out.writeBits(xor >>> trailing, significant);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+    }
+
+    public static final class DoubleDecoder {
+        private boolean first = true;
+        private long previous;
+        private int previousLeading;
+        private int previousTrailing;
+
+        public double read(BitInput in) {
+            if (first) {
+                previous = in.readBits(64);
+                first = false;
+                return Double.longBitsToDouble(previous);
+            }
+            if (!in.readBit()) {
+                return Double.longBitsToDouble(previous);
+            }
+            if (in.readBit()) {
+                previousLeading = (int) in.readBits(5);
+                int significant = (int) in.readBits(6) + 1;
+                previousTrailing = 64 - previousLeading - significant;
+            }
+            int significant = 64 - previousLeading - previousTrailing;
+            previous ^= in.readBits(significant) << previousTrailing;
+            return Double.longBitsToDouble(previous);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.api.plant.storage;
+
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.entity.Reading;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lecturas recientes de una planta en memoria (nivel "caliente" del historial).
+ *
+ * - Las lecturas nuevas van a una cabeza de arreglos primitivos (timestamp, métricas, enums como byte).
+ * - Al juntar 'chunkRows' filas la cabeza se sella en un bloque comprimido con el formato columnar
+ *   (timestamps delta-of-delta y doubles XOR de Gorilla, enteros delta + varint, enums RLE).
+ * - coveredFrom: desde ese instante la serie tiene TODAS las lecturas de la planta; antes hay que ir a Mongo.
+ *
+ * Thread-safe: los métodos son sincronizados y los bloques sellados son inmutables, así que se decodifican
+ * fuera del lock.
+ */
+public final class HotReadingSeries {
+
+    private static final Set<String> ALL_FIELDS = new HashSet<>(ColumnarReadingFormat.FIELDS);
+    private static final Reading.QcStatus[] QC_VALUES = Reading.QcStatus.values();
+    private static final Reading.AdvisorResult[] ADVISOR_VALUES = Reading.AdvisorResult.values();
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    // Estimación por fila de la cabeza: 8 timestamp + 8 temp + 3x4 enteros + 2 enums + ~64 del id (String hex)
+    public static final int HEAD_ROW_BYTES = 94;
+    // Objeto Chunk + cabecera del formato columnar
+    public static final int CHUNK_OVERHEAD_BYTES = 96;
+
+    /**
+     * Bloque sellado: lecturas [minTs, maxTs] codificadas con ColumnarReadingWriter.
+     */
+    public record Chunk(long minTs, long maxTs, int rows, byte[] data) {
+        public long bytes() {
+            return data.length + CHUNK_OVERHEAD_BYTES;
+        }
+    }
+
+    /**
+     * Vista consistente de un rango: bloques que lo tocan (a decodificar) y filas de la cabeza ya filtradas.
+     */
+    public record Snapshot(List<Chunk> chunks, List<ReadingView> head) {}
+
+    private final String plantId;
+    private final int chunkRows;
+    private final ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+    private long chunkBytes;
+    private volatile long coveredFrom;
+
+    // --- Cabeza (orden por timestamp, _id) ---
+    private String[] ids;
+    private long[] timestamps;
+    private double[] tempC;
+    private int[] ambientHumidity;
+    private int[] soilHumidity;
+    private int[] lightLux;
+    private byte[] qcStatus;
+    private byte[] advisorResult;
+    private int size;
+
+    public HotReadingSeries(String plantId, long coveredFrom, int chunkRows) {
+        this.plantId = plantId;
+        this.coveredFrom = coveredFrom;
+        this.chunkRows = Math.max(16, chunkRows);
+        allocateHead(16);
+    }
+
+    public String getPlantId() {
+        return plantId;
+    }
+
+    public long coveredFrom() {
+        return coveredFrom;
+    }
+
+    /**
+     * Agrega una lectura en su posición (normalmente al final).
+     * Las que llegan tarde a un bloque ya sellado lo recodifican; las anteriores a coveredFrom se ignoran.
+     *
+     * @return Variación de memoria estimada en bytes.
+     */
+    public synchronized long append(ReadingView reading) {
+        long ts = reading.timestamp().toEpochMilli();
+        if (ts < coveredFrom) {
+            return 0;
+        }
+        long before = memoryBytes();
+        Chunk last = chunks.peekLast();
+        if (last != null && ts == last.maxTs() && sealedContains(ts, reading.id())) {
+            // Repetida del último instante sellado: la cabeza no la ve, hay que buscarla en el bloque
+            return 0;
+        }
+        if (last == null || ts >= last.maxTs()) {
+            insertHead(reading);
+            if (size >= chunkRows) {
+                seal();
+            }
+        } else {
+            insertLate(reading);
+        }
+        return memoryBytes() - before;
+    }
+
+    /**
+     * Descarta los bloques (y filas de la cabeza) anteriores a cutoff.
+     *
+     * @return Bytes liberados.
+     */
+    public synchronized long evictBefore(long cutoff) {
+        long before = memoryBytes();
+        while (!chunks.isEmpty() && chunks.peekFirst().maxTs() < cutoff) {
+            removeFirstChunk();
+        }
+        if (chunks.isEmpty() && size > 0 && timestamps[0] < cutoff) {
+            int drop = 0;
+            while (drop < size && timestamps[drop] < cutoff) {
+                drop++;
+            }
+            coveredFrom = Math.max(coveredFrom, timestamps[drop - 1] + 1);
+            removeHead(drop);
+        }
+        return before - memoryBytes();
+    }
+
+    /**
+     * Descarta el bloque más antiguo (presupuesto de memoria excedido).
+     *
+     * @return Bytes liberados (0 si no hay bloques sellados).
+     */
+    public synchronized long evictOldestChunk() {
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+        long before = memoryBytes();
+        removeFirstChunk();
+        return before - memoryBytes();
+    }
+
+    /**
+     * Fin del bloque más antiguo, o Long.MAX_VALUE si no hay bloques sellados.
+     */
+    public synchronized long oldestChunkEnd() {
+        Chunk first = chunks.peekFirst();
+        return first != null ? first.maxTs() : Long.MAX_VALUE;
+    }
+
+    public synchronized long memoryBytes() {
+        return chunkBytes + (long) timestamps.length * HEAD_ROW_BYTES;
+    }
+
+    public synchronized int rows() {
+        int rows = size;
+        for (Chunk chunk : chunks) {
+            rows += chunk.rows();
+        }
+        return rows;
+    }
+
+    /**
+     * Bloques que se solapan con [from, to) y las filas de la cabeza dentro del rango, en orden ascendente.
+     */
+    public synchronized Snapshot snapshot(long from, long to) {
+        List<Chunk> overlapping = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (chunk.maxTs() >= from && chunk.minTs() < to) {
+                overlapping.add(chunk);
+            }
+        }
+        List<ReadingView> head = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (timestamps[i] >= from && timestamps[i] < to) {
+                head.add(headView(i));
+            }
+        }
+        return new Snapshot(overlapping, head);
+    }
+
+    /**
+     * Decodifica un bloque sellado (todas las columnas).
+     */
+    public static List<ReadingView> decode(Chunk chunk) {
+        List<ReadingView> rows = new ArrayList<>(chunk.rows());
+        try (ColumnarReadingReader reader = new ColumnarReadingReader(new ByteArrayInputStream(chunk.data()))) {
+            reader.forEachRemaining(rows::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
+    // --- CABEZA ---
+
+    private void allocateHead(int capacity) {
+        ids = new String[capacity];
+        timestamps = new long[capacity];
+        tempC = new double[capacity];
+        ambientHumidity = new int[capacity];
+        soilHumidity = new int[capacity];
+        lightLux = new int[capacity];
+        qcStatus = new byte[capacity];
+        advisorResult = new byte[capacity];
+    }
+
+    private void growHead() {
+        int capacity = Math.min(chunkRows, timestamps.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        tempC = Arrays.copyOf(tempC, capacity);
+        ambientHumidity = Arrays.copyOf(ambientHumidity, capacity);
+        soilHumidity = Arrays.copyOf(soilHumidity, capacity);
+        lightLux = Arrays.copyOf(lightLux, capacity);
+        qcStatus = Arrays.copyOf(qcStatus, capacity);
+        advisorResult = Arrays.copyOf(advisorResult, capacity);
+    }
+
+    private void insertHead(ReadingView reading) {
+        if (size == timestamps.length) {
+            growHead();
+        }
+        long ts = reading.timestamp().toEpochMilli();
+        String id = reading.id() != null ? reading.id() : "";
+        int position = size;
+        while (position > 0 && (timestamps[position - 1] > ts
+                || (timestamps[position - 1] == ts && ids[position - 1].compareTo(id) >= 0))) {
+            if (timestamps[position - 1] == ts && !id.isEmpty() && ids[position - 1].equals(id)) {
+                return; // Ya estaba (ej. llegó durante la reconstrucción y también la trajo Mongo)
+            }
+            position--;
+        }
+        if (position < size) {
+            shift(position, position + 1, size - position);
+        }
+        ids[position] = id;
+        timestamps[position] = ts;
+        tempC[position] = reading.tempC() != null ? reading.tempC() : Double.NaN;
+        ambientHumidity[position] = reading.ambientHumidity() != null ? reading.ambientHumidity() : NULL_INT;
+        soilHumidity[position] = reading.soilHumidity() != null ? reading.soilHumidity() : NULL_INT;
+        lightLux[position] = reading.lightLux() != null ? reading.lightLux() : NULL_INT;
+        qcStatus[position] = (byte) (reading.qcStatus() != null ? reading.qcStatus().ordinal() : -1);
+        advisorResult[position] = (byte) (reading.advisorResult() != null ? reading.advisorResult().ordinal() : -1);
+        size++;
+    }
+
+    private void removeHead(int count) {
+        shift(count, 0, size - count);
+        Arrays.fill(ids, size - count, size, null);
+        size -= count;
+    }
+
+    private void shift(int from, int to, int length) {
+        System.arraycopy(ids, from, ids, to, length);
+        System.arraycopy(timestamps, from, timestamps, to, length);
+        System.arraycopy(tempC, from, tempC, to, length);
+        System.arraycopy(ambientHumidity, from, ambientHumidity, to, length);
+        System.arraycopy(soilHumidity, from, soilHumidity, to, length);
+        System.arraycopy(lightLux, from, lightLux, to, length);
+        System.arraycopy(qcStatus, from, qcStatus, to, length);
+        System.arraycopy(advisorResult, from, advisorResult, to, length);
+    }
+
+    private ReadingView headView(int i) {
+        return new ReadingView(
+                ids[i].isEmpty() ? null : ids[i],
+                Instant.ofEpochMilli(timestamps[i]),
+                Double.isNaN(tempC[i]) ? null : tempC[i],
+                ambientHumidity[i] != NULL_INT ? ambientHumidity[i] : null,
+                soilHumidity[i] != NULL_INT ? soilHumidity[i] : null,
+                lightLux[i] != NULL_INT ? lightLux[i] : null,
+                qcStatus[i] >= 0 ? QC_VALUES[qcStatus[i]] : null,
+                advisorResult[i] >= 0 ? ADVISOR_VALUES[advisorResult[i]] : null
+        );
+    }
+
+    // --- BLOQUES ---
+
+    private void seal() {
+        List<ReadingView> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(headView(i));
+        }
+        addChunk(encode(rows));
+        size = 0;
+        // La cabeza vuelve a crecer desde chica: una planta que reporta poco no retiene arreglos grandes
+        allocateHead(16);
+    }
+
+    private void insertLate(ReadingView reading) {
+        long ts = reading.timestamp().toEpochMilli();
+        List<Chunk> all = new ArrayList<>(chunks);
+        int index = 0;
+        for (int i = all.size() - 1; i >= 0; i--) {
+            if (all.get(i).minTs() <= ts) {
+                index = i;
+                break;
+            }
+        }
+        Chunk target = all.get(index);
+        List<ReadingView> rows = new ArrayList<>(decode(target));
+        String id = reading.id() != null ? reading.id() : "";
+        int position = rows.size();
+        while (position > 0 && isAfter(rows.get(position - 1), ts, id)) {
+            position--;
+        }
+        if (position > 0 && !id.isEmpty() && id.equals(rows.get(position - 1).id())) {
+            return;
+        }
+        rows.add(position, reading);
+
+        all.set(index, encode(rows));
+        chunks.clear();
+        chunkBytes = 0;
+        all.forEach(this::addChunk);
+    }
+
+    /**
+     * true si algún bloque sellado ya tiene la lectura (ts, id). Solo se decodifican los bloques que llegan a ts.
+     */
+    private boolean sealedContains(long ts, String id) {
+        if (id == null || id.isEmpty()) {
+            return false;
+        }
+        Iterator<Chunk> descending = chunks.descendingIterator();
+        while (descending.hasNext()) {
+            Chunk chunk = descending.next();
+            if (chunk.maxTs() < ts) {
+                break;
+            }
+            if (chunk.minTs() > ts) {
+                continue;
+            }
+            List<ReadingView> rows = decode(chunk);
+            for (int i = rows.size() - 1; i >= 0 && rows.get(i).timestamp().toEpochMilli() >= ts; i--) {
+                if (rows.get(i).timestamp().toEpochMilli() == ts && id.equals(rows.get(i).id())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAfter(ReadingView row, long ts, String id) {
+        long rowTs = row.timestamp().toEpochMilli();
+        return rowTs > ts || (rowTs == ts && row.id() != null && row.id().compareTo(id) > 0);
+    }
+
+    private void addChunk(Chunk chunk) {
+        chunks.addLast(chunk);
+        chunkBytes += chunk.bytes();
+    }
+
+    private void removeFirstChunk() {
+        Chunk removed = chunks.removeFirst();
+        chunkBytes -= removed.bytes();
+        coveredFrom = Math.max(coveredFrom, removed.maxTs() + 1);
+    }
+
+    private Chunk encode(List<ReadingView> rows) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(rows.size() * 16 + 64);
+            ColumnarReadingWriter writer = new ColumnarReadingWriter(out, plantId, ALL_FIELDS, rows.size());
+            for (ReadingView row : rows) {
+                writer.write(row);
+            }
+            writer.finish();
+            return new Chunk(rows.get(0).timestamp().toEpochMilli(), rows.get(rows.size() - 1).timestamp().toEpochMilli(),
+                    rows.size(), out.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.api.plant.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Archivo local de lecturas: un segmento inmutable por planta y por día (UTC).
+ * Ruta: {retention.archive.dir}/{plantId}/{yyyy-MM-dd}.seg
+ *
+ * El directorio es local al nodo: con varias instancias debe montarse un volumen compartido
+ * (o correr la retención en un solo nodo), porque el historial archivado solo se lee de este disco.
+ */
+@Component
+public class ReadingArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingArchive.class);
+
+    private static final String EXTENSION = ".seg";
+    public static final long DAY_MS = 86_400_000L;
+
+    private final Path baseDir;
+
+    public ReadingArchive(@Value("${retention.archive.dir:./data/archive}") String baseDir) {
+        this.baseDir = Paths.get(baseDir).toAbsolutePath();
+    }
+
+    public boolean exists(String plantId, long dayStart) {
+        return Files.exists(pathFor(plantId, dayStart));
+    }
+
+    /**
+     * Escribe el segmento de forma atómica (archivo temporal + rename) y lo deja de solo lectura.
+     * Un segmento existente nunca se sobrescribe.
+     */
+    public Path write(ReadingSegment segment) throws IOException {
+        Path target = pathFor(segment.getPlantId(), segment.getDayStart());
+        if (Files.exists(target)) {
+            return target;
+        }
+        Files.createDirectories(target.getParent());
+        Path tmp = Files.createTempFile(target.getParent(), "seg-", ".tmp");
+        try {
+            Files.write(tmp, segment.encode());
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        if (!target.toFile().setWritable(false, false)) {
+            log.debug("ARCHIVO: No se pudo marcar {} como solo lectura.", target);
+        }
+        return target;
+    }
+
+    public Optional<ReadingSegment> read(String plantId, long dayStart) throws IOException {
+        Path path = pathFor(plantId, dayStart);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        return Optional.of(ReadingSegment.decode(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Días archivados de la planta en [fromDay, toDay), ordenados.
+     */
+    public List<Long> days(String plantId, long fromDay, long toDay) throws IOException {
+        Path dir = baseDir.resolve(safe(plantId));
+        List<Long> days = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return days;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(EXTENSION))
+                    .forEach(name -> {
+                        try {
+                            long day = LocalDate.parse(name.substring(0, name.length() - EXTENSION.length()))
+                                    .atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+                            if (day >= fromDay && day < toDay) {
+                                days.add(day);
+                            }
+                        } catch (DateTimeParseException ignored) {
+                            // Archivo ajeno al archivo de lecturas
+                        }
+                    });
+        }
+        days.sort(Long::compare);
+        return days;
+    }
+
+    public static long dayStart(long epochMillis) {
+        return Math.floorDiv(epochMillis, DAY_MS) * DAY_MS;
+    }
+
+    private Path pathFor(String plantId, long dayStart) {
+        String day = LocalDate.ofInstant(Instant.ofEpochMilli(dayStart), ZoneOffset.UTC).toString();
+        return baseDir.resolve(safe(plantId)).resolve(day + EXTENSION);
+    }
+
+    // El plantId viene de la base de datos, pero igual se evita cualquier salto de directorio
+    private static String safe(String plantId) {
+        return plantId.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+}
@@ -0,0 +1,414 @@
+package com.api.plant.storage;
+
+import com.api.plant.entity.Reading;
+import org.bson.types.ObjectId;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Segmento de archivo: todas las lecturas de UNA planta en UN día, en columnas.
+ *
+ * Formato (v1): "RSEG" | versión | largo sin comprimir | CRC32 | cuerpo Deflate. El cuerpo tiene:
+ * - cabecera: plantId, userId, inicio del día, cantidad de filas;
+ * - timestamps: delta con la fila anterior (zigzag varint);
+ * - ids: ObjectId en 12 bytes (o texto si no es un ObjectId);
+ * - métricas: bitmap de presencia + delta zigzag varint (tempC en milésimas de grado);
+ * - qcStatus / advisorResult: un byte por fila con el código estable del enum (Reading.QcStatus.code(),
+ *   0xFF = null). La tabla de códigos de v1 es la de Reading; un código desconocido rechaza el segmento.
+ */
+public final class ReadingSegment {
+
+    private static final int MAGIC = 0x52534547; // "RSEG"
+    private static final byte VERSION = 1;
+    private static final double TEMP_SCALE = 1000.0;
+    private static final byte NULL_ENUM = (byte) 0xFF;
+
+    private final String plantId;
+    private final String userId;
+    private final long dayStart;
+    private final int count;
+
+    private final long[] timestamps;
+    private final String[] ids;
+    private final long[] tempMilli;
+    private final BitSet tempPresent;
+    private final int[] ambientHumidity;
+    private final BitSet ambientPresent;
+    private final int[] soilHumidity;
+    private final BitSet soilPresent;
+    private final int[] lightLux;
+    private final BitSet lightPresent;
+    private final byte[] qcStatus;
+    private final byte[] advisorResult;
+
+    private ReadingSegment(String plantId, String userId, long dayStart, int count,
+                           long[] timestamps, String[] ids,
+                           long[] tempMilli, BitSet tempPresent,
+                           int[] ambientHumidity, BitSet ambientPresent,
+                           int[] soilHumidity, BitSet soilPresent,
+                           int[] lightLux, BitSet lightPresent,
+                           byte[] qcStatus, byte[] advisorResult) {
+        this.plantId = plantId;
+        this.userId = userId;
+        this.dayStart = dayStart;
+        this.count = count;
+        this.timestamps = timestamps;
+        this.ids = ids;
+        this.tempMilli = tempMilli;
+        this.tempPresent = tempPresent;
+        this.ambientHumidity = ambientHumidity;
+        this.ambientPresent = ambientPresent;
+        this.soilHumidity = soilHumidity;
+        this.soilPresent = soilPresent;
+        this.lightLux = lightLux;
+        this.lightPresent = lightPresent;
+        this.qcStatus = qcStatus;
+        this.advisorResult = advisorResult;
+    }
+
+    // --- ACCESO POR FILA ---
+
+    public String getPlantId() {
+        return plantId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public long getDayStart() {
+        return dayStart;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long timestamp(int row) {
+        return timestamps[row];
+    }
+
+    public String id(int row) {
+        return ids[row];
+    }
+
+    public Double tempC(int row) {
+        return tempPresent.get(row) ? tempMilli[row] / TEMP_SCALE : null;
+    }
+
+    public Integer ambientHumidity(int row) {
+        return ambientPresent.get(row) ? ambientHumidity[row] : null;
+    }
+
+    public Integer soilHumidity(int row) {
+        return soilPresent.get(row) ? soilHumidity[row] : null;
+    }
+
+    public Integer lightLux(int row) {
+        return lightPresent.get(row) ? lightLux[row] : null;
+    }
+
+    public Reading.QcStatus qcStatus(int row) {
+        return qcStatus[row] == NULL_ENUM ? null : Reading.QcStatus.fromCode(qcStatus[row]);
+    }
+
+    public Reading.AdvisorResult advisorResult(int row) {
+        return advisorResult[row] == NULL_ENUM ? null : Reading.AdvisorResult.fromCode(advisorResult[row]);
+    }
+
+    // --- CODIFICACIÓN ---
+
+    public byte[] encode() {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(count * 16 + 64);
+        writeString(body, plantId);
+        writeString(body, userId != null ? userId : "");
+        VarInts.writeSignedVarLong(body, dayStart);
+        VarInts.writeVarLong(body, count);
+
+        long previous = dayStart;
+        for (int i = 0; i < count; i++) {
+            VarInts.writeSignedVarLong(body, timestamps[i] - previous);
+            previous = timestamps[i];
+        }
+        for (int i = 0; i < count; i++) {
+            if (ObjectId.isValid(ids[i])) {
+                body.write(1);
+                body.writeBytes(new ObjectId(ids[i]).toByteArray());
+            } else {
+                body.write(0);
+                writeString(body, ids[i] != null ? ids[i] : "");
+            }
+        }
+        writeLongColumn(body, tempMilli, tempPresent);
+        writeIntColumn(body, ambientHumidity, ambientPresent);
+        writeIntColumn(body, soilHumidity, soilPresent);
+        writeIntColumn(body, lightLux, lightPresent);
+        body.write(qcStatus, 0, count);
+        body.write(advisorResult, 0, count);
+
+        byte[] raw = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 16);
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            compressed.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+
+        ByteBuffer file = ByteBuffer.allocate(13 + compressed.size());
+        file.putInt(MAGIC).put(VERSION).putInt(raw.length).putInt((int) crc.getValue());
+        file.put(compressed.toByteArray());
+        return file.array();
+    }
+
+    public static ReadingSegment decode(byte[] file) {
+        ByteBuffer header = ByteBuffer.wrap(file);
+        if (header.getInt() != MAGIC) {
+            throw new IllegalStateException("No es un segmento de lecturas.");
+        }
+        byte version = header.get();
+        if (version != VERSION) {
+            throw new IllegalStateException("Versión de segmento no soportada: " + version);
+        }
+        int rawLength = header.getInt();
+        int expectedCrc = header.getInt();
+
+        byte[] raw = new byte[rawLength];
+        Inflater inflater = new Inflater();
+        inflater.setInput(file, header.position(), file.length - header.position());
+        try {
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Segmento corrupto: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if ((int) crc.getValue() != expectedCrc) {
+            throw new IllegalStateException("Segmento corrupto: CRC no coincide.");
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        String plantId = readString(in);
+        String userId = readString(in);
+        long dayStart = VarInts.readSignedVarLong(in);
+        int count = (int) VarInts.readVarLong(in);
+
+        long[] timestamps = new long[count];
+        long previous = dayStart;
+        for (int i = 0; i < count; i++) {
+            previous += VarInts.readSignedVarLong(in);
+            timestamps[i] = previous;
+        }
+        String[] ids = new String[count];
+        byte[] oid = new byte[12];
+        for (int i = 0; i < count; i++) {
+            if (in.get() == 1) {
+                in.get(oid);
+                ids[i] = new ObjectId(oid).toHexString();
+            } else {
+                ids[i] = readString(in);
+            }
+        }
+        BitSet tempPresent = readPresence(in, count);
+        long[] tempMilli = readLongColumn(in, count, tempPresent);
+        BitSet ambientPresent = readPresence(in, count);
+        int[] ambient = readIntColumn(in, count, ambientPresent);
+        BitSet soilPresent = readPresence(in, count);
+        int[] soil = readIntColumn(in, count, soilPresent);
+        BitSet lightPresent = readPresence(in, count);
+        int[] light = readIntColumn(in, count, lightPresent);
+        byte[] qc = new byte[count];
+        in.get(qc);
+        byte[] advisor = new byte[count];
+        in.get(advisor);
+        for (int i = 0; i < count; i++) {
+            if (qc[i] != NULL_ENUM && Reading.QcStatus.fromCode(qc[i]) == null) {
+                throw new IllegalStateException("Segmento corrupto: código de qcStatus desconocido " + qc[i] + ".");
+            }
+            if (advisor[i] != NULL_ENUM && Reading.AdvisorResult.fromCode(advisor[i]) == null) {
+                throw new IllegalStateException("Segmento corrupto: código de advisorResult desconocido " + advisor[i] + ".");
+            }
+        }
+
+        return new ReadingSegment(plantId, userId.isEmpty() ? null : userId, dayStart, count, timestamps, ids,
+                tempMilli, tempPresent, ambient, ambientPresent, soil, soilPresent, light, lightPresent, qc, advisor);
+    }
+
+    // --- COLUMNAS ---
+
+    private static void writeLongColumn(ByteArrayOutputStream out, long[] values, BitSet present) {
+        writePresence(out, present, values.length);
+        long previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (present.get(i)) {
+                VarInts.writeSignedVarLong(out, values[i] - previous);
+                previous = values[i];
+            }
+        }
+    }
+
+    private static void writeIntColumn(ByteArrayOutputStream out, int[] values, BitSet present) {
+        writePresence(out, present, values.length);
+        long previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (present.get(i)) {
+                VarInts.writeSignedVarLong(out, values[i] - previous);
+                previous = values[i];
+            }
+        }
+    }
+
+    private static long[] readLongColumn(ByteBuffer in, int count, BitSet present) {
+        long[] values = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            if (present.get(i)) {
+                previous += VarInts.readSignedVarLong(in);
+                values[i] = previous;
+            }
+        }
+        return values;
+    }
+
+    private static int[] readIntColumn(ByteBuffer in, int count, BitSet present) {
+        int[] values = new int[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            if (present.get(i)) {
+                previous += VarInts.readSignedVarLong(in);
+                values[i] = (int) previous;
+            }
+        }
+        return values;
+    }
+
+    private static void writePresence(ByteArrayOutputStream out, BitSet present, int count) {
+        byte[] bits = Arrays.copyOf(present.toByteArray(), (count + 7) / 8);
+        out.writeBytes(bits);
+    }
+
+    private static BitSet readPresence(ByteBuffer in, int count) {
+        byte[] bits = new byte[(count + 7) / 8];
+        in.get(bits);
+        return BitSet.valueOf(bits);
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        VarInts.writeVarLong(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[(int) VarInts.readVarLong(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --- CONSTRUCCIÓN ---
+
+    /**
+     * Acumula filas en orden cronológico y construye el segmento.
+     */
+    public static final class Builder {
+        private final String plantId;
+        private final long dayStart;
+        private String userId;
+        private int count;
+
+        private long[] timestamps = new long[256];
+        private String[] ids = new String[256];
+        private long[] tempMilli = new long[256];
+        private int[] ambient = new int[256];
+        private int[] soil = new int[256];
+        private int[] light = new int[256];
+        private byte[] qc = new byte[256];
+        private byte[] advisor = new byte[256];
+        private final BitSet tempPresent = new BitSet();
+        private final BitSet ambientPresent = new BitSet();
+        private final BitSet soilPresent = new BitSet();
+        private final BitSet lightPresent = new BitSet();
+
+        public Builder(String plantId, long dayStart) {
+            this.plantId = plantId;
+            this.dayStart = dayStart;
+        }
+
+        public Builder add(String id, String userId, long timestamp, Double tempC, Integer ambientHumidity,
+                           Integer soilHumidity, Integer lightLux, Reading.QcStatus qcStatus,
+                           Reading.AdvisorResult advisorResult) {
+            if (count == timestamps.length) {
+                grow();
+            }
+            if (userId != null) {
+                this.userId = userId;
+            }
+            timestamps[count] = timestamp;
+            ids[count] = id;
+            if (tempC != null) {
+                tempMilli[count] = Math.round(tempC * TEMP_SCALE);
+                tempPresent.set(count);
+            }
+            if (ambientHumidity != null) {
+                ambient[count] = ambientHumidity;
+                ambientPresent.set(count);
+            }
+            if (soilHumidity != null) {
+                soil[count] = soilHumidity;
+                soilPresent.set(count);
+            }
+            if (lightLux != null) {
+                light[count] = lightLux;
+                lightPresent.set(count);
+            }
+            qc[count] = qcStatus != null ? (byte) qcStatus.code() : NULL_ENUM;
+            advisor[count] = advisorResult != null ? (byte) advisorResult.code() : NULL_ENUM;
+            count++;
+            return this;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public ReadingSegment build() {
+            return new ReadingSegment(plantId, userId, dayStart, count,
+                    Arrays.copyOf(timestamps, count), Arrays.copyOf(ids, count),
+                    Arrays.copyOf(tempMilli, count), tempPresent,
+                    Arrays.copyOf(ambient, count), ambientPresent,
+                    Arrays.copyOf(soil, count), soilPresent,
+                    Arrays.copyOf(light, count), lightPresent,
+                    Arrays.copyOf(qc, count), Arrays.copyOf(advisor, count));
+        }
+
+        private void grow() {
+            int size = timestamps.length * 2;
+            timestamps = Arrays.copyOf(timestamps, size);
+            ids = Arrays.copyOf(ids, size);
+            tempMilli = Arrays.copyOf(tempMilli, size);
+            ambient = Arrays.copyOf(ambient, size);
+            soil = Arrays.copyOf(soil, size);
+            light = Arrays.copyOf(light, size);
+            qc = Arrays.copyOf(qc, size);
+            advisor = Arrays.copyOf(advisor, size);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package com.api.plant.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Spool local de escritura anticipada (WAL) para cuando Mongo no está disponible.
+ *
+ * - Log de solo anexado en segmentos de tamaño fijo mapeados en memoria: spool-{n}.log.
+ * - Registro: largo (4) | CRC32 (4) | tipo (1) | payload. Un largo 0 marca el final de lo escrito
+ *   (los archivos nuevos se llenan con ceros).
+ * - El consumo se confirma con un checkpoint (segmento, offset) escrito de forma atómica; los segmentos
+ *   ya consumidos se borran. La entrega es al-menos-una-vez: tras una caída puede repetirse el último lote.
+ * - Al arrancar se valida el segmento activo registro por registro y se descarta la cola rota
+ *   (escritura cortada por una caída).
+ * - Disco acotado: si se llegaría a spool.max-bytes, el registro se rechaza.
+ *
+ * El mapeo sobrevive a una caída del proceso (los datos quedan en la caché del SO); ante un corte de
+ * energía pueden perderse los registros escritos desde el último force().
+ */
+@Component
+public class ReadingSpool {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadingSpool.class);
+
+    public static final byte TYPE_READING = 1;
+    public static final byte TYPE_HEARTBEAT = 2;
+
+    private static final int HEADER_BYTES = 9;
+    private static final String PREFIX = "spool-";
+    private static final String EXTENSION = ".log";
+    private static final String CHECKPOINT = "checkpoint";
+
+    /** Registro del spool. */
+    public record Entry(byte type, byte[] payload) {}
+
+    /** Posición en el log: segmento y offset dentro del segmento. */
+    public record Position(long segment, int offset) {}
+
+    /**
+     * Registros leídos y la posición que hay que confirmar al terminar de procesarlos.
+     * discarded = se saltó una cola corrupta (esos registros no se entregan).
+     */
+    public record Batch(List<Entry> entries, Position end, boolean discarded) {}
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxBytes;
+
+    // Todo el estado se protege con el monitor de la instancia
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private long activeSeq;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private int writeOffset;
+
+    private Position committed;
+    private long pendingRecords;
+
+    // Segmento sellado que se está leyendo (se mapea una sola vez)
+    private long readSeq = -1;
+    private MappedByteBuffer readBuffer;
+
+    public ReadingSpool(@Value("${spool.dir:./data/spool}") String dir,
+                        @Value("${spool.segment-bytes:16777216}") int segmentBytes,
+                        @Value("${spool.max-bytes:1073741824}") long maxBytes) {
+        this.dir = Paths.get(dir).toAbsolutePath();
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+    }
+
+    // --- ARRANQUE / RECUPERACIÓN ---
+
+    @PostConstruct
+    public synchronized void recover() throws IOException {
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(EXTENSION)) {
+                    try {
+                        segments.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - EXTENSION.length())), path);
+                    } catch (NumberFormatException ignored) {
+                        // Archivo ajeno al spool
+                    }
+                }
+            });
+        }
+
+        committed = readCheckpoint();
+        // Segmentos completamente consumidos antes de la caída
+        while (!segments.isEmpty() && segments.firstKey() < committed.segment()) {
+            Files.deleteIfExists(segments.pollFirstEntry().getValue());
+        }
+        if (segments.isEmpty()) {
+            openSegment(Math.max(1, committed.segment()));
+            committed = new Position(activeSeq, 0);
+        } else {
+            if (segments.firstKey() > committed.segment()) {
+                committed = new Position(segments.firstKey(), 0);
+            }
+            long last = segments.lastKey();
+            activeSeq = last;
+            activeChannel = FileChannel.open(segments.get(last), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            writeOffset = validTail(active, segmentBytes);
+            // Cola rota: se limpia para que no se confunda con registros válidos
+            for (int i = writeOffset; i < Math.min(segmentBytes, writeOffset + HEADER_BYTES); i++) {
+                active.put(i, (byte) 0);
+            }
+        }
+
+        pendingRecords = countPending();
+        if (pendingRecords > 0) {
+            log.warn("💾 SPOOL: {} registro(s) pendientes de reenviar a Mongo en {} segmento(s).", pendingRecords, segments.size());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            active.force();
+        }
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+    }
+
+    // --- ESCRITURA ---
+
+    /**
+     * Anexa un registro.
+     * @return false si no hay espacio (presupuesto de disco agotado o registro más grande que un segmento).
+     */
+    public synchronized boolean append(byte type, byte[] payload) throws IOException {
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentBytes) {
+            return false;
+        }
+        if (writeOffset + size > segmentBytes) {
+            if ((long) (segments.size() + 1) * segmentBytes > maxBytes) {
+                return false;
+            }
+            active.force();
+            activeChannel.close();
+            openSegment(activeSeq + 1);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        // El largo se escribe al final: un registro a medias queda con largo 0 o con CRC inválido
+        active.putInt(writeOffset + 4, (int) crc.getValue());
+        active.put(writeOffset + 8, type);
+        active.put(writeOffset + HEADER_BYTES, payload);
+        active.putInt(writeOffset, payload.length + 1);
+        writeOffset += size;
+        pendingRecords++;
+        return true;
+    }
+
+    /**
+     * Baja a disco lo escrito en el segmento activo.
+     */
+    public synchronized void force() {
+        active.force();
+    }
+
+    // --- LECTURA / CONFIRMACIÓN ---
+
+    /**
+     * Lee hasta 'max' registros desde la última posición confirmada (no avanza hasta commit()).
+     */
+    public synchronized Batch read(int max) throws IOException {
+        List<Entry> entries = new ArrayList<>(Math.min(max, 1024));
+        long seq = committed.segment();
+        int offset = committed.offset();
+        boolean discarded = false;
+
+        while (entries.size() < max) {
+            ByteBuffer buffer = bufferFor(seq);
+            int end = seq == activeSeq ? writeOffset : segmentBytes;
+            boolean segmentDone = false;
+
+            while (entries.size() < max) {
+                if (offset + HEADER_BYTES > end) {
+                    segmentDone = true;
+                    break;
+                }
+                int length = buffer.getInt(offset);
+                if (length <= 0 || offset + 8 + length > end) {
+                    segmentDone = true;
+                    break;
+                }
+                byte type = buffer.get(offset + 8);
+                byte[] payload = new byte[length - 1];
+                buffer.get(offset + HEADER_BYTES, payload);
+                if (!crcMatches(buffer.getInt(offset + 4), type, payload)) {
+                    // Corrupción en disco: se descarta el resto del segmento
+                    log.error("SPOOL: CRC inválido en el segmento {} offset {}. Se descarta el resto del segmento.", seq, offset);
+                    discarded = true;
+                    segmentDone = true;
+                    if (seq == activeSeq) {
+                        // En el segmento activo no hay siguiente: se salta hasta lo escrito para no releer el registro roto
+                        offset = writeOffset;
+                    }
+                    break;
+                }
+                entries.add(new Entry(type, payload));
+                offset += HEADER_BYTES + payload.length;
+            }
+
+            if (!segmentDone || seq == activeSeq) {
+                break;
+            }
+            Long next = segments.higherKey(seq);
+            if (next == null) {
+                break;
+            }
+            seq = next;
+            offset = 0;
+        }
+        return new Batch(entries, new Position(seq, offset), discarded);
+    }
+
+    /**
+     * Confirma el procesamiento hasta 'end' (inclusive el lote leído) y borra los segmentos consumidos.
+     */
+    public synchronized void commit(Batch batch) throws IOException {
+        Position end = batch.end();
+        writeCheckpoint(end);
+        committed = end;
+        if (batch.discarded()) {
+            // Los registros de la cola descartada estaban contados: se recuenta desde el checkpoint
+            pendingRecords = -1;
+        } else {
+            pendingRecords = Math.max(0, pendingRecords - batch.entries().size());
+        }
+
+        while (!segments.isEmpty() && segments.firstKey() < end.segment()) {
+            Map.Entry<Long, Path> consumed = segments.pollFirstEntry();
+            if (consumed.getKey() == readSeq) {
+                readBuffer = null;
+                readSeq = -1;
+            }
+            Files.deleteIfExists(consumed.getValue());
+        }
+        if (pendingRecords < 0) {
+            pendingRecords = countPending();
+        }
+    }
+
+    public synchronized long pendingRecords() {
+        return pendingRecords;
+    }
+
+    public synchronized boolean isEmpty() {
+        return pendingRecords == 0;
+    }
+
+    public synchronized long diskBytes() {
+        return (long) segments.size() * segmentBytes;
+    }
+
+    // --- AUXILIARES ---
+
+    /**
+     * Registros pendientes desde el checkpoint (en los segmentos sellados, hasta el último registro válido).
+     */
+    private long countPending() throws IOException {
+        long count = 0;
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            if (entry.getKey() < committed.segment()) {
+                continue;
+            }
+            ByteBuffer buffer = entry.getKey() == activeSeq ? active : mapReadOnly(entry.getValue());
+            int offset = entry.getKey() == committed.segment() ? committed.offset() : 0;
+            int end = entry.getKey() == activeSeq ? writeOffset : validTail(buffer, segmentBytes);
+            count += countRecords(buffer, offset, end);
+        }
+        return count;
+    }
+
+    private void openSegment(long seq) throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", PREFIX, seq, EXTENSION));
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        activeSeq = seq;
+        writeOffset = 0;
+        segments.put(seq, path);
+    }
+
+    private ByteBuffer bufferFor(long seq) throws IOException {
+        if (seq == activeSeq) {
+            return active;
+        }
+        if (seq != readSeq) {
+            readBuffer = mapReadOnly(segments.get(seq));
+            readSeq = seq;
+        }
+        return readBuffer;
+    }
+
+    private MappedByteBuffer mapReadOnly(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), segmentBytes));
+        }
+    }
+
+    /**
+     * Offset donde termina el último registro válido (largo coherente y CRC correcto).
+     */
+    private static int validTail(ByteBuffer buffer, int capacity) {
+        int limit = Math.min(capacity, buffer.capacity());
+        int offset = 0;
+        while (offset + HEADER_BYTES <= limit) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + 8 + length > limit) {
+                break;
+            }
+            byte[] payload = new byte[length - 1];
+            buffer.get(offset + HEADER_BYTES, payload);
+            if (!crcMatches(buffer.getInt(offset + 4), buffer.get(offset + 8), payload)) {
+                log.warn("SPOOL: Registro incompleto en el offset {}; se descarta la cola del segmento.", offset);
+                break;
+            }
+            offset += HEADER_BYTES + payload.length;
+        }
+        return offset;
+    }
+
+    private static long countRecords(ByteBuffer buffer, int from, int to) {
+        long count = 0;
+        int offset = from;
+        while (offset + HEADER_BYTES <= to) {
+            int length = buffer.getInt(offset);
+            if (length <= 0) {
+                break;
+            }
+            offset += 8 + length;
+            count++;
+        }
+        return count;
+    }
+
+    private static boolean crcMatches(int expected, byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue() == expected;
+    }
+
+    private Position readCheckpoint() throws IOException {
+        Path path = dir.resolve(CHECKPOINT);
+        if (!Files.exists(path)) {
+            return new Position(segments.isEmpty() ? 1 : segments.firstKey(), 0);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        return new Position(buffer.getLong(), buffer.getInt());
+    }
+
+    private void writeCheckpoint(Position position) throws IOException {
+        Path tmp = dir.resolve(CHECKPOINT + ".tmp");
+        Files.write(tmp, ByteBuffer.allocate(12).putLong(position.segment()).putInt(position.offset()).array());
+        Files.move(tmp, dir.resolve(CHECKPOINT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,54 @@
+package com.api.plant.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Enteros de longitud variable (LEB128) y codificación zigzag.
+ * Los deltas pequeños (lo normal entre lecturas consecutivas) ocupan 1 o 2 bytes.
+ */
+public final class VarInts {
+
+    private VarInts() {
+    }
+
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalStateException("VarLong mal formado.");
+            }
+        }
+    }
+
+    public static void writeSignedVarLong(ByteArrayOutputStream out, long value) {
+        writeVarLong(out, zigzag(value));
+    }
+
+    public static long readSignedVarLong(ByteBuffer in) {
+        return unzigzag(readVarLong(in));
+    }
+}
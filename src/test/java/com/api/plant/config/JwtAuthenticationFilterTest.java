@@ -0,0 +1,113 @@
+package com.api.plant.config;
+
+import com.api.plant.dto.AuthenticatedUser;
+import com.api.plant.dto.TokenResponse;
+import com.api.plant.entity.AppUser;
+import com.api.plant.service.TokenService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(new byte[32]);
+
+    private final TokenService tokenService = tokenService(900);
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter(tokenService);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void validBearerAuthenticatesAndSavesContextForLaterDispatches() throws Exception {
+        MockHttpServletRequest request = request("/api/plants", tokenService.issue(user()).accessToken());
+
+        Authentication inChain = filter(request);
+
+        AuthenticatedUser principal = assertInstanceOf(AuthenticatedUser.class, inChain.getPrincipal());
+        assertEquals("user-ana", principal.getName());
+
+        // Un dispatch ASYNC/ERROR recupera el contexto del atributo del request
+        SecurityContext saved = new RequestAttributeSecurityContextRepository().loadDeferredContext(request).get();
+        assertEquals(inChain, saved.getAuthentication());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void expiredBearerContinuesUnauthenticated() throws Exception {
+        String expired = tokenService(-60).issue(user()).accessToken();
+
+        assertUnauthenticated(request("/api/plants", expired));
+    }
+
+    @Test
+    void refreshTokenIsNotAcceptedAsAccessToken() throws Exception {
+        TokenResponse tokens = tokenService.issue(user());
+
+        assertUnauthenticated(request("/api/plants", tokens.refreshToken()));
+    }
+
+    @Test
+    void invalidBearerOnPermitAllRouteStillReachesChain() throws Exception {
+        // /api/auth/refresh es permitAll: un Bearer ilegible en el header no debe cortarlo
+        assertUnauthenticated(request("/api/auth/refresh", "no-es-un-jwt"));
+    }
+
+    // --- AUXILIARES ---
+
+    private void assertUnauthenticated(MockHttpServletRequest request) throws Exception {
+        AtomicBoolean reached = new AtomicBoolean();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> {
+            reached.set(true);
+            assertNull(SecurityContextHolder.getContext().getAuthentication());
+        });
+
+        assertTrue(reached.get());
+        assertEquals(200, response.getStatus());
+        assertNull(new RequestAttributeSecurityContextRepository().loadDeferredContext(request).get().getAuthentication());
+    }
+
+    private Authentication filter(MockHttpServletRequest request) throws Exception {
+        AtomicReference<Authentication> inChain = new AtomicReference<>();
+        FilterChain chain = (req, res) -> inChain.set(SecurityContextHolder.getContext().getAuthentication());
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return inChain.get();
+    }
+
+    private static MockHttpServletRequest request(String uri, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        return request;
+    }
+
+    private static TokenService tokenService(long accessTtlSeconds) {
+        return new TokenService(new ObjectMapper(), SECRET, "backend-sp", accessTtlSeconds, 1209600);
+    }
+
+    private static AppUser user() {
+        AppUser user = new AppUser();
+        user.setId("user-ana");
+        user.setUsername("ana");
+        return user;
+    }
+}
@@ -0,0 +1,128 @@
+package com.api.plant.config;
+
+import com.api.plant.dto.AuthenticatedUser;
+import com.api.plant.entity.PlantDevice;
+import com.api.plant.repository.PlantDeviceRepository;
+import com.api.plant.service.CurrentUserService;
+import com.api.plant.service.TokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.security.Principal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StompSubscriptionInterceptorTest {
+
+    private static final Principal ANA = new AuthenticatedUser("user-ana", "ana");
+
+    private StompSubscriptionInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        CurrentUserService currentUserService = mock(CurrentUserService.class);
+        when(currentUserService.findUserId(any())).thenAnswer(invocation ->
+                Optional.of(((Principal) invocation.getArgument(0)).getName()));
+
+        PlantDevice own = new PlantDevice();
+        own.setPlantId("PNT-ANA001");
+        own.setOwnerId("user-ana");
+        PlantDevice other = new PlantDevice();
+        other.setPlantId("PNT-BOB001");
+        other.setOwnerId("user-bob");
+
+        PlantDeviceRepository plantDeviceRepository = mock(PlantDeviceRepository.class);
+        when(plantDeviceRepository.findByPlantId(any())).thenReturn(Optional.empty());
+        when(plantDeviceRepository.findByPlantId("PNT-ANA001")).thenReturn(Optional.of(own));
+        when(plantDeviceRepository.findByPlantId("PNT-BOB001")).thenReturn(Optional.of(other));
+
+        interceptor = new StompSubscriptionInterceptor(currentUserService, mock(TokenService.class), plantDeviceRepository);
+    }
+
+    @Test
+    void ownerCanSubscribeToOwnReadings() {
+        Message<byte[]> message = frame(StompCommand.SUBSCRIBE, "/topic/plants/PNT-ANA001/readings", ANA);
+        assertSame(message, interceptor.preSend(message, null));
+    }
+
+    @Test
+    void privateQueuesThroughUserPrefixAreAllowed() {
+        Message<byte[]> alerts = frame(StompCommand.SUBSCRIBE, "/user/queue/alerts", ANA);
+        assertSame(alerts, interceptor.preSend(alerts, null));
+        Message<byte[]> health = frame(StompCommand.SUBSCRIBE, "/user/queue/device-health", ANA);
+        assertSame(health, interceptor.preSend(health, null));
+    }
+
+    @Test
+    void otherUsersReadingsAreRejected() {
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/plants/PNT-BOB001/readings");
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/plants/PNT-NOEXISTE/readings");
+    }
+
+    @Test
+    void brokerWildcardsAreRejected() {
+        // AntPathMatcher (broker simple)
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/**");
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/*/PNT-BOB001/readings");
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/plants/*/readings");
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/plants/PNT-BOB00?/readings");
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/plants/{id}/readings");
+        // RabbitMQ / ActiveMQ (modo relay)
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/#");
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/plants.>");
+        assertRejected(StompCommand.SUBSCRIBE, "/user/queue/*");
+    }
+
+    @Test
+    void systemAndUnknownTopicsAreRejected() {
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/simp-user-registry");
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/unresolved-user-destination");
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/plants/PNT-ANA001");
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/plants/PNT-ANA001/readings/extra");
+        assertRejected(StompCommand.SUBSCRIBE, "/topic/alerts");
+    }
+
+    @Test
+    void directQueueSubscriptionsAreRejected() {
+        assertRejected(StompCommand.SUBSCRIBE, "/queue/alerts-userabc123");
+        assertRejected(StompCommand.SUBSCRIBE, "/queue/alerts");
+    }
+
+    @Test
+    void clientsCanOnlySendToApplicationDestinations() {
+        Message<byte[]> app = frame(StompCommand.SEND, "/app/ping", ANA);
+        assertSame(app, interceptor.preSend(app, null));
+
+        assertRejected(StompCommand.SEND, "/user/user-bob/queue/alerts");
+        assertRejected(StompCommand.SEND, "/topic/simp-user-registry");
+        assertRejected(StompCommand.SEND, "/topic/plants/PNT-BOB001/readings");
+        assertRejected(StompCommand.SEND, "/queue/alerts-userabc123");
+    }
+
+    // --- AUXILIARES ---
+
+    private void assertRejected(StompCommand command, String destination) {
+        Message<byte[]> message = frame(command, destination, ANA);
+        assertThrows(MessageDeliveryException.class, () -> interceptor.preSend(message, null), destination);
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        accessor.setSessionId("session-1");
+        accessor.setSubscriptionId("sub-1");
+        accessor.setUser(user);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
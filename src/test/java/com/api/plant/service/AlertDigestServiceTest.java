@@ -0,0 +1,87 @@
+package com.api.plant.service;
+
+import com.api.plant.entity.AppUser;
+import com.api.plant.entity.Reading.AdvisorResult;
+import com.api.plant.repository.AppUserRepository;
+import com.api.plant.service.NotificationDispatcher.PendingAlert;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AlertDigestServiceTest {
+
+    private EmailService emailService;
+    private AppUserRepository userRepository;
+    private AlertDigestService digestService;
+
+    @BeforeEach
+    void setUp() {
+        emailService = mock(EmailService.class);
+        userRepository = mock(AppUserRepository.class);
+        digestService = new AlertDigestService(emailService, userRepository);
+        ReflectionTestUtils.setField(digestService, "enabled", true);
+        ReflectionTestUtils.setField(digestService, "maxItems", 50);
+
+        when(userRepository.findAllById(any())).thenReturn(List.of(user()));
+    }
+
+    @Test
+    void alertsSurviveAFailedUserLookup() {
+        digestService.record(alert("PNT-A1"));
+        when(userRepository.findAllById(any()))
+                .thenThrow(new DataAccessResourceFailureException("Mongo caído"))
+                .thenReturn(List.of(user()));
+
+        digestService.sendDigests();
+        verify(emailService, never()).enviarCorreo(anyString(), anyString(), anyString());
+
+        digestService.record(alert("PNT-A2"));
+        when(emailService.enviarCorreo(anyString(), anyString(), anyString())).thenReturn(true);
+        digestService.sendDigests();
+
+        ArgumentCaptor<String> subject = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+        verify(emailService).enviarCorreo(eq("ana@example.com"), subject.capture(), body.capture());
+        assertTrue(subject.getValue().endsWith("(2)"));
+        assertTrue(body.getValue().indexOf("PNT-A1") < body.getValue().indexOf("PNT-A2"));
+    }
+
+    @Test
+    void digestIsRetriedWhenOutboxIsFull() {
+        digestService.record(alert("PNT-A1"));
+        when(emailService.enviarCorreo(anyString(), anyString(), anyString())).thenReturn(false, true);
+
+        digestService.sendDigests();
+        digestService.sendDigests();
+        digestService.sendDigests(); // Ya enviado: no queda nada pendiente
+
+        verify(emailService, times(2)).enviarCorreo(eq("ana@example.com"), anyString(), anyString());
+    }
+
+    private static AppUser user() {
+        AppUser ana = new AppUser();
+        ana.setId("user-ana");
+        ana.setUsername("ana");
+        ana.setEmail("ana@example.com");
+        return ana;
+    }
+
+    private static PendingAlert alert(String plantId) {
+        return new PendingAlert("user-ana", plantId, Instant.now(), AdvisorResult.CRITICA, 25.0, 50, 10, 1000);
+    }
+}
@@ -0,0 +1,127 @@
+package com.api.plant.service;
+
+import com.api.plant.dto.DeviceChangedEvent;
+import com.api.plant.entity.PlantDevice;
+import com.api.plant.entity.Reading;
+import com.api.plant.entity.SensorCalibration;
+import com.api.plant.entity.SensorCalibration.CalibrationPoint;
+import com.api.plant.entity.SensorCalibration.MetricCalibration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CalibrationServiceTest {
+
+    // apply() no usa el repositorio
+    private final CalibrationService calibrationService = new CalibrationService(null);
+
+    @Test
+    void twoPointSoilCurveIsClampedToPercentRangeInsideRawDomain() {
+        PlantDevice device = device(profile -> profile.setSoilHumidity(points(
+                new CalibrationPoint(30, 0), new CalibrationPoint(80, 100))));
+
+        assertEquals(0, soil(device, 10));      // Extrapolado -40 -> 0
+        assertEquals(0, soil(device, 30));
+        assertEquals(50, soil(device, 55));
+        assertEquals(100, soil(device, 80));
+        assertEquals(100, soil(device, 85));    // Extrapolado 110 -> 100
+        assertEquals(100, soil(device, 100));
+    }
+
+    @Test
+    void rawValuesOutsidePercentDomainReachQcUncalibrated() {
+        PlantDevice device = device(profile -> profile.setSoilHumidity(points(
+                new CalibrationPoint(30, 0), new CalibrationPoint(80, 100))));
+
+        // Crudos imposibles: el QC de límites físicos debe verlos tal cual para marcar OUT_OF_RANGE
+        assertEquals(130, soil(device, 130));
+        assertEquals(-5, soil(device, -5));
+    }
+
+    @Test
+    void deviceChangeEvictsCompiledCurve() {
+        PlantDevice device = device(profile -> profile.setSoilHumidity(points(
+                new CalibrationPoint(0, 0), new CalibrationPoint(100, 50))));
+        assertEquals(25, soil(device, 50));
+
+        // Vinculado de nuevo con otro perfil que repite la versión 1
+        device.getCalibration().setSoilHumidity(points(new CalibrationPoint(0, 10), new CalibrationPoint(100, 110)));
+        calibrationService.onDeviceChanged(new DeviceChangedEvent(device.getPlantId(), "user-1", null, null,
+                true, DeviceChangedEvent.Change.REGISTERED, null));
+        assertEquals(60, soil(device, 50));
+    }
+
+    @Test
+    void threePointCurveUsesOneSegmentPerRange() {
+        PlantDevice device = device(profile -> profile.setAmbientHumidity(points(
+                new CalibrationPoint(20, 10), new CalibrationPoint(60, 50), new CalibrationPoint(90, 95))));
+
+        assertEquals(10, ambient(device, 20));
+        assertEquals(30, ambient(device, 40));  // Primer tramo: pendiente 1
+        assertEquals(50, ambient(device, 60));  // Punto de quiebre
+        assertEquals(80, ambient(device, 80));  // Segundo tramo: pendiente 1.5
+        assertEquals(95, ambient(device, 90));
+        assertEquals(100, ambient(device, 95)); // 102.5 -> 100
+        assertEquals(0, ambient(device, 5));    // -5 -> 0
+    }
+
+    @Test
+    void gainAndOffsetForNonPercentMetrics() {
+        MetricCalibration temp = new MetricCalibration();
+        temp.setGain(1.1);
+        temp.setOffset(-2.0);
+        PlantDevice device = device(profile -> profile.setTempC(temp));
+
+        Reading reading = new Reading();
+        reading.setTempC(30.0);
+        calibrationService.apply(reading, device);
+        assertEquals(31.0, reading.getTempC(), 1e-9);
+    }
+
+    @Test
+    void recompilesWhenProfileVersionChanges() {
+        PlantDevice device = device(profile -> profile.setSoilHumidity(points(
+                new CalibrationPoint(0, 0), new CalibrationPoint(100, 50))));
+        assertEquals(25, soil(device, 50));
+
+        device.getCalibration().setSoilHumidity(points(new CalibrationPoint(0, 10), new CalibrationPoint(100, 110)));
+        device.getCalibration().setVersion(device.getCalibration().getVersion() + 1);
+        assertEquals(60, soil(device, 50));
+        assertEquals(100, soil(device, 95));
+    }
+
+    // --- AUXILIARES ---
+
+    private int soil(PlantDevice device, int raw) {
+        Reading reading = new Reading();
+        reading.setSoilHumidity(raw);
+        calibrationService.apply(reading, device);
+        return reading.getSoilHumidity();
+    }
+
+    private int ambient(PlantDevice device, int raw) {
+        Reading reading = new Reading();
+        reading.setAmbientHumidity(raw);
+        calibrationService.apply(reading, device);
+        return reading.getAmbientHumidity();
+    }
+
+    private static PlantDevice device(Consumer<SensorCalibration> setup) {
+        SensorCalibration profile = new SensorCalibration();
+        profile.setVersion(1);
+        setup.accept(profile);
+        PlantDevice device = new PlantDevice();
+        device.setPlantId("PNT-TEST01");
+        device.setCalibration(profile);
+        return device;
+    }
+
+    private static MetricCalibration points(CalibrationPoint... points) {
+        MetricCalibration metric = new MetricCalibration();
+        metric.setPoints(List.of(points));
+        return metric;
+    }
+}
@@ -0,0 +1,195 @@
+package com.api.plant.service;
+
+import com.api.plant.config.WorkerThreads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Entrega del outbox contra un servidor SMTP en proceso (SmtpSink, abajo).
+ */
+class EmailServiceTest {
+
+    private SmtpSink smtp;
+    private SimpleMeterRegistry meterRegistry;
+    private EmailService emailService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtp = new SmtpSink();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (emailService != null) {
+            emailService.stop();
+        }
+        smtp.close();
+    }
+
+    @Test
+    void deliversQueuedMailInOneSmtpSession() {
+        emailService = newService(50, 5);
+        // Se encola antes de arrancar el hilo: el primer lote los lleva a todos
+        for (int i = 0; i < 5; i++) {
+            assertTrue(emailService.enviarCorreo("user" + i + "@example.com", "Asunto " + i, "Cuerpo " + i));
+        }
+        emailService.start();
+
+        await(() -> smtp.messages.size() == 5);
+        // El contador sube cuando send() vuelve, después de que el servidor ya recibió el DATA
+        await(() -> meterRegistry.counter("email.sent").count() == 5.0);
+        assertEquals(1, smtp.sessions.get());
+        assertTrue(smtp.messages.get(0).contains("Subject: Asunto 0"));
+        assertTrue(smtp.messages.get(4).contains("Cuerpo 4"));
+        assertEquals(5.0, meterRegistry.counter("email.sent").count());
+    }
+
+    @Test
+    void retriesTransientFailures() {
+        smtp.rejectNextMessages.set(1); // 451 en el primer DATA
+        emailService = newService(50, 5);
+        emailService.start();
+
+        assertTrue(emailService.enviarCorreo("ana@example.com", "Alerta", "Riego"));
+
+        await(() -> smtp.messages.size() == 1);
+        await(() -> meterRegistry.counter("email.sent").count() == 1.0);
+        assertTrue(smtp.sessions.get() >= 2);
+        assertEquals(1.0, meterRegistry.counter("email.retried").count());
+        assertEquals(1.0, meterRegistry.counter("email.sent").count());
+    }
+
+    @Test
+    void rejectsWhenOutboxIsFull() {
+        emailService = newService(2, 5);
+        assertTrue(emailService.enviarCorreo("a@example.com", "1", "1"));
+        assertTrue(emailService.enviarCorreo("b@example.com", "2", "2"));
+        assertFalse(emailService.enviarCorreo("c@example.com", "3", "3"));
+        assertEquals(1.0, meterRegistry.counter("email.rejected", "reason", "outbox_full").count());
+    }
+
+    // --- AUXILIARES ---
+
+    private EmailService newService(int capacity, int maxAttempts) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(smtp.port());
+        mailSender.getJavaMailProperties().put("mail.smtp.from", "backend@example.com");
+        return new EmailService(mailSender, meterRegistry, new WorkerThreads(new MockEnvironment()),
+                capacity, 50, maxAttempts, 10, 100);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condición no cumplida en 10 s");
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * Servidor SMTP mínimo: acepta todo, guarda cada mensaje y cuenta las sesiones.
+     * rejectNextMessages > 0 responde 451 (error temporal) al DATA de ese número de mensajes.
+     */
+    private static final class SmtpSink implements AutoCloseable {
+        private final ServerSocket server = new ServerSocket(0);
+        final List<String> messages = new CopyOnWriteArrayList<>();
+        final AtomicInteger sessions = new AtomicInteger();
+        final AtomicInteger rejectNextMessages = new AtomicInteger();
+
+        SmtpSink() throws IOException {
+            Thread.ofPlatform().daemon(true).name("smtp-sink").start(this::acceptLoop);
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    sessions.incrementAndGet();
+                    Thread.ofPlatform().daemon(true).start(() -> handle(socket));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void handle(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                 Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII)) {
+                reply(out, "220 localhost ESMTP");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                    switch (command) {
+                        case "EHLO", "HELO" -> reply(out, "250 localhost");
+                        case "DATA" -> {
+                            reply(out, "354 Fin con <CRLF>.<CRLF>");
+                            StringBuilder data = new StringBuilder();
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                data.append(line).append('\n');
+                            }
+                            if (rejectNextMessages.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                                reply(out, "451 Error temporal");
+                            } else {
+                                messages.add(data.toString());
+                                reply(out, "250 OK");
+                            }
+                        }
+                        case "QUIT" -> {
+                            reply(out, "221 Adiós");
+                            return;
+                        }
+                        default -> reply(out, "250 OK"); // MAIL, RCPT, RSET, NOOP
+                    }
+                }
+            } catch (IOException e) {
+                // Cliente desconectado
+            }
+        }
+
+        private static void reply(Writer out, String line) throws IOException {
+            out.write(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+}
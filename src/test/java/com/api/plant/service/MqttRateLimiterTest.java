@@ -0,0 +1,78 @@
+package com.api.plant.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static com.api.plant.service.MqttRateLimiter.Endpoint.ACL;
+import static com.api.plant.service.MqttRateLimiter.Endpoint.AUTH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MqttRateLimiterTest {
+
+    // Ráfaga de 3 y recarga muy lenta: dentro del test un bucket vacío no se recupera
+    private static MqttRateLimiter limiter(int maxKeys) {
+        return new MqttRateLimiter(new SimpleMeterRegistry(), true, Set.of("backend"), Set.of("provision_user"),
+                maxKeys, 3, 0.001, 3, 0.001);
+    }
+
+    @Test
+    void sharedProvisioningUserIsLimitedPerClientIdOnly() {
+        MqttRateLimiter limiter = limiter(1000);
+
+        for (int device = 0; device < 50; device++) {
+            assertEquals(0, limiter.tryAcquire(AUTH, "provision_user", "esp32-" + device));
+            limiter.recordAuthFailure("provision_user");
+        }
+        // Un solo client id sí se limita
+        for (int i = 0; i < 2; i++) {
+            assertEquals(0, limiter.tryAcquire(AUTH, "provision_user", "esp32-0"));
+        }
+        assertTrue(limiter.tryAcquire(AUTH, "provision_user", "esp32-0") > 0);
+    }
+
+    @Test
+    void usernameBucketIsChargedOnlyByFailedCredentials() {
+        MqttRateLimiter limiter = limiter(1000);
+
+        // Reconexiones exitosas desde client ids distintos: el username no se gasta
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, limiter.tryAcquire(AUTH, "PNT-ABC123", "conn-" + i));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            limiter.recordAuthFailure("PNT-ABC123");
+        }
+        // Fuerza bruta repartida en client ids nuevos: bloqueada por el username
+        assertTrue(limiter.tryAcquire(AUTH, "PNT-ABC123", "otro-cliente") > 0);
+        // Los demás usernames no se ven afectados, y el ACL no mira el username
+        assertEquals(0, limiter.tryAcquire(AUTH, "PNT-XYZ789", "otro-cliente"));
+        assertEquals(0, limiter.tryAcquire(ACL, "PNT-ABC123", "conn-0"));
+    }
+
+    @Test
+    void newKeysPastMaxKeysAreNotThrottledTogether() {
+        MqttRateLimiter limiter = limiter(2);
+
+        assertEquals(0, limiter.tryAcquire(AUTH, "a", "c1"));
+        assertEquals(0, limiter.tryAcquire(AUTH, "b", "c2"));
+        // Tabla llena: cada clave nueva pasa por su cuenta, sin agotar un bucket común
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0, limiter.tryAcquire(AUTH, "x" + i, "nuevo-" + i));
+        }
+        // Las claves con bucket se siguen limitando
+        limiter.tryAcquire(AUTH, "a", "c1");
+        limiter.tryAcquire(AUTH, "a", "c1");
+        assertTrue(limiter.tryAcquire(AUTH, "a", "c1") > 0);
+    }
+
+    @Test
+    void exemptUserIsNeverLimited() {
+        MqttRateLimiter limiter = limiter(1000);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(0, limiter.tryAcquire(AUTH, "backend", "backend-1"));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.api.plant.service;
+
+import com.api.plant.entity.Reading;
+import com.api.plant.storage.ReadingSpool;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadingStorageServiceTest {
+
+    private Path dir;
+    private ReadingSpool spool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("storage-test");
+        spool = new ReadingSpool(dir.toString(), 4096, 4096 * 8L);
+        spool.recover();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        spool.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void qcErrorReadingWithoutMetadataRoundTripsThroughSpool() throws IOException {
+        // Payload ilegible: sin métricas, y sin plantId/userId si no se conocía el dispositivo
+        Reading reading = new Reading();
+        reading.setId(new ObjectId().toHexString());
+        reading.setTimestamp(Instant.ofEpochMilli(1_700_000_000_123L));
+        reading.setQcStatus(Reading.QcStatus.QC_ERROR);
+
+        Reading decoded = roundTrip(reading);
+
+        assertEquals(reading.getId(), decoded.getId());
+        assertNull(decoded.getPlantId());
+        assertNull(decoded.getUserId());
+        assertEquals(reading.getTimestamp(), decoded.getTimestamp());
+        assertNull(decoded.getTempC());
+        assertNull(decoded.getAmbientHumidity());
+        assertNull(decoded.getSoilHumidity());
+        assertNull(decoded.getLightLux());
+        assertEquals(Reading.QcStatus.QC_ERROR, decoded.getQcStatus());
+        assertEquals(reading.getAdvisorResult(), decoded.getAdvisorResult());
+    }
+
+    @Test
+    void validReadingRoundTripsThroughSpool() throws IOException {
+        Reading reading = new Reading();
+        reading.setId(new ObjectId().toHexString());
+        reading.setPlantId("PNT-TEST01");
+        reading.setUserId("user-1");
+        reading.setTimestamp(Instant.ofEpochMilli(1_700_000_060_000L));
+        reading.setTempC(21.5);
+        reading.setSoilHumidity(42);
+        reading.setQcStatus(Reading.QcStatus.VALID);
+        reading.setAdvisorResult(Reading.AdvisorResult.INFO);
+
+        Reading decoded = roundTrip(reading);
+
+        assertEquals("PNT-TEST01", decoded.getPlantId());
+        assertEquals("user-1", decoded.getUserId());
+        assertEquals(21.5, decoded.getTempC());
+        assertNull(decoded.getAmbientHumidity());
+        assertEquals(42, decoded.getSoilHumidity());
+        assertEquals(Reading.QcStatus.VALID, decoded.getQcStatus());
+        assertEquals(Reading.AdvisorResult.INFO, decoded.getAdvisorResult());
+    }
+
+    private Reading roundTrip(Reading reading) throws IOException {
+        assertTrue(spool.append(ReadingSpool.TYPE_READING, ReadingStorageService.encodeReading(reading)));
+        ReadingSpool.Batch batch = spool.read(10);
+        assertEquals(1, batch.entries().size());
+        spool.commit(batch);
+        return ReadingStorageService.decodeReading(batch.entries().get(0).payload());
+    }
+}
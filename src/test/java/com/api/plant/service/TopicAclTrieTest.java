@@ -0,0 +1,162 @@
+package com.api.plant.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.api.plant.service.TopicAclTrie.READ;
+import static com.api.plant.service.TopicAclTrie.SUBSCRIBE;
+import static com.api.plant.service.TopicAclTrie.WRITE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopicAclTrieTest {
+
+    // Mismos valores por defecto que application.properties
+    private static final TopicAclTrie BACKEND = TopicAclTrie.compile(
+            List.of("all planta/#", "all control/#", "all test/inbox/#"));
+    private static final TopicAclTrie PROVISIONING = TopicAclTrie.compile(
+            List.of("pub control/provisioning/discovery/#", "sub control/provisioning/device/#", "all test/inbox/#"));
+    private static final TopicAclTrie DEVICE = TopicAclTrie.compile(
+            List.of("pub planta/%u/lecturas", "sub planta/%u/command/"));
+
+    private static final int[] ACCESSES = {READ, WRITE, SUBSCRIBE};
+
+    private static final String PLANT = "PNT-ABC123";
+
+    // Tópicos donde las reglas compiladas deben decidir igual que los startsWith/equals anteriores
+    private static final List<String> TOPICS = List.of(
+            "planta/PNT-ABC123/lecturas",
+            "planta/PNT-ABC123/command/",
+            "planta/PNT-OTHER1/lecturas",
+            "planta/PNT-OTHER1/command/",
+            "planta/PNT-ABC123/lecturas/extra",
+            "control/provisioning/discovery",
+            "control/provisioning/discovery/AA:BB:CC",
+            "control/provisioning/device/AA:BB:CC",
+            "control/otro",
+            "test/inbox/x",
+            "otro/tópico",
+            "$SYS/broker/uptime");
+
+    @Test
+    void defaultBackendRulesMatchPreviousDecisions() {
+        for (String topic : TOPICS) {
+            for (int access : ACCESSES) {
+                boolean previous = topic.startsWith("planta/") || topic.startsWith("control/")
+                        || topic.startsWith("test/inbox");
+                assertEquals(previous, BACKEND.allows(topic, access, "backend", "backend-1"), topic + " acc=" + access);
+            }
+        }
+    }
+
+    @Test
+    void defaultProvisioningRulesMatchPreviousDecisions() {
+        for (String topic : TOPICS) {
+            for (int access : ACCESSES) {
+                boolean previous = (access == WRITE && topic.startsWith("control/provisioning/discovery"))
+                        || ((access == READ || access == SUBSCRIBE) && topic.startsWith("control/provisioning/device/"))
+                        || topic.startsWith("test/inbox");
+                assertEquals(previous, PROVISIONING.allows(topic, access, "provision_user", "esp32-AABBCC"),
+                        topic + " acc=" + access);
+            }
+        }
+    }
+
+    @Test
+    void defaultDeviceRulesMatchPreviousDecisions() {
+        for (String topic : TOPICS) {
+            boolean write = topic.equals("planta/" + PLANT + "/lecturas");
+            boolean read = topic.equals("planta/" + PLANT + "/command/");
+            assertEquals(write, DEVICE.allows(topic, WRITE, PLANT, "esp32-AABBCC"), topic);
+            assertEquals(read, DEVICE.allows(topic, READ, PLANT, "esp32-AABBCC"), topic);
+        }
+    }
+
+    @Test
+    void multiLevelWildcardMatchesParentLevel() {
+        TopicAclTrie trie = TopicAclTrie.compile(List.of("read a/b/#"));
+
+        assertTrue(trie.allows("a/b", READ, null, null));
+        assertTrue(trie.allows("a/b/c", READ, null, null));
+        assertTrue(trie.allows("a/b/c/d", READ, null, null));
+        assertFalse(trie.allows("a", READ, null, null));
+        assertFalse(trie.allows("a/bc", READ, null, null));
+    }
+
+    @Test
+    void wildcardsDoNotMatchDollarTopicsAtFirstLevel() {
+        TopicAclTrie trie = TopicAclTrie.compile(List.of("read #", "write +/uptime"));
+
+        assertTrue(trie.allows("planta/x", READ, null, null));
+        assertFalse(trie.allows("$SYS/broker", READ, null, null));
+        assertTrue(trie.allows("broker/uptime", WRITE, null, null));
+        assertFalse(trie.allows("$SYS/uptime", WRITE, null, null));
+
+        // Un '$' más abajo del primer nivel es un nivel como cualquier otro
+        assertTrue(TopicAclTrie.compile(List.of("read a/+")).allows("a/$x", READ, null, null));
+        // Y una regla literal sí puede nombrarlos
+        assertTrue(TopicAclTrie.compile(List.of("read $SYS/#")).allows("$SYS/broker", READ, null, null));
+    }
+
+    @Test
+    void emptyOrNullSubstitutionsNeverMatch() {
+        TopicAclTrie trie = TopicAclTrie.compile(List.of("all u/%u/x", "all c/%c/x"));
+
+        assertTrue(trie.allows("u/ana/x", READ, "ana", "c1"));
+        assertTrue(trie.allows("c/c1/x", READ, "ana", "c1"));
+
+        assertFalse(trie.allows("u//x", READ, "", ""));
+        assertFalse(trie.allows("c//x", READ, "", ""));
+        assertFalse(trie.allows("u/null/x", READ, null, null));
+        assertFalse(trie.allows("c/null/x", READ, null, null));
+        assertFalse(trie.allows("u//x", READ, null, null));
+        // Un username con '/' no puede cubrir dos niveles
+        assertFalse(trie.allows("u/a/b/x", READ, "a/b", null));
+    }
+
+    @Test
+    void accessBitsMustAllBeGranted() {
+        TopicAclTrie read = TopicAclTrie.compile(List.of("read t"));
+        TopicAclTrie write = TopicAclTrie.compile(List.of("write t"));
+        TopicAclTrie subscribe = TopicAclTrie.compile(List.of("subscribe t"));
+        TopicAclTrie readWrite = TopicAclTrie.compile(List.of("readwrite t"));
+
+        assertTrue(read.allows("t", 1, null, null));
+        assertFalse(read.allows("t", 2, null, null));
+        assertFalse(read.allows("t", 4, null, null));
+        assertFalse(read.allows("t", 3, null, null));
+
+        assertFalse(write.allows("t", 1, null, null));
+        assertTrue(write.allows("t", 2, null, null));
+        assertFalse(write.allows("t", 3, null, null));
+
+        assertTrue(subscribe.allows("t", 4, null, null));
+        assertFalse(subscribe.allows("t", 1, null, null));
+
+        assertTrue(readWrite.allows("t", 1, null, null));
+        assertTrue(readWrite.allows("t", 2, null, null));
+        assertTrue(readWrite.allows("t", 3, null, null));
+        assertFalse(readWrite.allows("t", 4, null, null));
+
+        // Dos reglas sobre el mismo filtro suman permisos
+        assertTrue(TopicAclTrie.compile(List.of("read t", "write t")).allows("t", 3, null, null));
+        assertFalse(readWrite.allows("t", 0, null, null));
+    }
+
+    @Test
+    void malformedRulesFailToCompile() {
+        assertThrows(IllegalArgumentException.class, () -> TopicAclTrie.compile(List.of("planta/#")));
+        assertThrows(IllegalArgumentException.class, () -> TopicAclTrie.compile(List.of("read a b")));
+        assertThrows(IllegalArgumentException.class, () -> TopicAclTrie.compile(List.of("admin planta/#")));
+        assertThrows(IllegalArgumentException.class, () -> TopicAclTrie.compile(List.of("read a/#/b")));
+        assertThrows(IllegalArgumentException.class, () -> TopicAclTrie.compile(List.of("read a/b#")));
+        assertThrows(IllegalArgumentException.class, () -> TopicAclTrie.compile(List.of("read a/x+")));
+        assertThrows(IllegalArgumentException.class, () -> TopicAclTrie.compile(List.of("read a/%uid")));
+
+        // Las líneas vacías se ignoran
+        assertEquals(1, TopicAclTrie.compile(List.of("", "  ", "read a")).ruleCount());
+    }
+}
@@ -0,0 +1,129 @@
+package com.api.plant.storage;
+
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.entity.Reading;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ColumnarReadingWriterTest {
+
+    private static final Set<String> ALL_FIELDS = new HashSet<>(ColumnarReadingFormat.FIELDS);
+
+    @Test
+    void nullIdRoundTripsAsNull() throws IOException {
+        ObjectId objectId = new ObjectId();
+        List<ReadingView> readings = List.of(
+                reading(null, 1_000, 21.5, 40, 30, 100),
+                reading("legacy-id", 2_000, 21.5, 40, 30, 100),
+                reading("", 3_000, 21.5, 40, 30, 100),
+                reading(objectId.toHexString(), 4_000, 21.5, 40, 30, 100),
+                reading(null, 5_000, 21.5, 40, 30, 100));
+
+        List<ReadingView> decoded = roundTrip(readings, ALL_FIELDS, 16);
+
+        assertNull(decoded.get(0).id());
+        assertEquals("legacy-id", decoded.get(1).id());
+        assertEquals("", decoded.get(2).id());
+        assertEquals(objectId.toHexString(), decoded.get(3).id());
+        assertNull(decoded.get(4).id());
+    }
+
+    @Test
+    void gorillaTimestampsAndDoublesRoundTrip() throws IOException {
+        long start = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+        // Intervalo regular, jitter, huecos grandes, retrocesos (backfill) y saltos de años
+        long[] timestamps = {start, start + 60_000, start + 120_000, start + 180_500, start + 240_000,
+                start + 240_000, start + 3_600_000, start + 3_540_000, start + 86_400_000L * 400, 0, Long.MAX_VALUE / 2};
+        // Repetidos, cambios mínimos, negativos, null, extremos y valores especiales
+        Double[] temps = {21.5, 21.5, 21.50000001, -3.25, null, 0.0, -0.0, Double.MAX_VALUE, Double.MIN_VALUE,
+                Double.NaN, Double.POSITIVE_INFINITY};
+
+        List<ReadingView> readings = new ArrayList<>();
+        for (int i = 0; i < timestamps.length; i++) {
+            readings.add(reading(new ObjectId().toHexString(), timestamps[i], temps[i], null, null, null));
+        }
+
+        List<ReadingView> decoded = roundTrip(readings, Set.of("tempC"), 4);
+
+        assertEquals(readings.size(), decoded.size());
+        for (int i = 0; i < readings.size(); i++) {
+            assertEquals(readings.get(i).timestamp(), decoded.get(i).timestamp());
+            assertEquals(readings.get(i).tempC(), decoded.get(i).tempC());
+            assertEquals(readings.get(i).id(), decoded.get(i).id());
+        }
+    }
+
+    @Test
+    void varintMetricsRoundTripWithNullsAndNegativeDeltas() throws IOException {
+        Integer[] values = {0, 0, 65, 64, null, 100, -40, Integer.MAX_VALUE, Integer.MIN_VALUE, null, 5};
+
+        List<ReadingView> readings = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            readings.add(reading(null, 1_000L * i, null, values[i], values[values.length - 1 - i], values[i]));
+        }
+
+        List<ReadingView> decoded = roundTrip(readings, Set.of("ambientHumidity", "soilHumidity", "lightLux"), 3);
+
+        for (int i = 0; i < readings.size(); i++) {
+            assertEquals(readings.get(i).ambientHumidity(), decoded.get(i).ambientHumidity());
+            assertEquals(readings.get(i).soilHumidity(), decoded.get(i).soilHumidity());
+            assertEquals(readings.get(i).lightLux(), decoded.get(i).lightLux());
+            // Columnas no exportadas
+            assertNull(decoded.get(i).tempC());
+            assertNull(decoded.get(i).qcStatus());
+        }
+    }
+
+    @Test
+    void runLengthEnumsRoundTripAcrossBlocks() throws IOException {
+        Reading.QcStatus[] qc = Reading.QcStatus.values();
+        Reading.AdvisorResult[] advisor = Reading.AdvisorResult.values();
+
+        List<ReadingView> readings = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            // Corridas largas, de un elemento y nulls; el bloque (7 filas) corta corridas a la mitad
+            Reading.QcStatus status = i < 20 ? qc[0] : i % 5 == 0 ? null : qc[i % qc.length];
+            Reading.AdvisorResult result = i % 9 == 0 ? null : advisor[(i / 4) % advisor.length];
+            readings.add(new ReadingView(null, Instant.ofEpochMilli(60_000L * i), null, null, null, null, status, result));
+        }
+
+        List<ReadingView> decoded = roundTrip(readings, Set.of("qcStatus", "advisorResult"), 7);
+
+        assertEquals(readings, decoded);
+    }
+
+    private static List<ReadingView> roundTrip(List<ReadingView> readings, Set<String> fields, int blockRows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ColumnarReadingWriter writer = new ColumnarReadingWriter(bytes, "PNT-TEST", fields, blockRows);
+        for (ReadingView reading : readings) {
+            writer.write(reading);
+        }
+        writer.finish();
+        assertEquals(readings.size(), writer.getWritten());
+
+        List<ReadingView> decoded = new ArrayList<>();
+        try (ColumnarReadingReader reader = new ColumnarReadingReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals("PNT-TEST", reader.getPlantId());
+            assertEquals(fields, reader.getFields());
+            reader.forEachRemaining(decoded::add);
+        }
+        return decoded;
+    }
+
+    private static ReadingView reading(String id, long timestamp, Double tempC, Integer ambient, Integer soil, Integer light) {
+        return new ReadingView(id, Instant.ofEpochMilli(timestamp), tempC, ambient, soil, light,
+                Reading.QcStatus.VALID, Reading.AdvisorResult.INFO);
+    }
+}
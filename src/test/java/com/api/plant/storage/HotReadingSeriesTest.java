@@ -0,0 +1,70 @@
+package com.api.plant.storage;
+
+import com.api.plant.dto.reading.ReadingView;
+import com.api.plant.entity.Reading;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HotReadingSeriesTest {
+
+    private static final int CHUNK_ROWS = 16;
+
+    @Test
+    void reappendOfLastSealedReadingIsIgnored() {
+        HotReadingSeries series = new HotReadingSeries("PNT-TEST", 0, CHUNK_ROWS);
+        List<ReadingView> readings = readings(CHUNK_ROWS, 1_000);
+        readings.forEach(series::append);
+        assertEquals(CHUNK_ROWS, series.rows());
+
+        // La cabeza quedó vacía al sellar: la repetida tiene ts == maxTs del bloque
+        series.append(readings.get(CHUNK_ROWS - 1));
+
+        assertEquals(CHUNK_ROWS, series.rows());
+    }
+
+    @Test
+    void reappendsOfHeadAndOlderSealedReadingsAreIgnored() {
+        HotReadingSeries series = new HotReadingSeries("PNT-TEST", 0, CHUNK_ROWS);
+        List<ReadingView> readings = readings(CHUNK_ROWS + 3, 1_000);
+        readings.forEach(series::append);
+
+        series.append(readings.get(3));              // Tardía dentro del bloque sellado
+        series.append(readings.get(CHUNK_ROWS + 1)); // En la cabeza
+
+        assertEquals(CHUNK_ROWS + 3, series.rows());
+    }
+
+    @Test
+    void distinctReadingWithSameTimestampAsSealedEndIsKept() {
+        HotReadingSeries series = new HotReadingSeries("PNT-TEST", 0, CHUNK_ROWS);
+        List<ReadingView> readings = readings(CHUNK_ROWS, 1_000);
+        readings.forEach(series::append);
+
+        // Otra lectura en el mismo milisegundo (otro _id) no es una repetida
+        series.append(reading(new ObjectId().toHexString(), readings.get(CHUNK_ROWS - 1).timestamp().toEpochMilli()));
+
+        assertEquals(CHUNK_ROWS + 1, series.rows());
+        HotReadingSeries.Snapshot snapshot = series.snapshot(0, Long.MAX_VALUE);
+        assertEquals(1, snapshot.chunks().size());
+        assertEquals(1, snapshot.head().size());
+    }
+
+    private static List<ReadingView> readings(int count, long start) {
+        List<ReadingView> readings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            readings.add(reading(new ObjectId().toHexString(), start + 60_000L * i));
+        }
+        return readings;
+    }
+
+    private static ReadingView reading(String id, long timestamp) {
+        return new ReadingView(id, Instant.ofEpochMilli(timestamp), 21.5, 40, 30, 100,
+                Reading.QcStatus.VALID, Reading.AdvisorResult.INFO);
+    }
+}
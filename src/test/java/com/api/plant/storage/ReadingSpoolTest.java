@@ -0,0 +1,79 @@
+package com.api.plant.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadingSpoolTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+    // largo (4) | CRC32 (4) | tipo (1) | payload
+    private static final int HEADER_BYTES = 9;
+
+    private Path dir;
+    private ReadingSpool spool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("spool-test");
+        spool = new ReadingSpool(dir.toString(), SEGMENT_BYTES, SEGMENT_BYTES * 8L);
+        spool.recover();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        spool.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void discardedCorruptTailLeavesSpoolEmpty() throws IOException {
+        byte[] payload = new byte[10];
+        for (int i = 0; i < 3; i++) {
+            assertTrue(spool.append(ReadingSpool.TYPE_READING, payload));
+        }
+        // Se corrompe el CRC del segundo registro (el mapeo del segmento activo ve el cambio)
+        corruptCrc(HEADER_BYTES + payload.length);
+
+        ReadingSpool.Batch batch = spool.read(100);
+        assertEquals(1, batch.entries().size());
+        assertTrue(batch.discarded());
+        spool.commit(batch);
+
+        assertEquals(0, spool.pendingRecords());
+        assertTrue(spool.isEmpty());
+
+        // Lo que se escribe después se sigue entregando
+        assertTrue(spool.append(ReadingSpool.TYPE_HEARTBEAT, payload));
+        ReadingSpool.Batch next = spool.read(100);
+        assertEquals(1, next.entries().size());
+        assertFalse(next.discarded());
+        spool.commit(next);
+        assertTrue(spool.isEmpty());
+    }
+
+    private void corruptCrc(int recordOffset) throws IOException {
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(path -> path.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 0xDEADBEEF), recordOffset + 4);
+        }
+    }
+}